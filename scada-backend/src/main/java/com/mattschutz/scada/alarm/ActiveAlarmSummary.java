@@ -0,0 +1,353 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.dto.AlarmSummaryDTO;
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import com.mattschutz.scada.repository.AlarmEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Contadores dos alarmes ativos, mantidos em memória a cada ativação,
+ * reconhecimento e resolução. O resumo é montado uma vez após cada mudança e
+ * servido sem consultar o banco; uma reconciliação periódica com o banco
+ * corrige desvios (ex.: alterações feitas diretamente no banco).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActiveAlarmSummary implements AlarmSubscriber {
+
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+    private static final AlarmType[] TYPES = AlarmType.values();
+
+    private final AlarmEventRepository alarmEventRepository;
+
+    // Estado sob o lock; nunca mantido durante I/O
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<String, Entry> active = new HashMap<>();
+    private long[] bySeverity = new long[SEVERITIES.length];
+    private long[] unacknowledgedBySeverity = new long[SEVERITIES.length];
+    private long[] byType = new long[TYPES.length];
+    private Map<String, Long> byEquipment = new HashMap<>();
+    // Mudanças recebidas durante a consulta da reconciliação; null fora dela
+    private List<Change> changesDuringReconcile;
+
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+
+    private volatile AlarmSummaryDTO snapshot;
+    private volatile LocalDateTime lastReconciledAt;
+    private volatile long corrections;
+
+    /**
+     * Alarme ativo contabilizado
+     */
+    private static final class Entry {
+        final AlarmSeverity severity;
+        final AlarmType type;
+        final String equipmentId;
+        final LocalDateTime raisedAt;
+        boolean acknowledged;
+
+        Entry(AlarmSeverity severity, AlarmType type, String equipmentId, LocalDateTime raisedAt,
+              boolean acknowledged) {
+            this.severity = severity;
+            this.type = type;
+            this.equipmentId = equipmentId;
+            this.raisedAt = raisedAt;
+            this.acknowledged = acknowledged;
+        }
+    }
+
+    private enum ChangeType {
+        RAISED, ACKNOWLEDGED, RESOLVED
+    }
+
+    private static final class Change {
+        final ChangeType type;
+        final String alarmId;
+        final Entry entry;
+
+        Change(ChangeType type, String alarmId, Entry entry) {
+            this.type = type;
+            this.alarmId = alarmId;
+            this.entry = entry;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reconcile();
+    }
+
+    /**
+     * Alarmes gravados / normalizados pelo AlarmPipeline
+     */
+    @Override
+    public void onAlarm(AlarmNotification notification) {
+        if (notification.getAlarmId() == null) {
+            return;
+        }
+        if (notification.getOperation() == AlarmNotification.Operation.RAISED) {
+            raised(notification.getAlarmId(), notification.getSeverity(), notification.getType(),
+                notification.getEquipmentId(), notification.getTimestamp());
+        } else {
+            resolved(notification.getAlarmId());
+        }
+    }
+
+    public void raised(String alarmId, AlarmSeverity severity, AlarmType type, String equipmentId,
+                       LocalDateTime raisedAt) {
+        lock.lock();
+        try {
+            journal(ChangeType.RAISED, alarmId, new Entry(severity, type, equipmentId, raisedAt, false));
+            if (!active.containsKey(alarmId)) {
+                add(alarmId, new Entry(severity, type, equipmentId, raisedAt, false));
+                changed();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void acknowledged(String alarmId) {
+        lock.lock();
+        try {
+            journal(ChangeType.ACKNOWLEDGED, alarmId, null);
+            Entry entry = active.get(alarmId);
+            if (entry != null && !entry.acknowledged) {
+                entry.acknowledged = true;
+                unacknowledgedBySeverity[entry.severity.ordinal()]--;
+                changed();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void resolved(String alarmId) {
+        lock.lock();
+        try {
+            journal(ChangeType.RESOLVED, alarmId, null);
+            Entry entry = active.remove(alarmId);
+            if (entry != null) {
+                bySeverity[entry.severity.ordinal()]--;
+                byType[entry.type.ordinal()]--;
+                if (!entry.acknowledged) {
+                    unacknowledgedBySeverity[entry.severity.ordinal()]--;
+                }
+                if (entry.equipmentId != null) {
+                    byEquipment.computeIfPresent(entry.equipmentId, (id, count) -> count > 1 ? count - 1 : null);
+                }
+                changed();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(String alarmId, Entry entry) {
+        active.put(alarmId, entry);
+        bySeverity[entry.severity.ordinal()]++;
+        byType[entry.type.ordinal()]++;
+        if (!entry.acknowledged) {
+            unacknowledgedBySeverity[entry.severity.ordinal()]++;
+        }
+        if (entry.equipmentId != null) {
+            byEquipment.merge(entry.equipmentId, 1L, Long::sum);
+        }
+    }
+
+    private void journal(ChangeType type, String alarmId, Entry entry) {
+        if (changesDuringReconcile != null) {
+            changesDuringReconcile.add(new Change(type, alarmId, entry));
+        }
+    }
+
+    private void changed() {
+        snapshot = null;
+    }
+
+    /**
+     * Resumo atual; remontado apenas após mudanças
+     */
+    public AlarmSummaryDTO getSummary() {
+        AlarmSummaryDTO current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        lock.lock();
+        try {
+            if (snapshot == null) {
+                snapshot = buildSnapshot();
+            }
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long countActive() {
+        return getSummary().getTotalActive();
+    }
+
+    public long countActive(AlarmSeverity severity) {
+        return getSummary().getBySeverity().get(severity);
+    }
+
+    /**
+     * Alarmes ativos desde antes de before (alarmes permanentes, ISA-18.2)
+     */
+    public long countStanding(LocalDateTime before) {
+        lock.lock();
+        try {
+            long standing = 0;
+            for (Entry entry : active.values()) {
+                if (entry.raisedAt != null && entry.raisedAt.isBefore(before)) {
+                    standing++;
+                }
+            }
+            return standing;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private AlarmSummaryDTO buildSnapshot() {
+        Map<AlarmSeverity, Long> severity = new EnumMap<>(AlarmSeverity.class);
+        Map<AlarmSeverity, Long> unacknowledged = new EnumMap<>(AlarmSeverity.class);
+        long unacknowledgedTotal = 0;
+        for (AlarmSeverity s : SEVERITIES) {
+            severity.put(s, bySeverity[s.ordinal()]);
+            unacknowledged.put(s, unacknowledgedBySeverity[s.ordinal()]);
+            unacknowledgedTotal += unacknowledgedBySeverity[s.ordinal()];
+        }
+        Map<AlarmType, Long> type = new EnumMap<>(AlarmType.class);
+        for (AlarmType t : TYPES) {
+            if (byType[t.ordinal()] > 0) {
+                type.put(t, byType[t.ordinal()]);
+            }
+        }
+        return AlarmSummaryDTO.builder()
+            .totalActive((long) active.size())
+            .unacknowledged(unacknowledgedTotal)
+            .bySeverity(Collections.unmodifiableMap(severity))
+            .unacknowledgedBySeverity(Collections.unmodifiableMap(unacknowledged))
+            .byType(Collections.unmodifiableMap(type))
+            .byEquipment(Collections.unmodifiableMap(new HashMap<>(byEquipment)))
+            .lastReconciledAt(lastReconciledAt)
+            .reconciliationCorrections(corrections)
+            .build();
+    }
+
+    /**
+     * Recalcula os contadores a partir do banco. As mudanças recebidas
+     * durante a consulta são reaplicadas sobre o resultado, na ordem em que
+     * chegaram (ativação, reconhecimento e resolução são idempotentes)
+     */
+    @Scheduled(fixedRateString = "${alarm.summary.reconcile-interval:60000}", initialDelayString = "${alarm.summary.reconcile-interval:60000}")
+    public void reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            lock.lock();
+            try {
+                changesDuringReconcile = new ArrayList<>();
+            } finally {
+                lock.unlock();
+            }
+
+            Map<String, Entry> rebuilt = new HashMap<>();
+            try {
+                List<Object[]> rows = alarmEventRepository.findActiveAlarmKeys();
+                for (Object[] row : rows) {
+                    rebuilt.put((String) row[0], new Entry((AlarmSeverity) row[1], (AlarmType) row[2],
+                        (String) row[3], (LocalDateTime) row[5], Boolean.TRUE.equals(row[4])));
+                }
+            } catch (RuntimeException e) {
+                lock.lock();
+                try {
+                    changesDuringReconcile = null;
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            }
+
+            lock.lock();
+            try {
+                replay(rebuilt, changesDuringReconcile);
+                changesDuringReconcile = null;
+                int drift = difference(rebuilt);
+                if (drift > 0) {
+                    corrections += drift;
+                    log.warn("Resumo de alarmes reconciliado com o banco: {} divergências corrigidas", drift);
+                }
+                active = new HashMap<>(rebuilt.size() * 2);
+                bySeverity = new long[SEVERITIES.length];
+                unacknowledgedBySeverity = new long[SEVERITIES.length];
+                byType = new long[TYPES.length];
+                byEquipment = new HashMap<>();
+                rebuilt.forEach(this::add);
+                lastReconciledAt = LocalDateTime.now();
+                changed();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            reconciling.set(false);
+        }
+    }
+
+    private static void replay(Map<String, Entry> rebuilt, List<Change> changes) {
+        for (Change change : changes) {
+            switch (change.type) {
+                case RAISED:
+                    rebuilt.putIfAbsent(change.alarmId, change.entry);
+                    break;
+                case ACKNOWLEDGED:
+                    Entry entry = rebuilt.get(change.alarmId);
+                    if (entry != null) {
+                        entry.acknowledged = true;
+                    }
+                    break;
+                case RESOLVED:
+                    rebuilt.remove(change.alarmId);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private int difference(Map<String, Entry> rebuilt) {
+        int drift = 0;
+        for (Map.Entry<String, Entry> row : rebuilt.entrySet()) {
+            Entry current = active.get(row.getKey());
+            if (current == null || current.acknowledged != row.getValue().acknowledged) {
+                drift++;
+            }
+        }
+        for (String id : active.keySet()) {
+            if (!rebuilt.containsKey(id)) {
+                drift++;
+            }
+        }
+        return drift;
+    }
+}
@@ -0,0 +1,267 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.dto.ArchivedAlarmDTO;
+import com.mattschutz.scada.entity.AlarmEvent;
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import com.mattschutz.scada.repository.AlarmEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Arquivo histórico de alarmes.
+ *
+ * Alarmes resolvidos há mais de alarm.archive.after-days saem da tabela
+ * alarm_event e vão para segmentos compactados ({@link AlarmSegment}) em
+ * partições diárias (um diretório por dia de ocorrência). As consultas
+ * descartam partições fora do período e segmentos cujo cabeçalho não pode
+ * conter o filtro, e só descompactam o restante.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlarmArchiveService {
+
+    private final AlarmEventRepository alarmEventRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${alarm.archive.directory:./data/alarm-archive}")
+    private String directory;
+
+    @Value("${alarm.archive.after-days:30}")
+    private int afterDays;
+
+    @Value("${alarm.archive.batch-size:5000}")
+    private int batchSize;
+
+    // ReentrantLock em vez de synchronized: a transferência faz I/O de disco e banco
+    private final ReentrantLock archiveLock = new ReentrantLock();
+    private final AtomicLong segmentSequence = new AtomicLong();
+
+    private volatile LocalDateTime lastRunAt;
+    private volatile int lastRunArchived;
+    private final AtomicLong totalArchived = new AtomicLong();
+    private final AtomicLong segmentsWritten = new AtomicLong();
+    private final AtomicLong segmentsScanned = new AtomicLong();
+    private final AtomicLong segmentsPruned = new AtomicLong();
+
+    @Scheduled(cron = "${alarm.archive.cron:0 30 0 * * *}")
+    public void scheduledArchive() {
+        try {
+            archive();
+        } catch (Exception e) {
+            log.error("Erro ao mover alarmes para o arquivo histórico: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Move os alarmes resolvidos antigos para o arquivo histórico. Retorna quantos foram movidos
+     */
+    public int archive() {
+        if (!archiveLock.tryLock()) {
+            throw new IllegalStateException("Transferência para o arquivo histórico já em execução");
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(afterDays);
+            int archived = 0;
+            while (true) {
+                // Cada lote: grava os segmentos e só então remove do banco, na mesma transação
+                Integer moved = transactionTemplate.execute(status -> archiveBatch(cutoff));
+                if (moved == null || moved == 0) {
+                    break;
+                }
+                archived += moved;
+                if (moved < batchSize) {
+                    break;
+                }
+            }
+            lastRunAt = LocalDateTime.now();
+            lastRunArchived = archived;
+            totalArchived.addAndGet(archived);
+            if (archived > 0) {
+                log.info("Alarmes movidos para o arquivo histórico: {} resolvidos antes de {}", archived, cutoff);
+            }
+            return archived;
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<AlarmEvent> alarms = alarmEventRepository.findArchivable(cutoff, PageRequest.of(0, batchSize));
+        if (alarms.isEmpty()) {
+            return 0;
+        }
+        Map<LocalDate, List<AlarmEvent>> days = AlarmSegment.byDay(alarms);
+        try {
+            for (Map.Entry<LocalDate, List<AlarmEvent>> day : days.entrySet()) {
+                Path partition = root().resolve(day.getKey().toString());
+                Files.createDirectories(partition);
+                String name = "alarms-" + System.currentTimeMillis() + "-" + segmentSequence.incrementAndGet()
+                    + AlarmSegment.EXTENSION;
+                AlarmSegment.write(partition.resolve(name), day.getValue());
+                segmentsWritten.incrementAndGet();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar segmento de arquivo histórico de alarmes", e);
+        }
+
+        List<String> ids = new ArrayList<>(alarms.size());
+        for (AlarmEvent alarm : alarms) {
+            ids.add(alarm.getId());
+        }
+        alarmEventRepository.deleteAllByIdInBatch(ids);
+        return alarms.size();
+    }
+
+    /**
+     * Consulta o arquivo. Filtros nulos são ignorados; resultado ordenado por horário
+     */
+    public List<ArchivedAlarmDTO> query(LocalDateTime start, LocalDateTime end, String equipmentId,
+                                        AlarmSeverity severity, AlarmType type, int limit) {
+        if (start == null || end == null || end.isBefore(start)) {
+            throw new IllegalArgumentException("Período inválido");
+        }
+        long from = AlarmSegment.toMillis(start);
+        long to = AlarmSegment.toMillis(end);
+        List<ArchivedAlarmDTO> result = new ArrayList<>();
+        // Um alarme pode estar em dois segmentos se o lote foi gravado e a transação desfeita
+        Set<String> seen = new HashSet<>();
+
+        for (Map.Entry<LocalDate, Path> partition : partitions(start.toLocalDate(), end.toLocalDate()).entrySet()) {
+            List<ArchivedAlarmDTO> day = new ArrayList<>();
+            for (Path segment : segments(partition.getValue())) {
+                try {
+                    if (!AlarmSegment.readHeader(segment).mayContain(from, to, equipmentId, severity, type)) {
+                        segmentsPruned.incrementAndGet();
+                        continue;
+                    }
+                    segmentsScanned.incrementAndGet();
+                    AlarmSegment.scan(segment, alarm -> {
+                        long timestamp = AlarmSegment.toMillis(alarm.getTimestamp());
+                        if (timestamp >= from && timestamp <= to
+                                && (equipmentId == null || equipmentId.equals(alarm.getEquipmentId()))
+                                && (severity == null || severity == alarm.getSeverity())
+                                && (type == null || type == alarm.getType())
+                                && seen.add(alarm.getId())) {
+                            day.add(alarm);
+                        }
+                    });
+                } catch (IOException e) {
+                    log.error("Erro ao ler segmento {}: {}", segment, e.getMessage());
+                }
+            }
+            day.sort(Comparator.comparing(ArchivedAlarmDTO::getTimestamp));
+            result.addAll(day);
+            // Partições em ordem crescente: as seguintes só teriam alarmes posteriores
+            if (result.size() >= limit) {
+                return result.subList(0, limit);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Partições (dias) existentes, com quantidade de segmentos, alarmes e bytes
+     */
+    public List<Map<String, Object>> getPartitions() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<LocalDate, Path> partition : partitions(LocalDate.MIN, LocalDate.MAX).entrySet()) {
+            int segments = 0;
+            long alarms = 0;
+            long bytes = 0;
+            for (Path segment : segments(partition.getValue())) {
+                try {
+                    alarms += AlarmSegment.readHeader(segment).count;
+                    bytes += Files.size(segment);
+                    segments++;
+                } catch (IOException e) {
+                    log.error("Erro ao ler segmento {}: {}", segment, e.getMessage());
+                }
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("day", partition.getKey());
+            entry.put("segments", segments);
+            entry.put("alarms", alarms);
+            entry.put("bytes", bytes);
+            result.add(entry);
+        }
+        return result;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("directory", root().toAbsolutePath().toString());
+        stats.put("afterDays", afterDays);
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunArchived", lastRunArchived);
+        stats.put("totalArchived", totalArchived.get());
+        stats.put("segmentsWritten", segmentsWritten.get());
+        stats.put("segmentsScanned", segmentsScanned.get());
+        stats.put("segmentsPruned", segmentsPruned.get());
+        return stats;
+    }
+
+    private Path root() {
+        return Paths.get(directory);
+    }
+
+    private TreeMap<LocalDate, Path> partitions(LocalDate first, LocalDate last) {
+        TreeMap<LocalDate, Path> result = new TreeMap<>();
+        Path root = root();
+        if (!Files.isDirectory(root)) {
+            return result;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path partition : stream) {
+                try {
+                    LocalDate day = LocalDate.parse(partition.getFileName().toString());
+                    if (!day.isBefore(first) && !day.isAfter(last)) {
+                        result.put(day, partition);
+                    }
+                } catch (DateTimeParseException e) {
+                    // Diretório que não é partição
+                }
+            }
+        } catch (IOException e) {
+            log.error("Erro ao listar partições do arquivo histórico de alarmes: {}", e.getMessage());
+        }
+        return result;
+    }
+
+    private static List<Path> segments(Path partition) {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(partition, "*" + AlarmSegment.EXTENSION)) {
+            stream.forEach(result::add);
+        } catch (IOException e) {
+            log.error("Erro ao listar segmentos de {}: {}", partition, e.getMessage());
+        }
+        result.sort(Comparator.naturalOrder());
+        return result;
+    }
+}
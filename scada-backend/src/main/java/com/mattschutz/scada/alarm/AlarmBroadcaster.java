@@ -0,0 +1,24 @@
+package com.mattschutz.scada.alarm;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publica os alarmes gravados para os clientes conectados em /ws:
+ * /topic/alarms (todos) e /topic/alarms/{equipmentId}
+ */
+@Component
+@RequiredArgsConstructor
+public class AlarmBroadcaster implements AlarmSubscriber {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Override
+    public void onAlarm(AlarmNotification notification) {
+        messagingTemplate.convertAndSend("/topic/alarms", notification);
+        if (notification.getEquipmentId() != null) {
+            messagingTemplate.convertAndSend("/topic/alarms/" + notification.getEquipmentId(), notification);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import com.mattschutz.scada.entity.Equipment;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Resultado da verificação de uma condição de alarme em um equipamento.
+ *
+ * Com limit informado, a condição é avaliada pelo {@link AlarmStateEngine}
+ * com histerese: ativa quando value ultrapassa limit e só normaliza quando
+ * volta além de limit -/+ deadband. Sem limit, ou com preEvaluated (histerese
+ * e atrasos já aplicados pelo chamador, ex.: {@link AlarmRuleEngine}), vale o
+ * flag active.
+ * Campos nulos usam os padrões alarm.* da configuração.
+ */
+@Value
+@Builder
+public class AlarmCondition {
+    Equipment equipment;
+    AlarmType type;
+    AlarmSeverity severity;
+    String message;
+
+    Double value;
+    Double limit;
+    // true = alarme quando value < limit (ex.: nível de óleo)
+    boolean lowLimit;
+    Double deadband;
+    boolean active;
+    boolean preEvaluated;
+
+    Long onDelayMillis;
+    Long offDelayMillis;
+}
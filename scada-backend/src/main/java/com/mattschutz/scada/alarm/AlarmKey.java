@@ -0,0 +1,14 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.entity.AlarmType;
+import lombok.Value;
+
+/**
+ * Identidade de um alarme de condição: no máximo um alarme ativo por
+ * (equipamento, tipo)
+ */
+@Value
+public class AlarmKey {
+    String equipmentId;
+    AlarmType type;
+}
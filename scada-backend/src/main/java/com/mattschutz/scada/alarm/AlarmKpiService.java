@@ -0,0 +1,402 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.dto.AlarmKpiDTO;
+import com.mattschutz.scada.dto.BadActorDTO;
+import com.mattschutz.scada.entity.AlarmKpiSnapshot;
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import com.mattschutz.scada.repository.AlarmEventRepository;
+import com.mattschutz.scada.repository.AlarmKpiSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Indicadores de desempenho de alarmes (ISA-18.2), mantidos de forma
+ * incremental a partir dos alarmes gravados pelo {@link AlarmPipeline}:
+ *
+ * - Taxa: contadores por minuto em janela circular de 24 h, total e por área
+ *   (localização do equipamento, usada como posição de operação).
+ * - Avalanche: períodos de 10 minutos com mais de alarm.kpi.flood-per-10min
+ *   alarmes em alguma área.
+ * - Repetitivos (chattering): alarm.kpi.chatter-count ativações do mesmo
+ *   (equipamento, tipo) em alarm.kpi.chatter-seconds.
+ * - Maiores ofensores: os 10 (equipamento, tipo) mais frequentes em 24 h.
+ * - Permanentes: ativos há mais de alarm.kpi.standing-hours (resumo de ativos).
+ *
+ * Alarmes INFO são eventos e não entram nos indicadores. A cada 10 minutos o
+ * período encerrado é gravado em alarm_kpi_snapshot para o histórico.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlarmKpiService implements AlarmSubscriber {
+
+    private static final int MINUTES = 24 * 60;
+    private static final int PERIOD_MINUTES = 10;
+    private static final int TOP_BAD_ACTORS = 10;
+    private static final long CHATTER_HOLD_MILLIS = 10 * 60_000L;
+    private static final String SYSTEM_AREA = "Sistema";
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final ActiveAlarmSummary activeAlarmSummary;
+    private final AlarmEventRepository alarmEventRepository;
+    private final AlarmKpiSnapshotRepository snapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${alarm.kpi.flood-per-10min:10}")
+    private int floodPer10Minutes;
+
+    @Value("${alarm.kpi.standing-hours:24}")
+    private long standingHours;
+
+    @Value("${alarm.kpi.chatter-count:3}")
+    private int chatterCount;
+
+    @Value("${alarm.kpi.chatter-seconds:60}")
+    private long chatterSeconds;
+
+    @Value("${alarm.kpi.retention-days:90}")
+    private int retentionDays;
+
+    // Estado sob o lock; nunca mantido durante I/O
+    private final ReentrantLock lock = new ReentrantLock();
+    private final MinuteRing total = new MinuteRing();
+    private final MinuteRing chatterEpisodes = new MinuteRing();
+    private final Map<String, MinuteRing> areas = new HashMap<>();
+    private final Map<AlarmKey, KeyStats> keys = new HashMap<>();
+
+    /**
+     * Contagem por minuto das últimas 24 h (buffer circular indexado pelo minuto)
+     */
+    private static final class MinuteRing {
+        final long[] counts = new long[MINUTES];
+        final long[] minutes = new long[MINUTES];
+        long lastMinute;
+
+        void add(long minute) {
+            int index = (int) (minute % MINUTES);
+            if (minutes[index] != minute) {
+                if (minutes[index] > minute) {
+                    // Mais antigo que a janela
+                    return;
+                }
+                minutes[index] = minute;
+                counts[index] = 0;
+            }
+            counts[index]++;
+            lastMinute = Math.max(lastMinute, minute);
+        }
+
+        /**
+         * Soma dos minutos [from, to]
+         */
+        long sum(long from, long to) {
+            long result = 0;
+            for (long minute = Math.max(from, to - MINUTES + 1); minute <= to; minute++) {
+                int index = (int) (minute % MINUTES);
+                if (minutes[index] == minute) {
+                    result += counts[index];
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Histórico de um alarme (equipamento, tipo): ativações recentes e contagem por hora
+     */
+    private static final class KeyStats {
+        final String equipmentId;
+        final AlarmType type;
+        String equipmentName;
+        final long[] recentRaises;
+        int next;
+        int filled;
+        final long[] hourCounts = new long[24];
+        final long[] hours = new long[24];
+        long lastRaiseMillis;
+        long lastChatterMillis = Long.MIN_VALUE;
+        long chatterEpisodes;
+
+        KeyStats(AlarmKey key, int chatterCount) {
+            this.equipmentId = key.getEquipmentId();
+            this.type = key.getType();
+            this.recentRaises = new long[Math.max(2, chatterCount)];
+        }
+
+        /**
+         * Registra uma ativação. Retorna true se iniciou um episódio de repetição
+         */
+        boolean raise(long millis, long chatterWindowMillis) {
+            long hour = millis / 3_600_000L;
+            int index = (int) (hour % 24);
+            if (hours[index] != hour) {
+                hours[index] = hour;
+                hourCounts[index] = 0;
+            }
+            hourCounts[index]++;
+            lastRaiseMillis = Math.max(lastRaiseMillis, millis);
+
+            recentRaises[next] = millis;
+            next = (next + 1) % recentRaises.length;
+            filled++;
+            // recentRaises[next] é a mais antiga das últimas N ativações
+            if (filled < recentRaises.length || millis - recentRaises[next] > chatterWindowMillis) {
+                return false;
+            }
+            boolean started = !isChattering(millis);
+            if (started) {
+                chatterEpisodes++;
+            }
+            lastChatterMillis = millis;
+            return started;
+        }
+
+        boolean isChattering(long nowMillis) {
+            return lastChatterMillis != Long.MIN_VALUE && nowMillis - lastChatterMillis <= CHATTER_HOLD_MILLIS;
+        }
+
+        long count24Hours(long nowMillis) {
+            long hour = nowMillis / 3_600_000L;
+            long result = 0;
+            for (int i = 0; i < 24; i++) {
+                if (hour - hours[i] < 24) {
+                    result += hourCounts[i];
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Carrega as últimas 24 h do banco (uma consulta pelo índice de horário)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        List<Object[]> rows = alarmEventRepository.findKpiRows(LocalDateTime.now().minusHours(24));
+        lock.lock();
+        try {
+            for (Object[] row : rows) {
+                record(toMillis((LocalDateTime) row[0]), (AlarmSeverity) row[1], (AlarmType) row[2],
+                    (String) row[3], (String) row[4], (String) row[5]);
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.info("Indicadores de alarmes iniciados com {} alarmes das últimas 24 h", rows.size());
+    }
+
+    @Override
+    public void onAlarm(AlarmNotification notification) {
+        if (notification.getOperation() != AlarmNotification.Operation.RAISED) {
+            return;
+        }
+        long millis = notification.getTimestamp() != null
+            ? toMillis(notification.getTimestamp()) : System.currentTimeMillis();
+        lock.lock();
+        try {
+            record(millis, notification.getSeverity(), notification.getType(), notification.getEquipmentId(),
+                notification.getEquipmentName(), notification.getLocation());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(long millis, AlarmSeverity severity, AlarmType type, String equipmentId,
+                        String equipmentName, String location) {
+        if (severity == AlarmSeverity.INFO) {
+            return;
+        }
+        long minute = millis / 60_000L;
+        total.add(minute);
+        areas.computeIfAbsent(areaOf(location), area -> new MinuteRing()).add(minute);
+
+        AlarmKey key = new AlarmKey(equipmentId, type);
+        KeyStats stats = keys.computeIfAbsent(key, k -> new KeyStats(k, chatterCount));
+        if (equipmentName != null) {
+            stats.equipmentName = equipmentName;
+        }
+        if (stats.raise(millis, chatterSeconds * 1000)) {
+            chatterEpisodes.add(minute);
+            log.warn("Alarme repetitivo: {} de {} ({} ativações em {} s)", type,
+                equipmentName != null ? equipmentName : SYSTEM_AREA, chatterCount, chatterSeconds);
+        }
+    }
+
+    private static String areaOf(String location) {
+        return location == null || location.isBlank() ? SYSTEM_AREA : location;
+    }
+
+    /**
+     * Indicadores atuais
+     */
+    public AlarmKpiDTO getCurrent() {
+        long nowMillis = System.currentTimeMillis();
+        long nowMinute = nowMillis / 60_000L;
+        long active = activeAlarmSummary.countActive();
+        long standing = activeAlarmSummary.countStanding(LocalDateTime.now().minusHours(standingHours));
+
+        lock.lock();
+        try {
+            Map<String, Long> byArea = new HashMap<>();
+            areas.forEach((area, ring) -> {
+                long count = ring.sum(nowMinute - PERIOD_MINUTES + 1, nowMinute);
+                if (count > 0) {
+                    byArea.put(area, count);
+                }
+            });
+
+            // Períodos de 10 minutos das últimas 24 h, alinhados ao minuto atual
+            int periods = MINUTES / PERIOD_MINUTES;
+            long peak = 0;
+            int floodPeriods = 0;
+            for (int p = 0; p < periods; p++) {
+                long to = nowMinute - (long) p * PERIOD_MINUTES;
+                long from = to - PERIOD_MINUTES + 1;
+                peak = Math.max(peak, total.sum(from, to));
+                for (MinuteRing ring : areas.values()) {
+                    if (ring.sum(from, to) > floodPer10Minutes) {
+                        floodPeriods++;
+                        break;
+                    }
+                }
+            }
+            long last24Hours = total.sum(nowMinute - MINUTES + 1, nowMinute);
+
+            List<BadActorDTO> badActors = new ArrayList<>();
+            List<BadActorDTO> chattering = new ArrayList<>();
+            for (KeyStats stats : keys.values()) {
+                long count = stats.count24Hours(nowMillis);
+                if (count == 0) {
+                    continue;
+                }
+                BadActorDTO actor = BadActorDTO.builder()
+                    .equipmentId(stats.equipmentId)
+                    .equipmentName(stats.equipmentName)
+                    .type(stats.type)
+                    .count(count)
+                    .percentOfTotal(last24Hours > 0 ? count * 100.0 / last24Hours : 0.0)
+                    .chattering(stats.isChattering(nowMillis))
+                    .chatterEpisodes(stats.chatterEpisodes)
+                    .build();
+                badActors.add(actor);
+                if (actor.getChattering()) {
+                    chattering.add(actor);
+                }
+            }
+            badActors.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+            if (badActors.size() > TOP_BAD_ACTORS) {
+                badActors = new ArrayList<>(badActors.subList(0, TOP_BAD_ACTORS));
+            }
+
+            return AlarmKpiDTO.builder()
+                .timestamp(LocalDateTime.now())
+                .alarmsLast10Minutes(total.sum(nowMinute - PERIOD_MINUTES + 1, nowMinute))
+                .last10MinutesByArea(byArea)
+                .alarmsLastHour(total.sum(nowMinute - 59, nowMinute))
+                .alarmsLast24Hours(last24Hours)
+                .averagePer10Minutes((double) last24Hours / periods)
+                .peak10Minutes(peak)
+                .percentPeriodsInFlood(floodPeriods * 100.0 / periods)
+                .activeAlarms(active)
+                .standingAlarms(standing)
+                .chatteringAlarms(chattering.size())
+                .chatterEpisodes24Hours(chatterEpisodes.sum(nowMinute - MINUTES + 1, nowMinute))
+                .chattering(chattering)
+                .badActors(badActors)
+                .build();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Grava os indicadores do período de 10 minutos encerrado
+     */
+    @Scheduled(cron = "${alarm.kpi.snapshot-cron:0 */10 * * * *}")
+    public void snapshot() {
+        LocalDateTime periodEnd = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        long endMinute = toMillis(periodEnd) / 60_000L - 1;
+        long startMinute = endMinute - PERIOD_MINUTES + 1;
+        long nowMillis = System.currentTimeMillis();
+        long active = activeAlarmSummary.countActive();
+        long standing = activeAlarmSummary.countStanding(LocalDateTime.now().minusHours(standingHours));
+
+        AlarmKpiSnapshot snapshot = new AlarmKpiSnapshot();
+        snapshot.setPeriodEnd(periodEnd);
+        snapshot.setActiveAlarms(active);
+        snapshot.setStandingAlarms(standing);
+        lock.lock();
+        try {
+            snapshot.setAlarms(total.sum(startMinute, endMinute));
+            long maxArea = 0;
+            for (Map.Entry<String, MinuteRing> area : areas.entrySet()) {
+                long count = area.getValue().sum(startMinute, endMinute);
+                if (count > maxArea) {
+                    maxArea = count;
+                    snapshot.setMaxArea(area.getKey());
+                }
+            }
+            snapshot.setMaxAreaAlarms(maxArea);
+            snapshot.setFlood(maxArea > floodPer10Minutes);
+            int chattering = 0;
+            for (KeyStats stats : keys.values()) {
+                if (stats.isChattering(nowMillis)) {
+                    chattering++;
+                }
+            }
+            snapshot.setChatteringAlarms(chattering);
+
+            // Descarta alarmes e áreas sem ocorrência nas últimas 24 h
+            keys.values().removeIf(stats -> nowMillis - stats.lastRaiseMillis > 24 * 3_600_000L);
+            areas.values().removeIf(ring -> endMinute - ring.lastMinute >= MINUTES);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            snapshotRepository.save(snapshot);
+        } catch (Exception e) {
+            log.error("Erro ao gravar indicadores de alarmes: {}", e.getMessage());
+        }
+    }
+
+    public List<AlarmKpiSnapshot> getHistory(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || end.isBefore(start)) {
+            throw new IllegalArgumentException("Período inválido");
+        }
+        return snapshotRepository.findByPeriodEndBetween(start, end);
+    }
+
+    /**
+     * Remove períodos mais antigos que alarm.kpi.retention-days
+     */
+    @Scheduled(cron = "${alarm.kpi.retention-cron:0 50 0 * * *}")
+    public void purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        try {
+            transactionTemplate.executeWithoutResult(status -> snapshotRepository.deleteOlderThan(cutoff));
+        } catch (Exception e) {
+            log.error("Erro na limpeza dos indicadores de alarmes: {}", e.getMessage());
+        }
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZONE).toInstant().toEpochMilli();
+    }
+}
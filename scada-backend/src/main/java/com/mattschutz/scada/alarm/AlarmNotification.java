@@ -0,0 +1,33 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Alarme gravado, repassado aos assinantes após o commit
+ */
+@Value
+@Builder
+public class AlarmNotification {
+
+    public enum Operation {
+        RAISED, RESOLVED
+    }
+
+    Operation operation;
+    String alarmId;
+    String equipmentId;
+    String equipmentName;
+    String location;
+    AlarmSeverity severity;
+    AlarmType type;
+    String message;
+    Double value;
+    Double threshold;
+    LocalDateTime timestamp;
+    LocalDateTime resolvedAt;
+}
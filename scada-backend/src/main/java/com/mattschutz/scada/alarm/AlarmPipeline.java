@@ -0,0 +1,345 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.entity.AlarmEvent;
+import com.mattschutz.scada.repository.AlarmEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gravação assíncrona de alarmes.
+ *
+ * Produtores (AlarmService) enfileiram um evento por alarme em um buffer
+ * circular limitado e retornam sem tocar no banco. Uma única thread de
+ * gravação drena a fila em lotes, grava cada lote em uma transação e então
+ * repassa os alarmes aos {@link AlarmSubscriber}s. Com um só consumidor a
+ * ordem de enfileiramento é preservada, inclusive entre ativação e
+ * normalização de um mesmo equipamento.
+ *
+ * Fila cheia: o produtor espera (contrapressão), o que fica registrado nas
+ * métricas de backpressure. Alarmes nunca são descartados.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlarmPipeline {
+
+    private final AlarmEventRepository alarmEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final List<AlarmSubscriber> subscribers;
+
+    @Value("${alarm.queue.capacity:4096}")
+    private int capacity;
+
+    @Value("${alarm.queue.batch-size:100}")
+    private int batchSize;
+
+    private BlockingQueue<PendingAlarm> queue;
+    private volatile Thread writer;
+    private volatile boolean running;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder persisted = new LongAdder();
+    private final LongAdder resolved = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    // Itens que saíram da fila e tiveram a gravação concluída (com sucesso ou não)
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder producerWaits = new LongAdder();
+    private final LongAdder producerWaitNanos = new LongAdder();
+    private final LongAdder subscriberErrors = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder latencySamples = new LongAdder();
+    private final AtomicLong highWatermark = new AtomicLong();
+    private volatile long maxLatencyNanos;
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+
+    enum Operation {
+        RAISE, RESOLVE
+    }
+
+    /**
+     * Item da fila: o alarme e o instante de enfileiramento
+     */
+    private static final class PendingAlarm {
+        final Operation operation;
+        final AlarmEvent alarm;
+        final long enqueuedNanos;
+
+        PendingAlarm(Operation operation, AlarmEvent alarm) {
+            this.operation = operation;
+            this.alarm = alarm;
+            this.enqueuedNanos = System.nanoTime();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(Math.max(16, capacity));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::runWriter, "alarm-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+        log.info("Gravação assíncrona de alarmes iniciada (capacidade {}, lote {})", queue.remainingCapacity(), batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Sem interrupt: a thread termina o lote atual e sai no próximo poll
+        running = false;
+        Thread thread = writer;
+        if (thread != null) {
+            try {
+                thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Grava o que restou na fila antes de encerrar
+        List<PendingAlarm> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+    }
+
+    /**
+     * Enfileira um alarme novo. O id é atribuído ao mesmo objeto quando gravado
+     */
+    public void submitRaise(AlarmEvent alarm) {
+        submit(new PendingAlarm(Operation.RAISE, alarm));
+    }
+
+    /**
+     * Enfileira a normalização de um alarme (gravado ou ainda na fila)
+     */
+    public void submitResolve(AlarmEvent alarm) {
+        submit(new PendingAlarm(Operation.RESOLVE, alarm));
+    }
+
+    private void submit(PendingAlarm pending) {
+        BlockingQueue<PendingAlarm> target = queue;
+        if (!target.offer(pending)) {
+            producerWaits.increment();
+            long start = System.nanoTime();
+            try {
+                target.put(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrompido aguardando espaço na fila de alarmes", e);
+            } finally {
+                producerWaitNanos.add(System.nanoTime() - start);
+            }
+        }
+        enqueued.increment();
+        int depth = target.size();
+        if (depth > highWatermark.get()) {
+            highWatermark.accumulateAndGet(depth, Math::max);
+        }
+    }
+
+    private void runWriter() {
+        List<PendingAlarm> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingAlarm first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            } catch (Exception e) {
+                log.error("Erro na gravação de alarmes: {}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Grava o lote em uma transação; se falhar, item a item para isolar o alarme com problema
+     */
+    private void write(List<PendingAlarm> batch) {
+        List<AlarmNotification> notifications;
+        try {
+            notifications = transactionTemplate.execute(status -> {
+                List<AlarmNotification> result = new ArrayList<>(batch.size());
+                for (PendingAlarm pending : batch) {
+                    AlarmNotification notification = apply(pending);
+                    if (notification != null) {
+                        result.add(notification);
+                    }
+                }
+                return result;
+            });
+        } catch (Exception e) {
+            log.warn("Falha ao gravar lote de {} alarmes, gravando individualmente: {}", batch.size(), e.getMessage());
+            notifications = new ArrayList<>(batch.size());
+            for (PendingAlarm pending : batch) {
+                try {
+                    AlarmNotification notification = transactionTemplate.execute(status -> apply(pending));
+                    if (notification != null) {
+                        notifications.add(notification);
+                    }
+                } catch (Exception single) {
+                    failed.increment();
+                    log.error("Erro ao gravar alarme {} ({}): {}", pending.alarm.getType(),
+                        pending.operation, single.getMessage());
+                }
+            }
+        }
+
+        long now = System.nanoTime();
+        for (PendingAlarm pending : batch) {
+            long latency = now - pending.enqueuedNanos;
+            latencyNanos.add(latency);
+            latencySamples.increment();
+            if (latency > maxLatencyNanos) {
+                maxLatencyNanos = latency;
+            }
+        }
+        batches.increment();
+        written.add(batch.size());
+        lastBatchSize = batch.size();
+        maxBatchSize = Math.max(maxBatchSize, batch.size());
+
+        if (notifications != null) {
+            for (AlarmNotification notification : notifications) {
+                logCommitted(notification);
+            }
+            notify(notifications);
+        }
+    }
+
+    private void logCommitted(AlarmNotification notification) {
+        if (notification.getOperation() == AlarmNotification.Operation.RAISED) {
+            persisted.increment();
+            log.info("Alarme criado: {} - {} - {} ({})",
+                notification.getSeverity(), notification.getType(), notification.getMessage(),
+                notification.getEquipmentName() != null ? notification.getEquipmentName() : "Sistema");
+        } else {
+            resolved.increment();
+            log.info("Alarme resolvido: {} - {} ({})",
+                notification.getType(), notification.getMessage(),
+                notification.getEquipmentName() != null ? notification.getEquipmentName() : "Sistema");
+        }
+    }
+
+    private AlarmNotification apply(PendingAlarm pending) {
+        AlarmEvent alarm = pending.alarm;
+        if (pending.operation == Operation.RAISE) {
+            alarmEventRepository.save(alarm);
+            return toNotification(AlarmNotification.Operation.RAISED, alarm);
+        }
+
+        AlarmEvent stored = alarmEventRepository.findById(alarm.getId()).orElse(null);
+        if (stored == null || stored.getResolvedAt() != null) {
+            // Ativação não gravada (falhou) ou já resolvido manualmente pelo operador
+            return null;
+        }
+        stored.resolve();
+        alarmEventRepository.save(stored);
+        return toNotification(AlarmNotification.Operation.RESOLVED, stored);
+    }
+
+    private static AlarmNotification toNotification(AlarmNotification.Operation operation, AlarmEvent alarm) {
+        return AlarmNotification.builder()
+            .operation(operation)
+            .alarmId(alarm.getId())
+            .equipmentId(alarm.getEquipment() != null ? alarm.getEquipment().getId() : null)
+            .equipmentName(alarm.getEquipment() != null ? alarm.getEquipment().getName() : null)
+            .location(alarm.getEquipment() != null ? alarm.getEquipment().getLocation() : null)
+            .severity(alarm.getSeverity())
+            .type(alarm.getType())
+            .message(alarm.getMessage())
+            .value(alarm.getValue())
+            .threshold(alarm.getThreshold())
+            .timestamp(alarm.getTimestamp())
+            .resolvedAt(alarm.getResolvedAt())
+            .build();
+    }
+
+    private void notify(List<AlarmNotification> notifications) {
+        for (AlarmNotification notification : notifications) {
+            for (AlarmSubscriber subscriber : subscribers) {
+                try {
+                    subscriber.onAlarm(notification);
+                } catch (Exception e) {
+                    subscriberErrors.increment();
+                    log.warn("Erro ao notificar {}: {}", subscriber.getClass().getSimpleName(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Aguarda a gravação de tudo o que foi enfileirado até agora. Retorna false no fim do prazo
+     */
+    public boolean awaitWritten(long timeoutMillis) {
+        long target = enqueued.sum();
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        while (written.sum() < target) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Map<String, Object> getStatistics() {
+        BlockingQueue<PendingAlarm> current = queue;
+        long samples = latencySamples.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running);
+        stats.put("capacity", current.size() + current.remainingCapacity());
+        stats.put("queueDepth", current.size());
+        stats.put("highWatermark", highWatermark.get());
+        stats.put("enqueued", enqueued.sum());
+        stats.put("persisted", persisted.sum());
+        stats.put("resolved", resolved.sum());
+        stats.put("failed", failed.sum());
+        stats.put("batches", batches.sum());
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("avgLatencyMicros", samples > 0 ? latencyNanos.sum() / samples / 1_000 : 0);
+        stats.put("maxLatencyMicros", maxLatencyNanos / 1_000);
+        stats.put("producerWaits", producerWaits.sum());
+        stats.put("producerWaitMillis", producerWaitNanos.sum() / 1_000_000);
+        stats.put("subscribers", subscribers.size());
+        stats.put("subscriberErrors", subscriberErrors.sum());
+        return stats;
+    }
+}
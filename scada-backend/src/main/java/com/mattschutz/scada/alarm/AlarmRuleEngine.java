@@ -0,0 +1,390 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.entity.AlarmComparator;
+import com.mattschutz.scada.entity.AlarmRule;
+import com.mattschutz.scada.entity.AlarmType;
+import com.mattschutz.scada.entity.Equipment;
+import com.mattschutz.scada.entity.EquipmentField;
+import com.mattschutz.scada.entity.SoeEventType;
+import com.mattschutz.scada.repository.AlarmRuleRepository;
+import com.mattschutz.scada.repository.EquipmentRepository;
+import com.mattschutz.scada.service.LiveValueService;
+import com.mattschutz.scada.soe.SoeRecorder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Avalia as regras de alarme ({@link AlarmRule}) sobre todos os equipamentos.
+ *
+ * As regras habilitadas são compiladas em um {@link CompiledRuleSet}. A
+ * avaliação é orientada a mudança: cada valor novo na tabela ao vivo (ou
+ * equipamento salvo) reavalia apenas os slots que referenciam aquela grandeza
+ * naquele equipamento, na própria thread de aquisição. Slots aguardando
+ * atraso são conferidos em intervalo curto, e uma varredura completa
+ * periódica (alarm.sweep-interval) fica como rede de segurança.
+ * Apenas as transições são repassadas, em ordem e fora da thread de
+ * aquisição, ao {@link AlarmStateEngine}, que mantém o índice de alarmes
+ * ativos e grava no banco; cada transição também vai para o SOE com o
+ * horário da detecção.
+ *
+ * Alterações de regras ou de equipamentos recompilam o conjunto sem perder o
+ * estado dos slots existentes (hot reload).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlarmRuleEngine {
+
+    private static final EquipmentField[] FIELDS = EquipmentField.values();
+
+    private final AlarmRuleRepository ruleRepository;
+    private final EquipmentRepository equipmentRepository;
+    private final LiveValueService liveValueService;
+    private final AlarmStateEngine alarmStateEngine;
+    private final ExecutorService blockingExecutor;
+    private final SoeRecorder soeRecorder;
+
+    @Value("${alarm.deadband-percent:2.0}")
+    private double defaultDeadbandPercent;
+
+    @Value("${alarm.on-delay:0}")
+    private long defaultOnDelayMillis;
+
+    @Value("${alarm.off-delay:3000}")
+    private long defaultOffDelayMillis;
+
+    private volatile CompiledRuleSet compiled;
+    // Serializa as avaliações sobre os arrays de estado; nunca mantido durante I/O
+    private final ReentrantLock evaluationLock = new ReentrantLock();
+    private final List<RuleTransition> pendingTransitions = new ArrayList<>();
+    private final CompiledRuleSet.TransitionListener collector = slot -> {
+        RuleTransition transition = RuleTransition.of(compiled, slot);
+        pendingTransitions.add(transition);
+        // Horário do SOE capturado na detecção, antes da fila de gravação
+        soeRecorder.record(transition.active ? SoeEventType.ALARM_RAISED : SoeEventType.ALARM_CLEARED,
+            transition.equipmentId, transition.rule.getName(),
+            transition.type + " " + transition.rule.getSeverity() + " limite " + transition.limit,
+            transition.value);
+    };
+
+    // Transições a gravar, drenadas por uma única tarefa por vez para preservar a ordem
+    private final ConcurrentLinkedQueue<RuleTransition> outbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean publishing = new AtomicBoolean();
+
+    private volatile long passes;
+    private volatile long lastPassNanos;
+    private volatile long maxPassNanos;
+    private final LongAdder totalTransitions = new LongAdder();
+    private final LongAdder changeEvaluations = new LongAdder();
+    private final LongAdder changeSlotsEvaluated = new LongAdder();
+    private final LongAdder pendingChecks = new LongAdder();
+    private volatile long lastChangeNanos;
+    private volatile long maxChangeNanos;
+    private volatile long compiledAt;
+    private volatile double lastCompileMillis;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+        liveValueService.addListener(this::onValueChanged);
+    }
+
+    /**
+     * Recompila as regras habilitadas para os equipamentos cadastrados
+     */
+    public void reload() {
+        reload(equipmentRepository.findAll());
+    }
+
+    private CompiledRuleSet reload(List<Equipment> equipment) {
+        List<AlarmRule> rules = ruleRepository.findByEnabledTrue();
+        long start = System.nanoTime();
+        CompiledRuleSet next = CompiledRuleSet.compile(rules, equipment,
+            defaultDeadbandPercent, defaultOnDelayMillis, defaultOffDelayMillis);
+
+        evaluationLock.lock();
+        try {
+            CompiledRuleSet previous = compiled;
+            if (previous != null) {
+                next.copyStateFrom(previous);
+            }
+            compiled = next;
+        } finally {
+            evaluationLock.unlock();
+        }
+
+        lastCompileMillis = (System.nanoTime() - start) / 1e6;
+        compiledAt = System.currentTimeMillis();
+        log.info("Regras de alarme compiladas: {} regras, {} equipamentos, {} slots em {} ms",
+            rules.size(), equipment.size(), next.slotCount, String.format("%.1f", lastCompileMillis));
+        return next;
+    }
+
+    /**
+     * Valor ao vivo alterado: reavalia só os slots daquela grandeza naquele equipamento.
+     * Executado na thread de aquisição; não faz I/O
+     */
+    public void onValueChanged(String equipmentId, EquipmentField field, double value, long timestampMillis) {
+        try {
+            evaluationLock.lock();
+            try {
+                CompiledRuleSet set = compiled;
+                int index = set != null ? set.indexOf(equipmentId) : -1;
+                if (index < 0) {
+                    // Equipamento ainda não compilado: a varredura recompila
+                    return;
+                }
+                long start = System.nanoTime();
+                int valueIndex = CompiledRuleSet.valueIndex(index, field);
+                set.values[valueIndex] = value;
+                int slots = set.evaluateValue(valueIndex, System.currentTimeMillis(), collector);
+                recordChange(System.nanoTime() - start, slots);
+                drainTransitions(null);
+            } finally {
+                evaluationLock.unlock();
+            }
+        } catch (Exception e) {
+            log.error("Erro na avaliação de alarmes de {} ({}): {}", equipmentId, field, e.getMessage());
+        }
+    }
+
+    /**
+     * Equipamento alterado fora da aquisição (ex.: cadastro): reavalia todos os seus slots
+     */
+    public void onEquipmentChanged(Equipment equipment) {
+        evaluationLock.lock();
+        try {
+            CompiledRuleSet set = compiled;
+            int index = set != null ? set.indexOf(equipment.getId()) : -1;
+            if (index < 0) {
+                return;
+            }
+            long start = System.nanoTime();
+            loadValues(set, index, equipment);
+            long now = System.currentTimeMillis();
+            int slots = 0;
+            for (EquipmentField field : FIELDS) {
+                slots += set.evaluateValue(CompiledRuleSet.valueIndex(index, field), now, collector);
+            }
+            recordChange(System.nanoTime() - start, slots);
+            drainTransitions(equipment);
+        } finally {
+            evaluationLock.unlock();
+        }
+    }
+
+    /**
+     * Confere os slots aguardando atraso de ativação/normalização
+     */
+    @Scheduled(fixedDelayString = "${alarm.timer-interval:250}")
+    public void evaluatePendingTimers() {
+        evaluationLock.lock();
+        try {
+            CompiledRuleSet set = compiled;
+            if (set == null || set.pendingCount() == 0) {
+                return;
+            }
+            pendingChecks.add(set.evaluatePending(System.currentTimeMillis(), collector));
+            drainTransitions(null);
+        } finally {
+            evaluationLock.unlock();
+        }
+    }
+
+    /**
+     * Varredura completa de segurança: atualiza a tabela de valores e avalia todos os slots
+     * (cobre valores alterados sem notificação e recompila se os equipamentos mudaram)
+     */
+    @Scheduled(fixedRateString = "${alarm.sweep-interval:10000}")
+    public void evaluateAll() {
+        List<Equipment> equipment = equipmentRepository.findAll();
+        CompiledRuleSet set = compiled;
+        if (set == null || !set.covers(equipment)) {
+            set = reload(equipment);
+        }
+
+        Map<String, Equipment> byId = new HashMap<>(equipment.size() * 2);
+        evaluationLock.lock();
+        try {
+            set = compiled;
+            for (Equipment asset : equipment) {
+                byId.put(asset.getId(), asset);
+                int index = set.indexOf(asset.getId());
+                if (index >= 0) {
+                    loadValues(set, index, asset);
+                }
+            }
+
+            long start = System.nanoTime();
+            set.evaluate(System.currentTimeMillis(), collector);
+            recordPass(System.nanoTime() - start);
+            for (RuleTransition transition : pendingTransitions) {
+                transition.equipment = byId.get(transition.equipmentId);
+            }
+            drainTransitions(null);
+        } finally {
+            evaluationLock.unlock();
+        }
+    }
+
+    private void loadValues(CompiledRuleSet set, int index, Equipment asset) {
+        boolean live = liveValueService.hasLiveValues(asset.getId());
+        for (EquipmentField field : FIELDS) {
+            double value = live ? liveValueService.get(asset.getId(), field) : Double.NaN;
+            if (Double.isNaN(value)) {
+                Double entityValue = field.read(asset);
+                value = entityValue != null ? entityValue : Double.NaN;
+            }
+            set.setValue(index, field, value);
+        }
+    }
+
+    private void recordPass(long elapsedNanos) {
+        passes++;
+        lastPassNanos = elapsedNanos;
+        maxPassNanos = Math.max(maxPassNanos, elapsedNanos);
+    }
+
+    private void recordChange(long elapsedNanos, int slots) {
+        changeEvaluations.increment();
+        changeSlotsEvaluated.add(slots);
+        lastChangeNanos = elapsedNanos;
+        maxChangeNanos = Math.max(maxChangeNanos, elapsedNanos);
+    }
+
+    /**
+     * Move as transições coletadas (sob o lock) para a fila de gravação
+     */
+    private void drainTransitions(Equipment equipment) {
+        if (pendingTransitions.isEmpty()) {
+            return;
+        }
+        totalTransitions.add(pendingTransitions.size());
+        for (RuleTransition transition : pendingTransitions) {
+            if (transition.equipment == null) {
+                transition.equipment = equipment;
+            }
+            outbox.add(transition);
+        }
+        pendingTransitions.clear();
+        schedulePublish();
+    }
+
+    private void schedulePublish() {
+        if (outbox.isEmpty() || !publishing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            blockingExecutor.execute(this::publishOutbox);
+        } catch (RejectedExecutionException e) {
+            publishing.set(false);
+        }
+    }
+
+    /**
+     * Repassa as transições ao AlarmStateEngine, em ordem, fora do lock de avaliação
+     */
+    private void publishOutbox() {
+        try {
+            RuleTransition transition;
+            while ((transition = outbox.poll()) != null) {
+                publish(transition);
+            }
+        } finally {
+            publishing.set(false);
+        }
+        // Transições enfileiradas entre o último poll e a liberação do flag
+        schedulePublish();
+    }
+
+    private void publish(RuleTransition transition) {
+        Equipment equipment = transition.equipment != null
+            ? transition.equipment
+            : equipmentRepository.findById(transition.equipmentId).orElse(null);
+        if (equipment == null) {
+            return;
+        }
+        try {
+            alarmStateEngine.evaluate(AlarmCondition.builder()
+                .equipment(equipment)
+                .type(transition.type)
+                .severity(transition.rule.getSeverity())
+                .message(transition.rule.formatMessage(transition.value, transition.limit))
+                .value(transition.value)
+                .limit(transition.limit)
+                .lowLimit(transition.rule.getComparator() == AlarmComparator.BELOW)
+                .active(transition.active)
+                .preEvaluated(true)
+                .build());
+        } catch (Exception e) {
+            log.error("Erro ao registrar transição de alarme {} de {}: {}",
+                transition.type, equipment.getName(), e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        CompiledRuleSet set = compiled;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rules", set != null ? set.rules.length : 0);
+        stats.put("assets", set != null ? set.equipmentIds.length : 0);
+        stats.put("slots", set != null ? set.slotCount : 0);
+        stats.put("compiledAt", compiledAt);
+        stats.put("compileMillis", lastCompileMillis);
+        stats.put("passes", passes);
+        stats.put("lastPassMicros", lastPassNanos / 1_000);
+        stats.put("maxPassMicros", maxPassNanos / 1_000);
+        stats.put("changeEvaluations", changeEvaluations.sum());
+        stats.put("changeSlotsEvaluated", changeSlotsEvaluated.sum());
+        stats.put("lastChangeMicros", lastChangeNanos / 1_000.0);
+        stats.put("maxChangeMicros", maxChangeNanos / 1_000.0);
+        stats.put("pendingChecks", pendingChecks.sum());
+        stats.put("transitions", totalTransitions.sum());
+        stats.put("publishQueue", outbox.size());
+        return stats;
+    }
+
+    /**
+     * Transição de uma chave (equipamento, tipo), capturada sob o lock de avaliação
+     */
+    private static final class RuleTransition {
+        String equipmentId;
+        Equipment equipment; // null = buscar no banco ao gravar
+        AlarmType type;
+        AlarmRule rule;
+        boolean active;
+        double value;
+        double limit;
+
+        static RuleTransition of(CompiledRuleSet set, int slot) {
+            int key = set.slotKey[slot];
+            int worst = set.worstActiveSlot(key);
+            int source = worst >= 0 ? worst : slot;
+
+            RuleTransition transition = new RuleTransition();
+            transition.equipmentId = set.equipmentIds[set.slotAsset[slot]];
+            transition.type = set.keyType[key];
+            transition.rule = set.rules[set.slotRule[source]];
+            transition.active = worst >= 0;
+            transition.value = set.measured(source);
+            transition.limit = set.slotLimit[source];
+            return transition;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.dto.ArchivedAlarmDTO;
+import com.mattschutz.scada.entity.AlarmEvent;
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import com.mattschutz.scada.entity.Equipment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Formato do segmento de arquivo histórico de alarmes.
+ *
+ * Cabeçalho sem compressão com o resumo do segmento (quantidade, faixa de
+ * horário, máscaras de severidade e tipo, dicionário de equipamentos), usado
+ * para descartar o segmento sem descompactá-lo; em seguida os registros em
+ * binário compactados com GZIP. Equipamentos são gravados como índice do
+ * dicionário e horários como epoch millis.
+ */
+final class AlarmSegment {
+
+    static final String EXTENSION = ".seg";
+    private static final int MAGIC = 0x53414C31; // "SAL1"
+    private static final short VERSION = 1;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+    private static final AlarmType[] TYPES = AlarmType.values();
+
+    private AlarmSegment() {
+    }
+
+    /**
+     * Resumo do segmento, lido sem descompactar os registros
+     */
+    static final class Header {
+        int count;
+        long minTimestamp;
+        long maxTimestamp;
+        int severityMask;
+        long typeMask;
+        String[] equipmentIds;
+        String[] equipmentNames;
+
+        boolean mayContain(long from, long to, String equipmentId, AlarmSeverity severity, AlarmType type) {
+            if (maxTimestamp < from || minTimestamp > to) {
+                return false;
+            }
+            if (severity != null && (severityMask & (1 << severity.ordinal())) == 0) {
+                return false;
+            }
+            if (type != null && (typeMask & (1L << type.ordinal())) == 0) {
+                return false;
+            }
+            if (equipmentId != null) {
+                for (String id : equipmentIds) {
+                    if (equipmentId.equals(id)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Grava os alarmes em um novo segmento (arquivo temporário + rename atômico)
+     */
+    static void write(Path target, List<AlarmEvent> alarms) throws IOException {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>();
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        int severityMask = 0;
+        long typeMask = 0;
+        for (AlarmEvent alarm : alarms) {
+            long timestamp = toMillis(alarm.getTimestamp());
+            min = Math.min(min, timestamp);
+            max = Math.max(max, timestamp);
+            severityMask |= 1 << alarm.getSeverity().ordinal();
+            typeMask |= 1L << alarm.getType().ordinal();
+            Equipment equipment = alarm.getEquipment();
+            if (equipment != null && !dictionary.containsKey(equipment.getId())) {
+                dictionary.put(equipment.getId(), dictionary.size());
+                names.add(equipment.getName());
+            }
+        }
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            BufferedOutputStream buffered = new BufferedOutputStream(file, 64 * 1024);
+            DataOutputStream header = new DataOutputStream(buffered);
+            header.writeInt(MAGIC);
+            header.writeShort(VERSION);
+            header.writeInt(alarms.size());
+            header.writeLong(min);
+            header.writeLong(max);
+            header.writeInt(severityMask);
+            header.writeLong(typeMask);
+            header.writeInt(dictionary.size());
+            int index = 0;
+            for (String id : dictionary.keySet()) {
+                header.writeUTF(id);
+                header.writeUTF(nullToEmpty(names.get(index++)));
+            }
+            header.flush();
+
+            GZIPOutputStream compressed = new GZIPOutputStream(buffered, 64 * 1024);
+            DataOutputStream body = new DataOutputStream(compressed);
+            for (AlarmEvent alarm : alarms) {
+                body.writeUTF(alarm.getId());
+                Equipment equipment = alarm.getEquipment();
+                body.writeInt(equipment != null ? dictionary.get(equipment.getId()) : -1);
+                body.writeLong(toMillis(alarm.getTimestamp()));
+                body.writeLong(toMillis(alarm.getResolvedAt()));
+                body.writeByte(alarm.getSeverity().ordinal());
+                body.writeByte(alarm.getType().ordinal());
+                boolean acknowledged = Boolean.TRUE.equals(alarm.getAcknowledged());
+                body.writeBoolean(acknowledged);
+                if (acknowledged) {
+                    body.writeUTF(nullToEmpty(alarm.getAcknowledgedBy()));
+                    body.writeLong(toMillis(alarm.getAcknowledgedAt()));
+                }
+                body.writeUTF(nullToEmpty(alarm.getMessage()));
+                body.writeUTF(nullToEmpty(alarm.getDescription()));
+                body.writeDouble(alarm.getValue() != null ? alarm.getValue() : Double.NaN);
+                body.writeDouble(alarm.getThreshold() != null ? alarm.getThreshold() : Double.NaN);
+            }
+            body.flush();
+            compressed.finish();
+            buffered.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Header readHeader(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 8 * 1024)) {
+            return readHeader(new DataInputStream(in));
+        }
+    }
+
+    private static Header readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+            throw new IOException("Segmento de arquivo histórico de alarmes inválido");
+        }
+        Header header = new Header();
+        header.count = in.readInt();
+        header.minTimestamp = in.readLong();
+        header.maxTimestamp = in.readLong();
+        header.severityMask = in.readInt();
+        header.typeMask = in.readLong();
+        int equipmentCount = in.readInt();
+        header.equipmentIds = new String[equipmentCount];
+        header.equipmentNames = new String[equipmentCount];
+        for (int i = 0; i < equipmentCount; i++) {
+            header.equipmentIds[i] = in.readUTF();
+            header.equipmentNames[i] = emptyToNull(in.readUTF());
+        }
+        return header;
+    }
+
+    /**
+     * Lê todos os registros do segmento
+     */
+    static void scan(Path path, Consumer<ArchivedAlarmDTO> consumer) throws IOException {
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path), 64 * 1024)) {
+            DataInputStream headerIn = new DataInputStream(file);
+            Header header = readHeader(headerIn);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(file, 64 * 1024)));
+            for (int i = 0; i < header.count; i++) {
+                consumer.accept(readRecord(in, header));
+            }
+        } catch (EOFException e) {
+            throw new IOException("Segmento de arquivo histórico de alarmes truncado: " + path, e);
+        }
+    }
+
+    private static ArchivedAlarmDTO readRecord(DataInputStream in, Header header) throws IOException {
+        ArchivedAlarmDTO alarm = new ArchivedAlarmDTO();
+        alarm.setId(in.readUTF());
+        int equipment = in.readInt();
+        if (equipment >= 0) {
+            alarm.setEquipmentId(header.equipmentIds[equipment]);
+            alarm.setEquipmentName(header.equipmentNames[equipment]);
+        }
+        alarm.setTimestamp(toDateTime(in.readLong()));
+        alarm.setResolvedAt(toDateTime(in.readLong()));
+        alarm.setSeverity(SEVERITIES[in.readByte()]);
+        alarm.setType(TYPES[in.readByte()]);
+        alarm.setAcknowledged(in.readBoolean());
+        if (alarm.getAcknowledged()) {
+            alarm.setAcknowledgedBy(emptyToNull(in.readUTF()));
+            alarm.setAcknowledgedAt(toDateTime(in.readLong()));
+        }
+        alarm.setMessage(in.readUTF());
+        alarm.setDescription(emptyToNull(in.readUTF()));
+        double value = in.readDouble();
+        double threshold = in.readDouble();
+        alarm.setValue(Double.isNaN(value) ? null : value);
+        alarm.setThreshold(Double.isNaN(threshold) ? null : threshold);
+        return alarm;
+    }
+
+    static long toMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZONE).toInstant().toEpochMilli() : Long.MIN_VALUE;
+    }
+
+    static LocalDateTime toDateTime(long millis) {
+        return millis != Long.MIN_VALUE ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE) : null;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Agrupa alarmes por dia (partição) do horário de ocorrência
+     */
+    static Map<LocalDate, List<AlarmEvent>> byDay(List<AlarmEvent> alarms) {
+        Map<LocalDate, List<AlarmEvent>> days = new HashMap<>();
+        for (AlarmEvent alarm : alarms) {
+            days.computeIfAbsent(alarm.getTimestamp().toLocalDate(), d -> new ArrayList<>()).add(alarm);
+        }
+        return days;
+    }
+}
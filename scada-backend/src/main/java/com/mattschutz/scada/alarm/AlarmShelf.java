@@ -0,0 +1,23 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.entity.AlarmType;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Alarme arquivado (shelved) por um operador até expiresAt
+ */
+@Value
+public class AlarmShelf {
+    String equipmentId;
+    AlarmType type;
+    String shelvedBy;
+    String reason;
+    LocalDateTime shelvedAt;
+    LocalDateTime expiresAt;
+
+    public boolean isExpired(LocalDateTime now) {
+        return !now.isBefore(expiresAt);
+    }
+}
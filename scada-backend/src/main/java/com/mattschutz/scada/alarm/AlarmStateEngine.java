@@ -0,0 +1,315 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.entity.AlarmEvent;
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import com.mattschutz.scada.service.AlarmService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Máquina de estados dos alarmes de condição.
+ *
+ * Mantém em memória o índice de alarmes ativos por (equipamento, tipo) e só
+ * grava no banco nas transições: ativação (após o atraso de ativação),
+ * escalonamento de severidade e normalização (com histerese e atraso de
+ * desativação). Verificações repetidas de uma condição que continua ativa
+ * não geram novos registros.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlarmStateEngine {
+
+    private final AlarmService alarmService;
+
+    @Value("${alarm.deadband-percent:2.0}")
+    private double defaultDeadbandPercent;
+
+    @Value("${alarm.on-delay:0}")
+    private long defaultOnDelayMillis;
+
+    @Value("${alarm.off-delay:3000}")
+    private long defaultOffDelayMillis;
+
+    private final Map<AlarmKey, AlarmState> states = new ConcurrentHashMap<>();
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder raised = new LongAdder();
+    private final LongAdder escalated = new LongAdder();
+    private final LongAdder cleared = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        alarmService.onOperatorResolved(this::forgetResolved);
+    }
+
+    /**
+     * Carrega os alarmes ativos do banco, para não duplicá-los após reinício
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadActiveAlarms() {
+        int loaded = 0;
+        for (AlarmEvent alarm : alarmService.findActiveAlarms()) {
+            if (alarm.getEquipment() == null) {
+                continue;
+            }
+            AlarmKey key = new AlarmKey(alarm.getEquipment().getId(), alarm.getType());
+            AlarmState state = states.computeIfAbsent(key, k -> new AlarmState());
+            synchronized (state) {
+                if (!state.active) {
+                    state.active = true;
+                    state.severity = alarm.getSeverity();
+                    state.alarm = alarm;
+                    state.since = System.currentTimeMillis();
+                    loaded++;
+                }
+            }
+        }
+        log.info("Índice de alarmes ativos carregado: {} alarmes", loaded);
+    }
+
+    /**
+     * Avalia uma condição e grava somente se houver transição de estado
+     */
+    public void evaluate(AlarmCondition condition) {
+        evaluations.increment();
+        long now = System.currentTimeMillis();
+        AlarmKey key = new AlarmKey(condition.getEquipment().getId(), condition.getType());
+        AlarmState state = states.computeIfAbsent(key, k -> new AlarmState());
+
+        Transition transition;
+        AlarmEvent previousAlarm;
+        boolean conditionTrue;
+        synchronized (state) {
+            conditionTrue = isConditionTrue(condition, state.active);
+            transition = state.update(conditionTrue, condition.getSeverity(), now,
+                condition.isPreEvaluated() ? 0 : valueOr(condition.getOnDelayMillis(), defaultOnDelayMillis),
+                condition.isPreEvaluated() ? 0 : valueOr(condition.getOffDelayMillis(), defaultOffDelayMillis));
+            previousAlarm = state.alarm;
+            if (transition != Transition.NONE) {
+                state.alarm = null;
+            }
+        }
+
+        // Enfileiramento fora do monitor (AlarmPipeline grava em ordem, de forma assíncrona)
+        switch (transition) {
+            case RAISE:
+                raised.increment();
+                setAlarm(state, createAlarm(condition));
+                break;
+            case ESCALATE:
+                escalated.increment();
+                resolve(previousAlarm);
+                setAlarm(state, createAlarm(condition));
+                break;
+            case CLEAR:
+                cleared.increment();
+                resolve(previousAlarm);
+                log.info("Alarme normalizado: {} - {}", condition.getType(), condition.getEquipment().getName());
+                break;
+            default:
+                if (conditionTrue && state.active) {
+                    duplicates.increment();
+                }
+                break;
+        }
+    }
+
+    private boolean isConditionTrue(AlarmCondition condition, boolean currentlyActive) {
+        if (condition.isPreEvaluated() || condition.getLimit() == null || condition.getValue() == null) {
+            return condition.isActive();
+        }
+        double value = condition.getValue();
+        double limit = condition.getLimit();
+        double deadband = condition.getDeadband() != null
+            ? condition.getDeadband()
+            : Math.abs(limit) * defaultDeadbandPercent / 100.0;
+
+        // Histerese: ativo, só normaliza depois de voltar além da banda morta
+        if (condition.isLowLimit()) {
+            return currentlyActive ? value < limit + deadband : value < limit;
+        }
+        return currentlyActive ? value > limit - deadband : value > limit;
+    }
+
+    private AlarmEvent createAlarm(AlarmCondition condition) {
+        return alarmService.createAlarm(
+            condition.getEquipment(),
+            condition.getSeverity(),
+            condition.getType(),
+            condition.getMessage(),
+            null,
+            condition.getValue(),
+            condition.getLimit()
+        );
+    }
+
+    private void resolve(AlarmEvent alarm) {
+        if (alarm != null) {
+            alarmService.resolveAlarmAsync(alarm);
+        }
+    }
+
+    /**
+     * Associa o alarme criado ao estado. Alarme suprimido (null): o estado
+     * continua ativo, sem registro para resolver na normalização
+     */
+    private void setAlarm(AlarmState state, AlarmEvent alarm) {
+        if (alarm == null) {
+            return;
+        }
+        synchronized (state) {
+            if (state.active && state.alarm == null) {
+                state.alarm = alarm;
+                return;
+            }
+        }
+        // Normalizado (ou escalonado) enquanto o alarme era criado: resolve em seguida, na mesma fila
+        resolve(alarm);
+    }
+
+    /**
+     * Remove o estado dos alarmes de um equipamento (ex.: equipamento excluído)
+     */
+    public void clearEquipment(String equipmentId) {
+        states.keySet().removeIf(key -> key.getEquipmentId().equals(equipmentId));
+    }
+
+    /**
+     * Alarmes resolvidos pelo operador: a condição volta a inativa e, se
+     * ainda presente, gera um novo alarme na próxima avaliação
+     */
+    void forgetResolved(Collection<String> alarmIds) {
+        Set<String> ids = new HashSet<>(alarmIds);
+        for (AlarmState state : states.values()) {
+            synchronized (state) {
+                if (state.alarm != null && ids.contains(state.alarm.getId())) {
+                    state.reset();
+                }
+            }
+        }
+    }
+
+    public boolean isActive(String equipmentId, AlarmType type) {
+        AlarmState state = states.get(new AlarmKey(equipmentId, type));
+        return state != null && state.active;
+    }
+
+    /**
+     * Alarmes de condição ativos no índice em memória
+     */
+    public List<Map<String, Object>> getActiveAlarms() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        states.forEach((key, state) -> {
+            synchronized (state) {
+                if (!state.active) {
+                    return;
+                }
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("equipmentId", key.getEquipmentId());
+                entry.put("type", key.getType());
+                entry.put("severity", state.severity);
+                entry.put("alarmId", state.alarm != null ? state.alarm.getId() : null);
+                entry.put("since", state.since);
+                result.add(entry);
+            }
+        });
+        return result;
+    }
+
+    public Map<String, Object> getStatistics() {
+        long active = states.values().stream().filter(state -> state.active).count();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trackedConditions", states.size());
+        stats.put("active", active);
+        stats.put("evaluations", evaluations.sum());
+        stats.put("raised", raised.sum());
+        stats.put("escalated", escalated.sum());
+        stats.put("cleared", cleared.sum());
+        stats.put("duplicatesSuppressed", duplicates.sum());
+        return stats;
+    }
+
+    private static long valueOr(Long value, long defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    enum Transition {
+        NONE, RAISE, ESCALATE, CLEAR
+    }
+
+    /**
+     * Estado de um alarme (equipamento, tipo). Acesso sob o monitor da instância
+     */
+    private static final class AlarmState {
+        volatile boolean active;
+        AlarmSeverity severity;
+        AlarmEvent alarm;
+        long since;
+        long pendingOnSince;
+        long pendingOffSince;
+
+        void reset() {
+            active = false;
+            alarm = null;
+            pendingOnSince = 0;
+            pendingOffSince = 0;
+        }
+
+        Transition update(boolean conditionTrue, AlarmSeverity newSeverity, long now,
+                          long onDelayMillis, long offDelayMillis) {
+            if (conditionTrue) {
+                pendingOffSince = 0;
+                if (!active) {
+                    if (pendingOnSince == 0) {
+                        pendingOnSince = now;
+                    }
+                    if (now - pendingOnSince < onDelayMillis) {
+                        return Transition.NONE;
+                    }
+                    active = true;
+                    severity = newSeverity;
+                    since = now;
+                    pendingOnSince = 0;
+                    return Transition.RAISE;
+                }
+                if (newSeverity.getPriority() > severity.getPriority()) {
+                    severity = newSeverity;
+                    return Transition.ESCALATE;
+                }
+                return Transition.NONE;
+            }
+
+            pendingOnSince = 0;
+            if (!active) {
+                return Transition.NONE;
+            }
+            if (pendingOffSince == 0) {
+                pendingOffSince = now;
+            }
+            if (now - pendingOffSince < offDelayMillis) {
+                return Transition.NONE;
+            }
+            active = false;
+            pendingOffSince = 0;
+            return Transition.CLEAR;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.mattschutz.scada.alarm;
+
+/**
+ * Recebe os alarmes gravados pelo {@link AlarmPipeline}, na ordem de gravação
+ * (por equipamento, a ordem em que foram gerados). Executado na thread de
+ * gravação: implementações devem ser rápidas e delegar trabalho lento
+ * (e-mail, SMS) a outro executor
+ */
+public interface AlarmSubscriber {
+    void onAlarm(AlarmNotification notification);
+}
@@ -0,0 +1,293 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import com.mattschutz.scada.entity.Equipment;
+import com.mattschutz.scada.entity.EquipmentStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Filtro aplicado antes de gravar um alarme.
+ *
+ * - Arquivamento (shelving): o operador silencia um alarme (equipamento, tipo)
+ *   por tempo limitado; expira sozinho.
+ * - Supressão por estado: alarmes que não fazem sentido no estado atual do
+ *   equipamento (ex.: sobrecarga de equipamento parado, qualquer alarme de
+ *   equipamento em manutenção).
+ * - Avalanche: acima de alarm.flood.threshold alarmes/minuto em uma área,
+ *   só alarmes com severidade >= alarm.flood.min-severity passam até a taxa
+ *   cair abaixo da metade do limiar.
+ *
+ * Alarmes suprimidos não são gravados nem registrados individualmente no log;
+ * apenas contados por motivo e por área.
+ */
+@Service
+@Slf4j
+public class AlarmSuppressionService {
+
+    private static final String SYSTEM_AREA = "Sistema";
+    private static final int WINDOW_SECONDS = 60;
+
+    // Condições que só fazem sentido com o equipamento em operação
+    private static final Set<AlarmType> OPERATIONAL_ONLY = EnumSet.of(
+        AlarmType.OVERLOAD,
+        AlarmType.OVERCURRENT,
+        AlarmType.UNDERVOLTAGE,
+        AlarmType.VIBRATION,
+        AlarmType.POWER_FACTOR_LOW,
+        AlarmType.FREQUENCY_OUT_OF_RANGE,
+        AlarmType.STUCK_VALUE
+    );
+
+    @Value("${alarm.flood.threshold:30}")
+    private int floodThreshold;
+
+    @Value("${alarm.flood.min-severity:CRITICAL}")
+    private AlarmSeverity floodMinSeverity;
+
+    @Value("${alarm.shelve.max-minutes:480}")
+    private long maxShelveMinutes;
+
+    private final Map<AlarmKey, AlarmShelf> shelves = new ConcurrentHashMap<>();
+    private final Map<String, AreaRate> areas = new ConcurrentHashMap<>();
+    private final Map<SuppressionReason, LongAdder> suppressed = new EnumMap<>(SuppressionReason.class);
+    private final LongAdder admitted = new LongAdder();
+
+    public AlarmSuppressionService() {
+        for (SuppressionReason reason : SuppressionReason.values()) {
+            suppressed.put(reason, new LongAdder());
+        }
+    }
+
+    /**
+     * Decide se o alarme deve ser gravado. Retorna null se admitido, ou o motivo da supressão
+     */
+    public SuppressionReason check(Equipment equipment, AlarmSeverity severity, AlarmType type) {
+        String area = areaOf(equipment);
+        long nowMillis = System.currentTimeMillis();
+
+        // Toda ocorrência conta para a taxa da área, mesmo suprimida
+        AreaRate rate = areas.computeIfAbsent(area, AreaRate::new);
+        boolean flooding = rate.record(nowMillis, floodThreshold);
+
+        SuppressionReason reason = null;
+        if (equipment != null && isShelved(equipment.getId(), type)) {
+            reason = SuppressionReason.SHELVED;
+        } else if (equipment != null && isSuppressedByState(equipment.getStatus(), type)) {
+            reason = SuppressionReason.STATE_BASED;
+        } else if (flooding && severity.getPriority() < floodMinSeverity.getPriority()) {
+            reason = SuppressionReason.FLOOD;
+        }
+
+        if (reason == null) {
+            admitted.increment();
+        } else {
+            suppressed.get(reason).increment();
+            rate.suppressed.increment();
+        }
+        return reason;
+    }
+
+    static boolean isSuppressedByState(EquipmentStatus status, AlarmType type) {
+        if (status == null || type == AlarmType.EMERGENCY_STOP) {
+            return false;
+        }
+        if (status == EquipmentStatus.MAINTENANCE) {
+            return true;
+        }
+        return OPERATIONAL_ONLY.contains(type) && !status.isOperational();
+    }
+
+    private static String areaOf(Equipment equipment) {
+        if (equipment == null || equipment.getLocation() == null || equipment.getLocation().isBlank()) {
+            return SYSTEM_AREA;
+        }
+        return equipment.getLocation();
+    }
+
+    /**
+     * Arquiva um alarme (equipamento, tipo) por alguns minutos
+     */
+    public AlarmShelf shelve(String equipmentId, AlarmType type, long minutes, String username, String reason) {
+        if (minutes <= 0 || minutes > maxShelveMinutes) {
+            throw new IllegalArgumentException("Duração do arquivamento deve estar entre 1 e " + maxShelveMinutes + " minutos");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        AlarmShelf shelf = new AlarmShelf(equipmentId, type, username, reason, now, now.plusMinutes(minutes));
+        shelves.put(new AlarmKey(equipmentId, type), shelf);
+        log.info("Alarme {} de {} arquivado por {} até {}", type, equipmentId, username, shelf.getExpiresAt());
+        return shelf;
+    }
+
+    public boolean unshelve(String equipmentId, AlarmType type) {
+        AlarmShelf removed = shelves.remove(new AlarmKey(equipmentId, type));
+        if (removed != null) {
+            log.info("Alarme {} de {} desarquivado", type, equipmentId);
+        }
+        return removed != null;
+    }
+
+    public boolean isShelved(String equipmentId, AlarmType type) {
+        AlarmShelf shelf = shelves.get(new AlarmKey(equipmentId, type));
+        return shelf != null && !shelf.isExpired(LocalDateTime.now());
+    }
+
+    public List<AlarmShelf> getShelves() {
+        LocalDateTime now = LocalDateTime.now();
+        List<AlarmShelf> result = new ArrayList<>();
+        for (AlarmShelf shelf : shelves.values()) {
+            if (!shelf.isExpired(now)) {
+                result.add(shelf);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove arquivamentos vencidos e encerra avalanches cuja taxa já caiu
+     */
+    @Scheduled(fixedRate = 10000)
+    public void expire() {
+        LocalDateTime now = LocalDateTime.now();
+        shelves.values().removeIf(shelf -> {
+            if (shelf.isExpired(now)) {
+                log.info("Arquivamento expirado: {} de {}", shelf.getType(), shelf.getEquipmentId());
+                return true;
+            }
+            return false;
+        });
+        long nowMillis = System.currentTimeMillis();
+        for (AreaRate rate : areas.values()) {
+            rate.refresh(nowMillis, floodThreshold);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("admitted", admitted.sum());
+        Map<SuppressionReason, Long> byReason = new EnumMap<>(SuppressionReason.class);
+        suppressed.forEach((reason, count) -> byReason.put(reason, count.sum()));
+        stats.put("suppressed", byReason);
+        stats.put("shelved", getShelves().size());
+
+        long nowMillis = System.currentTimeMillis();
+        List<Map<String, Object>> areaStats = new ArrayList<>();
+        for (AreaRate rate : areas.values()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("area", rate.area);
+            entry.put("alarmsPerMinute", rate.rate(nowMillis));
+            entry.put("flooding", rate.isFlooding());
+            entry.put("suppressed", rate.suppressed.sum());
+            areaStats.add(entry);
+        }
+        stats.put("areas", areaStats);
+        stats.put("floodThreshold", floodThreshold);
+        stats.put("floodMinSeverity", floodMinSeverity);
+        return stats;
+    }
+
+    /**
+     * Taxa de alarmes de uma área em janela deslizante de 60 s (buckets de 1 s).
+     * Acesso sob o lock da instância, sem I/O; o log de início/fim da
+     * avalanche é feito depois de liberar o lock
+     */
+    private static final class AreaRate {
+        final String area;
+        final long[] counts = new long[WINDOW_SECONDS];
+        final long[] seconds = new long[WINDOW_SECONDS];
+        final LongAdder suppressed = new LongAdder();
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean flooding;
+        private long floodStartSuppressed;
+
+        AreaRate(String area) {
+            this.area = area;
+        }
+
+        boolean record(long nowMillis, int threshold) {
+            long second = nowMillis / 1000;
+            int bucket = (int) (second % WINDOW_SECONDS);
+            lock.lock();
+            try {
+                if (seconds[bucket] != second) {
+                    seconds[bucket] = second;
+                    counts[bucket] = 0;
+                }
+                counts[bucket]++;
+            } finally {
+                lock.unlock();
+            }
+            return refresh(nowMillis, threshold);
+        }
+
+        boolean refresh(long nowMillis, int threshold) {
+            long rate;
+            boolean started = false;
+            boolean ended = false;
+            long suppressedInFlood = 0;
+            boolean result;
+            lock.lock();
+            try {
+                rate = rate(nowMillis);
+                if (!flooding && rate >= threshold) {
+                    flooding = true;
+                    floodStartSuppressed = suppressed.sum();
+                    started = true;
+                } else if (flooding && rate < threshold / 2) {
+                    flooding = false;
+                    suppressedInFlood = suppressed.sum() - floodStartSuppressed;
+                    ended = true;
+                }
+                result = flooding;
+            } finally {
+                lock.unlock();
+            }
+            if (started) {
+                log.warn("Avalanche de alarmes na área {}: {} alarmes/min", area, rate);
+            } else if (ended) {
+                log.warn("Avalanche de alarmes encerrada na área {}: {} alarmes suprimidos", area, suppressedInFlood);
+            }
+            return result;
+        }
+
+        long rate(long nowMillis) {
+            long second = nowMillis / 1000;
+            long total = 0;
+            lock.lock();
+            try {
+                for (int i = 0; i < WINDOW_SECONDS; i++) {
+                    if (second - seconds[i] < WINDOW_SECONDS) {
+                        total += counts[i];
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            return total;
+        }
+
+        boolean isFlooding() {
+            lock.lock();
+            try {
+                return flooding;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
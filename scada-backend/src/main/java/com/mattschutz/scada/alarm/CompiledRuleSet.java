@@ -0,0 +1,645 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.entity.AlarmComparator;
+import com.mattschutz.scada.entity.AlarmLimitMode;
+import com.mattschutz.scada.entity.AlarmRule;
+import com.mattschutz.scada.entity.AlarmStatistic;
+import com.mattschutz.scada.entity.AlarmType;
+import com.mattschutz.scada.entity.Equipment;
+import com.mattschutz.scada.entity.EquipmentField;
+import com.mattschutz.scada.entity.Motor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regras de alarme compiladas para um conjunto de equipamentos.
+ *
+ * Cada par (equipamento, regra aplicável) vira um slot; os parâmetros dos
+ * slots (índice do valor, limite efetivo, banda morta, atrasos) ficam em
+ * arrays paralelos e os valores de processo em uma tabela plana
+ * equipamento x grandeza. {@link #evaluate} percorre todos os slots sem
+ * alocar memória e notifica apenas as transições.
+ *
+ * Slots de um mesmo (equipamento, tipo de alarme) formam uma chave, usada
+ * para agregar severidades (ex.: temperatura alta x motor superaquecido).
+ * Um segundo índice liga cada posição da tabela de valores aos slots que a
+ * referenciam, para reavaliar só esses slots quando um valor muda
+ * ({@link #evaluateValue}). Slots aguardando atraso de ativação/normalização
+ * ficam em uma lista própria ({@link #evaluatePending}).
+ *
+ * Slots de regras estatísticas (taxa de variação, desvio da média móvel,
+ * valor congelado) comparam com o limite uma grandeza derivada, mantida por
+ * slot em arrays primitivos: buffer circular de amostras (taxa; no máximo
+ * uma por intervalo de janela / (RING_SIZE - 1), para cobrir a janela
+ * inteira mesmo com valores que mudam a cada varredura), médias
+ * móveis exponenciais de média e variância (desvio) e instante da última
+ * variação (congelado). Cada amostra nova atualiza o estado em O(1)
+ * amortizado; como os valores só chegam quando mudam, o valor anterior é
+ * considerado vigente até a amostra seguinte.
+ *
+ * Não é thread-safe: o chamador serializa as avaliações.
+ */
+final class CompiledRuleSet {
+
+    static final int FIELD_COUNT = EquipmentField.values().length;
+    static final int RING_SIZE = 64;
+
+    /**
+     * Recebe o índice do slot que mudou de estado
+     */
+    interface TransitionListener {
+        void onTransition(int slot);
+    }
+
+    // Equipamentos
+    final String[] equipmentIds;
+    private final Map<String, Integer> assetIndex;
+
+    // Regras (cópias usadas na compilação)
+    final AlarmRule[] rules;
+
+    // Slots
+    final int slotCount;
+    final int[] slotAsset;
+    final int[] slotRule;
+    final int[] slotValue;
+    final double[] slotLimit;
+    final double[] slotDeadband;
+    final boolean[] slotBelow;
+    final long[] slotOnDelay;
+    final long[] slotOffDelay;
+    final int[] slotKey;
+    final AlarmStatistic[] slotStatistic;
+    final int[] slotState; // -1 = compara o valor lido
+
+    // Chaves (equipamento, tipo) -> slots, em formato CSR
+    final int[] keyStart;
+    final int[] keySlots;
+    final AlarmType[] keyType;
+
+    // Posição na tabela de valores -> slots, em formato CSR
+    final int[] valueStart;
+    final int[] valueSlots;
+
+    // Estado mutável
+    final double[] values;
+    final boolean[] active;
+    final long[] pendingSince;
+    private final int[] pendingSlots;
+    private final boolean[] inPending;
+    private int pendingCount;
+
+    // Estado das estatísticas, um por slot estatístico
+    private final long[] stateWindow;
+    private final double[] stateMeasured;
+    private final double[] lastSample;
+    private final long[] lastSampleAt;
+    private final long[] lastChangeAt;
+    private final long[] firstSampleAt;
+    private final double[] ewmaMean;
+    private final double[] ewmaVariance;
+    private final double[] ringValue;
+    private final long[] ringTime;
+    private final int[] ringTail;
+    private final int[] ringSize;
+
+    private CompiledRuleSet(String[] equipmentIds, AlarmRule[] rules, SlotBuffer slots, int keyCount,
+                            AlarmType[] keyType) {
+        this.equipmentIds = equipmentIds;
+        this.assetIndex = new HashMap<>(equipmentIds.length * 2);
+        for (int i = 0; i < equipmentIds.length; i++) {
+            assetIndex.put(equipmentIds[i], i);
+        }
+        this.rules = rules;
+
+        this.slotCount = slots.size;
+        this.slotAsset = Arrays.copyOf(slots.asset, slotCount);
+        this.slotRule = Arrays.copyOf(slots.rule, slotCount);
+        this.slotValue = Arrays.copyOf(slots.value, slotCount);
+        this.slotLimit = Arrays.copyOf(slots.limit, slotCount);
+        this.slotDeadband = Arrays.copyOf(slots.deadband, slotCount);
+        this.slotBelow = Arrays.copyOf(slots.below, slotCount);
+        this.slotOnDelay = Arrays.copyOf(slots.onDelay, slotCount);
+        this.slotOffDelay = Arrays.copyOf(slots.offDelay, slotCount);
+        this.slotKey = Arrays.copyOf(slots.key, slotCount);
+        this.slotStatistic = Arrays.copyOf(slots.statistic, slotCount);
+        this.keyType = keyType;
+
+        this.slotState = new int[slotCount];
+        int states = 0;
+        for (int s = 0; s < slotCount; s++) {
+            slotState[s] = slotStatistic[s] != AlarmStatistic.VALUE ? states++ : -1;
+        }
+        this.stateWindow = new long[states];
+        for (int s = 0; s < slotCount; s++) {
+            if (slotState[s] >= 0) {
+                stateWindow[slotState[s]] = slots.window[s];
+            }
+        }
+        this.stateMeasured = new double[states];
+        this.lastSample = new double[states];
+        Arrays.fill(stateMeasured, Double.NaN);
+        Arrays.fill(lastSample, Double.NaN);
+        this.lastSampleAt = new long[states];
+        this.lastChangeAt = new long[states];
+        this.firstSampleAt = new long[states];
+        this.ewmaMean = new double[states];
+        this.ewmaVariance = new double[states];
+        this.ringValue = new double[states * RING_SIZE];
+        this.ringTime = new long[states * RING_SIZE];
+        this.ringTail = new int[states];
+        this.ringSize = new int[states];
+
+        // Agrupa os slots por chave
+        this.keyStart = new int[keyCount + 1];
+        for (int s = 0; s < slotCount; s++) {
+            keyStart[slotKey[s] + 1]++;
+        }
+        for (int k = 0; k < keyCount; k++) {
+            keyStart[k + 1] += keyStart[k];
+        }
+        this.keySlots = new int[slotCount];
+        int[] fill = Arrays.copyOf(keyStart, keyCount);
+        for (int s = 0; s < slotCount; s++) {
+            keySlots[fill[slotKey[s]]++] = s;
+        }
+
+        this.values = new double[equipmentIds.length * FIELD_COUNT];
+        Arrays.fill(values, Double.NaN);
+        this.active = new boolean[slotCount];
+        this.pendingSince = new long[slotCount];
+        this.pendingSlots = new int[slotCount];
+        this.inPending = new boolean[slotCount];
+
+        // Agrupa os slots por posição de valor
+        this.valueStart = new int[values.length + 1];
+        for (int s = 0; s < slotCount; s++) {
+            valueStart[slotValue[s] + 1]++;
+        }
+        for (int v = 0; v < values.length; v++) {
+            valueStart[v + 1] += valueStart[v];
+        }
+        this.valueSlots = new int[slotCount];
+        int[] next = Arrays.copyOf(valueStart, values.length);
+        for (int s = 0; s < slotCount; s++) {
+            valueSlots[next[slotValue[s]]++] = s;
+        }
+    }
+
+    /**
+     * Compila as regras habilitadas para os equipamentos informados
+     */
+    static CompiledRuleSet compile(List<AlarmRule> rules, List<? extends Equipment> equipment,
+                                   double defaultDeadbandPercent, long defaultOnDelay, long defaultOffDelay) {
+        AlarmRule[] ruleArray = rules.toArray(new AlarmRule[0]);
+        String[] ids = new String[equipment.size()];
+        SlotBuffer slots = new SlotBuffer(Math.max(16, equipment.size() * 4));
+        List<AlarmType> keyTypes = new ArrayList<>();
+
+        for (int a = 0; a < ids.length; a++) {
+            Equipment asset = equipment.get(a);
+            ids[a] = asset.getId();
+            Map<AlarmType, Integer> assetKeys = new HashMap<>();
+
+            for (int r = 0; r < ruleArray.length; r++) {
+                AlarmRule rule = ruleArray[r];
+                if (!applies(rule, asset)) {
+                    continue;
+                }
+                double limit = effectiveLimit(rule, asset, rule.getLimit());
+                if (Double.isNaN(limit)) {
+                    continue;
+                }
+                double deadband = rule.getDeadband() != null
+                    ? effectiveDeadband(rule, asset, rule.getDeadband())
+                    : Math.abs(limit) * defaultDeadbandPercent / 100.0;
+
+                Integer key = assetKeys.get(rule.getType());
+                if (key == null) {
+                    key = keyTypes.size();
+                    keyTypes.add(rule.getType());
+                    assetKeys.put(rule.getType(), key);
+                }
+
+                AlarmStatistic statistic = rule.getStatistic() != null ? rule.getStatistic() : AlarmStatistic.VALUE;
+                long windowSeconds = rule.getWindowSeconds() != null
+                    ? rule.getWindowSeconds() : statistic.getDefaultWindowSeconds();
+
+                slots.add(a, r, valueIndex(a, rule.getField()), limit, deadband,
+                    rule.getComparator() == AlarmComparator.BELOW,
+                    rule.getOnDelayMillis() != null ? rule.getOnDelayMillis() : defaultOnDelay,
+                    rule.getOffDelayMillis() != null ? rule.getOffDelayMillis() : defaultOffDelay,
+                    key, statistic, windowSeconds * 1000);
+            }
+        }
+
+        return new CompiledRuleSet(ids, ruleArray, slots, keyTypes.size(), keyTypes.toArray(new AlarmType[0]));
+    }
+
+    private static boolean applies(AlarmRule rule, Equipment asset) {
+        if (rule.getEquipmentType() != null && rule.getEquipmentType() != asset.getType()) {
+            return false;
+        }
+        return rule.getField().appliesTo(asset);
+    }
+
+    /**
+     * Limite absoluto da regra para o equipamento (NaN se não aplicável)
+     */
+    private static double effectiveLimit(AlarmRule rule, Equipment asset, double limit) {
+        switch (rule.getLimitMode()) {
+            case PERCENT_OF_NOMINAL:
+                return asset.getNominalCurrent() != null ? asset.getNominalCurrent() * limit / 100.0 : Double.NaN;
+            case INSULATION_CLASS:
+                return asset instanceof Motor ? ((Motor) asset).getInsulationTemperatureLimit() + limit : Double.NaN;
+            default:
+                return limit;
+        }
+    }
+
+    private static double effectiveDeadband(AlarmRule rule, Equipment asset, double deadband) {
+        if (rule.getLimitMode() == AlarmLimitMode.PERCENT_OF_NOMINAL) {
+            return asset.getNominalCurrent() != null ? asset.getNominalCurrent() * deadband / 100.0 : 0.0;
+        }
+        return deadband;
+    }
+
+    /**
+     * Índice do equipamento, ou -1 se não compilado
+     */
+    int indexOf(String equipmentId) {
+        Integer index = assetIndex.get(equipmentId);
+        return index != null ? index : -1;
+    }
+
+    boolean covers(List<? extends Equipment> equipment) {
+        if (equipment.size() != equipmentIds.length) {
+            return false;
+        }
+        for (Equipment asset : equipment) {
+            if (!assetIndex.containsKey(asset.getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void setValue(int asset, EquipmentField field, double value) {
+        values[valueIndex(asset, field)] = value;
+    }
+
+    static int valueIndex(int asset, EquipmentField field) {
+        return asset * FIELD_COUNT + field.ordinal();
+    }
+
+    /**
+     * Avalia apenas os slots que referenciam a posição de valor. Retorna o número de slots avaliados
+     */
+    int evaluateValue(int valueIndex, long nowMillis, TransitionListener listener) {
+        int end = valueStart[valueIndex + 1];
+        for (int i = valueStart[valueIndex]; i < end; i++) {
+            int s = valueSlots[i];
+            if (evaluateSlot(s, nowMillis)) {
+                listener.onTransition(s);
+            }
+        }
+        return end - valueStart[valueIndex];
+    }
+
+    /**
+     * Reavalia os slots aguardando atraso, para que vençam sem depender de novo valor
+     */
+    int evaluatePending(long nowMillis, TransitionListener listener) {
+        int count = pendingCount;
+        pendingCount = 0;
+        // Compacta no próprio array: cada iteração reinsere no máximo um slot em posição já lida
+        for (int i = 0; i < count; i++) {
+            int s = pendingSlots[i];
+            inPending[s] = false;
+            if (pendingSince[s] != 0 && evaluateSlot(s, nowMillis)) {
+                listener.onTransition(s);
+            }
+        }
+        return count;
+    }
+
+    int pendingCount() {
+        return pendingCount;
+    }
+
+    private void markPending(int s) {
+        if (!inPending[s]) {
+            inPending[s] = true;
+            pendingSlots[pendingCount++] = s;
+        }
+    }
+
+    /**
+     * Avalia todos os slots. Retorna o número de transições
+     */
+    int evaluate(long nowMillis, TransitionListener listener) {
+        int transitions = 0;
+        for (int s = 0; s < slotCount; s++) {
+            if (evaluateSlot(s, nowMillis)) {
+                transitions++;
+                listener.onTransition(s);
+            }
+        }
+        return transitions;
+    }
+
+    /**
+     * Avalia um slot com histerese e atrasos. Retorna true se o estado mudou
+     */
+    boolean evaluateSlot(int s, long nowMillis) {
+        double v = values[slotValue[s]];
+        int state = slotState[s];
+        if (state >= 0) {
+            v = statistic(s, state, v, nowMillis);
+            stateMeasured[state] = v;
+        }
+        if (v != v) {
+            // Sem leitura: mantém o estado
+            return false;
+        }
+        boolean wasActive = active[s];
+        double limit = slotLimit[s];
+        boolean condition;
+        if (slotBelow[s]) {
+            condition = wasActive ? v < limit + slotDeadband[s] : v < limit;
+        } else {
+            condition = wasActive ? v > limit - slotDeadband[s] : v > limit;
+        }
+
+        if (condition == wasActive) {
+            pendingSince[s] = 0;
+            return false;
+        }
+        long since = pendingSince[s];
+        if (since == 0) {
+            since = nowMillis;
+            pendingSince[s] = nowMillis;
+        }
+        if (nowMillis - since < (condition ? slotOnDelay[s] : slotOffDelay[s])) {
+            markPending(s);
+            return false;
+        }
+        active[s] = condition;
+        pendingSince[s] = 0;
+        return true;
+    }
+
+    /**
+     * Grandeza comparada com o limite na última avaliação do slot (valor lido ou estatística)
+     */
+    double measured(int s) {
+        int state = slotState[s];
+        return state >= 0 ? stateMeasured[state] : values[slotValue[s]];
+    }
+
+    /**
+     * Atualiza o estado do slot com o valor atual e calcula a estatística (NaN = indisponível)
+     */
+    private double statistic(int s, int state, double v, long nowMillis) {
+        if (v != v) {
+            return Double.NaN;
+        }
+        AlarmStatistic statistic = slotStatistic[s];
+        observe(state, v, nowMillis, statistic == AlarmStatistic.DEVIATION || statistic == AlarmStatistic.DEVIATION_SIGMA);
+        switch (statistic) {
+            case RATE_OF_CHANGE:
+                return rateOfChange(state, v, nowMillis);
+            case DEVIATION:
+                return deviation(state, v, nowMillis, false);
+            case DEVIATION_SIGMA:
+                return deviation(state, v, nowMillis, true);
+            case STUCK:
+                return (nowMillis - lastChangeAt[state]) / 1000.0;
+            default:
+                return v;
+        }
+    }
+
+    /**
+     * Registra o valor se mudou desde a última amostra
+     */
+    private void observe(int state, double v, long nowMillis, boolean ewma) {
+        double previous = lastSample[state];
+        if (previous != previous) {
+            lastSample[state] = v;
+            lastSampleAt[state] = nowMillis;
+            lastChangeAt[state] = nowMillis;
+            firstSampleAt[state] = nowMillis;
+            ewmaMean[state] = v;
+            ewmaVariance[state] = 0;
+            push(state, nowMillis, v);
+            return;
+        }
+        if (v == previous) {
+            return;
+        }
+        if (ewma) {
+            // O valor anterior vigorou desde a amostra anterior
+            double alpha = 1 - Math.exp(-(double) Math.max(0, nowMillis - lastSampleAt[state]) / stateWindow[state]);
+            double d = previous - ewmaMean[state];
+            ewmaMean[state] += alpha * d;
+            ewmaVariance[state] = (1 - alpha) * (ewmaVariance[state] + alpha * d * d);
+        }
+        push(state, nowMillis, v);
+        lastSample[state] = v;
+        lastSampleAt[state] = nowMillis;
+        lastChangeAt[state] = nowMillis;
+    }
+
+    private void push(int state, long time, double v) {
+        int size = ringSize[state];
+        long bucket = Math.max(1, stateWindow[state] / (RING_SIZE - 1));
+        if (size > 0) {
+            int newest = state * RING_SIZE + (ringTail[state] + size - 1) % RING_SIZE;
+            if (ringTime[newest] / bucket == time / bucket) {
+                // Mesmo intervalo da última amostra: substitui (erro de até um intervalo no início da janela)
+                ringTime[newest] = time;
+                ringValue[newest] = v;
+                return;
+            }
+        }
+        if (size == RING_SIZE) {
+            ringTail[state] = (ringTail[state] + 1) % RING_SIZE;
+            size--;
+        }
+        int index = state * RING_SIZE + (ringTail[state] + size) % RING_SIZE;
+        ringTime[index] = time;
+        ringValue[index] = v;
+        ringSize[state] = size + 1;
+    }
+
+    /**
+     * Variação por minuto entre o valor vigente no início da janela e o atual
+     */
+    private double rateOfChange(int state, double current, long nowMillis) {
+        long window = stateWindow[state];
+        long windowStart = nowMillis - window;
+        int base = state * RING_SIZE;
+        int tail = ringTail[state];
+        int size = ringSize[state];
+        // Mantém só a última amostra anterior ao início da janela
+        while (size >= 2 && ringTime[base + (tail + 1) % RING_SIZE] <= windowStart) {
+            tail = (tail + 1) % RING_SIZE;
+            size--;
+        }
+        ringTail[state] = tail;
+        ringSize[state] = size;
+
+        long baseTime = ringTime[base + tail];
+        double baseValue = ringValue[base + tail];
+        if (baseTime <= windowStart) {
+            return (current - baseValue) * 60_000.0 / window;
+        }
+        long span = nowMillis - baseTime;
+        if (span <= 0 || span < window / 2) {
+            // Histórico menor que meia janela
+            return Double.NaN;
+        }
+        return (current - baseValue) * 60_000.0 / span;
+    }
+
+    /**
+     * Desvio do valor atual em relação à média móvel exponencial (constante de tempo = janela)
+     */
+    private double deviation(int state, double current, long nowMillis, boolean sigma) {
+        long window = stateWindow[state];
+        if (nowMillis - firstSampleAt[state] < window) {
+            // Aquecimento: uma janela de histórico
+            return Double.NaN;
+        }
+        double alpha = 1 - Math.exp(-(double) Math.max(0, nowMillis - lastSampleAt[state]) / window);
+        double mean = ewmaMean[state] + alpha * (current - ewmaMean[state]);
+        double deviation = Math.abs(current - mean);
+        if (!sigma) {
+            return deviation;
+        }
+        double variance = ewmaVariance[state];
+        return variance > 0 ? deviation / Math.sqrt(variance) : Double.NaN;
+    }
+
+    /**
+     * Slot ativo de maior severidade na chave, ou -1 se nenhum ativo
+     */
+    int worstActiveSlot(int key) {
+        int best = -1;
+        for (int i = keyStart[key]; i < keyStart[key + 1]; i++) {
+            int s = keySlots[i];
+            if (active[s] && (best < 0
+                    || rules[slotRule[s]].getSeverity().getPriority() > rules[slotRule[best]].getSeverity().getPriority())) {
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Copia o estado dos slots equivalentes (mesmo equipamento e regra) de um conjunto anterior
+     */
+    void copyStateFrom(CompiledRuleSet previous) {
+        Map<String, Integer> previousSlots = new HashMap<>(previous.slotCount * 2);
+        for (int s = 0; s < previous.slotCount; s++) {
+            previousSlots.put(previous.equipmentIds[previous.slotAsset[s]] + "|" + previous.rules[previous.slotRule[s]].getId(), s);
+        }
+        for (int s = 0; s < slotCount; s++) {
+            Integer old = previousSlots.get(equipmentIds[slotAsset[s]] + "|" + rules[slotRule[s]].getId());
+            if (old != null) {
+                active[s] = previous.active[old];
+                pendingSince[s] = previous.pendingSince[old];
+                if (pendingSince[s] != 0) {
+                    markPending(s);
+                }
+                if (slotState[s] >= 0 && previous.slotState[old] >= 0) {
+                    copyStatistic(previous, previous.slotState[old], slotState[s]);
+                }
+            }
+        }
+        for (int a = 0; a < equipmentIds.length; a++) {
+            int oldAsset = previous.indexOf(equipmentIds[a]);
+            if (oldAsset >= 0) {
+                System.arraycopy(previous.values, oldAsset * FIELD_COUNT, values, a * FIELD_COUNT, FIELD_COUNT);
+            }
+        }
+    }
+
+    private void copyStatistic(CompiledRuleSet previous, int from, int to) {
+        stateMeasured[to] = previous.stateMeasured[from];
+        lastSample[to] = previous.lastSample[from];
+        lastSampleAt[to] = previous.lastSampleAt[from];
+        lastChangeAt[to] = previous.lastChangeAt[from];
+        firstSampleAt[to] = previous.firstSampleAt[from];
+        ewmaMean[to] = previous.ewmaMean[from];
+        ewmaVariance[to] = previous.ewmaVariance[from];
+        System.arraycopy(previous.ringValue, from * RING_SIZE, ringValue, to * RING_SIZE, RING_SIZE);
+        System.arraycopy(previous.ringTime, from * RING_SIZE, ringTime, to * RING_SIZE, RING_SIZE);
+        ringTail[to] = previous.ringTail[from];
+        ringSize[to] = previous.ringSize[from];
+    }
+
+    private static final class SlotBuffer {
+        int size;
+        int[] asset;
+        int[] rule;
+        int[] value;
+        double[] limit;
+        double[] deadband;
+        boolean[] below;
+        long[] onDelay;
+        long[] offDelay;
+        int[] key;
+        AlarmStatistic[] statistic;
+        long[] window;
+
+        SlotBuffer(int capacity) {
+            asset = new int[capacity];
+            rule = new int[capacity];
+            value = new int[capacity];
+            limit = new double[capacity];
+            deadband = new double[capacity];
+            below = new boolean[capacity];
+            onDelay = new long[capacity];
+            offDelay = new long[capacity];
+            key = new int[capacity];
+            statistic = new AlarmStatistic[capacity];
+            window = new long[capacity];
+        }
+
+        void add(int a, int r, int v, double l, double d, boolean b, long on, long off, int k,
+                 AlarmStatistic st, long w) {
+            if (size == asset.length) {
+                int capacity = size * 2;
+                asset = Arrays.copyOf(asset, capacity);
+                rule = Arrays.copyOf(rule, capacity);
+                value = Arrays.copyOf(value, capacity);
+                limit = Arrays.copyOf(limit, capacity);
+                deadband = Arrays.copyOf(deadband, capacity);
+                below = Arrays.copyOf(below, capacity);
+                onDelay = Arrays.copyOf(onDelay, capacity);
+                offDelay = Arrays.copyOf(offDelay, capacity);
+                key = Arrays.copyOf(key, capacity);
+                statistic = Arrays.copyOf(statistic, capacity);
+                window = Arrays.copyOf(window, capacity);
+            }
+            asset[size] = a;
+            rule[size] = r;
+            value[size] = v;
+            limit[size] = l;
+            deadband[size] = d;
+            below[size] = b;
+            onDelay[size] = on;
+            offDelay[size] = off;
+            key[size] = k;
+            statistic[size] = st;
+            window[size] = w;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.mattschutz.scada.alarm;
+
+/**
+ * Motivo pelo qual um alarme não foi gravado nem anunciado
+ */
+public enum SuppressionReason {
+    SHELVED("Arquivado pelo operador"),
+    STATE_BASED("Estado do equipamento"),
+    FLOOD("Avalanche de alarmes na área");
+
+    private final String description;
+
+    SuppressionReason(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
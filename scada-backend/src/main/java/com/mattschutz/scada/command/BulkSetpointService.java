@@ -0,0 +1,250 @@
+package com.mattschutz.scada.command;
+
+import com.mattschutz.scada.alarm.AlarmRuleEngine;
+import com.mattschutz.scada.dto.BulkSetpointRequest;
+import com.mattschutz.scada.dto.BulkSetpointResultDTO;
+import com.mattschutz.scada.dto.SetpointResultDTO;
+import com.mattschutz.scada.entity.Equipment;
+import com.mattschutz.scada.entity.Inverter;
+import com.mattschutz.scada.entity.SoeEventType;
+import com.mattschutz.scada.repository.EquipmentRepository;
+import com.mattschutz.scada.soe.SoeClock;
+import com.mattschutz.scada.soe.SoeRecorder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ajuste de frequência de uma frota de inversores em uma requisição.
+ *
+ * Os inversores são lidos em uma consulta e validados contra a faixa de
+ * cada um; os setpoints válidos são gravados na mesma transação com um
+ * UPDATE em massa por valor de frequência (uma frota costuma receber o
+ * mesmo valor), mais um UPDATE que incrementa a versão, de modo que cópias
+ * carregadas antes falham na verificação otimista. Depois do commit, o
+ * envio a cada equipamento (SOE, regras de alarme e rampa de frequência) roda
+ * em paralelo, em lotes no executor de I/O. Não passa pela fila de
+ * comandos por equipamento: vale o último setpoint gravado.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkSetpointService {
+
+    private static final int DISPATCH_BATCH = 50;
+
+    private final EquipmentRepository equipmentRepository;
+    private final AlarmRuleEngine alarmRuleEngine;
+    private final SoeRecorder soeRecorder;
+    private final InverterRampEngine rampEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService blockingExecutor;
+
+    @Value("${scada.command.max-batch:1000}")
+    private int maxBatch;
+
+    @Value("${scada.command.wait-timeout:5000}")
+    private long waitTimeout;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double maxTransactionMillis;
+
+    public BulkSetpointResultDTO apply(List<BulkSetpointRequest.Item> items, String source) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum setpoint informado");
+        }
+        if (items.size() > maxBatch) {
+            throw new IllegalArgumentException("Lote acima do limite de " + maxBatch + " setpoints");
+        }
+        long commandMicros = SoeClock.nowMicros();
+
+        // Resultado por item, na ordem da requisição; só os válidos seguem para o banco
+        List<SetpointResultDTO> results = new ArrayList<>(items.size());
+        Map<String, SetpointResultDTO> pending = new LinkedHashMap<>();
+        for (BulkSetpointRequest.Item item : items) {
+            SetpointResultDTO result = SetpointResultDTO.builder()
+                .equipmentId(item.getEquipmentId())
+                .requestedFrequency(item.getFrequency())
+                .build();
+            results.add(result);
+            if (item.getEquipmentId() == null || item.getEquipmentId().isBlank()) {
+                reject(result, "Equipamento não informado");
+            } else if (item.getFrequency() == null) {
+                reject(result, "Frequência não informada");
+            } else if (pending.putIfAbsent(item.getEquipmentId(), result) != null) {
+                reject(result, "Equipamento repetido no lote");
+            }
+        }
+
+        long start = System.nanoTime();
+        List<Inverter> changed = pending.isEmpty() ? List.of() : transactionTemplate.execute(status -> write(pending));
+        double transactionMillis = (System.nanoTime() - start) / 1e6;
+        maxTransactionMillis = Math.max(maxTransactionMillis, transactionMillis);
+
+        long dispatchStart = System.nanoTime();
+        int dispatchFailed = dispatch(changed, pending, commandMicros, source);
+        double dispatchMillis = (System.nanoTime() - dispatchStart) / 1e6;
+
+        int appliedCount = changed.size();
+        batches.increment();
+        applied.add(appliedCount);
+        rejected.add(items.size() - appliedCount);
+        log.info("Setpoint em lote: {} de {} inversores ajustados em {} ms",
+            appliedCount, items.size(), String.format("%.1f", transactionMillis));
+
+        return BulkSetpointResultDTO.builder()
+            .requested(items.size())
+            .applied(appliedCount)
+            .rejected(items.size() - appliedCount)
+            .dispatchFailed(dispatchFailed)
+            .transactionMillis(transactionMillis)
+            .dispatchMillis(dispatchMillis)
+            .items(results)
+            .build();
+    }
+
+    /**
+     * Valida e grava em uma transação. Retorna os inversores ajustados, já com os novos valores
+     */
+    private List<Inverter> write(Map<String, SetpointResultDTO> pending) {
+        Map<String, Inverter> inverters = new HashMap<>();
+        for (Inverter inverter : equipmentRepository.findInvertersByIdIn(pending.keySet())) {
+            inverters.put(inverter.getId(), inverter);
+        }
+        if (inverters.size() < pending.size()) {
+            List<String> missing = pending.keySet().stream().filter(id -> !inverters.containsKey(id)).toList();
+            for (Equipment equipment : equipmentRepository.findAllById(missing)) {
+                SetpointResultDTO result = pending.get(equipment.getId());
+                result.setEquipmentName(equipment.getName());
+                reject(result, "Equipamento não é um inversor");
+            }
+        }
+
+        List<Inverter> changed = new ArrayList<>();
+        Map<Double, List<String>> setpoints = new LinkedHashMap<>();
+        for (Map.Entry<String, SetpointResultDTO> entry : pending.entrySet()) {
+            SetpointResultDTO result = entry.getValue();
+            Inverter inverter = inverters.get(entry.getKey());
+            if (inverter == null) {
+                if (result.getStatus() == null) {
+                    result.setStatus(SetpointResultStatus.NOT_FOUND);
+                    result.setMessage("Equipamento não encontrado");
+                }
+                continue;
+            }
+            result.setEquipmentName(inverter.getName());
+            Double frequency = result.getRequestedFrequency();
+            if (!inverter.isFrequencyValid(frequency)) {
+                reject(result, String.format("Frequência inválida: %.2f Hz. Deve estar entre %.2f e %.2f Hz",
+                    frequency, inverter.getMinFrequency(), inverter.getMaxFrequency()));
+                continue;
+            }
+            setpoints.computeIfAbsent(frequency, f -> new ArrayList<>()).add(inverter.getId());
+            inverter.setFrequencySetpoint(frequency);
+            result.setStatus(SetpointResultStatus.APPLIED);
+            result.setFrequencySetpoint(inverter.getFrequencySetpoint());
+            result.setOutputFrequency(inverter.getOutputFrequency());
+            changed.add(inverter);
+        }
+        if (changed.isEmpty()) {
+            return changed;
+        }
+
+        // Inversores lidos como somente leitura: a gravação é só pelos UPDATEs em massa
+        setpoints.forEach((frequency, ids) -> equipmentRepository.updateFrequencySetpoint(ids, frequency));
+        equipmentRepository.incrementVersion(changed.stream().map(Inverter::getId).toList());
+        return changed;
+    }
+
+    /**
+     * Envio aos equipamentos ajustados em lotes paralelos; aguarda até
+     * scada.command.wait-timeout. Retorna quantos falharam ou não terminaram
+     */
+    private int dispatch(List<Inverter> changed, Map<String, SetpointResultDTO> results,
+                         long commandMicros, String source) {
+        List<List<Inverter>> chunks = new ArrayList<>();
+        List<CompletableFuture<Map<String, String>>> futures = new ArrayList<>();
+        for (int from = 0; from < changed.size(); from += DISPATCH_BATCH) {
+            List<Inverter> chunk = changed.subList(from, Math.min(changed.size(), from + DISPATCH_BATCH));
+            chunks.add(chunk);
+            try {
+                futures.add(CompletableFuture.supplyAsync(() -> dispatchChunk(chunk, commandMicros, source), blockingExecutor));
+            } catch (RejectedExecutionException e) {
+                futures.add(CompletableFuture.completedFuture(dispatchChunk(chunk, commandMicros, source)));
+            }
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(waitTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            log.warn("Envio de setpoints em lote incompleto: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int failed = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            CompletableFuture<Map<String, String>> future = futures.get(i);
+            boolean done = future.isDone() && !future.isCompletedExceptionally();
+            Map<String, String> failures = done ? future.join() : Map.of();
+            for (Inverter inverter : chunks.get(i)) {
+                SetpointResultDTO result = results.get(inverter.getId());
+                String failure = done ? failures.get(inverter.getId()) : "Envio não concluído no tempo limite";
+                result.setDispatched(failure == null);
+                if (failure != null) {
+                    result.setMessage(failure);
+                    failed++;
+                }
+            }
+        }
+        return failed;
+    }
+
+    private Map<String, String> dispatchChunk(List<Inverter> chunk, long commandMicros, String source) {
+        Map<String, String> failures = new HashMap<>();
+        for (Inverter inverter : chunk) {
+            try {
+                soeRecorder.record(commandMicros, SoeEventType.COMMAND_SETPOINT, inverter.getId(), source,
+                    "Setpoint em lote", inverter.getFrequencySetpoint());
+                alarmRuleEngine.onEquipmentChanged(inverter);
+                // Em operação, a saída segue para o novo setpoint pela rampa
+                rampEngine.start(inverter);
+            } catch (Exception e) {
+                log.warn("Erro no envio do setpoint ao inversor {}: {}", inverter.getId(), e.getMessage());
+                failures.put(inverter.getId(), e.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    private static void reject(SetpointResultDTO result, String message) {
+        result.setStatus(SetpointResultStatus.REJECTED);
+        result.setMessage(message);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batches", batches.sum());
+        stats.put("applied", applied.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("maxTransactionMillis", maxTransactionMillis);
+        stats.put("maxBatch", maxBatch);
+        return stats;
+    }
+}
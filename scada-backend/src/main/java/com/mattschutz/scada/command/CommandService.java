@@ -0,0 +1,339 @@
+package com.mattschutz.scada.command;
+
+import com.mattschutz.scada.dto.CommandDTO;
+import com.mattschutz.scada.entity.Equipment;
+import com.mattschutz.scada.service.EquipmentService;
+import com.mattschutz.scada.service.OptimisticRetry;
+import com.mattschutz.scada.soe.SoeClock;
+import com.mattschutz.scada.soe.SoeRecorder;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execução assíncrona de comandos de equipamento.
+ *
+ * A requisição só registra o comando e devolve o id; a sequência (etapas do
+ * EquipmentService, cada uma em uma transação curta, com o tempo de partida
+ * ou parada entre elas fora de transação) roda no commandExecutor. Comandos
+ * de um mesmo equipamento executam na ordem de chegada. Cada mudança de
+ * status é publicada em /topic/commands e /topic/commands/{equipmentId}.
+ * Com o cabeçalho Idempotency-Key, repetições da mesma requisição (duplo
+ * clique, reenvio da rede) devolvem o comando original sem executá-lo de novo.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CommandService {
+
+    public static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 128;
+
+    private final EquipmentService equipmentService;
+    private final EmergencyStopService emergencyStopService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ExecutorService commandExecutor;
+
+    @Value("${scada.command.start-delay:100}")
+    private long startDelay;
+
+    @Value("${scada.command.stop-delay:50}")
+    private long stopDelay;
+
+    @Value("${scada.command.wait-timeout:5000}")
+    private long waitTimeout;
+
+    @Value("${scada.command.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${scada.command.max-retained:10000}")
+    private int maxRetained;
+
+    @Value("${scada.command.idempotency-ttl-seconds:600}")
+    private long idempotencyTtlSeconds;
+
+    @Value("${scada.command.idempotency-max-keys:10000}")
+    private int idempotencyMaxKeys;
+
+    private IdempotencyCache idempotencyCache;
+
+    private final Map<String, EquipmentCommand> commands = new ConcurrentHashMap<>();
+    // Último comando encadeado de cada equipamento
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile long maxQueueMillis;
+    private volatile long maxExecutionMillis;
+
+    @PostConstruct
+    public void init() {
+        idempotencyCache = new IdempotencyCache(idempotencyTtlSeconds * 1000, idempotencyMaxKeys);
+    }
+
+    /**
+     * Registra o comando e agenda a execução. Não acessa o banco
+     */
+    public EquipmentCommand submit(CommandType type, String equipmentId, Double setpoint) {
+        return submit(type, equipmentId, setpoint, SoeRecorder.currentUser());
+    }
+
+    /**
+     * Como submit, mas uma chave já vista (por usuário, dentro do prazo)
+     * devolve o comando original em vez de criar outro. Sem chave, é um submit comum
+     */
+    public EquipmentCommand submitIdempotent(CommandType type, String equipmentId, Double setpoint, String idempotencyKey) {
+        String source = SoeRecorder.currentUser();
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return submit(type, equipmentId, setpoint, source);
+        }
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException("Chave de idempotência acima de " + MAX_IDEMPOTENCY_KEY_LENGTH + " caracteres");
+        }
+        EquipmentCommand command = idempotencyCache.getOrCreate(source + ":" + idempotencyKey,
+            () -> submit(type, equipmentId, setpoint, source));
+        if (command.getType() != type || !command.getEquipmentId().equals(equipmentId)
+                || !Objects.equals(command.getSetpoint(), setpoint)) {
+            throw new IllegalArgumentException("Chave de idempotência já usada em outro comando");
+        }
+        return command;
+    }
+
+    /**
+     * Comando emitido fora de uma requisição (ex.: sequenciador), com a origem informada
+     */
+    public EquipmentCommand submit(CommandType type, String equipmentId, Double setpoint, String source) {
+        if (type == null || equipmentId == null || equipmentId.isBlank()) {
+            throw new IllegalArgumentException("Tipo de comando e equipamento são obrigatórios");
+        }
+        if (type == CommandType.SETPOINT && setpoint == null) {
+            throw new IllegalArgumentException("Frequência não informada");
+        }
+        if (commands.size() >= maxRetained) {
+            evict(LocalDateTime.now());
+            if (commands.size() >= maxRetained) {
+                throw new IllegalStateException("Limite de comandos pendentes atingido");
+            }
+        }
+
+        EquipmentCommand command = new EquipmentCommand(type, equipmentId, setpoint, source, SoeClock.nowMicros());
+        commands.put(command.getId(), command);
+        submitted.increment();
+        publish(command);
+
+        try {
+            CompletableFuture<Void> next = tails.compute(equipmentId, (key, previous) ->
+                (previous != null ? previous : CompletableFuture.<Void>completedFuture(null))
+                    .handleAsync((ignored, error) -> {
+                        execute(command);
+                        return null;
+                    }, commandExecutor));
+            next.whenComplete((ignored, error) -> tails.remove(equipmentId, next));
+        } catch (RejectedExecutionException e) {
+            finish(command, null, new IllegalStateException("Executor de comandos indisponível"));
+        }
+        return command;
+    }
+
+    private void execute(EquipmentCommand command) {
+        command.started();
+        publish(command);
+        long queueMillis = Duration.between(command.getSubmittedAt(), command.getStartedAt()).toMillis();
+        maxQueueMillis = Math.max(maxQueueMillis, queueMillis);
+
+        String id = command.getEquipmentId();
+        String source = command.getSource();
+        try {
+            Equipment equipment;
+            switch (command.getType()) {
+                case START:
+                    checkEmergency(command);
+                    equipmentService.beginStart(id, command.getCommandMicros(), source);
+                    command.stageCompleted();
+                    pause(startDelay);
+                    checkEmergency(command);
+                    equipment = equipmentService.completeStart(id, source);
+                    break;
+                case STOP:
+                    equipmentService.beginStop(id, command.getCommandMicros(), source);
+                    command.stageCompleted();
+                    pause(stopDelay);
+                    equipment = equipmentService.completeStop(id, source);
+                    break;
+                default:
+                    equipment = equipmentService.updateInverterFrequency(id, command.getSetpoint());
+                    break;
+            }
+            command.stageCompleted();
+            finish(command, equipment, null);
+        } catch (OptimisticLockingFailureException e) {
+            // Partida/parada não são repetidas automaticamente: o conflito é informado
+            log.warn("Comando {} do equipamento {} em conflito de versão", command.getType(), id);
+            finish(command, null, new IllegalStateException(OptimisticRetry.CONFLICT_MESSAGE));
+        } catch (RuntimeException e) {
+            log.warn("Comando {} do equipamento {} falhou: {}", command.getType(), id, e.getMessage());
+            finish(command, null, e);
+        }
+    }
+
+    private void finish(EquipmentCommand command, Equipment equipment, RuntimeException error) {
+        if (error == null) {
+            command.completed(equipment);
+            completed.increment();
+        } else {
+            command.failed(error);
+            failed.increment();
+        }
+        if (command.getStartedAt() != null) {
+            long executionMillis = Duration.between(command.getStartedAt(), command.getFinishedAt()).toMillis();
+            maxExecutionMillis = Math.max(maxExecutionMillis, executionMillis);
+        }
+        publish(command);
+    }
+
+    /**
+     * Partidas solicitadas antes de uma parada de emergência não prosseguem
+     */
+    private void checkEmergency(EquipmentCommand command) {
+        if (emergencyStopService.isPrecededBy(command)) {
+            throw new IllegalStateException("Partida cancelada pela parada de emergência");
+        }
+    }
+
+    /**
+     * Tempo de partida/parada do equipamento, na thread de comando e sem transação aberta
+     */
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(EquipmentCommand command) {
+        try {
+            CommandDTO dto = toDTO(command);
+            messagingTemplate.convertAndSend("/topic/commands", dto);
+            messagingTemplate.convertAndSend("/topic/commands/" + command.getEquipmentId(), dto);
+        } catch (Exception e) {
+            log.warn("Erro ao publicar status do comando {}: {}", command.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Aguarda a conclusão por até scada.command.wait-timeout. Retorna null se
+     * o comando ainda não terminou; relança a falha do comando
+     */
+    public Equipment await(EquipmentCommand command) {
+        try {
+            return command.getResult().get(waitTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public Optional<EquipmentCommand> findById(String id) {
+        return Optional.ofNullable(commands.get(id));
+    }
+
+    /**
+     * Comandos mais recentes primeiro, opcionalmente de um equipamento
+     */
+    public List<EquipmentCommand> findRecent(String equipmentId, int limit) {
+        List<EquipmentCommand> result = new ArrayList<>();
+        for (EquipmentCommand command : commands.values()) {
+            if (equipmentId == null || equipmentId.equals(command.getEquipmentId())) {
+                result.add(command);
+            }
+        }
+        result.sort(Comparator.comparing(EquipmentCommand::getSubmittedAt).reversed());
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    public CommandDTO toDTO(EquipmentCommand command) {
+        return CommandDTO.builder()
+            .id(command.getId())
+            .type(command.getType())
+            .status(command.getStatus())
+            .equipmentId(command.getEquipmentId())
+            .setpoint(command.getSetpoint())
+            .source(command.getSource())
+            .submittedAt(command.getSubmittedAt())
+            .startedAt(command.getStartedAt())
+            .finishedAt(command.getFinishedAt())
+            .equipmentStatus(command.getEquipmentStatus())
+            .message(command.getMessage())
+            .build();
+    }
+
+    /**
+     * Remove comandos concluídos há mais de scada.command.retention-minutes
+     */
+    @Scheduled(fixedDelayString = "${scada.command.cleanup-interval:60000}")
+    public void cleanup() {
+        evict(LocalDateTime.now().minusMinutes(retentionMinutes));
+        idempotencyCache.evict(System.nanoTime());
+    }
+
+    private void evict(LocalDateTime finishedBefore) {
+        commands.values().removeIf(command -> command.getStatus().isFinished()
+            && command.getFinishedAt().isBefore(finishedBefore));
+    }
+
+    public Map<String, Object> getStatistics() {
+        int queued = 0;
+        int running = 0;
+        for (EquipmentCommand command : commands.values()) {
+            if (command.getStatus() == CommandStatus.QUEUED) {
+                queued++;
+            } else if (command.getStatus() == CommandStatus.RUNNING) {
+                running++;
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("submitted", submitted.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("queued", queued);
+        stats.put("running", running);
+        stats.put("retained", commands.size());
+        stats.put("maxQueueMillis", maxQueueMillis);
+        stats.put("maxExecutionMillis", maxExecutionMillis);
+        stats.put("idempotencyKeys", idempotencyCache.size());
+        stats.put("idempotentReplays", idempotencyCache.getReplays());
+        return stats;
+    }
+}
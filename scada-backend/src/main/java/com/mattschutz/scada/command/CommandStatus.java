@@ -0,0 +1,22 @@
+package com.mattschutz.scada.command;
+
+public enum CommandStatus {
+    QUEUED("Na fila"),
+    RUNNING("Em execução"),
+    COMPLETED("Concluído"),
+    FAILED("Falhou");
+
+    private final String description;
+
+    CommandStatus(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
@@ -0,0 +1,20 @@
+package com.mattschutz.scada.command;
+
+/**
+ * Comandos de equipamento executados pelo CommandService
+ */
+public enum CommandType {
+    START("Partida"),
+    STOP("Parada"),
+    SETPOINT("Ajuste de frequência");
+
+    private final String description;
+
+    CommandType(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,196 @@
+package com.mattschutz.scada.command;
+
+import com.mattschutz.scada.alarm.AlarmRuleEngine;
+import com.mattschutz.scada.dto.EmergencyStopResultDTO;
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import com.mattschutz.scada.entity.Equipment;
+import com.mattschutz.scada.entity.EquipmentStatus;
+import com.mattschutz.scada.entity.SoeEventType;
+import com.mattschutz.scada.repository.EquipmentRepository;
+import com.mattschutz.scada.service.AlarmService;
+import com.mattschutz.scada.soe.SoeClock;
+import com.mattschutz.scada.soe.SoeRecorder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caminho dedicado da parada de emergência.
+ *
+ * A ordem prioriza o tempo até todos parados: primeiro a trava em memória
+ * (comandos de partida anteriores ao acionamento são cancelados pelo
+ * CommandService), depois um único UPDATE em massa na mesma transação curta
+ * que lista os equipamentos afetados. SOE, alarmes e reavaliação das regras
+ * vêm depois do commit; os alarmes são emitidos em paralelo no executor de
+ * I/O, em lotes, sem atrasar a parada. Quem despacha partidas por conta
+ * própria (ex.: o StartSequencer) registra um tratador em
+ * {@link #onEmergency(Runnable)}, executado logo após a trava.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmergencyStopService {
+
+    // Estados em que o equipamento está energizado ou em transição
+    private static final Set<EquipmentStatus> ACTIVE = EnumSet.of(
+        EquipmentStatus.STARTING, EquipmentStatus.RUNNING, EquipmentStatus.WARNING, EquipmentStatus.STOPPING);
+    private static final int ALARM_BATCH = 500;
+
+    private final EquipmentRepository equipmentRepository;
+    private final AlarmService alarmService;
+    private final AlarmRuleEngine alarmRuleEngine;
+    private final SoeRecorder soeRecorder;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService blockingExecutor;
+    private final InverterRampEngine rampEngine;
+
+    @Value("${scada.emergency.sla-millis:100}")
+    private long slaMillis;
+
+    // Horário (SoeClock) do último acionamento
+    private volatile long lastEmergencyMicros;
+    // Executados logo após a trava, antes do UPDATE; não devem fazer I/O
+    private final List<Runnable> emergencyHandlers = new CopyOnWriteArrayList<>();
+
+    private final LongAdder emergencies = new LongAdder();
+    private final LongAdder slaViolations = new LongAdder();
+    private volatile EmergencyStopResultDTO lastResult;
+    private volatile double maxTimeToStoppedMillis;
+
+    /**
+     * Para todos os equipamentos ativos. Retorna após o commit da parada;
+     * alarmes e reavaliação das regras seguem em segundo plano
+     */
+    public EmergencyStopResultDTO emergencyStop(String source) {
+        long start = System.nanoTime();
+        long triggerMicros = SoeClock.nowMicros();
+        lastEmergencyMicros = triggerMicros;
+        for (Runnable handler : emergencyHandlers) {
+            try {
+                handler.run();
+            } catch (RuntimeException e) {
+                log.error("Erro no tratador da parada de emergência: {}", e.getMessage());
+            }
+        }
+        soeRecorder.record(triggerMicros, SoeEventType.EMERGENCY_STOP, null, source,
+            "Parada de emergência acionada", Double.NaN);
+        log.warn("PARADA DE EMERGÊNCIA ACIONADA");
+
+        List<String> stopped = transactionTemplate.execute(status -> {
+            List<String> ids = equipmentRepository.findIdsByStatusIn(ACTIVE);
+            if (!ids.isEmpty()) {
+                equipmentRepository.stopAllByStatusIn(ACTIVE, EquipmentStatus.STOPPED);
+            }
+            return ids;
+        });
+        double timeToStoppedMillis = (System.nanoTime() - start) / 1e6;
+        long stoppedMicros = SoeClock.nowMicros();
+        rampEngine.cancelAll();
+
+        for (String id : stopped) {
+            soeRecorder.record(stoppedMicros, SoeEventType.STATE_CHANGE, id, source,
+                EquipmentStatus.STOPPED.name(), Double.NaN);
+        }
+        emitAlarms(stopped);
+
+        EmergencyStopResultDTO result = result(triggerMicros, stopped.size(), timeToStoppedMillis);
+        emergencies.increment();
+        lastResult = result;
+        maxTimeToStoppedMillis = Math.max(maxTimeToStoppedMillis, timeToStoppedMillis);
+        if (!result.getWithinSla()) {
+            slaViolations.increment();
+            log.warn("Parada de emergência acima do SLA: {} ms para {} equipamentos (SLA {} ms)",
+                String.format("%.1f", timeToStoppedMillis), stopped.size(), slaMillis);
+        } else {
+            log.info("Parada de emergência: {} equipamentos parados em {} ms",
+                stopped.size(), String.format("%.1f", timeToStoppedMillis));
+        }
+        return result;
+    }
+
+    /**
+     * Alarmes e reavaliação das regras, em lotes paralelos no executor de I/O
+     */
+    private void emitAlarms(List<String> ids) {
+        for (int from = 0; from < ids.size(); from += ALARM_BATCH) {
+            List<String> batch = ids.subList(from, Math.min(ids.size(), from + ALARM_BATCH));
+            try {
+                blockingExecutor.execute(() -> emitAlarmBatch(batch));
+            } catch (RejectedExecutionException e) {
+                emitAlarmBatch(batch);
+            }
+        }
+    }
+
+    private void emitAlarmBatch(List<String> ids) {
+        try {
+            for (Equipment equipment : equipmentRepository.findAllById(ids)) {
+                alarmService.createAlarm(
+                    equipment,
+                    AlarmSeverity.CRITICAL,
+                    AlarmType.EMERGENCY_STOP,
+                    "Parada de emergência acionada"
+                );
+                alarmRuleEngine.onEquipmentChanged(equipment);
+            }
+        } catch (Exception e) {
+            log.error("Erro ao emitir alarmes da parada de emergência: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Registra um tratador executado a cada acionamento, logo após a trava
+     */
+    public void onEmergency(Runnable handler) {
+        emergencyHandlers.add(handler);
+    }
+
+    /**
+     * Indica se o comando foi emitido antes da última parada de emergência
+     */
+    public boolean isPrecededBy(EquipmentCommand command) {
+        return isPrecededBy(command.getCommandMicros());
+    }
+
+    /**
+     * Indica se houve parada de emergência no instante (SoeClock) ou depois
+     */
+    public boolean isPrecededBy(long micros) {
+        return micros <= lastEmergencyMicros;
+    }
+
+    private EmergencyStopResultDTO result(long triggerMicros, int stopped, double timeToStoppedMillis) {
+        return EmergencyStopResultDTO.builder()
+            .triggeredAt(SoeClock.toDateTime(triggerMicros))
+            .stopped(stopped)
+            .timeToStoppedMillis(timeToStoppedMillis)
+            .stoppedPerSecond(timeToStoppedMillis > 0 ? stopped / (timeToStoppedMillis / 1e3) : null)
+            .slaMillis(slaMillis)
+            .withinSla(timeToStoppedMillis <= slaMillis)
+            .build();
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("emergencies", emergencies.sum());
+        stats.put("slaMillis", slaMillis);
+        stats.put("slaViolations", slaViolations.sum());
+        stats.put("maxTimeToStoppedMillis", maxTimeToStoppedMillis);
+        stats.put("lastEmergencyAt", lastEmergencyMicros > 0 ? SoeClock.toDateTime(lastEmergencyMicros) : null);
+        stats.put("last", lastResult);
+        return stats;
+    }
+}
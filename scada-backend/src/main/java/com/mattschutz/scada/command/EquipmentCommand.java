@@ -0,0 +1,67 @@
+package com.mattschutz.scada.command;
+
+import com.mattschutz.scada.entity.Equipment;
+import com.mattschutz.scada.entity.EquipmentStatus;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Comando em execução ou recente. Criado na requisição, atualizado pela
+ * thread de comando e lido pelas consultas de status
+ */
+@Getter
+public class EquipmentCommand {
+
+    private final String id = UUID.randomUUID().toString();
+    private final CommandType type;
+    private final String equipmentId;
+    private final Double setpoint;
+    private final String source;
+    // Horário do comando para o SOE (SoeClock), capturado na requisição
+    private final long commandMicros;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+
+    private volatile CommandStatus status = CommandStatus.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile EquipmentStatus equipmentStatus;
+    private volatile String message;
+    // Etapas confirmadas no banco (cada etapa grava o equipamento uma vez); escrito só pela thread de comando
+    private volatile int completedStages;
+
+    private final CompletableFuture<Equipment> result = new CompletableFuture<>();
+
+    EquipmentCommand(CommandType type, String equipmentId, Double setpoint, String source, long commandMicros) {
+        this.type = type;
+        this.equipmentId = equipmentId;
+        this.setpoint = setpoint;
+        this.source = source;
+        this.commandMicros = commandMicros;
+    }
+
+    void started() {
+        startedAt = LocalDateTime.now();
+        status = CommandStatus.RUNNING;
+    }
+
+    void stageCompleted() {
+        completedStages++;
+    }
+
+    void completed(Equipment equipment) {
+        finishedAt = LocalDateTime.now();
+        equipmentStatus = equipment.getStatus();
+        status = CommandStatus.COMPLETED;
+        result.complete(equipment);
+    }
+
+    void failed(RuntimeException error) {
+        finishedAt = LocalDateTime.now();
+        message = error.getMessage();
+        status = CommandStatus.FAILED;
+        result.completeExceptionally(error);
+    }
+}
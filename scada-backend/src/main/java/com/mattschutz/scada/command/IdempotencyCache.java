@@ -0,0 +1,96 @@
+package com.mattschutz.scada.command;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Chaves de idempotência já vistas, com o comando criado para cada uma.
+ * Limitado em tamanho e em tempo: como o prazo é o mesmo para todas, a
+ * ordem de inserção é a ordem de expiração e a remoção é só pela cabeça da
+ * fila. Duas requisições simultâneas com a mesma chave criam um único
+ * comando: a segunda espera a criação pela primeira.
+ */
+final class IdempotencyCache {
+
+    private static final class Entry {
+        final String key;
+        final long expiresAt;
+        final CompletableFuture<EquipmentCommand> command = new CompletableFuture<>();
+
+        Entry(String key, long expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final long ttlNanos;
+    private final int maxKeys;
+    private final LongAdder replays = new LongAdder();
+
+    IdempotencyCache(long ttlMillis, int maxKeys) {
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Comando já criado para a chave ou, se a chave é nova, o criado agora
+     * por create. Se create falhar a chave é liberada e o erro relançado
+     */
+    EquipmentCommand getOrCreate(String key, Supplier<EquipmentCommand> create) {
+        long now = System.nanoTime();
+        evict(now);
+        Entry entry = new Entry(key, now + ttlNanos);
+        Entry existing = entries.putIfAbsent(key, entry);
+        while (existing != null && existing.expiresAt - now <= 0) {
+            entries.remove(key, existing);
+            existing = entries.putIfAbsent(key, entry);
+        }
+        if (existing != null) {
+            replays.increment();
+            try {
+                return existing.command.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        order.add(entry);
+        try {
+            EquipmentCommand command = create.get();
+            entry.command.complete(command);
+            return command;
+        } catch (RuntimeException e) {
+            entries.remove(key, entry);
+            entry.command.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Remove as chaves expiradas e as mais antigas acima do limite
+     */
+    void evict(long now) {
+        Entry head;
+        while ((head = order.peek()) != null
+                && (head.expiresAt - now <= 0 || entries.size() > maxKeys || entries.get(head.key) != head)) {
+            if (order.remove(head)) {
+                entries.remove(head.key, head);
+            }
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getReplays() {
+        return replays.sum();
+    }
+}
@@ -0,0 +1,356 @@
+package com.mattschutz.scada.command;
+
+import com.mattschutz.scada.entity.Equipment;
+import com.mattschutz.scada.entity.EquipmentField;
+import com.mattschutz.scada.entity.HistoricalData;
+import com.mattschutz.scada.entity.Inverter;
+import com.mattschutz.scada.repository.EquipmentRepository;
+import com.mattschutz.scada.repository.HistoricalDataRepository;
+import com.mattschutz.scada.service.LiveValueService;
+import com.mattschutz.scada.service.OptimisticRetry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rampas de aceleração/desaceleração dos inversores.
+ *
+ * Um novo setpoint (ou a partida) não leva a frequência de saída direto ao
+ * alvo: a rampa avança a cada tick (scada.ramp.tick-millis) pelos tempos de
+ * aceleração e desaceleração do inversor (de 0 à frequência nominal), e
+ * todas as rampas avançam em uma única passada sobre vetores primitivos
+ * (RampTable). A cada tick, frequência de saída e corrente entram nos
+ * valores ao vivo (regras de alarme); a cada scada.ramp.persist-interval a
+ * frequência, a corrente e um registro de histórico são gravados. Inversores
+ * com aquisição de campo não são simulados: o próprio drive faz a rampa.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InverterRampEngine {
+
+    private static final double MAX_TICK_SECONDS = 1.0;
+
+    private final EquipmentRepository equipmentRepository;
+    private final HistoricalDataRepository historicalDataRepository;
+    private final LiveValueService liveValueService;
+    private final OptimisticRetry optimisticRetry;
+    private final ExecutorService blockingExecutor;
+
+    private final RampTable table = new RampTable(256);
+    // ReentrantLock: o tick não deve fixar uma virtual thread; nunca mantido durante I/O ou ouvintes
+    private final ReentrantLock lock = new ReentrantLock();
+    // Rampas concluídas aguardando a gravação final: id -> {frequência, corrente}
+    private final Map<String, double[]> completed = new ConcurrentHashMap<>();
+    // Os vetores out* da tabela são lidos fora do lock: um tick por vez
+    private final AtomicBoolean ticking = new AtomicBoolean();
+    private final AtomicBoolean persisting = new AtomicBoolean();
+
+    private final LongAdder started = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder ticks = new LongAdder();
+    private volatile long lastTickNanos;
+    private volatile long maxTickNanos;
+    private long previousTick; // protegido pelo lock
+    // Incrementado a cada cancelamento, para desfazer valores publicados de rampas já canceladas
+    private volatile long cancellations;
+
+    /**
+     * Inicia (ou redireciona) a rampa do inversor em operação até o setpoint
+     */
+    public void start(Inverter inverter) {
+        String id = inverter.getId();
+        if (!inverter.isRunning() || inverter.getFrequencySetpoint() == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            boolean simulated = table.contains(id) || completed.containsKey(id);
+            if (!simulated && liveValueService.hasLiveValues(id)) {
+                return;
+            }
+            double from = table.contains(id) ? table.output(id) : value(inverter.getOutputFrequency(), 0.0);
+            double to = inverter.getFrequencySetpoint();
+            if (!table.contains(id) && from == to) {
+                return;
+            }
+            table.put(id, from, to,
+                value(inverter.getAccelerationRamp(), 0.0),
+                value(inverter.getDecelerationRamp(), 0.0),
+                inverter.getMotorPoles() != null ? inverter.getMotorPoles() : 0,
+                nominalCurrent(inverter),
+                value(inverter.getMotorRatedFrequency(), 60.0));
+            completed.remove(id);
+        } finally {
+            lock.unlock();
+        }
+        started.increment();
+        log.debug("Rampa do inversor {} até {} Hz", id, inverter.getFrequencySetpoint());
+    }
+
+    /**
+     * Interrompe a rampa (parada); os valores ao vivo simulados são descartados
+     */
+    public void cancel(String id) {
+        boolean simulated;
+        lock.lock();
+        try {
+            simulated = table.remove(id) | completed.remove(id) != null;
+            cancellations++;
+        } finally {
+            lock.unlock();
+        }
+        if (simulated) {
+            liveValueService.remove(id);
+        }
+    }
+
+    /**
+     * Interrompe todas as rampas (parada de emergência)
+     */
+    public int cancelAll() {
+        List<String> ids = new ArrayList<>();
+        lock.lock();
+        try {
+            ids.addAll(activeIds());
+            ids.addAll(completed.keySet());
+            table.clear();
+            completed.clear();
+            cancellations++;
+        } finally {
+            lock.unlock();
+        }
+        ids.forEach(liveValueService::remove);
+        return ids.size();
+    }
+
+    private List<String> activeIds() {
+        List<String> ids = new ArrayList<>(table.size());
+        for (int i = 0; i < table.size(); i++) {
+            ids.add(table.idAt(i));
+        }
+        return ids;
+    }
+
+    @Scheduled(fixedRateString = "${scada.ramp.tick-millis:100}")
+    public void tick() {
+        if (!ticking.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            advance();
+        } finally {
+            ticking.set(false);
+        }
+    }
+
+    private void advance() {
+        long now;
+        long generation;
+        String[] ids;
+        double[] frequency;
+        double[] current;
+        boolean[] done;
+        int count;
+        lock.lock();
+        try {
+            now = System.nanoTime();
+            double dt = previousTick == 0 ? 0 : Math.min(MAX_TICK_SECONDS, (now - previousTick) / 1e9);
+            previousTick = now;
+            generation = cancellations;
+            if (table.size() == 0) {
+                return;
+            }
+            table.advance(dt);
+            ids = table.outIds;
+            frequency = table.outFrequency;
+            current = table.outCurrent;
+            done = table.outFinished;
+            count = table.outCount;
+            for (int i = 0; i < count; i++) {
+                if (done[i]) {
+                    completed.put(ids[i], new double[]{frequency[i], current[i]});
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Ouvintes dos valores ao vivo (regras de alarme) fora do lock
+        long timestamp = System.currentTimeMillis();
+        int finishedCount = 0;
+        for (int i = 0; i < count; i++) {
+            liveValueService.update(ids[i], EquipmentField.OUTPUT_FREQUENCY, frequency[i], timestamp);
+            if (!Double.isNaN(current[i])) {
+                liveValueService.update(ids[i], EquipmentField.CURRENT, current[i], timestamp);
+            }
+            if (done[i]) {
+                finishedCount++;
+            }
+        }
+        if (generation != cancellations) {
+            discardCancelled(ids, count);
+        }
+        finished.add(finishedCount);
+        ticks.increment();
+        long elapsed = System.nanoTime() - now;
+        lastTickNanos = elapsed;
+        maxTickNanos = Math.max(maxTickNanos, elapsed);
+    }
+
+    private void discardCancelled(String[] ids, int count) {
+        for (int i = 0; i < count; i++) {
+            boolean cancelled;
+            lock.lock();
+            try {
+                cancelled = !table.contains(ids[i]) && !completed.containsKey(ids[i]);
+            } finally {
+                lock.unlock();
+            }
+            if (cancelled) {
+                liveValueService.remove(ids[i]);
+            }
+        }
+    }
+
+    /**
+     * Grava frequência, corrente e histórico das rampas em andamento e das
+     * concluídas, no executor de I/O; se a gravação anterior não terminou,
+     * fica para o próximo ciclo
+     */
+    @Scheduled(fixedRateString = "${scada.ramp.persist-interval:1000}")
+    public void flush() {
+        Map<String, double[]> values = new HashMap<>();
+        Set<String> finishedIds = new HashSet<>();
+        lock.lock();
+        try {
+            if ((table.size() == 0 && completed.isEmpty()) || !persisting.compareAndSet(false, true)) {
+                return;
+            }
+            for (int i = 0; i < table.size(); i++) {
+                values.put(table.idAt(i), new double[]{table.outputAt(i), table.currentAt(i)});
+            }
+            completed.forEach((id, sample) -> {
+                values.put(id, sample);
+                finishedIds.add(id);
+            });
+        } finally {
+            lock.unlock();
+        }
+        try {
+            blockingExecutor.execute(() -> {
+                try {
+                    persist(values, finishedIds);
+                } finally {
+                    persisting.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            persisting.set(false);
+        }
+    }
+
+    private void persist(Map<String, double[]> values, Set<String> finishedIds) {
+        try {
+            optimisticRetry.run("rampas de inversores", () -> {
+                List<Equipment> changed = new ArrayList<>();
+                List<HistoricalData> history = new ArrayList<>();
+                for (Equipment equipment : equipmentRepository.findAllById(values.keySet())) {
+                    // Parado por outro caminho: cancel já descartou a rampa
+                    if (!(equipment instanceof Inverter) || !equipment.isRunning()) {
+                        continue;
+                    }
+                    double[] sample = values.get(equipment.getId());
+                    ((Inverter) equipment).setOutputFrequency(sample[0]);
+                    if (!Double.isNaN(sample[1])) {
+                        equipment.setCurrent(sample[1]);
+                    }
+                    changed.add(equipment);
+                    HistoricalData data = new HistoricalData(equipment);
+                    data.setSource("ramp");
+                    history.add(data);
+                }
+                equipmentRepository.saveAll(changed);
+                historicalDataRepository.saveAll(history);
+            });
+        } catch (Exception e) {
+            log.error("Erro ao gravar rampas de inversores: {}", e.getMessage());
+            return;
+        }
+
+        // Valor final gravado: a coleta automática volta a registrar o histórico
+        for (String id : finishedIds) {
+            double[] sample = values.get(id);
+            boolean removed;
+            lock.lock();
+            try {
+                removed = !table.contains(id) && completed.remove(id, sample);
+            } finally {
+                lock.unlock();
+            }
+            if (removed) {
+                liveValueService.remove(id);
+            }
+        }
+    }
+
+    private static double nominalCurrent(Inverter inverter) {
+        if (inverter.getNominalCurrent() != null) {
+            return inverter.getNominalCurrent();
+        }
+        return inverter.getMotorRatedCurrent() != null ? inverter.getMotorRatedCurrent() : Double.NaN;
+    }
+
+    private static double value(Double value, double fallback) {
+        return value != null ? value : fallback;
+    }
+
+    /**
+     * Contadores e as primeiras rampas em andamento
+     */
+    public Map<String, Object> getStatus(int limit) {
+        List<Map<String, Object>> ramps = new ArrayList<>();
+        int active;
+        lock.lock();
+        try {
+            active = table.size();
+            for (int i = 0; i < Math.min(limit, active); i++) {
+                String id = table.idAt(i);
+                Map<String, Object> ramp = new LinkedHashMap<>();
+                ramp.put("equipmentId", id);
+                ramp.put("outputFrequency", table.outputAt(i));
+                ramp.put("targetFrequency", table.target(id));
+                ramp.put("motorSpeed", table.speedAt(i));
+                ramp.put("current", table.currentAt(i));
+                ramps.add(ramp);
+            }
+        } finally {
+            lock.unlock();
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("active", active);
+        status.put("pendingPersist", completed.size());
+        status.put("started", started.sum());
+        status.put("finished", finished.sum());
+        status.put("ticks", ticks.sum());
+        status.put("lastTickMicros", lastTickNanos / 1_000);
+        status.put("maxTickMicros", maxTickNanos / 1_000);
+        status.put("ramps", ramps);
+        return status;
+    }
+}
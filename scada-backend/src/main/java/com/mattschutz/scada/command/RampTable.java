@@ -0,0 +1,194 @@
+package com.mattschutz.scada.command;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estado das rampas em andamento em vetores primitivos (uma posição por
+ * inversor), para que o avanço de todas seja um laço sobre arrays, sem
+ * objetos por rampa. Rampas concluídas são removidas trocando com a última
+ * posição. Não é thread-safe: o InverterRampEngine sincroniza o acesso.
+ * O resultado de cada avanço fica nos vetores out*, válidos até o próximo.
+ */
+final class RampTable {
+
+    // Corrente a vazio (magnetização) e parcela de carga na frequência nominal (bomba/ventilador: ∝ f²)
+    private static final double NO_LOAD_CURRENT = 0.3;
+    private static final double LOAD_CURRENT = 0.5;
+
+    private final Map<String, Integer> index = new HashMap<>();
+    private String[] ids;
+    private double[] output;
+    private double[] target;
+    private double[] accelRate;      // Hz/s
+    private double[] decelRate;      // Hz/s
+    private double[] speedPerHertz;  // rpm/Hz = 120 / polos
+    private double[] nominalCurrent; // A (NaN se desconhecida)
+    private double[] ratedFrequency; // Hz
+    private int size;
+
+    String[] outIds;
+    double[] outFrequency;
+    double[] outCurrent;
+    boolean[] outFinished;
+    int outCount;
+
+    RampTable(int capacity) {
+        allocate(Math.max(16, capacity));
+    }
+
+    private void allocate(int capacity) {
+        ids = ids == null ? new String[capacity] : Arrays.copyOf(ids, capacity);
+        output = grow(output, capacity);
+        target = grow(target, capacity);
+        accelRate = grow(accelRate, capacity);
+        decelRate = grow(decelRate, capacity);
+        speedPerHertz = grow(speedPerHertz, capacity);
+        nominalCurrent = grow(nominalCurrent, capacity);
+        ratedFrequency = grow(ratedFrequency, capacity);
+        outIds = new String[capacity];
+        outFrequency = new double[capacity];
+        outCurrent = new double[capacity];
+        outFinished = new boolean[capacity];
+    }
+
+    private static double[] grow(double[] array, int capacity) {
+        return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(String id) {
+        return index.containsKey(id);
+    }
+
+    /**
+     * Inicia a rampa ou muda o alvo de uma em andamento (a frequência atual é mantida)
+     */
+    void put(String id, double from, double to, double accelSeconds, double decelSeconds,
+             int poles, double current, double rated) {
+        Integer existing = index.get(id);
+        int i;
+        if (existing != null) {
+            i = existing;
+        } else {
+            if (size == ids.length) {
+                allocate(ids.length * 2);
+            }
+            i = size++;
+            index.put(id, i);
+            ids[i] = id;
+            output[i] = from;
+        }
+        target[i] = to;
+        accelRate[i] = rate(rated, accelSeconds);
+        decelRate[i] = rate(rated, decelSeconds);
+        speedPerHertz[i] = poles > 0 ? 120.0 / poles : 0.0;
+        nominalCurrent[i] = current;
+        ratedFrequency[i] = rated;
+    }
+
+    /**
+     * Tempo de rampa é de 0 à frequência nominal; tempo zero ou ausente é degrau (concluído no próximo tick)
+     */
+    private static double rate(double rated, double seconds) {
+        return seconds > 0 ? rated / seconds : Double.MAX_VALUE;
+    }
+
+    boolean remove(String id) {
+        Integer i = index.remove(id);
+        if (i == null) {
+            return false;
+        }
+        int last = --size;
+        if (i != last) {
+            ids[i] = ids[last];
+            output[i] = output[last];
+            target[i] = target[last];
+            accelRate[i] = accelRate[last];
+            decelRate[i] = decelRate[last];
+            speedPerHertz[i] = speedPerHertz[last];
+            nominalCurrent[i] = nominalCurrent[last];
+            ratedFrequency[i] = ratedFrequency[last];
+            index.put(ids[i], i);
+        }
+        ids[last] = null;
+        return true;
+    }
+
+    void clear() {
+        index.clear();
+        Arrays.fill(ids, 0, size, null);
+        size = 0;
+    }
+
+    String idAt(int i) {
+        return ids[i];
+    }
+
+    double outputAt(int i) {
+        return output[i];
+    }
+
+    double speedAt(int i) {
+        return output[i] * speedPerHertz[i];
+    }
+
+    double currentAt(int i) {
+        return current(nominalCurrent[i], output[i], ratedFrequency[i]);
+    }
+
+    double output(String id) {
+        Integer i = index.get(id);
+        return i != null ? output[i] : Double.NaN;
+    }
+
+    double target(String id) {
+        Integer i = index.get(id);
+        return i != null ? target[i] : Double.NaN;
+    }
+
+    /**
+     * Avança todas as rampas dtSeconds. As que atingem o alvo saem da tabela
+     * e aparecem em out* com outFinished; retorna quantas concluíram
+     */
+    int advance(double dtSeconds) {
+        int finished = 0;
+        outCount = 0;
+        int i = 0;
+        while (i < size) {
+            double f = output[i];
+            double delta = target[i] - f;
+            double step = (delta > 0 ? accelRate[i] : decelRate[i]) * dtSeconds;
+            boolean done = Math.abs(delta) <= step;
+            f = done ? target[i] : f + Math.copySign(step, delta);
+            output[i] = f;
+
+            int o = outCount++;
+            outIds[o] = ids[i];
+            outFrequency[o] = f;
+            outCurrent[o] = current(nominalCurrent[i], f, ratedFrequency[i]);
+            outFinished[o] = done;
+
+            if (done) {
+                finished++;
+                // A última posição vem para i e é avançada na mesma passada
+                remove(ids[i]);
+            } else {
+                i++;
+            }
+        }
+        return finished;
+    }
+
+    private static double current(double nominal, double frequency, double rated) {
+        if (Double.isNaN(nominal) || rated <= 0) {
+            return Double.NaN;
+        }
+        double ratio = frequency / rated;
+        return frequency > 0 ? nominal * (NO_LOAD_CURRENT + LOAD_CURRENT * ratio * ratio) : 0.0;
+    }
+}
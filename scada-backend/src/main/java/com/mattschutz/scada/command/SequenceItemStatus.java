@@ -0,0 +1,23 @@
+package com.mattschutz.scada.command;
+
+public enum SequenceItemStatus {
+    PENDING("Aguardando"),
+    DISPATCHED("Partida enviada"),
+    STARTED("Em operação"),
+    FAILED("Falhou"),
+    CANCELLED("Cancelado");
+
+    private final String description;
+
+    SequenceItemStatus(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isFinished() {
+        return this == STARTED || this == FAILED || this == CANCELLED;
+    }
+}
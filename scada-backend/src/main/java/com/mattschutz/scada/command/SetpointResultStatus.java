@@ -0,0 +1,10 @@
+package com.mattschutz.scada.command;
+
+/**
+ * Resultado de um item do ajuste de frequência em lote
+ */
+public enum SetpointResultStatus {
+    APPLIED,
+    REJECTED,
+    NOT_FOUND
+}
@@ -0,0 +1,575 @@
+package com.mattschutz.scada.command;
+
+import com.mattschutz.scada.dto.SequenceItemDTO;
+import com.mattschutz.scada.dto.StartSequenceDTO;
+import com.mattschutz.scada.dto.StartSequenceRequest;
+import com.mattschutz.scada.entity.Equipment;
+import com.mattschutz.scada.repository.EquipmentRepository;
+import com.mattschutz.scada.service.InterlockService;
+import com.mattschutz.scada.soe.SoeClock;
+import com.mattschutz.scada.soe.SoeRecorder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sequenciador de partidas de motores.
+ *
+ * Os equipamentos de uma sequência entram na fila do seu grupo de interlock
+ * (um equipamento por vez por grupo, maior prioridade primeiro). A cabeça de
+ * cada grupo fica pronta no instante em que o interlock libera, agendado em
+ * um timer de roda ({@link TimerWheel}) em vez de consulta periódica, e as
+ * prontas são despachadas em ordem de prioridade enquanto a soma das
+ * correntes de inrush em curso couber em scada.sequencer.inrush-budget. Cada
+ * partida é um comando START do CommandService; o término do comando libera
+ * o grupo para a próxima. A parada de emergência cancela todas as partidas
+ * ainda não despachadas, e nada de uma sequência submetida antes dela é
+ * enviado ou volta para a fila depois.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StartSequencer {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int MAX_ITEMS = 5000;
+    private static final Comparator<Item> ORDER = Comparator.comparingInt((Item item) -> item.priority)
+        .reversed()
+        .thenComparingLong(item -> item.order);
+
+    private final EquipmentRepository equipmentRepository;
+    private final InterlockService interlockService;
+    private final CommandService commandService;
+    private final EmergencyStopService emergencyStopService;
+
+    @Value("${scada.sequencer.tick-millis:50}")
+    private long tickMillis;
+
+    @Value("${scada.sequencer.inrush-budget:2000}")
+    private double inrushBudget;
+
+    @Value("${scada.sequencer.inrush-duration:2000}")
+    private long inrushDuration;
+
+    @Value("${scada.sequencer.max-retained:100}")
+    private int maxRetained;
+
+    private TimerWheel wheel;
+
+    // Estado do sequenciador; nunca mantido durante o envio dos comandos
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Sequence> sequences = new LinkedHashMap<>();
+    private final Map<String, Group> groups = new HashMap<>();
+    private final PriorityQueue<Item> ready = new PriorityQueue<>(ORDER);
+    // Partidas em curso, por horário de fim do inrush
+    private final PriorityQueue<InrushLoad> loads = new PriorityQueue<>(Comparator.comparingLong(load -> load.releaseAt));
+    private double activeInrush;
+    private boolean budgetTimerArmed;
+    private long arrival;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    private static final class Sequence {
+        final String id = UUID.randomUUID().toString();
+        final String name;
+        final String source;
+        final LocalDateTime submittedAt = LocalDateTime.now();
+        // Horário (SoeClock) da submissão, comparado com a parada de emergência
+        final long submittedMicros = SoeClock.nowMicros();
+        final List<Item> items = new ArrayList<>();
+        LocalDateTime finishedAt;
+
+        Sequence(String name, String source) {
+            this.name = name;
+            this.source = source;
+        }
+    }
+
+    private static final class Item {
+        final Sequence sequence;
+        final Equipment equipment;
+        final int priority;
+        final long order;
+        final String groupKey;
+        final double inrush;
+        SequenceItemStatus status = SequenceItemStatus.PENDING;
+        int attempts;
+        String commandId;
+        LocalDateTime dispatchedAt;
+        LocalDateTime finishedAt;
+        String message;
+
+        Item(Sequence sequence, Equipment equipment, int priority, long order, String groupKey, double inrush) {
+            this.sequence = sequence;
+            this.equipment = equipment;
+            this.priority = priority;
+            this.order = order;
+            this.groupKey = groupKey;
+            this.inrush = inrush;
+        }
+    }
+
+    private static final class Group {
+        final PriorityQueue<Item> pending = new PriorityQueue<>(ORDER);
+        boolean busy; // cabeça pronta ou em partida
+        boolean armed; // aguardando o interlock no timer
+    }
+
+    private static final class InrushLoad {
+        final long releaseAt;
+        final double amps;
+
+        InrushLoad(long releaseAt, double amps) {
+            this.releaseAt = releaseAt;
+            this.amps = amps;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        wheel = new TimerWheel("scada-sequencer", tickMillis, 512);
+        wheel.start();
+        emergencyStopService.onEmergency(() -> cancelAll("Parada de emergência"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.stop();
+    }
+
+    /**
+     * Registra a sequência e inicia o despacho. Retorna o id
+     */
+    public String submit(StartSequenceRequest request) {
+        List<StartSequenceRequest.Item> requested = request.getItems();
+        if (requested == null || requested.isEmpty()) {
+            throw new IllegalArgumentException("Sequência sem equipamentos");
+        }
+        if (requested.size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("Sequência limitada a " + MAX_ITEMS + " equipamentos");
+        }
+        Set<String> ids = new HashSet<>();
+        for (StartSequenceRequest.Item item : requested) {
+            if (item.getEquipmentId() == null || !ids.add(item.getEquipmentId())) {
+                throw new IllegalArgumentException("Equipamento ausente ou repetido na sequência: " + item.getEquipmentId());
+            }
+        }
+        Map<String, Equipment> equipment = new HashMap<>();
+        for (Equipment asset : equipmentRepository.findAllById(ids)) {
+            equipment.put(asset.getId(), asset);
+        }
+        for (String id : ids) {
+            if (!equipment.containsKey(id)) {
+                throw new IllegalArgumentException("Equipamento não encontrado: " + id);
+            }
+        }
+
+        String source = SoeRecorder.currentUser();
+        List<Item> toSend;
+        Sequence sequence;
+        lock.lock();
+        try {
+            evict();
+            sequence = new Sequence(request.getName(), source);
+            sequences.put(sequence.id, sequence);
+            Set<String> affected = new HashSet<>();
+            for (StartSequenceRequest.Item requestedItem : requested) {
+                Equipment asset = equipment.get(requestedItem.getEquipmentId());
+                String groupKey = InterlockService.appliesTo(asset)
+                    ? "grupo:" + InterlockService.groupOf(asset)
+                    : "equipamento:" + asset.getId();
+                Item item = new Item(sequence, asset,
+                    requestedItem.getPriority() != null ? requestedItem.getPriority() : 0,
+                    arrival++, groupKey, asset.calculateInrushCurrent());
+                sequence.items.add(item);
+                groups.computeIfAbsent(groupKey, key -> new Group()).pending.add(item);
+                affected.add(groupKey);
+            }
+            for (String groupKey : affected) {
+                advance(groupKey);
+            }
+            toSend = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        log.info("Sequência de partida {} ({}): {} equipamentos", sequence.id, sequence.name, requested.size());
+        send(toSend);
+        return sequence.id;
+    }
+
+    /**
+     * Torna pronta a cabeça do grupo se o interlock permite; senão agenda para quando liberar
+     */
+    private void advance(String groupKey) {
+        Group group = groups.get(groupKey);
+        if (group == null || group.busy || group.armed) {
+            return;
+        }
+        Item head = group.pending.peek();
+        if (head == null) {
+            groups.remove(groupKey);
+            return;
+        }
+        long remaining = interlockService.getRemainingMillis(head.equipment);
+        if (remaining > 0) {
+            group.armed = true;
+            wheel.schedule(remaining, () -> onGroupTimer(groupKey));
+            return;
+        }
+        group.pending.poll();
+        group.busy = true;
+        ready.add(head);
+    }
+
+    /**
+     * Despacha as prontas em ordem de prioridade enquanto houver orçamento de inrush
+     */
+    private List<Item> dispatch() {
+        long now = System.currentTimeMillis();
+        while (!loads.isEmpty() && loads.peek().releaseAt <= now) {
+            activeInrush -= loads.poll().amps;
+        }
+        if (loads.isEmpty()) {
+            activeInrush = 0;
+        }
+        List<Item> out = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            Item item = ready.peek();
+            // Um equipamento acima do orçamento sozinho parte quando não há outros em inrush
+            if (activeInrush > 0 && activeInrush + item.inrush > inrushBudget) {
+                if (!budgetTimerArmed) {
+                    budgetTimerArmed = true;
+                    wheel.schedule(loads.peek().releaseAt - now, this::onBudgetTimer);
+                }
+                break;
+            }
+            ready.poll();
+            loads.add(new InrushLoad(now + inrushDuration, item.inrush));
+            activeInrush += item.inrush;
+            item.status = SequenceItemStatus.DISPATCHED;
+            item.dispatchedAt = LocalDateTime.now();
+            item.attempts++;
+            out.add(item);
+        }
+        return out;
+    }
+
+    private void onGroupTimer(String groupKey) {
+        List<Item> toSend;
+        lock.lock();
+        try {
+            Group group = groups.get(groupKey);
+            if (group == null) {
+                return;
+            }
+            group.armed = false;
+            advance(groupKey);
+            toSend = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        send(toSend);
+    }
+
+    private void onBudgetTimer() {
+        List<Item> toSend;
+        lock.lock();
+        try {
+            budgetTimerArmed = false;
+            toSend = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        send(toSend);
+    }
+
+    /**
+     * Envia as partidas ao CommandService, fora do lock
+     */
+    private void send(List<Item> items) {
+        for (Item item : items) {
+            if (emergencyStopService.isPrecededBy(item.sequence.submittedMicros)) {
+                cancelledByEmergency(item);
+                continue;
+            }
+            dispatched.increment();
+            try {
+                EquipmentCommand command = commandService.submit(CommandType.START, item.equipment.getId(), null,
+                    item.sequence.source);
+                lock.lock();
+                try {
+                    item.commandId = command.getId();
+                } finally {
+                    lock.unlock();
+                }
+                command.getResult().whenComplete((equipment, error) -> onCompleted(item, error));
+            } catch (RuntimeException e) {
+                onCompleted(item, e);
+            }
+        }
+    }
+
+    private void onCompleted(Item item, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        List<Item> toSend;
+        lock.lock();
+        try {
+            if (error == null) {
+                item.status = SequenceItemStatus.STARTED;
+                item.finishedAt = LocalDateTime.now();
+            } else if (emergencyStopService.isPrecededBy(item.sequence.submittedMicros)) {
+                // Sem nova tentativa após a parada de emergência
+                item.status = SequenceItemStatus.CANCELLED;
+                item.message = error.getMessage();
+                item.finishedAt = LocalDateTime.now();
+            } else if (item.attempts < MAX_ATTEMPTS && interlockService.getRemainingMillis(item.equipment) > 0) {
+                // Outra partida no grupo (ex.: manual) tomou o interlock: volta para a fila
+                item.status = SequenceItemStatus.PENDING;
+                item.message = error.getMessage();
+                groups.computeIfAbsent(item.groupKey, key -> new Group()).pending.add(item);
+                retries.increment();
+            } else {
+                item.status = SequenceItemStatus.FAILED;
+                item.message = error.getMessage();
+                item.finishedAt = LocalDateTime.now();
+            }
+            Group group = groups.get(item.groupKey);
+            if (group != null) {
+                group.busy = false;
+            }
+            advance(item.groupKey);
+            finishIfDone(item.sequence);
+            toSend = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        send(toSend);
+    }
+
+    /**
+     * Cancela os equipamentos ainda não despachados da sequência
+     */
+    public boolean cancel(String sequenceId) {
+        List<Item> toSend;
+        lock.lock();
+        try {
+            Sequence sequence = sequences.get(sequenceId);
+            if (sequence == null) {
+                return false;
+            }
+            Set<String> released = new HashSet<>();
+            for (Item item : sequence.items) {
+                if (item.status != SequenceItemStatus.PENDING) {
+                    continue;
+                }
+                item.status = SequenceItemStatus.CANCELLED;
+                item.finishedAt = LocalDateTime.now();
+                Group group = groups.get(item.groupKey);
+                if (ready.remove(item)) {
+                    if (group != null) {
+                        group.busy = false;
+                    }
+                    released.add(item.groupKey);
+                } else if (group != null) {
+                    group.pending.remove(item);
+                }
+            }
+            for (String groupKey : released) {
+                advance(groupKey);
+            }
+            finishIfDone(sequence);
+            toSend = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        send(toSend);
+        return true;
+    }
+
+    /**
+     * Cancela todas as partidas ainda não despachadas, de todas as sequências.
+     * As já despachadas são canceladas pelo CommandService (comando anterior à parada)
+     */
+    public int cancelAll(String reason) {
+        int cancelled = 0;
+        lock.lock();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (Sequence sequence : sequences.values()) {
+                for (Item item : sequence.items) {
+                    if (item.status != SequenceItemStatus.PENDING) {
+                        continue;
+                    }
+                    item.status = SequenceItemStatus.CANCELLED;
+                    item.message = reason;
+                    item.finishedAt = now;
+                    cancelled++;
+                }
+                finishIfDone(sequence);
+            }
+            groups.clear();
+            ready.clear();
+            loads.clear();
+            activeInrush = 0;
+        } finally {
+            lock.unlock();
+        }
+        if (cancelled > 0) {
+            log.warn("Sequências de partida: {} equipamentos cancelados ({})", cancelled, reason);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Item retirado da fila para envio quando a parada de emergência foi acionada
+     */
+    private void cancelledByEmergency(Item item) {
+        List<Item> toSend;
+        lock.lock();
+        try {
+            item.status = SequenceItemStatus.CANCELLED;
+            item.message = "Parada de emergência";
+            item.finishedAt = LocalDateTime.now();
+            Group group = groups.get(item.groupKey);
+            if (group != null) {
+                // Grupo compartilhado com sequência submetida após a parada
+                group.busy = false;
+            }
+            advance(item.groupKey);
+            finishIfDone(item.sequence);
+            toSend = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        send(toSend);
+    }
+
+    private void finishIfDone(Sequence sequence) {
+        if (sequence.finishedAt != null) {
+            return;
+        }
+        for (Item item : sequence.items) {
+            if (!item.status.isFinished()) {
+                return;
+            }
+        }
+        sequence.finishedAt = LocalDateTime.now();
+        log.info("Sequência de partida {} concluída", sequence.id);
+    }
+
+    private void evict() {
+        Iterator<Sequence> iterator = sequences.values().iterator();
+        while (sequences.size() >= maxRetained && iterator.hasNext()) {
+            if (iterator.next().finishedAt != null) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public Optional<StartSequenceDTO> findById(String id) {
+        lock.lock();
+        try {
+            Sequence sequence = sequences.get(id);
+            return sequence != null ? Optional.of(toDTO(sequence, true)) : Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sequências retidas, mais recentes primeiro, sem a lista de equipamentos
+     */
+    public List<StartSequenceDTO> findAll() {
+        lock.lock();
+        try {
+            List<StartSequenceDTO> result = new ArrayList<>(sequences.size());
+            for (Sequence sequence : sequences.values()) {
+                result.add(0, toDTO(sequence, false));
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private StartSequenceDTO toDTO(Sequence sequence, boolean withItems) {
+        int[] counts = new int[SequenceItemStatus.values().length];
+        List<SequenceItemDTO> items = withItems ? new ArrayList<>(sequence.items.size()) : null;
+        for (Item item : sequence.items) {
+            counts[item.status.ordinal()]++;
+            if (withItems) {
+                items.add(SequenceItemDTO.builder()
+                    .equipmentId(item.equipment.getId())
+                    .equipmentName(item.equipment.getName())
+                    .priority(item.priority)
+                    .interlockGroup(InterlockService.appliesTo(item.equipment)
+                        ? InterlockService.groupOf(item.equipment) : null)
+                    .inrushCurrent(item.inrush)
+                    .status(item.status)
+                    .attempts(item.attempts)
+                    .commandId(item.commandId)
+                    .dispatchedAt(item.dispatchedAt)
+                    .finishedAt(item.finishedAt)
+                    .message(item.message)
+                    .build());
+            }
+        }
+        return StartSequenceDTO.builder()
+            .id(sequence.id)
+            .name(sequence.name)
+            .source(sequence.source)
+            .submittedAt(sequence.submittedAt)
+            .finishedAt(sequence.finishedAt)
+            .pending(counts[SequenceItemStatus.PENDING.ordinal()] + counts[SequenceItemStatus.DISPATCHED.ordinal()])
+            .started(counts[SequenceItemStatus.STARTED.ordinal()])
+            .failed(counts[SequenceItemStatus.FAILED.ordinal()])
+            .cancelled(counts[SequenceItemStatus.CANCELLED.ordinal()])
+            .items(items)
+            .build();
+    }
+
+    public Map<String, Object> getStatistics() {
+        lock.lock();
+        try {
+            int waiting = 0;
+            for (Group group : groups.values()) {
+                waiting += group.pending.size();
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("sequences", sequences.size());
+            stats.put("groups", groups.size());
+            stats.put("waiting", waiting);
+            stats.put("ready", ready.size());
+            stats.put("activeInrush", activeInrush);
+            stats.put("inrushBudget", inrushBudget);
+            stats.put("dispatched", dispatched.sum());
+            stats.put("retries", retries.sum());
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
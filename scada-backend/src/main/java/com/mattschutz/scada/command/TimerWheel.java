@@ -0,0 +1,110 @@
+package com.mattschutz.scada.command;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Timer de roda (hashed wheel): agendar é O(1) (fila sem lock lida pela
+ * thread da roda) e cada tick só examina o balde corrente. Prazos além de
+ * uma volta ficam no balde com o número de voltas restantes. A precisão é
+ * de um tick; as tarefas rodam na thread da roda e devem ser rápidas.
+ */
+@Slf4j
+final class TimerWheel {
+
+    private static final class Entry {
+        final long deadline;
+        final Runnable task;
+        long rounds;
+
+        Entry(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+    }
+
+    private final long tickNanos;
+    private final int mask;
+    private final ArrayDeque<Entry>[] buckets;
+    private final ConcurrentLinkedQueue<Entry> incoming = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean running;
+    private long startNanos;
+    private long tick; // só a thread da roda
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(String name, long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Tick positivo e tamanho da roda potência de 2");
+        }
+        this.tickNanos = tickMillis * 1_000_000L;
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+        running = true;
+        worker.start();
+    }
+
+    void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * Executa a tarefa após o atraso (arredondado para o tick seguinte)
+     */
+    void schedule(long delayMillis, Runnable task) {
+        incoming.add(new Entry(System.nanoTime() + Math.max(0, delayMillis) * 1_000_000L, task));
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long wait;
+            while (running && (wait = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            transfer();
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transfer() {
+        Entry entry;
+        while ((entry = incoming.poll()) != null) {
+            long due = (entry.deadline - startNanos + tickNanos - 1) / tickNanos;
+            entry.rounds = (due - tick) / buckets.length;
+            buckets[(int) (Math.max(due, tick) & mask)].add(entry);
+        }
+    }
+
+    private void expire(ArrayDeque<Entry> bucket) {
+        Iterator<Entry> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.rounds > 0) {
+                entry.rounds--;
+                continue;
+            }
+            iterator.remove();
+            try {
+                entry.task.run();
+            } catch (Exception e) {
+                log.error("Erro em tarefa do timer: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.mattschutz.scada.config;
 
 import com.mattschutz.scada.entity.*;
+import com.mattschutz.scada.repository.AlarmRuleRepository;
 import com.mattschutz.scada.repository.UserRepository;
 import com.mattschutz.scada.service.EquipmentService;
 import com.mattschutz.scada.service.HistoricalDataService;
@@ -30,6 +31,9 @@ public class DataInitializer implements CommandLineRunner {
     
     @Autowired
     private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private AlarmRuleRepository alarmRuleRepository;
 
     @Override
     public void run(String... args) throws Exception {
@@ -37,6 +41,7 @@ public class DataInitializer implements CommandLineRunner {
 
         createDefaultUsers();
         createDefaultEquipment();
+        createDefaultAlarmRules();
         createHistoricalData();
 
         logger.info("Inicialização de dados concluída com sucesso!");
@@ -101,6 +106,7 @@ public class DataInitializer implements CommandLineRunner {
             motor1.setType(EquipmentType.MOTOR);
             motor1.setStatus(EquipmentStatus.STOPPED);
             motor1.setLocation("Linha de Produção 1");
+            motor1.setInterlockGroup("CCM-01");
             motor1.setManufacturer("WEG");
             motor1.setModel("W22 Premium");
             motor1.setSerialNumber("MT-001-2023");
@@ -125,6 +131,7 @@ public class DataInitializer implements CommandLineRunner {
             motor2.setType(EquipmentType.MOTOR);
             motor2.setStatus(EquipmentStatus.STOPPED);
             motor2.setLocation("Casa de Bombas");
+            motor2.setInterlockGroup("CCM-02");
             motor2.setManufacturer("WEG");
             motor2.setModel("W22 Standard");
             motor2.setSerialNumber("MT-002-2023");
@@ -213,6 +220,91 @@ public class DataInitializer implements CommandLineRunner {
         }
     }
 
+    private void createDefaultAlarmRules() {
+        if (alarmRuleRepository.count() == 0) {
+            logger.info("Criando regras de alarme padrão...");
+
+            // Sobrecarga: 110% da corrente nominal, normaliza abaixo de 100%
+            alarmRuleRepository.save(alarmRule("Sobrecarga", EquipmentField.CURRENT, AlarmComparator.ABOVE,
+                110.0, AlarmLimitMode.PERCENT_OF_NOMINAL, 10.0, AlarmSeverity.HIGH, AlarmType.OVERLOAD, null,
+                "Sobrecarga: %.1f A (limite %.1f A)"));
+
+            // Temperatura alta, normaliza abaixo de 75°C
+            alarmRuleRepository.save(alarmRule("Temperatura alta", EquipmentField.TEMPERATURE, AlarmComparator.ABOVE,
+                80.0, AlarmLimitMode.ABSOLUTE, 5.0, AlarmSeverity.HIGH, AlarmType.OVERTEMPERATURE, null,
+                "Temperatura alta: %.1f°C (limite %.0f°C)"));
+
+            // Motor acima do limite da classe de isolamento: escalona o alarme de temperatura
+            alarmRuleRepository.save(alarmRule("Motor superaquecido", EquipmentField.TEMPERATURE, AlarmComparator.ABOVE,
+                0.0, AlarmLimitMode.INSULATION_CLASS, 5.0, AlarmSeverity.CRITICAL, AlarmType.OVERTEMPERATURE,
+                EquipmentType.MOTOR, "Motor superaquecido: %.1f°C (limite da classe de isolamento %.0f°C)"));
+
+            // ISO 10816-3 zona C
+            alarmRuleRepository.save(alarmRule("Vibração excessiva", EquipmentField.VIBRATION, AlarmComparator.ABOVE,
+                7.1, AlarmLimitMode.ABSOLUTE, null, AlarmSeverity.MEDIUM, AlarmType.VIBRATION, EquipmentType.MOTOR,
+                "Vibração excessiva: %.2f mm/s (limite %.1f mm/s)"));
+
+            alarmRuleRepository.save(alarmRule("Nível de óleo baixo", EquipmentField.OIL_LEVEL, AlarmComparator.BELOW,
+                0.7, AlarmLimitMode.ABSOLUTE, 0.02, AlarmSeverity.HIGH, AlarmType.LOW_OIL_LEVEL,
+                EquipmentType.TRANSFORMER, "Nível de óleo baixo: %.2f (limite %.2f)"));
+
+            alarmRuleRepository.save(alarmRule("Temperatura de óleo alta", EquipmentField.OIL_TEMPERATURE,
+                AlarmComparator.ABOVE, 95.0, AlarmLimitMode.ABSOLUTE, null, AlarmSeverity.HIGH,
+                AlarmType.HIGH_OIL_TEMPERATURE, EquipmentType.TRANSFORMER,
+                "Temperatura de óleo alta: %.1f°C (limite %.0f°C)"));
+
+            // Estatísticas por tag: taxa de variação, desvio da média móvel e valor congelado
+            alarmRuleRepository.save(statistic(alarmRule("Temperatura subindo rápido", EquipmentField.TEMPERATURE,
+                AlarmComparator.ABOVE, 5.0, AlarmLimitMode.ABSOLUTE, 1.0, AlarmSeverity.MEDIUM,
+                AlarmType.OVERTEMPERATURE, null, "Temperatura subindo rápido: %.1f°C/min (limite %.0f°C/min)"),
+                AlarmStatistic.RATE_OF_CHANGE, null));
+
+            alarmRuleRepository.save(statistic(alarmRule("Nível de óleo caindo", EquipmentField.OIL_LEVEL,
+                AlarmComparator.BELOW, -0.01, AlarmLimitMode.ABSOLUTE, 0.005, AlarmSeverity.HIGH,
+                AlarmType.LOW_OIL_LEVEL, EquipmentType.TRANSFORMER, "Nível de óleo caindo: %.3f/min (limite %.3f/min)"),
+                AlarmStatistic.RATE_OF_CHANGE, 600L));
+
+            alarmRuleRepository.save(statistic(alarmRule("Vibração fora do padrão", EquipmentField.VIBRATION,
+                AlarmComparator.ABOVE, 4.0, AlarmLimitMode.ABSOLUTE, 1.0, AlarmSeverity.LOW, AlarmType.VIBRATION,
+                EquipmentType.MOTOR, "Vibração fora do padrão: %.1fσ da média (limite %.0fσ)"),
+                AlarmStatistic.DEVIATION_SIGMA, null));
+
+            // Desabilitada: equipamentos parados têm temperatura estável por longos períodos
+            AlarmRule stuck = statistic(alarmRule("Temperatura congelada", EquipmentField.TEMPERATURE,
+                AlarmComparator.ABOVE, 600.0, AlarmLimitMode.ABSOLUTE, null, AlarmSeverity.LOW,
+                AlarmType.STUCK_VALUE, null, "Temperatura sem variação há %.0f s (limite %.0f s)"),
+                AlarmStatistic.STUCK, null);
+            stuck.setEnabled(false);
+            alarmRuleRepository.save(stuck);
+
+            logger.info("Regras de alarme criadas: {}", alarmRuleRepository.count());
+        }
+    }
+
+    private AlarmRule alarmRule(String name, EquipmentField field, AlarmComparator comparator, Double limit,
+                                AlarmLimitMode limitMode, Double deadband, AlarmSeverity severity, AlarmType type,
+                                EquipmentType equipmentType, String message) {
+        AlarmRule rule = new AlarmRule();
+        rule.setName(name);
+        rule.setField(field);
+        rule.setComparator(comparator);
+        rule.setLimit(limit);
+        rule.setLimitMode(limitMode);
+        rule.setDeadband(deadband);
+        rule.setSeverity(severity);
+        rule.setType(type);
+        rule.setEquipmentType(equipmentType);
+        rule.setMessage(message);
+        rule.setEnabled(true);
+        return rule;
+    }
+
+    private AlarmRule statistic(AlarmRule rule, AlarmStatistic statistic, Long windowSeconds) {
+        rule.setStatistic(statistic);
+        rule.setWindowSeconds(windowSeconds);
+        return rule;
+    }
+
     private void createHistoricalData() {
         logger.info("Criando dados históricos para demonstração...");
         
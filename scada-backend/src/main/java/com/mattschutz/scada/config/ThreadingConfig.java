@@ -0,0 +1,65 @@
+package com.mattschutz.scada.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor para trabalho bloqueante fora das threads de requisição e de
+ * agendamento (gravação em lote no banco) e executor dedicado às sequências
+ * de comando de equipamentos (partida, parada, setpoint).
+ *
+ * Com spring.threads.virtual.enabled=true em Java 21+ cada tarefa roda em uma
+ * virtual thread (o Spring Boot também passa Tomcat e @Scheduled para virtual
+ * threads); caso contrário é usado um pool fixo de threads de plataforma.
+ */
+@Configuration
+@Slf4j
+public class ThreadingConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${scada.blocking-pool.size:16}")
+    private int poolSize;
+
+    @Value("${scada.command-pool.size:8}")
+    private int commandPoolSize;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService blockingExecutor() {
+        return newExecutor("scada-blocking-", poolSize);
+    }
+
+    /**
+     * Separado do blockingExecutor: gravações em lote não atrasam comandos e vice-versa
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService commandExecutor() {
+        return newExecutor("scada-command-", commandPoolSize);
+    }
+
+    private ExecutorService newExecutor(String threadPrefix, int size) {
+        if (virtualThreads) {
+            ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+            if (executor != null) {
+                log.info("Tarefas de {} executadas em virtual threads", threadPrefix);
+                return executor;
+            }
+            log.warn("spring.threads.virtual.enabled=true, mas a JVM {} não suporta virtual threads (requer Java 21); "
+                + "usando pool de {} threads de plataforma", Runtime.version(), size);
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, size), runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
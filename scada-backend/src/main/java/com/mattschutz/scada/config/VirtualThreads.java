@@ -0,0 +1,44 @@
+package com.mattschutz.scada.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Acesso às virtual threads sem exigir Java 21 na compilação: o projeto é
+ * compilado para Java 17 e, em uma JVM 21+, o executor de virtual threads é
+ * obtido por reflexão. Em JVMs anteriores {@link #isSupported()} retorna false.
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_PER_TASK_EXECUTOR = lookup();
+
+    private VirtualThreads() {
+    }
+
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public static boolean isSupported() {
+        return NEW_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Executor que cria uma virtual thread por tarefa, ou null se a JVM não suporta
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        if (NEW_PER_TASK_EXECUTOR == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) NEW_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
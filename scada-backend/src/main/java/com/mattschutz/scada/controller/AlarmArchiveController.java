@@ -0,0 +1,81 @@
+package com.mattschutz.scada.controller;
+
+import com.mattschutz.scada.alarm.AlarmArchiveService;
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/alarms/archive")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "${cors.allowed-origins}")
+public class AlarmArchiveController {
+
+    private static final int MAX_LIMIT = 50_000;
+
+    private final AlarmArchiveService alarmArchiveService;
+
+    /**
+     * GET /api/alarms/archive - Consulta o arquivo histórico por período e filtros opcionais
+     */
+    @GetMapping
+    public ResponseEntity<?> queryArchive(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) String equipmentId,
+            @RequestParam(required = false) AlarmSeverity severity,
+            @RequestParam(required = false) AlarmType type,
+            @RequestParam(defaultValue = "1000") int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "limit deve estar entre 1 e " + MAX_LIMIT);
+            return ResponseEntity.badRequest().body(error);
+        }
+        try {
+            return ResponseEntity.ok(alarmArchiveService.query(start, end, equipmentId, severity, type, limit));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * GET /api/alarms/archive/partitions - Partições diárias (segmentos, alarmes, bytes)
+     */
+    @GetMapping("/partitions")
+    public ResponseEntity<List<Map<String, Object>>> getPartitions() {
+        return ResponseEntity.ok(alarmArchiveService.getPartitions());
+    }
+
+    @GetMapping("/statistics")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(alarmArchiveService.getStatistics());
+    }
+
+    /**
+     * POST /api/alarms/archive/run - Move agora os alarmes resolvidos antigos para o arquivo histórico
+     */
+    @PostMapping("/run")
+    @PreAuthorize("hasAnyRole('SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<?> runArchive() {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("archived", alarmArchiveService.archive());
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+}
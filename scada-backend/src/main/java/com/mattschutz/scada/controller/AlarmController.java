@@ -1,6 +1,14 @@
 package com.mattschutz.scada.controller;
 
+import com.mattschutz.scada.alarm.ActiveAlarmSummary;
+import com.mattschutz.scada.alarm.AlarmPipeline;
+import com.mattschutz.scada.alarm.AlarmShelf;
+import com.mattschutz.scada.alarm.AlarmStateEngine;
+import com.mattschutz.scada.alarm.AlarmSuppressionService;
+import com.mattschutz.scada.dto.AlarmSummaryDTO;
 import com.mattschutz.scada.entity.AlarmEvent;
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
 import com.mattschutz.scada.service.AlarmService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -20,7 +28,13 @@ import java.util.Map;
 @CrossOrigin(origins = "${cors.allowed-origins}")
 public class AlarmController {
     
+    private static final int MAX_BULK_IDS = 10_000;
+    
     private final AlarmService alarmService;
+    private final AlarmStateEngine alarmStateEngine;
+    private final AlarmSuppressionService alarmSuppressionService;
+    private final AlarmPipeline alarmPipeline;
+    private final ActiveAlarmSummary activeAlarmSummary;
     
     @GetMapping
     public ResponseEntity<List<AlarmEvent>> getAllAlarms() {
@@ -66,6 +80,78 @@ public class AlarmController {
         return ResponseEntity.ok(alarm);
     }
     
+    /**
+     * POST /api/alarms/bulk/acknowledge - Reconhece os alarmes informados (lista de ids) em um único UPDATE
+     */
+    @PostMapping("/bulk/acknowledge")
+    @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<?> acknowledgeAlarms(@RequestBody List<String> ids, Authentication authentication) {
+        if (ids.size() > MAX_BULK_IDS) {
+            return tooManyIds();
+        }
+        return affected(alarmService.acknowledgeAlarms(ids, authentication.getName()));
+    }
+    
+    @PostMapping("/bulk/resolve")
+    @PreAuthorize("hasAnyRole('SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<?> resolveAlarms(@RequestBody List<String> ids, Authentication authentication) {
+        if (ids.size() > MAX_BULK_IDS) {
+            return tooManyIds();
+        }
+        return affected(alarmService.resolveAlarms(ids, authentication.getName()));
+    }
+    
+    @PostMapping("/equipment/{equipmentId}/acknowledge")
+    @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<?> acknowledgeEquipmentAlarms(@PathVariable String equipmentId, Authentication authentication) {
+        return affected(alarmService.acknowledgeActiveAlarms(equipmentId, null, null, null, authentication.getName()));
+    }
+    
+    @PostMapping("/equipment/{equipmentId}/resolve")
+    @PreAuthorize("hasAnyRole('SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<?> resolveEquipmentAlarms(@PathVariable String equipmentId, Authentication authentication) {
+        return affected(alarmService.resolveActiveAlarms(equipmentId, null, null, null, authentication.getName()));
+    }
+    
+    /**
+     * POST /api/alarms/acknowledge - Reconhece os alarmes ativos que atendem ao filtro (parâmetros opcionais)
+     */
+    @PostMapping("/acknowledge")
+    @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<?> acknowledgeByFilter(
+            @RequestParam(required = false) String equipmentId,
+            @RequestParam(required = false) AlarmSeverity severity,
+            @RequestParam(required = false) AlarmType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            Authentication authentication) {
+        return affected(alarmService.acknowledgeActiveAlarms(equipmentId, severity, type, before,
+            authentication.getName()));
+    }
+    
+    @PostMapping("/resolve")
+    @PreAuthorize("hasAnyRole('SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<?> resolveByFilter(
+            @RequestParam(required = false) String equipmentId,
+            @RequestParam(required = false) AlarmSeverity severity,
+            @RequestParam(required = false) AlarmType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            Authentication authentication) {
+        return affected(alarmService.resolveActiveAlarms(equipmentId, severity, type, before,
+            authentication.getName()));
+    }
+    
+    private static ResponseEntity<?> affected(int count) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("affected", count);
+        return ResponseEntity.ok(response);
+    }
+    
+    private static ResponseEntity<?> tooManyIds() {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Máximo de " + MAX_BULK_IDS + " alarmes por requisição");
+        return ResponseEntity.badRequest().body(error);
+    }
+    
     @GetMapping("/statistics")
     public ResponseEntity<Map<String, Object>> getAlarmStatistics() {
         Map<String, Object> stats = new HashMap<>();
@@ -78,4 +164,75 @@ public class AlarmController {
             com.mattschutz.scada.entity.AlarmSeverity.MEDIUM));
         return ResponseEntity.ok(stats);
     }
+    
+    /**
+     * GET /api/alarms/summary - Alarmes ativos por severidade, tipo e equipamento, e não reconhecidos
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<AlarmSummaryDTO> getAlarmSummary() {
+        return ResponseEntity.ok(activeAlarmSummary.getSummary());
+    }
+    
+    /**
+     * GET /api/alarms/engine - Índice de alarmes de condição ativos e contadores de transição
+     */
+    @GetMapping("/engine")
+    public ResponseEntity<Map<String, Object>> getEngineStatus() {
+        Map<String, Object> status = new HashMap<>(alarmStateEngine.getStatistics());
+        status.put("activeConditions", alarmStateEngine.getActiveAlarms());
+        return ResponseEntity.ok(status);
+    }
+    
+    /**
+     * POST /api/alarms/shelve - Arquiva um alarme (equipamento, tipo) por tempo limitado
+     */
+    @PostMapping("/shelve")
+    @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<?> shelveAlarm(
+            @RequestParam String equipmentId,
+            @RequestParam AlarmType type,
+            @RequestParam(defaultValue = "60") long minutes,
+            @RequestParam(required = false) String reason,
+            Authentication authentication) {
+        try {
+            AlarmShelf shelf = alarmSuppressionService.shelve(equipmentId, type, minutes,
+                authentication.getName(), reason);
+            return ResponseEntity.ok(shelf);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @DeleteMapping("/shelve")
+    @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<Map<String, Object>> unshelveAlarm(
+            @RequestParam String equipmentId,
+            @RequestParam AlarmType type) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("unshelved", alarmSuppressionService.unshelve(equipmentId, type));
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/shelved")
+    public ResponseEntity<List<AlarmShelf>> getShelvedAlarms() {
+        return ResponseEntity.ok(alarmSuppressionService.getShelves());
+    }
+    
+    /**
+     * GET /api/alarms/suppression - Alarmes suprimidos por motivo e taxa de alarmes por área
+     */
+    @GetMapping("/suppression")
+    public ResponseEntity<Map<String, Object>> getSuppressionStatistics() {
+        return ResponseEntity.ok(alarmSuppressionService.getStatistics());
+    }
+    
+    /**
+     * GET /api/alarms/pipeline - Fila de gravação assíncrona: profundidade, lotes, latência e backpressure
+     */
+    @GetMapping("/pipeline")
+    public ResponseEntity<Map<String, Object>> getPipelineStatistics() {
+        return ResponseEntity.ok(alarmPipeline.getStatistics());
+    }
 }
@@ -0,0 +1,47 @@
+package com.mattschutz.scada.controller;
+
+import com.mattschutz.scada.alarm.AlarmKpiService;
+import com.mattschutz.scada.dto.AlarmKpiDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/alarms/kpi")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "${cors.allowed-origins}")
+public class AlarmKpiController {
+
+    private final AlarmKpiService alarmKpiService;
+
+    /**
+     * GET /api/alarms/kpi - Indicadores atuais (taxa, avalanche, permanentes, repetitivos, maiores ofensores)
+     */
+    @GetMapping
+    public ResponseEntity<AlarmKpiDTO> getCurrent() {
+        return ResponseEntity.ok(alarmKpiService.getCurrent());
+    }
+
+    /**
+     * GET /api/alarms/kpi/history - Indicadores por período de 10 minutos (padrão: últimas 24 horas)
+     */
+    @GetMapping("/history")
+    public ResponseEntity<?> getHistory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        LocalDateTime to = end != null ? end : LocalDateTime.now();
+        LocalDateTime from = start != null ? start : to.minusHours(24);
+        try {
+            return ResponseEntity.ok(alarmKpiService.getHistory(from, to));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mattschutz.scada.controller;
+
+import com.mattschutz.scada.alarm.AlarmRuleEngine;
+import com.mattschutz.scada.entity.AlarmRule;
+import com.mattschutz.scada.service.AlarmRuleService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/alarm-rules")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "${cors.allowed-origins}")
+public class AlarmRuleController {
+    
+    private final AlarmRuleService alarmRuleService;
+    private final AlarmRuleEngine alarmRuleEngine;
+    
+    @GetMapping
+    public ResponseEntity<List<AlarmRule>> getAllRules() {
+        return ResponseEntity.ok(alarmRuleService.findAll());
+    }
+    
+    @PostMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<?> createRule(@RequestBody AlarmRule rule) {
+        try {
+            return ResponseEntity.ok(alarmRuleService.create(rule));
+        } catch (IllegalArgumentException e) {
+            return error("Erro ao criar regra de alarme", e);
+        }
+    }
+    
+    @PutMapping("/{id}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<?> updateRule(@PathVariable String id, @RequestBody AlarmRule rule) {
+        try {
+            return ResponseEntity.ok(alarmRuleService.update(id, rule));
+        } catch (IllegalArgumentException e) {
+            return error("Erro ao atualizar regra de alarme", e);
+        }
+    }
+    
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<?> deleteRule(@PathVariable String id) {
+        try {
+            alarmRuleService.delete(id);
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Regra de alarme removida");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return error("Erro ao remover regra de alarme", e);
+        }
+    }
+    
+    /**
+     * Recompila as regras (ex.: após alterar equipamentos diretamente no banco)
+     */
+    @PostMapping("/reload")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<Map<String, Object>> reload() {
+        alarmRuleEngine.reload();
+        return ResponseEntity.ok(alarmRuleEngine.getStatistics());
+    }
+    
+    @GetMapping("/statistics")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(alarmRuleEngine.getStatistics());
+    }
+    
+    private ResponseEntity<?> error(String context, RuntimeException e) {
+        log.error("{}: {}", context, e.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return ResponseEntity.badRequest().body(error);
+    }
+}
@@ -0,0 +1,104 @@
+package com.mattschutz.scada.controller;
+
+import com.mattschutz.scada.command.BulkSetpointService;
+import com.mattschutz.scada.command.CommandService;
+import com.mattschutz.scada.command.CommandType;
+import com.mattschutz.scada.command.EquipmentCommand;
+import com.mattschutz.scada.dto.BulkSetpointRequest;
+import com.mattschutz.scada.dto.CommandDTO;
+import com.mattschutz.scada.soe.SoeRecorder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/commands")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "${cors.allowed-origins}")
+public class CommandController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final CommandService commandService;
+    private final BulkSetpointService bulkSetpointService;
+
+    /**
+     * POST /api/commands - Envia um comando { type, equipmentId, setpoint }; responde com o id sem aguardar
+     */
+    @PostMapping
+    @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<?> submit(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = CommandService.IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
+        try {
+            Object type = request.get("type");
+            Object setpoint = request.get("setpoint");
+            EquipmentCommand command = commandService.submitIdempotent(
+                type != null ? CommandType.valueOf(type.toString()) : null,
+                (String) request.get("equipmentId"),
+                setpoint instanceof Number ? ((Number) setpoint).doubleValue() : null,
+                idempotencyKey);
+            return ResponseEntity.accepted().body(commandService.toDTO(command));
+        } catch (IllegalArgumentException | IllegalStateException | ClassCastException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * POST /api/commands/setpoints - Ajusta a frequência de vários inversores { items: [{ equipmentId, frequency }] }.
+     * Responde com o resultado de cada item na ordem enviada
+     */
+    @PostMapping("/setpoints")
+    @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<?> submitSetpoints(@RequestBody BulkSetpointRequest request) {
+        try {
+            return ResponseEntity.ok(bulkSetpointService.apply(request.getItems(), SoeRecorder.currentUser()));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/setpoints/statistics")
+    public ResponseEntity<Map<String, Object>> getSetpointStatistics() {
+        return ResponseEntity.ok(bulkSetpointService.getStatistics());
+    }
+
+    /**
+     * GET /api/commands/{id} - Status do comando
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<CommandDTO> getCommand(@PathVariable String id) {
+        return commandService.findById(id)
+                .map(commandService::toDTO)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * GET /api/commands - Comandos recentes, opcionalmente de um equipamento
+     */
+    @GetMapping
+    public ResponseEntity<List<CommandDTO>> getRecent(
+            @RequestParam(required = false) String equipmentId,
+            @RequestParam(defaultValue = "100") int limit) {
+        List<CommandDTO> commands = commandService.findRecent(equipmentId, Math.max(1, Math.min(limit, MAX_LIMIT)))
+                .stream()
+                .map(commandService::toDTO)
+                .toList();
+        return ResponseEntity.ok(commands);
+    }
+
+    @GetMapping("/statistics")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(commandService.getStatistics());
+    }
+}
@@ -1,5 +1,8 @@
 package com.mattschutz.scada.controller;
 
+import com.mattschutz.scada.command.CommandService;
+import com.mattschutz.scada.command.CommandType;
+import com.mattschutz.scada.command.EquipmentCommand;
 import com.mattschutz.scada.dto.EquipmentFrontendDTO;
 import com.mattschutz.scada.dto.HistoricalDataSimpleDTO;
 import com.mattschutz.scada.entity.Equipment;
@@ -29,6 +32,7 @@ public class EquipamentoController {
     private final EquipmentService equipmentService;
     private final HistoricalDataService historicalDataService;
     private final FrontendMapper frontendMapper;
+    private final CommandService commandService;
     
     /**
      * GET /api/equipamentos - Lista todos os equipamentos
@@ -54,12 +58,16 @@ public class EquipamentoController {
     /**
      * PUT /api/equipamentos/{id}/status - Atualiza status do equipamento
      * Frontend envia: { "status": "running" | "stopped" }
+     * O comando roda no CommandService; a resposta aguarda a conclusão por até
+     * scada.command.wait-timeout e, se ainda em execução, traz só o commandId.
+     * Repetição com o mesmo Idempotency-Key aguarda o comando original
      */
     @PutMapping("/{id}/status")
     @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
     public ResponseEntity<Map<String, Object>> updateStatus(
             @PathVariable String id,
-            @RequestBody Map<String, String> request) {
+            @RequestBody Map<String, String> request,
+            @RequestHeader(value = CommandService.IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         
         try {
             String status = request.get("status");
@@ -69,20 +77,27 @@ public class EquipamentoController {
                         .body(Map.of("success", false, "error", "Status não informado"));
             }
             
-            Equipment equipment;
+            EquipmentCommand command;
             
             if ("running".equals(status)) {
-                equipment = equipmentService.startEquipment(id);
+                command = commandService.submitIdempotent(CommandType.START, id, null, idempotencyKey);
             } else if ("stopped".equals(status)) {
-                equipment = equipmentService.stopEquipment(id);
+                command = commandService.submitIdempotent(CommandType.STOP, id, null, idempotencyKey);
             } else {
                 return ResponseEntity.badRequest()
                         .body(Map.of("success", false, "error", "Status inválido: " + status));
             }
             
+            Equipment equipment = commandService.await(command);
+            
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("equipment", frontendMapper.toFrontendDTO(equipment));
+            response.put("commandId", command.getId());
+            if (equipment != null) {
+                response.put("equipment", frontendMapper.toFrontendDTO(equipment));
+            } else {
+                response.put("pending", true);
+            }
             
             return ResponseEntity.ok(response);
             
@@ -1,9 +1,19 @@
 package com.mattschutz.scada.controller;
 
+import com.mattschutz.scada.command.CommandService;
+import com.mattschutz.scada.command.CommandType;
+import com.mattschutz.scada.command.EmergencyStopService;
+import com.mattschutz.scada.command.EquipmentCommand;
+import com.mattschutz.scada.command.InverterRampEngine;
+import com.mattschutz.scada.dto.EmergencyStopResultDTO;
 import com.mattschutz.scada.entity.*;
+import com.mattschutz.scada.soe.SoeRecorder;
 import com.mattschutz.scada.service.EquipmentService;
+import com.mattschutz.scada.service.OptimisticRetry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -11,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/equipment")
@@ -20,6 +31,9 @@ import java.util.Map;
 public class EquipmentController {
     
     private final EquipmentService equipmentService;
+    private final CommandService commandService;
+    private final EmergencyStopService emergencyStopService;
+    private final InverterRampEngine rampEngine;
     
     @GetMapping
     public ResponseEntity<List<Equipment>> getAllEquipment() {
@@ -52,15 +66,29 @@ public class EquipmentController {
     
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
-    public ResponseEntity<Equipment> updateEquipment(
+    public ResponseEntity<?> updateEquipment(
             @PathVariable String id,
             @RequestBody Equipment equipment) {
-        return equipmentService.findById(id)
-                .map(existing -> {
-                    equipment.setId(id);
-                    return ResponseEntity.ok(equipmentService.save(equipment));
-                })
-                .orElse(ResponseEntity.notFound().build());
+        Optional<Equipment> existing = equipmentService.findById(id);
+        if (existing.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        // A versão carregada pelo cliente é obrigatória: sem ela a alteração sobrescreveria outra sem conflito
+        if (equipment.getVersion() == null) {
+            log.warn("PUT do equipamento {} sem versão recusado", id);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Versão (version) obrigatória: envie a versão carregada do equipamento");
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).body(error);
+        }
+        equipment.setId(id);
+        try {
+            return ResponseEntity.ok(equipmentService.save(equipment));
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Conflito de versão ao atualizar equipamento {}", id);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", OptimisticRetry.CONFLICT_MESSAGE);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        }
     }
     
     @DeleteMapping("/{id}")
@@ -71,14 +99,17 @@ public class EquipmentController {
     }
     
     /**
-     * Inicia um equipamento
+     * Inicia um equipamento. Responde 202 com o comando; status em /api/commands/{id} e /topic/commands.
+     * Repetição com o mesmo Idempotency-Key devolve o comando original
      */
     @PostMapping("/{id}/start")
     @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
-    public ResponseEntity<?> startEquipment(@PathVariable String id) {
+    public ResponseEntity<?> startEquipment(
+            @PathVariable String id,
+            @RequestHeader(value = CommandService.IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         try {
-            Equipment equipment = equipmentService.startEquipment(id);
-            return ResponseEntity.ok(equipment);
+            EquipmentCommand command = commandService.submitIdempotent(CommandType.START, id, null, idempotencyKey);
+            return ResponseEntity.accepted().body(commandService.toDTO(command));
         } catch (Exception e) {
             log.error("Erro ao iniciar equipamento {}: {}", id, e.getMessage());
             Map<String, String> error = new HashMap<>();
@@ -88,14 +119,16 @@ public class EquipmentController {
     }
     
     /**
-     * Para um equipamento
+     * Para um equipamento. Responde 202 com o comando
      */
     @PostMapping("/{id}/stop")
     @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
-    public ResponseEntity<?> stopEquipment(@PathVariable String id) {
+    public ResponseEntity<?> stopEquipment(
+            @PathVariable String id,
+            @RequestHeader(value = CommandService.IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         try {
-            Equipment equipment = equipmentService.stopEquipment(id);
-            return ResponseEntity.ok(equipment);
+            EquipmentCommand command = commandService.submitIdempotent(CommandType.STOP, id, null, idempotencyKey);
+            return ResponseEntity.accepted().body(commandService.toDTO(command));
         } catch (Exception e) {
             log.error("Erro ao parar equipamento {}: {}", id, e.getMessage());
             Map<String, String> error = new HashMap<>();
@@ -109,29 +142,45 @@ public class EquipmentController {
      */
     @PostMapping("/emergency-stop")
     @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
-    public ResponseEntity<Map<String, String>> emergencyStopAll() {
-        equipmentService.emergencyStopAll();
-        Map<String, String> response = new HashMap<>();
+    public ResponseEntity<Map<String, Object>> emergencyStopAll() {
+        EmergencyStopResultDTO result = emergencyStopService.emergencyStop(SoeRecorder.currentUser());
+        Map<String, Object> response = new HashMap<>();
         response.put("message", "Parada de emergência acionada com sucesso");
+        response.put("stopped", result.getStopped());
+        response.put("timeToStoppedMillis", result.getTimeToStoppedMillis());
         return ResponseEntity.ok(response);
     }
     
+    @GetMapping("/emergency-stop/statistics")
+    public ResponseEntity<Map<String, Object>> getEmergencyStopStatistics() {
+        return ResponseEntity.ok(emergencyStopService.getStatistics());
+    }
+    
+    /**
+     * Rampas de frequência em andamento e tempo do tick
+     */
+    @GetMapping("/ramps")
+    public ResponseEntity<Map<String, Object>> getRamps(@RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(rampEngine.getStatus(Math.max(0, Math.min(limit, 1000))));
+    }
+    
     /**
-     * Ajusta frequência de um inversor
+     * Ajusta frequência de um inversor. Responde 202 com o comando
      */
     @PostMapping("/{id}/frequency")
     @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
     public ResponseEntity<?> adjustFrequency(
             @PathVariable String id,
-            @RequestBody Map<String, Double> request) {
+            @RequestBody Map<String, Double> request,
+            @RequestHeader(value = CommandService.IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         try {
             Double frequency = request.get("frequency");
             if (frequency == null) {
                 throw new IllegalArgumentException("Frequência não informada");
             }
             
-            Equipment equipment = equipmentService.updateInverterFrequency(id, frequency);
-            return ResponseEntity.ok(equipment);
+            EquipmentCommand command = commandService.submitIdempotent(CommandType.SETPOINT, id, frequency, idempotencyKey);
+            return ResponseEntity.accepted().body(commandService.toDTO(command));
         } catch (Exception e) {
             log.error("Erro ao ajustar frequência do equipamento {}: {}", id, e.getMessage());
             Map<String, String> error = new HashMap<>();
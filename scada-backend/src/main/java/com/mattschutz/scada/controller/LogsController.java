@@ -1,14 +1,16 @@
 package com.mattschutz.scada.controller;
 
 import com.mattschutz.scada.dto.InrushLogDTO;
+import com.mattschutz.scada.inrush.InrushRecorder;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Map;
 
 /**
  * Controller para logs de inrush
@@ -16,36 +18,41 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 @RestController
 @RequestMapping("/api/logs")
 @RequiredArgsConstructor
-@Slf4j
 @CrossOrigin(origins = "${cors.allowed-origins}")
 public class LogsController {
     
-    // Armazenamento em memória dos logs de inrush (últimos 100)
-    private static final ConcurrentLinkedQueue<InrushLogDTO> inrushLogs = new ConcurrentLinkedQueue<>();
-    private static final int MAX_LOGS = 100;
+    private final InrushRecorder inrushRecorder;
     
     /**
-     * GET /api/logs/inrush - Retorna todos os logs de inrush
+     * GET /api/logs/inrush - Retorna os logs de inrush mais recentes, em ordem cronológica
      */
     @GetMapping("/inrush")
-    public ResponseEntity<List<InrushLogDTO>> getInrushLogs() {
-        return ResponseEntity.ok(new ArrayList<>(inrushLogs));
+    public ResponseEntity<List<InrushLogDTO>> getInrushLogs(@RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(inrushRecorder.recent(limit));
     }
     
     /**
-     * Método estático para registrar log de inrush (chamado de outros serviços)
+     * GET /api/logs/inrush/events - Consulta paginada por equipamento, período e fator de inrush mínimo
      */
-    public static void addInrushLog(InrushLogDTO log) {
-        inrushLogs.add(log);
-        
-        // Manter apenas os últimos 100 logs
-        while (inrushLogs.size() > MAX_LOGS) {
-            inrushLogs.poll();
+    @GetMapping("/inrush/events")
+    public ResponseEntity<?> searchInrushLogs(
+            @RequestParam(required = false) String equipmentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) Double minFactor,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(inrushRecorder.search(equipmentId, start, end, minFactor, page, size));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
         }
-        
-        log.info("Log de inrush registrado: {} - {}A ({}x)", 
-                log.getEquipmentName(), 
-                String.format("%.1f", log.getInrushCurrent()),
-                String.format("%.1f", log.getInrushFactor()));
+    }
+    
+    @GetMapping("/inrush/statistics")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(inrushRecorder.getStatistics());
     }
 }
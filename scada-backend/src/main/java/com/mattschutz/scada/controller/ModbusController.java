@@ -0,0 +1,164 @@
+package com.mattschutz.scada.controller;
+
+import com.mattschutz.scada.entity.ModbusDevice;
+import com.mattschutz.scada.entity.ModbusTag;
+import com.mattschutz.scada.entity.ScanGroup;
+import com.mattschutz.scada.modbus.ModbusPollingService;
+import com.mattschutz.scada.modbus.ModbusPollingService.CycleResult;
+import com.mattschutz.scada.modbus.ScanScheduler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller para configuração e diagnóstico da aquisição Modbus TCP
+ */
+@RestController
+@RequestMapping("/api/modbus")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "${cors.allowed-origins}")
+public class ModbusController {
+    
+    private final ModbusPollingService modbusPollingService;
+    private final ScanScheduler scanScheduler;
+    
+    @Value("${modbus.timeout:5000}")
+    private long timeoutMillis;
+    
+    @GetMapping("/devices")
+    public ResponseEntity<List<ModbusDevice>> getDevices() {
+        return ResponseEntity.ok(modbusPollingService.findAllDevices());
+    }
+    
+    @PostMapping("/devices")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<ModbusDevice> createDevice(@RequestBody ModbusDevice device) {
+        return ResponseEntity.ok(modbusPollingService.saveDevice(device));
+    }
+    
+    @GetMapping("/devices/{deviceId}/tags")
+    public ResponseEntity<List<ModbusTag>> getTags(@PathVariable String deviceId) {
+        return ResponseEntity.ok(modbusPollingService.findTagsByDevice(deviceId));
+    }
+    
+    /**
+     * POST /api/modbus/devices/{deviceId}/tags?equipmentId=...
+     * Body: { "field": "CURRENT", "registerType": "HOLDING", "address": 0, "dataType": "UINT16", "scale": 0.1 }
+     */
+    @PostMapping("/devices/{deviceId}/tags")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<?> createTag(
+            @PathVariable String deviceId,
+            @RequestParam String equipmentId,
+            @RequestBody ModbusTag tag) {
+        try {
+            return ResponseEntity.ok(modbusPollingService.saveTag(deviceId, equipmentId, tag));
+        } catch (IllegalArgumentException e) {
+            log.error("Erro ao cadastrar tag Modbus: {}", e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    /**
+     * PUT /api/modbus/tags/{tagId}/scan-group?group=SLOW
+     */
+    @PutMapping("/tags/{tagId}/scan-group")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<?> setTagScanGroup(@PathVariable String tagId, @RequestParam ScanGroup group) {
+        try {
+            return ResponseEntity.ok(modbusPollingService.assignTagScanGroup(tagId, group));
+        } catch (IllegalArgumentException e) {
+            log.error("Erro ao alterar grupo de varredura: {}", e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    /**
+     * PUT /api/modbus/equipment/{equipmentId}/scan-group?group=FAST
+     * Move todos os tags do equipamento para o grupo
+     */
+    @PutMapping("/equipment/{equipmentId}/scan-group")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<?> setEquipmentScanGroup(@PathVariable String equipmentId, @RequestParam ScanGroup group) {
+        try {
+            int updated = modbusPollingService.assignEquipmentScanGroup(equipmentId, group);
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Grupo de varredura alterado");
+            response.put("scanGroup", group);
+            response.put("tags", updated);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            log.error("Erro ao alterar grupo de varredura: {}", e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    /**
+     * GET /api/modbus/scan-groups - Tempo de ciclo, jitter, overruns e estado de cada grupo
+     */
+    @GetMapping("/scan-groups")
+    public ResponseEntity<List<Map<String, Object>>> getScanGroups() {
+        return ResponseEntity.ok(scanScheduler.getStatistics());
+    }
+    
+    /**
+     * POST /api/modbus/scan-groups/{group}/trigger?deviceId=... - Leitura imediata do grupo
+     */
+    @PostMapping("/scan-groups/{group}/trigger")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR', 'OPERATOR')")
+    public ResponseEntity<?> triggerScanGroup(
+            @PathVariable ScanGroup group,
+            @RequestParam(required = false) String deviceId) {
+        try {
+            long start = System.nanoTime();
+            CycleResult result = scanScheduler.trigger(group, deviceId)
+                .get(timeoutMillis + 1000, TimeUnit.MILLISECONDS);
+            Map<String, Object> response = new HashMap<>();
+            response.put("scanGroup", group);
+            response.put("devices", result.getDevices());
+            response.put("failed", result.getFailed());
+            response.put("skipped", result.getSkipped());
+            response.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return ResponseEntity.ok(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Leitura interrompida");
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            log.error("Erro na leitura sob demanda do grupo {}: {}", group, e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/statistics")
+    public ResponseEntity<List<Map<String, Object>>> getStatistics() {
+        return ResponseEntity.ok(modbusPollingService.getStatistics());
+    }
+    
+    @PostMapping("/reload")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<Map<String, String>> reload() {
+        modbusPollingService.reloadConfiguration();
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Configuração Modbus recarregada");
+        return ResponseEntity.ok(response);
+    }
+}
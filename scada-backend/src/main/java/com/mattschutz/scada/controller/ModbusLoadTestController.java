@@ -0,0 +1,47 @@
+package com.mattschutz.scada.controller;
+
+import com.mattschutz.scada.dto.LoadTestRequest;
+import com.mattschutz.scada.dto.LoadTestResultDTO;
+import com.mattschutz.scada.modbus.simulator.ModbusLoadTestService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Teste de carga da aquisição contra o simulador; só existe com modbus.simulator.enabled=true
+ */
+@RestController
+@RequestMapping("/api/modbus/simulator")
+@ConditionalOnProperty(name = "modbus.simulator.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "${cors.allowed-origins}")
+public class ModbusLoadTestController {
+
+    private final ModbusLoadTestService modbusLoadTestService;
+
+    /**
+     * POST /api/modbus/simulator/load-test - Teste de carga contra simulador local
+     * Body: { "devices": 1000, "registersPerDevice": 20, "durationSeconds": 10,
+     *         "latencyMillis": 0, "jitterMillis": 0, "errorRate": 0.0, "dropRate": 0.0 }
+     */
+    @PostMapping("/load-test")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> runLoadTest(@RequestBody LoadTestRequest request) {
+        try {
+            LoadTestResultDTO result = modbusLoadTestService.run(request);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("Erro no teste de carga Modbus: {}", e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.mattschutz.scada.controller;
 
+import com.mattschutz.scada.command.EmergencyStopService;
 import com.mattschutz.scada.dto.SystemStatusDTO;
 import com.mattschutz.scada.entity.Equipment;
 import com.mattschutz.scada.entity.EquipmentStatus;
 import com.mattschutz.scada.service.EquipmentService;
 import com.mattschutz.scada.service.InterlockService;
+import com.mattschutz.scada.soe.SoeRecorder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -27,6 +29,7 @@ public class SistemaController {
     
     private final EquipmentService equipmentService;
     private final InterlockService interlockService;
+    private final EmergencyStopService emergencyStopService;
     
     private boolean emergencyActive = false;
     
@@ -113,8 +116,7 @@ public class SistemaController {
         }
         
         if (active) {
-            log.warn("PARADA DE EMERGÊNCIA ACIONADA");
-            equipmentService.emergencyStopAll();
+            emergencyStopService.emergencyStop(SoeRecorder.currentUser());
             emergencyActive = true;
         } else {
             log.info("Parada de emergência desativada");
@@ -129,6 +131,14 @@ public class SistemaController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * GET /api/sistema/interlock - Tempo restante por grupo de interlock e contadores
+     */
+    @GetMapping("/interlock")
+    public ResponseEntity<Map<String, Object>> getInterlockStatus() {
+        return ResponseEntity.ok(interlockService.getStatus());
+    }
+    
     /**
      * Calcula o fator de potência baseado nos equipamentos
      */
@@ -0,0 +1,76 @@
+package com.mattschutz.scada.controller;
+
+import com.mattschutz.scada.entity.AlarmEvent;
+import com.mattschutz.scada.service.AlarmService;
+import com.mattschutz.scada.soe.SoeRecorder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/soe")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "${cors.allowed-origins}")
+public class SoeController {
+
+    private final SoeRecorder soeRecorder;
+    private final AlarmService alarmService;
+
+    /**
+     * GET /api/soe?start=&end= - Sequência de eventos da janela (opcionalmente de um equipamento)
+     */
+    @GetMapping
+    public ResponseEntity<?> getReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) String equipmentId) {
+        try {
+            return ResponseEntity.ok(soeRecorder.report(start, end, equipmentId));
+        } catch (IllegalArgumentException e) {
+            return error(e.getMessage());
+        }
+    }
+
+    /**
+     * GET /api/soe/incident - Sequência de eventos em torno de um instante (at) ou de um alarme (alarmId)
+     */
+    @GetMapping("/incident")
+    public ResponseEntity<?> getIncidentReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+            @RequestParam(required = false) String alarmId,
+            @RequestParam(defaultValue = "5000") long beforeMillis,
+            @RequestParam(defaultValue = "5000") long afterMillis,
+            @RequestParam(required = false) String equipmentId) {
+        if (alarmId != null) {
+            AlarmEvent alarm = alarmService.findById(alarmId).orElse(null);
+            if (alarm == null) {
+                return error("Alarme não encontrado: " + alarmId);
+            }
+            at = alarm.getTimestamp();
+        }
+        if (at == null) {
+            return error("Informe at ou alarmId");
+        }
+        try {
+            return ResponseEntity.ok(soeRecorder.incident(at, beforeMillis, afterMillis, equipmentId));
+        } catch (IllegalArgumentException e) {
+            return error(e.getMessage());
+        }
+    }
+
+    @GetMapping("/statistics")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(soeRecorder.getStatistics());
+    }
+
+    private static ResponseEntity<?> error(String message) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", message);
+        return ResponseEntity.badRequest().body(error);
+    }
+}
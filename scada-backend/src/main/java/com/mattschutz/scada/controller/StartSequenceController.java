@@ -0,0 +1,64 @@
+package com.mattschutz.scada.controller;
+
+import com.mattschutz.scada.command.StartSequencer;
+import com.mattschutz.scada.dto.StartSequenceDTO;
+import com.mattschutz.scada.dto.StartSequenceRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/start-sequences")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "${cors.allowed-origins}")
+public class StartSequenceController {
+
+    private final StartSequencer startSequencer;
+
+    /**
+     * POST /api/start-sequences - Sequência de partida { name, items: [{ equipmentId, priority }] }
+     */
+    @PostMapping
+    @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<?> submit(@RequestBody StartSequenceRequest request) {
+        try {
+            String id = startSequencer.submit(request);
+            return ResponseEntity.accepted().body(startSequencer.findById(id).orElse(null));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<StartSequenceDTO>> getAll() {
+        return ResponseEntity.ok(startSequencer.findAll());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<StartSequenceDTO> getById(@PathVariable String id) {
+        return startSequencer.findById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * DELETE /api/start-sequences/{id} - Cancela os equipamentos ainda não despachados
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasAnyRole('OPERATOR', 'SUPERVISOR', 'ADMIN')")
+    public ResponseEntity<Void> cancel(@PathVariable String id) {
+        return startSequencer.cancel(id) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/statistics")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(startSequencer.getStatistics());
+    }
+}
@@ -0,0 +1,34 @@
+package com.mattschutz.scada.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indicadores de desempenho de alarmes (ISA-18.2), calculados de forma incremental
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AlarmKpiDTO {
+    private LocalDateTime timestamp;
+    private Long alarmsLast10Minutes;
+    private Map<String, Long> last10MinutesByArea; // área = posição de operação
+    private Long alarmsLastHour;
+    private Long alarmsLast24Hours;
+    private Double averagePer10Minutes;
+    private Long peak10Minutes;
+    private Double percentPeriodsInFlood;
+    private Long activeAlarms;
+    private Long standingAlarms;
+    private Integer chatteringAlarms;
+    private Long chatterEpisodes24Hours;
+    private List<BadActorDTO> chattering;
+    private List<BadActorDTO> badActors;
+}
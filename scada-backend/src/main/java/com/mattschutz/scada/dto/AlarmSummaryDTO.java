@@ -0,0 +1,29 @@
+package com.mattschutz.scada.dto;
+
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Resumo dos alarmes ativos (contadores mantidos em memória)
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AlarmSummaryDTO {
+    private Long totalActive;
+    private Long unacknowledged;
+    private Map<AlarmSeverity, Long> bySeverity;
+    private Map<AlarmSeverity, Long> unacknowledgedBySeverity;
+    private Map<AlarmType, Long> byType;
+    private Map<String, Long> byEquipment;
+    private LocalDateTime lastReconciledAt;
+    private Long reconciliationCorrections;
+}
@@ -0,0 +1,34 @@
+package com.mattschutz.scada.dto;
+
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Alarme lido do arquivo (segmentos compactados)
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedAlarmDTO {
+    private String id;
+    private String equipmentId;
+    private String equipmentName;
+    private LocalDateTime timestamp;
+    private LocalDateTime resolvedAt;
+    private AlarmSeverity severity;
+    private AlarmType type;
+    private String message;
+    private String description;
+    private Double value;
+    private Double threshold;
+    private Boolean acknowledged;
+    private String acknowledgedBy;
+    private LocalDateTime acknowledgedAt;
+}
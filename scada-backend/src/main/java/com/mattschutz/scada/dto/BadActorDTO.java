@@ -0,0 +1,24 @@
+package com.mattschutz.scada.dto;
+
+import com.mattschutz.scada.entity.AlarmType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Alarme (equipamento, tipo) com suas ocorrências nas últimas 24 horas
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BadActorDTO {
+    private String equipmentId;
+    private String equipmentName;
+    private AlarmType type;
+    private Long count;
+    private Double percentOfTotal;
+    private Boolean chattering;
+    private Long chatterEpisodes;
+}
@@ -0,0 +1,25 @@
+package com.mattschutz.scada.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Resultado do ajuste de frequência em lote, item a item na ordem da requisição
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkSetpointResultDTO {
+    private int requested;
+    private int applied;
+    private int rejected;
+    private int dispatchFailed;
+    private double transactionMillis;
+    private double dispatchMillis;
+    private List<SetpointResultDTO> items;
+}
@@ -0,0 +1,32 @@
+package com.mattschutz.scada.dto;
+
+import com.mattschutz.scada.command.CommandStatus;
+import com.mattschutz.scada.command.CommandType;
+import com.mattschutz.scada.entity.EquipmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Status de um comando de equipamento (consulta e /topic/commands)
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommandDTO {
+    private String id;
+    private CommandType type;
+    private CommandStatus status;
+    private String equipmentId;
+    private Double setpoint;
+    private String source;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private EquipmentStatus equipmentStatus; // após a conclusão
+    private String message; // motivo da falha
+}
@@ -0,0 +1,24 @@
+package com.mattschutz.scada.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resultado de uma parada de emergência
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmergencyStopResultDTO {
+    private LocalDateTime triggeredAt;
+    private Integer stopped;
+    private Double timeToStoppedMillis; // do acionamento ao commit da parada
+    private Double stoppedPerSecond;
+    private Long slaMillis;
+    private Boolean withinSla;
+}
@@ -0,0 +1,23 @@
+package com.mattschutz.scada.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página da consulta de registros de inrush (mais recentes primeiro)
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InrushLogPageDTO {
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+    private List<InrushLogDTO> items;
+}
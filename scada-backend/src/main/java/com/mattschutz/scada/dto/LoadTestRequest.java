@@ -0,0 +1,37 @@
+package com.mattschutz.scada.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Parâmetros do teste de carga da aquisição Modbus contra o simulador
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoadTestRequest {
+    @Builder.Default
+    private Integer devices = 1000;
+    @Builder.Default
+    private Integer registersPerDevice = 20;
+    @Builder.Default
+    private Integer durationSeconds = 10;
+    @Builder.Default
+    private Integer maxInFlight = 1;
+    @Builder.Default
+    private Long latencyMillis = 0L;
+    @Builder.Default
+    private Long jitterMillis = 0L;
+    @Builder.Default
+    private Double errorRate = 0.0;
+    @Builder.Default
+    private Double dropRate = 0.0;
+    // ASYNC, VIRTUAL (thread por dispositivo, Java 21+) ou PLATFORM (pool fixo)
+    @Builder.Default
+    private String threadMode = "ASYNC";
+    @Builder.Default
+    private Integer platformThreads = 200;
+}
@@ -0,0 +1,38 @@
+package com.mattschutz.scada.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Resultado do teste de carga: vazão e latência ponta a ponta por leitura de dispositivo
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoadTestResultDTO {
+    private Integer devices;
+    private Integer registersPerDevice;
+    private Integer blocksPerDevice;
+    private Integer maxInFlight;
+    private String threadMode;
+    private Integer executorThreads;
+    private Integer peakPlatformThreads;
+    private Long cycles;
+    private Long polls;
+    private Long failures;
+    private Long samples;
+    private Double elapsedSeconds;
+    private Double pollsPerSecond;
+    private Double registersPerSecond;
+    private Double avgCycleMillis;
+    private Long latencyP50Micros;
+    private Long latencyP95Micros;
+    private Long latencyP99Micros;
+    private Long latencyMaxMicros;
+    private Map<String, Object> simulator;
+}
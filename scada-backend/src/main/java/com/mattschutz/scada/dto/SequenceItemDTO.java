@@ -0,0 +1,30 @@
+package com.mattschutz.scada.dto;
+
+import com.mattschutz.scada.command.SequenceItemStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Equipamento de uma sequência de partida
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SequenceItemDTO {
+    private String equipmentId;
+    private String equipmentName;
+    private Integer priority;
+    private String interlockGroup;
+    private Double inrushCurrent;
+    private SequenceItemStatus status;
+    private Integer attempts;
+    private String commandId;
+    private LocalDateTime dispatchedAt;
+    private LocalDateTime finishedAt;
+    private String message;
+}
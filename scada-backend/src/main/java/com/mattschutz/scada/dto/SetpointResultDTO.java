@@ -0,0 +1,25 @@
+package com.mattschutz.scada.dto;
+
+import com.mattschutz.scada.command.SetpointResultStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de um inversor no ajuste em lote
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SetpointResultDTO {
+    private String equipmentId;
+    private String equipmentName;
+    private Double requestedFrequency;
+    private SetpointResultStatus status;
+    private Double frequencySetpoint;
+    private Double outputFrequency;
+    private Boolean dispatched;
+    private String message;
+}
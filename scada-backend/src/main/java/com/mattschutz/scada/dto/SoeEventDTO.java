@@ -0,0 +1,28 @@
+package com.mattschutz.scada.dto;
+
+import com.mattschutz.scada.entity.SoeEventType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Linha do relatório de sequência de eventos
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SoeEventDTO {
+    private Long sequence;
+    private Long timestampMicros;
+    private String time; // ISO-8601 com microssegundos
+    private Long offsetMicros; // desde o início da janela
+    private Long deltaMicros; // desde o evento anterior
+    private SoeEventType type;
+    private String equipmentId;
+    private String equipmentName;
+    private String source;
+    private String detail;
+    private Double value;
+}
@@ -0,0 +1,25 @@
+package com.mattschutz.scada.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Relatório de sequência de eventos de uma janela de ocorrência
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SoeReportDTO {
+    private String windowStart;
+    private String windowEnd;
+    private String equipmentId;
+    private Integer eventCount;
+    private Boolean truncated;
+    private Long droppedEvents; // descartados com o buffer cheio desde o início da aplicação
+    private List<SoeEventDTO> events;
+}
@@ -0,0 +1,29 @@
+package com.mattschutz.scada.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Sequência de partida de motores e o andamento de cada equipamento
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StartSequenceDTO {
+    private String id;
+    private String name;
+    private String source;
+    private LocalDateTime submittedAt;
+    private LocalDateTime finishedAt;
+    private Integer pending;
+    private Integer started;
+    private Integer failed;
+    private Integer cancelled;
+    private List<SequenceItemDTO> items;
+}
@@ -0,0 +1,28 @@
+package com.mattschutz.scada.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Sequência de partida: equipamentos com prioridade (maior parte primeiro)
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StartSequenceRequest {
+    private String name;
+    private List<Item> items;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Item {
+        private String equipmentId;
+        private Integer priority;
+    }
+}
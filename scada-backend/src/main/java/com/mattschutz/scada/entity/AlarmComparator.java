@@ -0,0 +1,16 @@
+package com.mattschutz.scada.entity;
+
+public enum AlarmComparator {
+    ABOVE("Acima do limite"),
+    BELOW("Abaixo do limite");
+    
+    private final String description;
+    
+    AlarmComparator(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
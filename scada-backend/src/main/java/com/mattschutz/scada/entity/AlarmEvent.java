@@ -4,23 +4,28 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Table(name = "alarm_event", indexes = {
     @Index(name = "idx_equipment_timestamp", columnList = "equipment_id,timestamp"),
     @Index(name = "idx_severity", columnList = "severity"),
-    @Index(name = "idx_acknowledged", columnList = "acknowledged")
+    @Index(name = "idx_acknowledged", columnList = "acknowledged"),
+    @Index(name = "idx_timestamp", columnList = "timestamp"),
+    @Index(name = "idx_resolved_at", columnList = "resolved_at")
 })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class AlarmEvent {
+public class AlarmEvent implements Persistable<String> {
     
+    // Atribuído por AlarmService.createAlarm, antes da gravação assíncrona
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -62,8 +67,16 @@ public class AlarmEvent {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
+    // Id atribuído na criação: indica ao save que é inserção, sem SELECT prévio
+    @Transient
+    @JsonIgnore
+    private boolean persisted;
+    
     @PrePersist
     protected void onCreate() {
+        if (id == null) {
+            id = UUID.randomUUID().toString();
+        }
         if (createdAt == null) {
             createdAt = LocalDateTime.now();
         }
@@ -72,6 +85,18 @@ public class AlarmEvent {
         }
     }
     
+    @PostPersist
+    @PostLoad
+    protected void markPersisted() {
+        persisted = true;
+    }
+    
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return !persisted;
+    }
+    
     public boolean isActive() {
         return resolvedAt == null;
     }
@@ -0,0 +1,51 @@
+package com.mattschutz.scada.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Indicadores de desempenho de alarmes (ISA-18.2) de um período de 10 minutos
+ */
+@Entity
+@Table(name = "alarm_kpi_snapshot", indexes = {
+    @Index(name = "idx_kpi_period_end", columnList = "period_end")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlarmKpiSnapshot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+    
+    @Column(name = "period_end", nullable = false)
+    private LocalDateTime periodEnd;
+    
+    // Alarmes anunciados no período (todas as áreas)
+    @Column(nullable = false)
+    private Long alarms;
+    
+    // Maior taxa de uma área (posição de operação) no período
+    @Column(name = "max_area_alarms")
+    private Long maxAreaAlarms;
+    
+    @Column(name = "max_area")
+    private String maxArea;
+    
+    @Column(name = "active_alarms")
+    private Long activeAlarms;
+    
+    @Column(name = "standing_alarms")
+    private Long standingAlarms;
+    
+    @Column(name = "chattering_alarms")
+    private Integer chatteringAlarms;
+    
+    // Período acima do limite de avalanche (alarm.kpi.flood-per-10min) em alguma área
+    private Boolean flood;
+}
@@ -0,0 +1,20 @@
+package com.mattschutz.scada.entity;
+
+/**
+ * Como o limite de uma regra de alarme é convertido em valor absoluto para cada equipamento
+ */
+public enum AlarmLimitMode {
+    ABSOLUTE("Valor absoluto"),
+    PERCENT_OF_NOMINAL("Percentual da corrente nominal"),
+    INSULATION_CLASS("Limite da classe de isolamento do motor + limite");
+    
+    private final String description;
+    
+    AlarmLimitMode(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,102 @@
+package com.mattschutz.scada.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Regra declarativa de alarme de limite: grandeza, comparador, limite,
+ * banda morta, severidade e tipo, aplicável a um tipo de equipamento
+ * (ou a todos, se equipmentType for nulo).
+ * statistic escolhe o que é comparado com o limite: o valor lido ou uma
+ * estatística da grandeza (taxa de variação, desvio da média móvel, tempo
+ * sem variação) sobre windowSeconds.
+ * message é um formato String.format com o valor comparado e o limite efetivo (%1$ e %2$)
+ */
+@Entity
+@Table(name = "alarm_rule")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlarmRule {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+    
+    @Column(nullable = false)
+    private String name;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EquipmentField field;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AlarmComparator comparator = AlarmComparator.ABOVE;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AlarmStatistic statistic = AlarmStatistic.VALUE;
+    
+    @Column(name = "window_seconds")
+    private Long windowSeconds; // null = janela padrão da estatística
+    
+    @Column(name = "limit_value", nullable = false)
+    private Double limit;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "limit_mode", nullable = false)
+    private AlarmLimitMode limitMode = AlarmLimitMode.ABSOLUTE;
+    
+    private Double deadband; // null = alarm.deadband-percent do limite
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AlarmSeverity severity;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "alarm_type", nullable = false)
+    private AlarmType type;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "equipment_type")
+    private EquipmentType equipmentType; // null = todos
+    
+    @Column(name = "on_delay_ms")
+    private Long onDelayMillis; // null = alarm.on-delay
+    
+    @Column(name = "off_delay_ms")
+    private Long offDelayMillis; // null = alarm.off-delay
+    
+    @Column(length = 500)
+    private String message;
+    
+    private Boolean enabled = true;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    /**
+     * Mensagem do alarme para o valor lido e o limite efetivo
+     */
+    public String formatMessage(double value, double effectiveLimit) {
+        if (message == null || message.isBlank()) {
+            return String.format("%s: %.2f (limite %.2f)", name, value, effectiveLimit);
+        }
+        try {
+            return String.format(message, value, effectiveLimit);
+        } catch (java.util.IllegalFormatException e) {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.mattschutz.scada.entity;
+
+/**
+ * Grandeza comparada com o limite de uma regra de alarme: o próprio valor ou
+ * uma estatística calculada a cada amostra sobre a janela da regra
+ */
+public enum AlarmStatistic {
+    VALUE("Valor lido", 0),
+    RATE_OF_CHANGE("Taxa de variação (unidades/min)", 60),
+    DEVIATION("Desvio da média móvel (unidades)", 600),
+    DEVIATION_SIGMA("Desvio da média móvel (desvios padrão)", 600),
+    STUCK("Tempo sem variação (s)", 0);
+    
+    private final String description;
+    private final long defaultWindowSeconds;
+    
+    AlarmStatistic(String description, long defaultWindowSeconds) {
+        this.description = description;
+        this.defaultWindowSeconds = defaultWindowSeconds;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public long getDefaultWindowSeconds() {
+        return defaultWindowSeconds;
+    }
+}
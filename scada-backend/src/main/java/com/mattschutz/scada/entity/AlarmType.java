@@ -17,7 +17,9 @@ public enum AlarmType {
     FAULT("Falha"),
     MAINTENANCE_DUE("Manutenção Necessária"),
     SYSTEM("Sistema"),
-    OTHER("Outro");
+    OTHER("Outro"),
+    // Novos tipos sempre no final: o arquivo histórico grava o ordinal
+    STUCK_VALUE("Valor Congelado");
     
     private final String description;
     
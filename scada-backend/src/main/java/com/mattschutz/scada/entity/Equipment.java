@@ -23,6 +23,10 @@ public class Equipment {
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
     
+    // Controle de concorrência otimista: atualizações com versão antiga falham em vez de sobrescrever
+    @Version
+    private Long version;
+    
     @Column(nullable = false)
     private String name;
     
@@ -39,6 +43,10 @@ public class Equipment {
     private String model;
     private String serialNumber;
     
+    // Barramento/transformador de alimentação: partidas de motores do mesmo grupo respeitam o interlock
+    @Column(name = "interlock_group")
+    private String interlockGroup;
+    
     // Electrical Parameters
     @Column(name = "nominal_current")
     private Double nominalCurrent;
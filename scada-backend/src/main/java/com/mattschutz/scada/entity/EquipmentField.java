@@ -0,0 +1,156 @@
+package com.mattschutz.scada.entity;
+
+/**
+ * Grandezas de processo de um equipamento que podem ser lidas em campo
+ * (Modbus) e alimentadas na tabela de valores ao vivo
+ */
+public enum EquipmentField {
+    CURRENT("Corrente", "A"),
+    VOLTAGE("Tensão", "V"),
+    POWER("Potência", "kW"),
+    TEMPERATURE("Temperatura", "°C"),
+    ACTIVE_POWER("Potência Ativa", "kW"),
+    REACTIVE_POWER("Potência Reativa", "kVAr"),
+    POWER_FACTOR("Fator de Potência", ""),
+    RPM("Rotação", "rpm"),
+    TORQUE("Torque", "N.m"),
+    VIBRATION("Vibração", "mm/s"),
+    BEARING_TEMPERATURE("Temperatura do Mancal", "°C"),
+    OUTPUT_FREQUENCY("Frequência de Saída", "Hz"),
+    DC_BUS_VOLTAGE("Tensão do Barramento CC", "V"),
+    OIL_LEVEL("Nível de Óleo", ""),
+    OIL_TEMPERATURE("Temperatura do Óleo", "°C");
+
+    private final String description;
+    private final String unit;
+
+    EquipmentField(String description, String unit) {
+        this.description = description;
+        this.unit = unit;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Verifica se a grandeza existe para a classe do equipamento
+     */
+    public boolean appliesTo(Equipment equipment) {
+        switch (this) {
+            case RPM:
+            case TORQUE:
+            case VIBRATION:
+            case BEARING_TEMPERATURE:
+                return equipment instanceof Motor;
+            case OUTPUT_FREQUENCY:
+            case DC_BUS_VOLTAGE:
+                return equipment instanceof Inverter;
+            case OIL_LEVEL:
+            case OIL_TEMPERATURE:
+                return equipment instanceof Transformer;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Lê o valor atual da grandeza na entidade (null se não aplicável)
+     */
+    public Double read(Equipment equipment) {
+        switch (this) {
+            case CURRENT: return equipment.getCurrent();
+            case VOLTAGE: return equipment.getVoltage();
+            case POWER: return equipment.getPower();
+            case TEMPERATURE: return equipment.getTemperature();
+            case ACTIVE_POWER: return equipment.getActivePower();
+            case REACTIVE_POWER: return equipment.getReactivePower();
+            case POWER_FACTOR: return equipment.getPowerFactor();
+            default:
+                break;
+        }
+
+        if (equipment instanceof Motor) {
+            Motor motor = (Motor) equipment;
+            switch (this) {
+                case RPM: return motor.getRpm();
+                case TORQUE: return motor.getTorque();
+                case VIBRATION: return motor.getVibrationLevel();
+                case BEARING_TEMPERATURE: return motor.getBearingTemperature();
+                default: break;
+            }
+        }
+
+        if (equipment instanceof Inverter) {
+            Inverter inverter = (Inverter) equipment;
+            switch (this) {
+                case OUTPUT_FREQUENCY: return inverter.getOutputFrequency();
+                case DC_BUS_VOLTAGE: return inverter.getDcBusVoltage();
+                default: break;
+            }
+        }
+
+        if (equipment instanceof Transformer) {
+            Transformer trafo = (Transformer) equipment;
+            switch (this) {
+                case OIL_LEVEL: return trafo.getOilLevel();
+                case OIL_TEMPERATURE: return trafo.getOilTemperature();
+                default: break;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Escreve o valor na entidade. Retorna false se a grandeza não se aplica ao equipamento
+     */
+    public boolean apply(Equipment equipment, double value) {
+        switch (this) {
+            case CURRENT: equipment.setCurrent(value); return true;
+            case VOLTAGE: equipment.setVoltage(value); return true;
+            case POWER: equipment.setPower(value); return true;
+            case TEMPERATURE: equipment.setTemperature(value); return true;
+            case ACTIVE_POWER: equipment.setActivePower(value); return true;
+            case REACTIVE_POWER: equipment.setReactivePower(value); return true;
+            case POWER_FACTOR: equipment.setPowerFactor(value); return true;
+            default:
+                break;
+        }
+
+        if (equipment instanceof Motor) {
+            Motor motor = (Motor) equipment;
+            switch (this) {
+                case RPM: motor.setRpm(value); return true;
+                case TORQUE: motor.setTorque(value); return true;
+                case VIBRATION: motor.setVibrationLevel(value); return true;
+                case BEARING_TEMPERATURE: motor.setBearingTemperature(value); return true;
+                default: break;
+            }
+        }
+
+        if (equipment instanceof Inverter) {
+            Inverter inverter = (Inverter) equipment;
+            switch (this) {
+                case OUTPUT_FREQUENCY: inverter.setOutputFrequency(value); return true;
+                case DC_BUS_VOLTAGE: inverter.setDcBusVoltage(value); return true;
+                default: break;
+            }
+        }
+
+        if (equipment instanceof Transformer) {
+            Transformer trafo = (Transformer) equipment;
+            switch (this) {
+                case OIL_LEVEL: trafo.setOilLevel(value); return true;
+                case OIL_TEMPERATURE: trafo.setOilTemperature(value); return true;
+                default: break;
+            }
+        }
+
+        return false;
+    }
+}
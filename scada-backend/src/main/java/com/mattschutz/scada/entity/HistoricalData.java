@@ -102,6 +102,7 @@ public class HistoricalData {
         if (eq instanceof Inverter) {
             Inverter inverter = (Inverter) eq;
             this.frequency = inverter.getOutputFrequency();
+            this.rpm = inverter.calculateMotorSpeed();
         }
         
         if (eq instanceof Transformer) {
@@ -0,0 +1,44 @@
+package com.mattschutz.scada.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Registro de corrente de inrush de uma partida
+ */
+@Entity
+@Table(name = "inrush_event", indexes = {
+    @Index(name = "idx_inrush_timestamp", columnList = "timestamp_millis"),
+    @Index(name = "idx_inrush_equipment_timestamp", columnList = "equipment_id,timestamp_millis")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InrushEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+    
+    @Column(name = "timestamp_millis", nullable = false)
+    private Long timestampMillis;
+    
+    @Column(name = "equipment_id", nullable = false)
+    private String equipmentId;
+    
+    @Column(name = "equipment_name")
+    private String equipmentName;
+    
+    @Column(name = "inrush_current")
+    private Double inrushCurrent;
+    
+    @Column(name = "nominal_current")
+    private Double nominalCurrent;
+    
+    @Column(name = "inrush_factor")
+    private Double inrushFactor;
+    
+    private Boolean alarm;
+}
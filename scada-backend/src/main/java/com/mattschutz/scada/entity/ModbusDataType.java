@@ -0,0 +1,42 @@
+package com.mattschutz.scada.entity;
+
+/**
+ * Formato do valor armazenado nos registradores (big-endian, palavra alta primeiro)
+ */
+public enum ModbusDataType {
+    INT16(1),
+    UINT16(1),
+    INT32(2),
+    UINT32(2),
+    FLOAT32(2);
+    
+    private final int registerCount;
+    
+    ModbusDataType(int registerCount) {
+        this.registerCount = registerCount;
+    }
+    
+    public int getRegisterCount() {
+        return registerCount;
+    }
+    
+    /**
+     * Decodifica o valor bruto a partir dos registradores de 16 bits (0-65535)
+     */
+    public double decode(int[] registers, int offset) {
+        switch (this) {
+            case INT16:
+                return (short) registers[offset];
+            case UINT16:
+                return registers[offset] & 0xFFFF;
+            case INT32:
+                return (registers[offset] << 16) | (registers[offset + 1] & 0xFFFF);
+            case UINT32:
+                return (((long) registers[offset] & 0xFFFF) << 16) | (registers[offset + 1] & 0xFFFF);
+            case FLOAT32:
+                return Float.intBitsToFloat((registers[offset] << 16) | (registers[offset + 1] & 0xFFFF));
+            default:
+                throw new IllegalStateException("Tipo de dado não suportado: " + this);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.mattschutz.scada.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Escravo Modbus TCP (CLP, relé de proteção, inversor, multimedidor)
+ */
+@Entity
+@Table(name = "modbus_device")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ModbusDevice {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+    
+    @Column(nullable = false)
+    private String name;
+    
+    private String host; // null = modbus.host
+    
+    private Integer port; // null = modbus.port
+    
+    @Column(name = "unit_id", nullable = false)
+    private Integer unitId = 1;
+    
+    // Requisições pendentes simultâneas (pipelining de transaction ids); 1 = sequencial
+    @Column(name = "max_in_flight")
+    private Integer maxInFlight = 1;
+    
+    private Boolean enabled = true;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
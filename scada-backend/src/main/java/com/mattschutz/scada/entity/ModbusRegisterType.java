@@ -0,0 +1,22 @@
+package com.mattschutz.scada.entity;
+
+public enum ModbusRegisterType {
+    HOLDING("Holding Register", 3),
+    INPUT("Input Register", 4);
+    
+    private final String description;
+    private final int functionCode;
+    
+    ModbusRegisterType(String description, int functionCode) {
+        this.description = description;
+        this.functionCode = functionCode;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public int getFunctionCode() {
+        return functionCode;
+    }
+}
@@ -0,0 +1,66 @@
+package com.mattschutz.scada.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Mapeamento de registrador(es) Modbus para uma grandeza de um equipamento
+ * valor = bruto * scale + offset
+ */
+@Entity
+@Table(name = "modbus_tag", indexes = {
+    @Index(name = "idx_modbus_tag_device", columnList = "device_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ModbusTag {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+    
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "device_id", nullable = false)
+    private ModbusDevice device;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "equipment_id", nullable = false)
+    @JsonIgnoreProperties({"historicalData", "alarms", "hibernateLazyInitializer", "handler"})
+    private Equipment equipment;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EquipmentField field;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "register_type", nullable = false)
+    private ModbusRegisterType registerType = ModbusRegisterType.HOLDING;
+    
+    @Column(nullable = false)
+    private Integer address; // 0-based
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "data_type", nullable = false)
+    private ModbusDataType dataType = ModbusDataType.UINT16;
+    
+    private Double scale = 1.0;
+    
+    @Column(name = "value_offset")
+    private Double offset = 0.0;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scan_group", nullable = false)
+    private ScanGroup scanGroup = ScanGroup.NORMAL;
+    
+    private Boolean enabled = true;
+    
+    public double toEngineeringValue(double raw) {
+        double s = scale != null ? scale : 1.0;
+        double o = offset != null ? offset : 0.0;
+        return raw * s + o;
+    }
+}
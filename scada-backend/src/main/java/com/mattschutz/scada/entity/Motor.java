@@ -85,14 +85,20 @@ public class Motor extends Equipment {
     public boolean isOverheating() {
         Double temp = getTemperature();
         if (temp == null) return false;
-        
+        return temp > getInsulationTemperatureLimit();
+    }
+    
+    /**
+     * Temperatura máxima da classe de isolamento (°C)
+     */
+    public double getInsulationTemperatureLimit() {
         switch (insulationClass != null ? insulationClass : "F") {
-            case "A": return temp > 105;
-            case "E": return temp > 120;
-            case "B": return temp > 130;
-            case "F": return temp > 155;
-            case "H": return temp > 180;
-            default: return temp > 155;
+            case "A": return 105;
+            case "E": return 120;
+            case "B": return 130;
+            case "F": return 155;
+            case "H": return 180;
+            default: return 155;
         }
     }
     
@@ -0,0 +1,49 @@
+package com.mattschutz.scada.entity;
+
+/**
+ * Grupos de varredura Modbus. Cada tag pertence a um grupo, que define o
+ * período de leitura e a prioridade na conexão com o escravo
+ * (0 = maior prioridade). Grupos descartáveis podem ser suspensos pelo
+ * escalonador em caso de sobrecarga.
+ */
+public enum ScanGroup {
+    FAST("Rápido (proteção)", 100, 0, false),
+    NORMAL("Normal (processo)", 1000, 1, true),
+    SLOW("Lento (diagnóstico)", 10000, 2, true),
+    ON_DEMAND("Sob demanda", 0, 3, false);
+
+    private final String description;
+    private final long defaultPeriodMillis;
+    private final int priority;
+    private final boolean sheddable;
+
+    ScanGroup(String description, long defaultPeriodMillis, int priority, boolean sheddable) {
+        this.description = description;
+        this.defaultPeriodMillis = defaultPeriodMillis;
+        this.priority = priority;
+        this.sheddable = sheddable;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getDefaultPeriodMillis() {
+        return defaultPeriodMillis;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public boolean isSheddable() {
+        return sheddable;
+    }
+
+    /**
+     * Grupos sob demanda só são lidos quando disparados explicitamente
+     */
+    public boolean isPeriodic() {
+        return defaultPeriodMillis > 0;
+    }
+}
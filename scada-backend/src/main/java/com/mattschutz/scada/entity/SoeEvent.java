@@ -0,0 +1,46 @@
+package com.mattschutz.scada.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Evento da sequência de eventos (SOE). O horário é capturado no ponto de
+ * detecção ou de comando, em microssegundos desde a época (SoeClock)
+ */
+@Entity
+@Table(name = "soe_event", indexes = {
+    @Index(name = "idx_soe_timestamp", columnList = "timestamp_micros"),
+    @Index(name = "idx_soe_equipment_timestamp", columnList = "equipment_id,timestamp_micros")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SoeEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+    
+    @Column(name = "timestamp_micros", nullable = false)
+    private Long timestampMicros;
+    
+    // Ordem de registro; desempata eventos no mesmo microssegundo
+    @Column(nullable = false)
+    private Long sequence;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private SoeEventType type;
+    
+    @Column(name = "equipment_id")
+    private String equipmentId;
+    
+    private String source;
+    
+    @Column(length = 500)
+    private String detail;
+    
+    private Double value;
+}
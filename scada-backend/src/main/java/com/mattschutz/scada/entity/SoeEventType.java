@@ -0,0 +1,22 @@
+package com.mattschutz.scada.entity;
+
+public enum SoeEventType {
+    ALARM_RAISED("Alarme ativado"),
+    ALARM_CLEARED("Alarme normalizado"),
+    COMMAND_START("Comando de partida"),
+    COMMAND_STOP("Comando de parada"),
+    COMMAND_SETPOINT("Comando de setpoint"),
+    COMMAND_REJECTED("Comando rejeitado"),
+    EMERGENCY_STOP("Parada de emergência"),
+    STATE_CHANGE("Mudança de estado");
+    
+    private final String description;
+    
+    SoeEventType(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,116 @@
+package com.mattschutz.scada.inrush;
+
+import com.mattschutz.scada.entity.InrushEvent;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffer circular sem lock para os registros de inrush, no mesmo esquema do
+ * buffer do SOE: vários produtores (threads de comando) e um único
+ * consumidor (a gravação no banco). O número de sequência de cada célula
+ * indica se está livre para o produtor da posição ou pronta para o
+ * consumidor; o produtor só disputa a posição com um CAS e nunca espera.
+ * Células pré-alocadas e reaproveitadas; buffer cheio recusa o registro novo.
+ */
+final class InrushBuffer {
+
+    private static final class Cell {
+        volatile long sequence;
+        long timestampMillis;
+        String equipmentId;
+        String equipmentName;
+        double inrushCurrent;
+        double nominalCurrent;
+        double inrushFactor;
+        boolean alarm;
+    }
+
+    private final Cell[] cells;
+    private final int mask;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    // Escrita só pelo consumidor
+    private volatile long dequeuePosition;
+
+    InrushBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        cells = new Cell[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            cells[i] = new Cell();
+            cells[i].sequence = i;
+        }
+    }
+
+    int capacity() {
+        return cells.length;
+    }
+
+    /**
+     * Registra uma partida. Retorna false se o buffer está cheio
+     */
+    boolean offer(long timestampMillis, String equipmentId, String equipmentName, double inrushCurrent,
+                  double nominalCurrent, double inrushFactor, boolean alarm) {
+        long position = enqueuePosition.get();
+        while (true) {
+            Cell cell = cells[(int) (position & mask)];
+            long difference = cell.sequence - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    cell.timestampMillis = timestampMillis;
+                    cell.equipmentId = equipmentId;
+                    cell.equipmentName = equipmentName;
+                    cell.inrushCurrent = inrushCurrent;
+                    cell.nominalCurrent = nominalCurrent;
+                    cell.inrushFactor = inrushFactor;
+                    cell.alarm = alarm;
+                    // Publica a célula para o consumidor
+                    cell.sequence = position + 1;
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Move até max registros publicados para target, na ordem de registro. Só o consumidor chama
+     */
+    int drain(List<InrushEvent> target, int max) {
+        int drained = 0;
+        long position = dequeuePosition;
+        while (drained < max) {
+            Cell cell = cells[(int) (position & mask)];
+            if (cell.sequence != position + 1) {
+                // Vazio, ou produtor ainda preenchendo a célula
+                break;
+            }
+            InrushEvent event = new InrushEvent();
+            event.setTimestampMillis(cell.timestampMillis);
+            event.setEquipmentId(cell.equipmentId);
+            event.setEquipmentName(cell.equipmentName);
+            event.setInrushCurrent(cell.inrushCurrent);
+            event.setNominalCurrent(cell.nominalCurrent);
+            event.setInrushFactor(cell.inrushFactor);
+            event.setAlarm(cell.alarm);
+            target.add(event);
+
+            cell.equipmentId = null;
+            cell.equipmentName = null;
+            // Libera a célula para a próxima volta do buffer
+            cell.sequence = position + cells.length;
+            position++;
+            drained++;
+        }
+        dequeuePosition = position;
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, enqueuePosition.get() - dequeuePosition);
+    }
+}
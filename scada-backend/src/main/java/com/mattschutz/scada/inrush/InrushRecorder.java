@@ -0,0 +1,265 @@
+package com.mattschutz.scada.inrush;
+
+import com.mattschutz.scada.dto.InrushLogDTO;
+import com.mattschutz.scada.dto.InrushLogPageDTO;
+import com.mattschutz.scada.entity.InrushEvent;
+import com.mattschutz.scada.repository.InrushEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registro das correntes de inrush das partidas.
+ *
+ * A partida registra em um buffer circular sem lock ({@link InrushBuffer}),
+ * sem I/O; a gravação na tabela inrush_event roda periodicamente
+ * (inrush.flush-interval) ou quando o buffer passa da metade. As consultas
+ * descarregam o buffer antes, para incluir as partidas mais recentes, e
+ * filtram por equipamento, período e fator de inrush mínimo, paginadas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InrushRecorder {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "timestampMillis");
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final InrushEventRepository inrushEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService blockingExecutor;
+
+    @Value("${inrush.buffer.capacity:4096}")
+    private int capacity;
+
+    @Value("${inrush.flush.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${inrush.retention-days:365}")
+    private int retentionDays;
+
+    private InrushBuffer buffer;
+
+    // Único consumidor do buffer; mantido durante a gravação, nunca pelos produtores
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // Lote que falhou ao gravar; tentado de novo na próxima descarga (sob flushLock)
+    private List<InrushEvent> unsaved = List.of();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private volatile LocalDateTime lastFlushAt;
+    private volatile long maxFlushMicros;
+
+    @PostConstruct
+    public void init() {
+        buffer = new InrushBuffer(capacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    /**
+     * Registra a corrente de inrush de uma partida. Não bloqueia; retorna false se o buffer está cheio
+     */
+    public boolean record(long timestampMillis, String equipmentId, String equipmentName, double inrushCurrent,
+                          double nominalCurrent, double inrushFactor, boolean alarm) {
+        if (!buffer.offer(timestampMillis, equipmentId, equipmentName, inrushCurrent, nominalCurrent,
+                inrushFactor, alarm)) {
+            dropped.increment();
+            requestFlush();
+            return false;
+        }
+        recorded.increment();
+        if (buffer.size() >= buffer.capacity() / 2) {
+            requestFlush();
+        }
+        log.info("Log de inrush registrado: {} - {}A ({}x)", equipmentName,
+            String.format("%.1f", inrushCurrent), String.format("%.1f", inrushFactor));
+        return true;
+    }
+
+    private void requestFlush() {
+        if (!flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            blockingExecutor.execute(() -> {
+                try {
+                    flush();
+                } catch (Exception e) {
+                    log.error("Erro na gravação dos registros de inrush: {}", e.getMessage());
+                } finally {
+                    flushRequested.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            flushRequested.set(false);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inrush.flush-interval:1000}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Erro na gravação dos registros de inrush: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Grava no banco os registros do buffer. Retorna quantos foram gravados
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            long start = System.nanoTime();
+            int total = 0;
+            if (!unsaved.isEmpty()) {
+                if (!persist(unsaved)) {
+                    return 0;
+                }
+                total += unsaved.size();
+                unsaved = List.of();
+            }
+            List<InrushEvent> batch = new ArrayList<>(batchSize);
+            while (buffer.drain(batch, batchSize) > 0) {
+                if (!persist(batch)) {
+                    unsaved = batch;
+                    break;
+                }
+                total += batch.size();
+                batch = new ArrayList<>(batchSize);
+            }
+            if (total > 0) {
+                lastFlushAt = LocalDateTime.now();
+                maxFlushMicros = Math.max(maxFlushMicros, (System.nanoTime() - start) / 1_000);
+                flushed.add(total);
+            }
+            return total;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean persist(List<InrushEvent> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> inrushEventRepository.saveAll(batch));
+            return true;
+        } catch (Exception e) {
+            flushFailures.increment();
+            // Ids atribuídos na transação desfeita não foram gravados
+            batch.forEach(event -> event.setId(null));
+            log.error("Erro ao gravar {} registros de inrush: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Registros mais recentes, em ordem cronológica
+     */
+    public List<InrushLogDTO> recent(int limit) {
+        flush();
+        List<InrushLogDTO> logs = new ArrayList<>(inrushEventRepository
+            .search(0, Long.MAX_VALUE, null, null, PageRequest.of(0, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)), NEWEST_FIRST))
+            .map(InrushRecorder::toDTO)
+            .getContent());
+        Collections.reverse(logs);
+        return logs;
+    }
+
+    /**
+     * Consulta paginada, mais recentes primeiro. Filtros nulos não restringem
+     */
+    public InrushLogPageDTO search(String equipmentId, LocalDateTime start, LocalDateTime end,
+                                   Double minFactor, int page, int size) {
+        if (start != null && end != null && end.isBefore(start)) {
+            throw new IllegalArgumentException("Período inválido");
+        }
+        if (page < 0 || size < 1) {
+            throw new IllegalArgumentException("Página inválida");
+        }
+        flush();
+        long startMillis = start != null ? toMillis(start) : 0;
+        long endMillis = end != null ? toMillis(end) : Long.MAX_VALUE;
+        Page<InrushEvent> result = inrushEventRepository.search(startMillis, endMillis, equipmentId, minFactor,
+            PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE), NEWEST_FIRST));
+        return InrushLogPageDTO.builder()
+            .page(result.getNumber())
+            .size(result.getSize())
+            .totalElements(result.getTotalElements())
+            .totalPages(result.getTotalPages())
+            .items(result.map(InrushRecorder::toDTO).getContent())
+            .build();
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static InrushLogDTO toDTO(InrushEvent event) {
+        return InrushLogDTO.builder()
+            .timestamp(event.getTimestampMillis())
+            .equipmentId(event.getEquipmentId())
+            .equipmentName(event.getEquipmentName())
+            .inrushCurrent(event.getInrushCurrent())
+            .nominalCurrent(event.getNominalCurrent())
+            .inrushFactor(event.getInrushFactor())
+            .alarm(event.getAlarm())
+            .build();
+    }
+
+    /**
+     * Remove registros mais antigos que inrush.retention-days
+     */
+    @Scheduled(cron = "${inrush.retention-cron:0 40 0 * * *}")
+    public void purge() {
+        long cutoff = toMillis(LocalDateTime.now().minusDays(retentionDays));
+        try {
+            Integer removed = transactionTemplate.execute(status -> inrushEventRepository.deleteOlderThan(cutoff));
+            if (removed != null && removed > 0) {
+                log.info("Registros de inrush removidos por retenção: {}", removed);
+            }
+        } catch (Exception e) {
+            log.error("Erro na limpeza dos registros de inrush: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", buffer.capacity());
+        stats.put("buffered", buffer.size());
+        stats.put("recorded", recorded.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("flushed", flushed.sum());
+        stats.put("flushFailures", flushFailures.sum());
+        stats.put("lastFlushAt", lastFlushAt);
+        stats.put("maxFlushMillis", maxFlushMicros / 1_000.0);
+        return stats;
+    }
+}
@@ -0,0 +1,209 @@
+package com.mattschutz.scada.modbus;
+
+import com.mattschutz.scada.entity.ScanGroup;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Estado de comunicação de um escravo:
+ * - janela de requisições simultâneas (transaction ids pendentes na mesma
+ *   conexão TCP); com maxInFlight = 1 as leituras em bloco são sequenciais
+ * - backoff exponencial após falha, durante o qual as leituras falham
+ *   imediatamente sem ocupar a conexão
+ * - no máximo uma varredura em andamento por dispositivo e grupo de varredura
+ * - fila por prioridade: quando a janela está cheia, blocos de grupos mais
+ *   prioritários (ex.: FAST) são enviados antes dos já enfileirados de grupos lentos
+ *
+ * Um dispositivo lento ou sem resposta afeta apenas a sua própria janela.
+ */
+final class DeviceChannel {
+
+    private final int maxInFlight;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private final ArrayDeque<Runnable>[] pending;
+    private int inFlight;
+    private int queued;
+
+    private final AtomicInteger pollingGroups = new AtomicInteger();
+    // Estado de falha/backoff: escrito só sob o monitor do canal (grupos do mesmo dispositivo terminam em paralelo)
+    private volatile long backoffUntilNanos;
+    private long currentBackoffNanos;
+    private volatile int consecutiveFailures;
+
+    private volatile long lastPollMillis;
+    private volatile long lastDurationMicros;
+    private final LongAdder successCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder skippedBusy = new LongAdder();
+    private final LongAdder skippedBackoff = new LongAdder();
+    private volatile String lastError;
+
+    @SuppressWarnings("unchecked")
+    DeviceChannel(int maxInFlight, long initialBackoffMillis, long maxBackoffMillis) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(initialBackoffMillis);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis);
+        this.pending = new ArrayDeque[ScanGroup.values().length];
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = new ArrayDeque<>();
+        }
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Tenta iniciar uma varredura do grupo. Retorna null se permitido, ou a exceção
+     * que descreve o motivo da recusa (backoff ou varredura anterior do grupo pendente)
+     */
+    DeviceUnavailableException tryBeginPoll(ScanGroup group) {
+        if (consecutiveFailures > 0 && System.nanoTime() < backoffUntilNanos) {
+            skippedBackoff.increment();
+            return new DeviceUnavailableException("Dispositivo em backoff após " + consecutiveFailures + " falha(s)");
+        }
+        int bit = 1 << group.ordinal();
+        int current;
+        do {
+            current = pollingGroups.get();
+            if ((current & bit) != 0) {
+                skippedBusy.increment();
+                return new DeviceUnavailableException("Varredura anterior do grupo " + group + " ainda em andamento");
+            }
+        } while (!pollingGroups.compareAndSet(current, current | bit));
+        return null;
+    }
+
+    /**
+     * Finaliza a varredura. Retorna true se o dispositivo acabou de entrar em falha
+     * ou de se recuperar (para registrar a transição uma única vez)
+     */
+    boolean endPoll(ScanGroup group, long durationMicros, String error) {
+        int bit = 1 << group.ordinal();
+        pollingGroups.updateAndGet(current -> current & ~bit);
+        lastPollMillis = System.currentTimeMillis();
+        lastDurationMicros = durationMicros;
+
+        if (error == null) {
+            successCount.increment();
+            synchronized (this) {
+                boolean recovered = consecutiveFailures > 0;
+                consecutiveFailures = 0;
+                currentBackoffNanos = 0;
+                return recovered;
+            }
+        }
+
+        failureCount.increment();
+        lastError = error;
+        synchronized (this) {
+            consecutiveFailures++;
+            currentBackoffNanos = currentBackoffNanos == 0
+                ? initialBackoffNanos
+                : Math.min(maxBackoffNanos, currentBackoffNanos * 2);
+            backoffUntilNanos = System.nanoTime() + currentBackoffNanos;
+            return consecutiveFailures == 1;
+        }
+    }
+
+    /**
+     * Envia a requisição se houver espaço na janela; caso contrário enfileira
+     * na fila da prioridade do grupo
+     */
+    <T> CompletableFuture<T> submit(ScanGroup group, Supplier<CompletableFuture<T>> send) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            CompletableFuture<T> future;
+            try {
+                future = send.get();
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+
+        boolean runNow;
+        synchronized (this) {
+            if (inFlight < maxInFlight) {
+                inFlight++;
+                runNow = true;
+            } else {
+                pending[group.getPriority()].add(task);
+                queued++;
+                runNow = false;
+            }
+        }
+        if (runNow) {
+            task.run();
+        }
+        return result;
+    }
+
+    private void release() {
+        Runnable next = null;
+        synchronized (this) {
+            for (int i = 0; i < pending.length && next == null; i++) {
+                next = pending[i].poll();
+            }
+            if (next == null) {
+                inFlight--;
+            } else {
+                queued--;
+            }
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
+
+    Map<String, Object> toMap() {
+        int currentInFlight;
+        int currentQueued;
+        synchronized (this) {
+            currentInFlight = inFlight;
+            currentQueued = queued;
+        }
+        long backoffRemaining = Math.max(0, backoffUntilNanos - System.nanoTime());
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("state", consecutiveFailures == 0 ? "OK" : backoffRemaining > 0 ? "BACKOFF" : "RETRY");
+        map.put("maxInFlight", maxInFlight);
+        map.put("inFlight", currentInFlight);
+        map.put("queued", currentQueued);
+        map.put("lastPoll", lastPollMillis);
+        map.put("lastDurationMicros", lastDurationMicros);
+        map.put("successCount", successCount.sum());
+        map.put("failureCount", failureCount.sum());
+        map.put("consecutiveFailures", consecutiveFailures);
+        map.put("backoffRemainingMillis", TimeUnit.NANOSECONDS.toMillis(consecutiveFailures > 0 ? backoffRemaining : 0));
+        map.put("skippedBusy", skippedBusy.sum());
+        map.put("skippedBackoff", skippedBackoff.sum());
+        map.put("lastError", lastError);
+        return map;
+    }
+
+    /**
+     * Leitura recusada sem acesso à rede
+     */
+    static final class DeviceUnavailableException extends RuntimeException {
+        DeviceUnavailableException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
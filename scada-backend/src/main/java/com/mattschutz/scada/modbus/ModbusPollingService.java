@@ -0,0 +1,594 @@
+package com.mattschutz.scada.modbus;
+
+import com.digitalpetri.modbus.master.ModbusTcpMaster;
+import com.digitalpetri.modbus.master.ModbusTcpMasterConfig;
+import com.digitalpetri.modbus.requests.ModbusRequest;
+import com.digitalpetri.modbus.requests.ReadHoldingRegistersRequest;
+import com.digitalpetri.modbus.requests.ReadInputRegistersRequest;
+import com.digitalpetri.modbus.responses.ModbusResponse;
+import com.digitalpetri.modbus.responses.ReadHoldingRegistersResponse;
+import com.digitalpetri.modbus.responses.ReadInputRegistersResponse;
+import com.mattschutz.scada.entity.*;
+import com.mattschutz.scada.repository.EquipmentRepository;
+import com.mattschutz.scada.repository.HistoricalDataRepository;
+import com.mattschutz.scada.repository.ModbusDeviceRepository;
+import com.mattschutz.scada.repository.ModbusTagRepository;
+import com.mattschutz.scada.service.LiveValueService;
+import com.mattschutz.scada.service.OptimisticRetry;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Aquisição Modbus TCP: lê os registradores mapeados em {@link ModbusTag},
+ * atualiza a tabela de valores ao vivo, os equipamentos e o histórico
+ * (source = "modbus").
+ *
+ * Os tags de cada escravo são agrupados em blocos pelo {@link RegisterBlockPlanner};
+ * os escravos são lidos em paralelo (I/O assíncrono), com uma conexão TCP
+ * persistente por host:porta compartilhada entre unit ids atrás do mesmo gateway.
+ * Cada escravo tem sua própria janela de requisições pendentes e backoff de
+ * reconexão ({@link DeviceChannel}), de modo que um dispositivo morto não
+ * atrasa a varredura dos demais.
+ *
+ * Os tags são separados por {@link ScanGroup}: há um plano de leitura por
+ * (escravo, grupo), disparado pelo {@link ScanScheduler} no período do grupo.
+ * Os valores vão para a tabela ao vivo imediatamente; a gravação no banco é
+ * feita em lote a cada modbus.persist-interval, no executor de tarefas
+ * bloqueantes (virtual threads quando habilitadas).
+ *
+ * As leituras em si não ocupam threads: o cliente Modbus é assíncrono (Netty)
+ * e os callbacks rodam no event loop, por isso nenhum lock bloqueante é
+ * mantido no caminho de leitura.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ModbusPollingService {
+
+    private final ModbusDeviceRepository deviceRepository;
+    private final ModbusTagRepository tagRepository;
+    private final EquipmentRepository equipmentRepository;
+    private final HistoricalDataRepository historicalDataRepository;
+    private final LiveValueService liveValueService;
+    private final TransactionTemplate transactionTemplate;
+    private final OptimisticRetry optimisticRetry;
+    private final ExecutorService blockingExecutor;
+
+    @Value("${modbus.enabled:true}")
+    private boolean enabled;
+
+    @Value("${modbus.host:localhost}")
+    private String defaultHost;
+
+    @Value("${modbus.port:502}")
+    private int defaultPort;
+
+    @Value("${modbus.timeout:5000}")
+    private long timeoutMillis;
+
+    @Value("${modbus.max-register-gap:8}")
+    private int maxRegisterGap;
+
+    @Value("${modbus.history-interval:3000}")
+    private long historyIntervalMillis;
+
+    @Value("${modbus.reconnect.initial-backoff:500}")
+    private long initialBackoffMillis;
+
+    @Value("${modbus.reconnect.max-backoff:30000}")
+    private long maxBackoffMillis;
+
+    private volatile List<DevicePlan> plans = List.of();
+    private volatile Map<ScanGroup, List<DevicePlan>> plansByGroup = Map.of();
+    private final Map<String, ModbusTcpMaster> masters = new ConcurrentHashMap<>();
+    private final Map<String, DeviceChannel> channels = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastHistoryWrite = new ConcurrentHashMap<>();
+    private final Set<String> pendingEquipment = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    // ReentrantLock em vez de synchronized: a recarga consulta o banco e não deve fixar (pin) uma virtual thread
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private final SampleSink liveSink = (tag, value, timestampMillis) -> {
+        liveValueService.update(tag.getEquipmentId(), tag.getField(), value, timestampMillis);
+        pendingEquipment.add(tag.getEquipmentId());
+    };
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            reloadConfiguration();
+        }
+    }
+
+    /**
+     * Recarrega dispositivos e tags do banco e recalcula os blocos de leitura
+     */
+    public void reloadConfiguration() {
+        reloadLock.lock();
+        try {
+            doReloadConfiguration();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void doReloadConfiguration() {
+        List<ModbusTag> tags = transactionTemplate.execute(status -> tagRepository.findAllEnabled());
+
+        Map<String, ModbusDevice> devices = new LinkedHashMap<>();
+        Map<String, Map<ScanGroup, List<PolledTag>>> tagsByDevice = new HashMap<>();
+        for (ModbusTag tag : tags) {
+            ScanGroup group = tag.getScanGroup() != null ? tag.getScanGroup() : ScanGroup.NORMAL;
+            devices.putIfAbsent(tag.getDevice().getId(), tag.getDevice());
+            tagsByDevice.computeIfAbsent(tag.getDevice().getId(), id -> new EnumMap<>(ScanGroup.class))
+                .computeIfAbsent(group, g -> new ArrayList<>())
+                .add(PolledTag.of(tag));
+        }
+
+        List<DevicePlan> newPlans = new ArrayList<>();
+        Map<ScanGroup, List<DevicePlan>> newPlansByGroup = new EnumMap<>(ScanGroup.class);
+        int blockCount = 0;
+        for (ModbusDevice device : devices.values()) {
+            for (Map.Entry<ScanGroup, List<PolledTag>> entry : tagsByDevice.get(device.getId()).entrySet()) {
+                List<PolledTag> groupTags = entry.getValue();
+                List<RegisterBlock> blocks = RegisterBlockPlanner.plan(groupTags, maxRegisterGap);
+                blockCount += blocks.size();
+                DevicePlan plan = new DevicePlan(
+                    device.getId(),
+                    device.getName(),
+                    entry.getKey(),
+                    device.getHost() != null ? device.getHost() : defaultHost,
+                    device.getPort() != null ? device.getPort() : defaultPort,
+                    device.getUnitId(),
+                    device.getMaxInFlight() != null ? device.getMaxInFlight() : 1,
+                    groupTags.size(),
+                    blocks
+                );
+                newPlans.add(plan);
+                newPlansByGroup.computeIfAbsent(entry.getKey(), g -> new ArrayList<>()).add(plan);
+            }
+        }
+
+        // Janela alterada: recria o canal do dispositivo
+        for (DevicePlan plan : newPlans) {
+            channels.computeIfPresent(plan.getDeviceId(),
+                (id, channel) -> channel.getMaxInFlight() == plan.getMaxInFlight() ? channel : null);
+        }
+
+        plans = newPlans;
+        plansByGroup = newPlansByGroup;
+        closeUnusedConnections();
+        log.info("Configuração Modbus carregada: {} dispositivos, {} tags, {} blocos de leitura, grupos {}",
+            devices.size(), tags.size(), blockCount, newPlansByGroup.keySet());
+    }
+
+    /**
+     * Ciclo de varredura de um grupo: lê em paralelo os escravos com tags no grupo
+     * (todos, ou apenas deviceId se informado). Não bloqueia; completa quando
+     * todas as leituras terminam
+     */
+    public CompletableFuture<CycleResult> pollGroup(ScanGroup group, String deviceId) {
+        List<DevicePlan> groupPlans = plansByGroup.getOrDefault(group, List.of());
+        if (!enabled || groupPlans.isEmpty()) {
+            return CompletableFuture.completedFuture(new CycleResult(0, 0, 0));
+        }
+
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        List<CompletableFuture<Long>> futures = new ArrayList<>(groupPlans.size());
+        for (DevicePlan plan : groupPlans) {
+            if (deviceId != null && !deviceId.equals(plan.getDeviceId())) {
+                continue;
+            }
+            futures.add(pollDevice(plan, liveSink).whenComplete((ignored, error) -> {
+                if (error == null) {
+                    return;
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                if (cause instanceof DeviceChannel.DeviceUnavailableException) {
+                    skipped.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            }));
+        }
+
+        int devices = futures.size();
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .handle((ignored, error) -> new CycleResult(devices, failed.get(), skipped.get()));
+    }
+
+    /**
+     * Grava no banco os equipamentos com valores novos desde a última gravação.
+     * A gravação roda no executor bloqueante para não ocupar a thread de agendamento;
+     * se a gravação anterior ainda não terminou, os equipamentos ficam para o próximo ciclo
+     */
+    @Scheduled(fixedRateString = "${modbus.persist-interval:1000}")
+    public void flushPending() {
+        if (pendingEquipment.isEmpty() || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        Set<String> equipmentIds = new HashSet<>(pendingEquipment);
+        pendingEquipment.removeAll(equipmentIds);
+        try {
+            blockingExecutor.execute(() -> {
+                try {
+                    persist(equipmentIds);
+                } finally {
+                    flushing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingEquipment.addAll(equipmentIds);
+            flushing.set(false);
+        }
+    }
+
+    /**
+     * Lê todos os blocos de um escravo. Até maxInFlight blocos ficam pendentes
+     * ao mesmo tempo na conexão; a primeira falha cancela os blocos ainda na fila.
+     * Completa com a duração da leitura em microssegundos
+     */
+    public CompletableFuture<Long> pollDevice(DevicePlan plan, SampleSink sink) {
+        DeviceChannel channel = channels.computeIfAbsent(plan.getDeviceId(),
+            id -> new DeviceChannel(plan.getMaxInFlight(), initialBackoffMillis, maxBackoffMillis));
+
+        ScanGroup group = plan.getScanGroup();
+        DeviceChannel.DeviceUnavailableException refused = channel.tryBeginPoll(group);
+        if (refused != null) {
+            return CompletableFuture.failedFuture(refused);
+        }
+
+        ModbusTcpMaster master = masters.computeIfAbsent(plan.getEndpoint(), endpoint -> createMaster(plan));
+        long startNanos = System.nanoTime();
+        AtomicBoolean aborted = new AtomicBoolean();
+
+        List<CompletableFuture<Void>> reads = new ArrayList<>(plan.getBlocks().size());
+        for (RegisterBlock block : plan.getBlocks()) {
+            reads.add(channel.submit(group, () -> {
+                if (aborted.get()) {
+                    return CompletableFuture.failedFuture(new CancellationException("Leitura cancelada após falha"));
+                }
+                return readBlock(master, plan.getUnitId(), block, sink)
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            aborted.set(true);
+                        }
+                    });
+            }));
+        }
+
+        return CompletableFuture.allOf(reads.toArray(new CompletableFuture[0]))
+            .handle((ignored, error) -> {
+                long elapsedMicros = (System.nanoTime() - startNanos) / 1_000;
+                Throwable cause = error != null ? firstFailure(reads) : null;
+                if (channel.endPoll(group, elapsedMicros, cause != null ? rootMessage(cause) : null)) {
+                    if (cause != null) {
+                        log.warn("Falha na leitura Modbus de {} ({}, unit {}): {}",
+                            plan.getName(), plan.getEndpoint(), plan.getUnitId(), rootMessage(cause));
+                    } else {
+                        log.info("Comunicação Modbus restabelecida com {} ({}, unit {})",
+                            plan.getName(), plan.getEndpoint(), plan.getUnitId());
+                    }
+                }
+                if (cause != null) {
+                    throw new CompletionException(cause);
+                }
+                return elapsedMicros;
+            });
+    }
+
+    /**
+     * Primeira falha real entre as leituras (ignora os cancelamentos em cascata)
+     */
+    private static Throwable firstFailure(List<CompletableFuture<Void>> reads) {
+        Throwable first = null;
+        for (CompletableFuture<Void> read : reads) {
+            if (!read.isCompletedExceptionally()) {
+                continue;
+            }
+            try {
+                read.join();
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (!(cause instanceof CancellationException)) {
+                    return cause;
+                }
+                if (first == null) {
+                    first = cause;
+                }
+            }
+        }
+        return first;
+    }
+
+    private CompletableFuture<Void> readBlock(
+            ModbusTcpMaster master,
+            int unitId,
+            RegisterBlock block,
+            SampleSink sink) {
+
+        ModbusRequest request = block.getRegisterType() == ModbusRegisterType.HOLDING
+            ? new ReadHoldingRegistersRequest(block.getStart(), block.getQuantity())
+            : new ReadInputRegistersRequest(block.getStart(), block.getQuantity());
+
+        return master.<ModbusResponse>sendRequest(request, unitId).thenAccept(response -> {
+            try {
+                int[] registers = toRegisters(response, block.getQuantity());
+                long now = System.currentTimeMillis();
+                for (PolledTag tag : block.getTags()) {
+                    sink.accept(tag, tag.decode(registers, block.getStart()), now);
+                }
+            } finally {
+                ReferenceCountUtil.release(response);
+            }
+        });
+    }
+
+    private static int[] toRegisters(ModbusResponse response, int quantity) {
+        ByteBuf buffer;
+        if (response instanceof ReadHoldingRegistersResponse) {
+            buffer = ((ReadHoldingRegistersResponse) response).getRegisters();
+        } else if (response instanceof ReadInputRegistersResponse) {
+            buffer = ((ReadInputRegistersResponse) response).getRegisters();
+        } else {
+            throw new IllegalStateException("Resposta Modbus inesperada: " + response.getFunctionCode());
+        }
+
+        int[] registers = new int[quantity];
+        for (int i = 0; i < quantity; i++) {
+            registers[i] = buffer.getUnsignedShort(buffer.readerIndex() + i * 2);
+        }
+        return registers;
+    }
+
+    private void persist(Set<String> equipmentIds) {
+        try {
+            persistLiveValues(equipmentIds);
+        } catch (Exception e) {
+            log.error("Erro ao gravar valores Modbus: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Aplica os valores lidos nos equipamentos e grava o histórico em uma única transação.
+     * Em conflito de versão a transação é refeita: os valores vêm do snapshot, então repetir é seguro.
+     * Relança a falha (a gravação periódica só registra; EquipmentConcurrencyTest conta)
+     */
+    public void persistLiveValues(Set<String> equipmentIds) {
+        long now = System.currentTimeMillis();
+        List<String> recorded = optimisticRetry.execute("valores Modbus", () -> {
+            List<Equipment> equipmentList = equipmentRepository.findAllById(equipmentIds);
+            List<HistoricalData> history = new ArrayList<>();
+
+            for (Equipment equipment : equipmentList) {
+                Map<EquipmentField, Double> values = liveValueService.snapshot(equipment.getId());
+                values.forEach((field, value) -> field.apply(equipment, value));
+
+                Long lastWrite = lastHistoryWrite.get(equipment.getId());
+                if (lastWrite == null || now - lastWrite >= historyIntervalMillis) {
+                    HistoricalData data = new HistoricalData(equipment);
+                    data.setSource("modbus");
+                    history.add(data);
+                }
+            }
+
+            equipmentRepository.saveAll(equipmentList);
+            if (!history.isEmpty()) {
+                historicalDataRepository.saveAll(history);
+            }
+            return history.stream().map(data -> data.getEquipment().getId()).toList();
+        });
+        recorded.forEach(id -> lastHistoryWrite.put(id, now));
+    }
+
+    /**
+     * Descarta o estado de gravação de um equipamento removido
+     */
+    public void forgetEquipment(String equipmentId) {
+        pendingEquipment.remove(equipmentId);
+        lastHistoryWrite.remove(equipmentId);
+    }
+
+    /**
+     * Fecha conexões TCP e descarta canais que não pertencem a nenhum dispositivo configurado
+     */
+    public void closeUnusedConnections() {
+        Set<String> endpoints = new HashSet<>();
+        Set<String> deviceIds = new HashSet<>();
+        plans.forEach(plan -> {
+            endpoints.add(plan.getEndpoint());
+            deviceIds.add(plan.getDeviceId());
+        });
+        channels.keySet().retainAll(deviceIds);
+        masters.keySet().stream()
+            .filter(endpoint -> !endpoints.contains(endpoint))
+            .toList()
+            .forEach(endpoint -> {
+                ModbusTcpMaster master = masters.remove(endpoint);
+                if (master != null) {
+                    master.disconnect();
+                }
+            });
+    }
+
+    private ModbusTcpMaster createMaster(DevicePlan plan) {
+        ModbusTcpMasterConfig config = new ModbusTcpMasterConfig.Builder(plan.getHost())
+            .setPort(plan.getPort())
+            .setTimeout(Duration.ofMillis(timeoutMillis))
+            .build();
+        log.info("Criando conexão Modbus TCP para {}", plan.getEndpoint());
+        return new ModbusTcpMaster(config);
+    }
+
+    public List<ModbusDevice> findAllDevices() {
+        return deviceRepository.findAll();
+    }
+
+    public List<ModbusTag> findTagsByDevice(String deviceId) {
+        return tagRepository.findByDeviceId(deviceId);
+    }
+
+    /**
+     * Cadastra um escravo e recarrega a configuração de varredura
+     */
+    public ModbusDevice saveDevice(ModbusDevice device) {
+        ModbusDevice saved = deviceRepository.save(device);
+        log.info("Dispositivo Modbus salvo: {} (unit {})", saved.getName(), saved.getUnitId());
+        reloadConfiguration();
+        return saved;
+    }
+
+    /**
+     * Cadastra um tag (registrador -> grandeza do equipamento) e recarrega a configuração
+     */
+    public ModbusTag saveTag(String deviceId, String equipmentId, ModbusTag tag) {
+        ModbusTag saved = transactionTemplate.execute(status -> {
+            ModbusDevice device = deviceRepository.findById(deviceId)
+                .orElseThrow(() -> new IllegalArgumentException("Dispositivo Modbus não encontrado: " + deviceId));
+            Equipment equipment = equipmentRepository.findById(equipmentId)
+                .orElseThrow(() -> new IllegalArgumentException("Equipamento não encontrado: " + equipmentId));
+
+            if (tag.getField() == null || !tag.getField().appliesTo(equipment)) {
+                throw new IllegalArgumentException(
+                    "Grandeza " + tag.getField() + " não se aplica ao equipamento " + equipment.getName());
+            }
+            if (tag.getAddress() == null || tag.getAddress() < 0 || tag.getAddress() > 65535) {
+                throw new IllegalArgumentException("Endereço de registrador inválido: " + tag.getAddress());
+            }
+
+            tag.setDevice(device);
+            tag.setEquipment(equipment);
+            return tagRepository.save(tag);
+        });
+        reloadConfiguration();
+        return saved;
+    }
+
+    /**
+     * Altera o grupo de varredura de um tag
+     */
+    public ModbusTag assignTagScanGroup(String tagId, ScanGroup scanGroup) {
+        ModbusTag saved = transactionTemplate.execute(status -> {
+            ModbusTag tag = tagRepository.findById(tagId)
+                .orElseThrow(() -> new IllegalArgumentException("Tag Modbus não encontrado: " + tagId));
+            tag.setScanGroup(scanGroup);
+            return tagRepository.save(tag);
+        });
+        log.info("Tag Modbus {} movido para o grupo {}", tagId, scanGroup);
+        reloadConfiguration();
+        return saved;
+    }
+
+    /**
+     * Altera o grupo de varredura de todos os tags de um equipamento
+     */
+    public int assignEquipmentScanGroup(String equipmentId, ScanGroup scanGroup) {
+        Integer updated = transactionTemplate.execute(status -> {
+            if (!equipmentRepository.existsById(equipmentId)) {
+                throw new IllegalArgumentException("Equipamento não encontrado: " + equipmentId);
+            }
+            return tagRepository.updateScanGroupByEquipment(equipmentId, scanGroup);
+        });
+        log.info("{} tag(s) Modbus do equipamento {} movidos para o grupo {}", updated, equipmentId, scanGroup);
+        reloadConfiguration();
+        return updated != null ? updated : 0;
+    }
+
+    /**
+     * Retorna estatísticas de aquisição por dispositivo e grupo
+     */
+    public List<Map<String, Object>> getStatistics() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (DevicePlan plan : plans) {
+            DeviceChannel channel = channels.get(plan.getDeviceId());
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("deviceId", plan.getDeviceId());
+            entry.put("name", plan.getName());
+            entry.put("scanGroup", plan.getScanGroup());
+            entry.put("endpoint", plan.getEndpoint());
+            entry.put("unitId", plan.getUnitId());
+            entry.put("tags", plan.getTagCount());
+            entry.put("blocks", plan.getBlocks().size());
+            if (channel != null) {
+                entry.putAll(channel.toMap());
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    public List<DevicePlan> getPlans() {
+        return plans;
+    }
+
+    public List<DevicePlan> getPlans(ScanGroup group) {
+        return plansByGroup.getOrDefault(group, List.of());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        masters.values().forEach(ModbusTcpMaster::disconnect);
+        masters.clear();
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getClass().getSimpleName() + ": " + cause.getMessage();
+    }
+
+    /**
+     * Plano de leitura dos tags de um grupo de varredura em um escravo
+     */
+    @lombok.Value
+    public static class DevicePlan {
+        String deviceId;
+        String name;
+        ScanGroup scanGroup;
+        String host;
+        int port;
+        int unitId;
+        int maxInFlight;
+        int tagCount;
+        List<RegisterBlock> blocks;
+
+        public String getEndpoint() {
+            return host + ":" + port;
+        }
+    }
+
+    /**
+     * Resultado de um ciclo de varredura de grupo
+     */
+    @lombok.Value
+    public static class CycleResult {
+        int devices;
+        int failed;
+        int skipped;
+    }
+}
@@ -0,0 +1,48 @@
+package com.mattschutz.scada.modbus;
+
+import com.mattschutz.scada.entity.EquipmentField;
+import com.mattschutz.scada.entity.ModbusDataType;
+import com.mattschutz.scada.entity.ModbusRegisterType;
+import com.mattschutz.scada.entity.ModbusTag;
+import lombok.Value;
+
+/**
+ * Cópia imutável de um {@link ModbusTag} usada no ciclo de aquisição,
+ * sem referências a entidades JPA
+ */
+@Value
+public class PolledTag {
+    String tagId;
+    String equipmentId;
+    EquipmentField field;
+    ModbusRegisterType registerType;
+    int address;
+    ModbusDataType dataType;
+    double scale;
+    double offset;
+    
+    public static PolledTag of(ModbusTag tag) {
+        return new PolledTag(
+            tag.getId(),
+            tag.getEquipment().getId(),
+            tag.getField(),
+            tag.getRegisterType(),
+            tag.getAddress(),
+            tag.getDataType(),
+            tag.getScale() != null ? tag.getScale() : 1.0,
+            tag.getOffset() != null ? tag.getOffset() : 0.0
+        );
+    }
+    
+    public int getRegisterCount() {
+        return dataType.getRegisterCount();
+    }
+    
+    public int getEndAddress() {
+        return address + dataType.getRegisterCount();
+    }
+    
+    public double decode(int[] registers, int blockStart) {
+        return dataType.decode(registers, address - blockStart) * scale + offset;
+    }
+}
@@ -0,0 +1,17 @@
+package com.mattschutz.scada.modbus;
+
+import com.mattschutz.scada.entity.ModbusRegisterType;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Faixa contígua de registradores lida com uma única requisição (FC03/FC04)
+ */
+@Value
+public class RegisterBlock {
+    ModbusRegisterType registerType;
+    int start;
+    int quantity;
+    List<PolledTag> tags;
+}
@@ -0,0 +1,70 @@
+package com.mattschutz.scada.modbus;
+
+import com.mattschutz.scada.entity.ModbusRegisterType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agrupa os tags de um escravo no menor número de leituras em bloco.
+ * Registradores adjacentes (ou separados por até maxGap registradores não
+ * utilizados) são unidos, respeitando o limite de 125 registradores por
+ * requisição da especificação Modbus.
+ */
+public final class RegisterBlockPlanner {
+    
+    public static final int MAX_REGISTERS_PER_REQUEST = 125;
+    
+    private RegisterBlockPlanner() {
+    }
+    
+    public static List<RegisterBlock> plan(List<PolledTag> tags, int maxGap) {
+        return plan(tags, maxGap, MAX_REGISTERS_PER_REQUEST);
+    }
+    
+    public static List<RegisterBlock> plan(List<PolledTag> tags, int maxGap, int maxQuantity) {
+        Map<ModbusRegisterType, List<PolledTag>> byType = new EnumMap<>(ModbusRegisterType.class);
+        for (PolledTag tag : tags) {
+            byType.computeIfAbsent(tag.getRegisterType(), t -> new ArrayList<>()).add(tag);
+        }
+        
+        List<RegisterBlock> blocks = new ArrayList<>();
+        
+        for (Map.Entry<ModbusRegisterType, List<PolledTag>> entry : byType.entrySet()) {
+            List<PolledTag> sorted = new ArrayList<>(entry.getValue());
+            sorted.sort(Comparator.comparingInt(PolledTag::getAddress));
+            
+            int start = -1;
+            int end = -1; // exclusivo
+            List<PolledTag> current = new ArrayList<>();
+            
+            for (PolledTag tag : sorted) {
+                int tagEnd = tag.getEndAddress();
+                boolean fits = start >= 0
+                    && tag.getAddress() - end <= maxGap
+                    && Math.max(end, tagEnd) - start <= maxQuantity;
+                
+                if (!fits) {
+                    if (start >= 0) {
+                        blocks.add(new RegisterBlock(entry.getKey(), start, end - start, current));
+                    }
+                    start = tag.getAddress();
+                    end = tagEnd;
+                    current = new ArrayList<>();
+                } else {
+                    end = Math.max(end, tagEnd);
+                }
+                current.add(tag);
+            }
+            
+            if (start >= 0) {
+                blocks.add(new RegisterBlock(entry.getKey(), start, end - start, current));
+            }
+        }
+        
+        return blocks;
+    }
+}
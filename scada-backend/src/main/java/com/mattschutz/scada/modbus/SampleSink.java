@@ -0,0 +1,10 @@
+package com.mattschutz.scada.modbus;
+
+/**
+ * Destino dos valores decodificados em um ciclo de aquisição
+ */
+@FunctionalInterface
+public interface SampleSink {
+    
+    void accept(PolledTag tag, double value, long timestampMillis);
+}
@@ -0,0 +1,361 @@
+package com.mattschutz.scada.modbus;
+
+import com.mattschutz.scada.entity.ScanGroup;
+import com.mattschutz.scada.modbus.ModbusPollingService.CycleResult;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Escalonador dos grupos de varredura Modbus.
+ *
+ * Cada grupo periódico é disparado em taxa fixa no seu período. Se o ciclo
+ * anterior do grupo ainda não terminou no instante do próximo disparo, o
+ * disparo é pulado e contado como overrun (nunca há dois ciclos do mesmo grupo
+ * em paralelo). Por grupo são medidos tempo de ciclo, jitter de disparo
+ * (atraso em relação ao instante ideal) e overruns.
+ *
+ * Sob sobrecarga de um grupo (overrun ou tempo de ciclo acima de
+ * modbus.scan.load-threshold do período) o grupo descartável de menor
+ * prioridade abaixo dele é suspenso, um nível a cada modbus.scan.shed-hold.
+ * Após modbus.scan.recovery-time sem sobrecarga o último grupo suspenso volta
+ * a ser lido. O grupo FAST nunca é suspenso.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScanScheduler {
+
+    private final ModbusPollingService pollingService;
+
+    @Value("${modbus.enabled:true}")
+    private boolean enabled;
+
+    @Value("${modbus.scan.fast-period:100}")
+    private long fastPeriodMillis;
+
+    @Value("${modbus.scan.normal-period:${modbus.poll-interval:1000}}")
+    private long normalPeriodMillis;
+
+    @Value("${modbus.scan.slow-period:10000}")
+    private long slowPeriodMillis;
+
+    @Value("${modbus.scan.threads:2}")
+    private int threads;
+
+    @Value("${modbus.scan.load-threshold:0.8}")
+    private double loadThreshold;
+
+    @Value("${modbus.scan.shed-hold:5000}")
+    private long shedHoldMillis;
+
+    @Value("${modbus.scan.recovery-time:30000}")
+    private long recoveryTimeMillis;
+
+    private volatile Map<ScanGroup, GroupState> states = Map.of();
+    private ScheduledExecutorService executor;
+
+    // Grupos descartáveis com prioridade >= shedPriority estão suspensos
+    private volatile int shedPriority = Integer.MAX_VALUE;
+    private volatile long lastShedChangeNanos;
+    private volatile long lastOverloadNanos;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || executor != null) {
+            return;
+        }
+
+        Map<ScanGroup, GroupState> newStates = new EnumMap<>(ScanGroup.class);
+        for (ScanGroup group : ScanGroup.values()) {
+            newStates.put(group, new GroupState(group, TimeUnit.MILLISECONDS.toNanos(periodOf(group))));
+        }
+        states = newStates;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "modbus-scan-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long origin = System.nanoTime();
+        for (GroupState state : newStates.values()) {
+            if (state.periodNanos > 0) {
+                state.originNanos = origin;
+                executor.scheduleAtFixedRate(() -> tick(state), 0, state.periodNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        log.info("Escalonador Modbus iniciado: FAST {} ms, NORMAL {} ms, SLOW {} ms",
+            fastPeriodMillis, normalPeriodMillis, slowPeriodMillis);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private long periodOf(ScanGroup group) {
+        switch (group) {
+            case FAST: return fastPeriodMillis;
+            case NORMAL: return normalPeriodMillis;
+            case SLOW: return slowPeriodMillis;
+            default: return 0;
+        }
+    }
+
+    private void tick(GroupState state) {
+        try {
+            long now = System.nanoTime();
+            long expected = state.originNanos + state.ticks * state.periodNanos;
+            state.ticks++;
+            state.recordJitter(Math.max(0, now - expected));
+            maybeRecover(now);
+
+            if (isShed(state.group)) {
+                state.recordShed();
+                return;
+            }
+            if (pollingService.getPlans(state.group).isEmpty()) {
+                return;
+            }
+
+            CompletableFuture<CycleResult> previous = state.current;
+            if (previous != null && !previous.isDone()) {
+                if (state.recordOverrun() == 1) {
+                    log.warn("Overrun no grupo de varredura {}: ciclo anterior em andamento há {} ms (período {} ms)",
+                        state.group, TimeUnit.NANOSECONDS.toMillis(now - state.cycleStartNanos),
+                        TimeUnit.NANOSECONDS.toMillis(state.periodNanos));
+                }
+                onOverload(state.group, now);
+                return;
+            }
+
+            state.cycleStartNanos = now;
+            state.current = pollingService.pollGroup(state.group, null).whenComplete((result, error) -> {
+                long end = System.nanoTime();
+                long cycleNanos = end - now;
+                state.recordCycle(cycleNanos, result);
+                if (cycleNanos > loadThreshold * state.periodNanos) {
+                    onOverload(state.group, end);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Erro no ciclo do grupo de varredura {}: {}", state.group, e.getMessage());
+        }
+    }
+
+    /**
+     * Dispara imediatamente a leitura de um grupo (todos os escravos ou apenas deviceId).
+     * Grupos suspensos por sobrecarga também podem ser disparados manualmente
+     */
+    public CompletableFuture<CycleResult> trigger(ScanGroup group, String deviceId) {
+        GroupState state = states.get(group);
+        long start = System.nanoTime();
+        CompletableFuture<CycleResult> cycle = pollingService.pollGroup(group, deviceId);
+        if (state == null) {
+            return cycle;
+        }
+        state.recordTrigger();
+        return cycle.whenComplete((result, error) -> state.recordCycle(System.nanoTime() - start, result));
+    }
+
+    public boolean isShed(ScanGroup group) {
+        return group.isSheddable() && group.getPriority() >= shedPriority;
+    }
+
+    /**
+     * Suspende o grupo descartável ativo de menor prioridade abaixo do grupo sobrecarregado
+     */
+    private synchronized void onOverload(ScanGroup group, long nowNanos) {
+        lastOverloadNanos = nowNanos;
+        if (shedPriority != Integer.MAX_VALUE
+                && nowNanos - lastShedChangeNanos < TimeUnit.MILLISECONDS.toNanos(shedHoldMillis)) {
+            return;
+        }
+
+        ScanGroup victim = null;
+        for (ScanGroup candidate : ScanGroup.values()) {
+            if (candidate.isSheddable()
+                    && candidate.getPriority() > group.getPriority()
+                    && candidate.getPriority() < shedPriority
+                    && !pollingService.getPlans(candidate).isEmpty()
+                    && (victim == null || candidate.getPriority() > victim.getPriority())) {
+                victim = candidate;
+            }
+        }
+        if (victim == null) {
+            return;
+        }
+
+        shedPriority = victim.getPriority();
+        lastShedChangeNanos = nowNanos;
+        log.warn("Sobrecarga na aquisição Modbus (grupo {}): suspendendo a varredura do grupo {}", group, victim);
+    }
+
+    /**
+     * Retoma o grupo suspenso de maior prioridade após o tempo de recuperação sem sobrecarga
+     */
+    private void maybeRecover(long nowNanos) {
+        if (shedPriority == Integer.MAX_VALUE) {
+            return;
+        }
+        long recoveryNanos = TimeUnit.MILLISECONDS.toNanos(recoveryTimeMillis);
+        synchronized (this) {
+            if (shedPriority == Integer.MAX_VALUE
+                    || nowNanos - lastOverloadNanos < recoveryNanos
+                    || nowNanos - lastShedChangeNanos < recoveryNanos) {
+                return;
+            }
+
+            int next = Integer.MAX_VALUE;
+            List<ScanGroup> restored = new ArrayList<>();
+            for (ScanGroup group : ScanGroup.values()) {
+                if (!group.isSheddable() || group.getPriority() < shedPriority) {
+                    continue;
+                }
+                if (group.getPriority() == shedPriority) {
+                    restored.add(group);
+                } else {
+                    next = Math.min(next, group.getPriority());
+                }
+            }
+            shedPriority = next;
+            lastShedChangeNanos = nowNanos;
+            log.info("Carga da aquisição Modbus normalizada: varredura do grupo {} retomada", restored);
+        }
+    }
+
+    /**
+     * Métricas por grupo de varredura
+     */
+    public List<Map<String, Object>> getStatistics() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (GroupState state : states.values()) {
+            int plans = pollingService.getPlans(state.group).size();
+            String status;
+            if (plans == 0) {
+                status = "IDLE";
+            } else if (isShed(state.group)) {
+                status = "SHED";
+            } else {
+                status = state.periodNanos > 0 ? "ACTIVE" : "ON_DEMAND";
+            }
+            Map<String, Object> entry = state.toMap();
+            entry.put("state", status);
+            entry.put("plans", plans);
+            result.add(entry);
+        }
+        return result;
+    }
+
+    /**
+     * Estado e métricas de um grupo. Os disparos de um mesmo grupo são
+     * serializados pelo executor; as métricas de ciclo são registradas na
+     * thread de I/O que completa a leitura
+     */
+    private static final class GroupState {
+        final ScanGroup group;
+        final long periodNanos;
+        long originNanos;
+        long ticks;
+        volatile long cycleStartNanos;
+        volatile CompletableFuture<CycleResult> current;
+
+        private long cycles;
+        private long overruns;
+        private long consecutiveOverruns;
+        private long shedTicks;
+        private long triggers;
+        private long lastCycleNanos;
+        private long maxCycleNanos;
+        private long totalCycleNanos;
+        private long lastJitterNanos;
+        private long maxJitterNanos;
+        private long totalJitterNanos;
+        private long jitterSamples;
+        private long lastCycleAt;
+        private CycleResult lastResult;
+
+        GroupState(ScanGroup group, long periodNanos) {
+            this.group = group;
+            this.periodNanos = periodNanos;
+        }
+
+        synchronized void recordJitter(long jitterNanos) {
+            lastJitterNanos = jitterNanos;
+            maxJitterNanos = Math.max(maxJitterNanos, jitterNanos);
+            totalJitterNanos += jitterNanos;
+            jitterSamples++;
+        }
+
+        synchronized void recordCycle(long cycleNanos, CycleResult result) {
+            cycles++;
+            consecutiveOverruns = 0;
+            lastCycleNanos = cycleNanos;
+            maxCycleNanos = Math.max(maxCycleNanos, cycleNanos);
+            totalCycleNanos += cycleNanos;
+            lastCycleAt = System.currentTimeMillis();
+            lastResult = result;
+        }
+
+        /**
+         * Retorna o número de overruns consecutivos
+         */
+        synchronized long recordOverrun() {
+            overruns++;
+            return ++consecutiveOverruns;
+        }
+
+        synchronized void recordShed() {
+            shedTicks++;
+        }
+
+        synchronized void recordTrigger() {
+            triggers++;
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("group", group);
+            map.put("description", group.getDescription());
+            map.put("periodMillis", TimeUnit.NANOSECONDS.toMillis(periodNanos));
+            map.put("priority", group.getPriority());
+            map.put("sheddable", group.isSheddable());
+            map.put("cycles", cycles);
+            map.put("overruns", overruns);
+            map.put("shedCycles", shedTicks);
+            map.put("triggers", triggers);
+            map.put("lastCycleMicros", lastCycleNanos / 1_000);
+            map.put("avgCycleMicros", cycles > 0 ? totalCycleNanos / cycles / 1_000 : 0);
+            map.put("maxCycleMicros", maxCycleNanos / 1_000);
+            map.put("utilization", periodNanos > 0 ? (double) lastCycleNanos / periodNanos : 0.0);
+            map.put("lastJitterMicros", lastJitterNanos / 1_000);
+            map.put("avgJitterMicros", jitterSamples > 0 ? totalJitterNanos / jitterSamples / 1_000 : 0);
+            map.put("maxJitterMicros", maxJitterNanos / 1_000);
+            map.put("lastCycleAt", lastCycleAt);
+            map.put("lastDevices", lastResult != null ? lastResult.getDevices() : 0);
+            map.put("lastFailed", lastResult != null ? lastResult.getFailed() : 0);
+            map.put("lastSkipped", lastResult != null ? lastResult.getSkipped() : 0);
+            return map;
+        }
+    }
+}
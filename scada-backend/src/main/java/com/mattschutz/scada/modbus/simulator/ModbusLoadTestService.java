@@ -0,0 +1,276 @@
+package com.mattschutz.scada.modbus.simulator;
+
+import com.mattschutz.scada.config.VirtualThreads;
+import com.mattschutz.scada.dto.LoadTestRequest;
+import com.mattschutz.scada.dto.LoadTestResultDTO;
+import com.mattschutz.scada.entity.EquipmentField;
+import com.mattschutz.scada.entity.ModbusRegisterType;
+import com.mattschutz.scada.entity.ScanGroup;
+import com.mattschutz.scada.modbus.ModbusPollingService;
+import com.mattschutz.scada.modbus.ModbusPollingService.DevicePlan;
+import com.mattschutz.scada.modbus.PolledTag;
+import com.mattschutz.scada.modbus.RegisterBlock;
+import com.mattschutz.scada.modbus.RegisterBlockPlanner;
+import com.mattschutz.scada.modbus.SampleSink;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Teste de carga ponta a ponta da aquisição Modbus: sobe um simulador
+ * temporário com N estações, executa ciclos de varredura consecutivos pelo
+ * mesmo caminho de leitura do {@link ModbusPollingService} (sem gravação em
+ * banco) e mede vazão e latência por dispositivo.
+ *
+ * threadMode compara modelos de execução sobre o mesmo simulador:
+ * ASYNC - leituras assíncronas, sem thread por dispositivo (modo de produção)
+ * VIRTUAL - uma virtual thread por dispositivo, bloqueando até a resposta (Java 21+)
+ * PLATFORM - o mesmo código bloqueante em um pool fixo de threads de plataforma
+ *
+ * Disponível apenas com modbus.simulator.enabled=true (desligado por padrão).
+ */
+@Service
+@ConditionalOnProperty(name = "modbus.simulator.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ModbusLoadTestService {
+    
+    private static final EquipmentField[] FIELDS = EquipmentField.values();
+    
+    private final ModbusPollingService modbusPollingService;
+    
+    @Value("${modbus.simulator.load-test-port:15020}")
+    private int loadTestPort;
+    
+    @Value("${modbus.timeout:5000}")
+    private long timeoutMillis;
+    
+    @Value("${modbus.max-register-gap:8}")
+    private int maxRegisterGap;
+    
+    // Um teste por vez; ReentrantLock para não fixar a virtual thread da requisição durante o teste
+    private final ReentrantLock runLock = new ReentrantLock();
+    
+    public LoadTestResultDTO run(LoadTestRequest request) throws Exception {
+        runLock.lock();
+        try {
+            return doRun(request);
+        } finally {
+            runLock.unlock();
+        }
+    }
+    
+    private LoadTestResultDTO doRun(LoadTestRequest request) throws Exception {
+        int devices = Math.max(1, valueOr(request.getDevices(), 1000));
+        int registers = Math.max(1, Math.min(RegisterBlockPlanner.MAX_REGISTERS_PER_REQUEST * 4,
+            valueOr(request.getRegistersPerDevice(), 20)));
+        int durationSeconds = Math.max(1, valueOr(request.getDurationSeconds(), 10));
+        int maxInFlight = Math.max(1, valueOr(request.getMaxInFlight(), 1));
+        long durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        String threadMode = valueOr(request.getThreadMode(), "ASYNC").toUpperCase();
+        int platformThreads = Math.max(1, valueOr(request.getPlatformThreads(), 200));
+        ExecutorService executor = createExecutor(threadMode, platformThreads);
+        
+        log.info("Teste de carga Modbus: {} dispositivos x {} registradores por {} s (janela {}, modo {})",
+            devices, registers, durationSeconds, maxInFlight, threadMode);
+        
+        ModbusSlaveSimulator simulator = new ModbusSlaveSimulator("127.0.0.1", loadTestPort);
+        StationTemplates.populate(simulator, devices, registers);
+        simulator.setLatency(valueOr(request.getLatencyMillis(), 0L), valueOr(request.getJitterMillis(), 0L));
+        simulator.setErrorInjection(valueOr(request.getErrorRate(), 0.0), valueOr(request.getDropRate(), 0.0));
+        
+        List<DevicePlan> plans = buildPlans(simulator, devices, registers, maxInFlight);
+        LongAdder samples = new LongAdder();
+        SampleSink sink = (tag, value, timestampMillis) -> samples.increment();
+        
+        LatencyRecorder latencies = new LatencyRecorder();
+        long cycles = 0;
+        long failures = 0;
+        
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        long startNanos = System.nanoTime();
+        try {
+            simulator.start();
+            threadBean.resetPeakThreadCount();
+            startNanos = System.nanoTime();
+            while (System.nanoTime() - startNanos < durationNanos) {
+                List<CompletableFuture<Long>> futures = new ArrayList<>(plans.size());
+                for (DevicePlan plan : plans) {
+                    futures.add(executor == null
+                        ? modbusPollingService.pollDevice(plan, sink)
+                        : CompletableFuture.supplyAsync(() -> pollBlocking(plan, sink), executor));
+                }
+                
+                try {
+                    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                        .get(timeoutMillis * 2, TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    // Contabilizado abaixo como falha por dispositivo
+                }
+                
+                for (CompletableFuture<Long> future : futures) {
+                    if (future.isDone() && !future.isCompletedExceptionally()) {
+                        latencies.record(future.getNow(0L));
+                    } else {
+                        failures++;
+                    }
+                }
+                cycles++;
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            simulator.stop();
+            modbusPollingService.closeUnusedConnections();
+        }
+        
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        long polls = cycles * devices;
+        long successes = polls - failures;
+        
+        LoadTestResultDTO result = LoadTestResultDTO.builder()
+            .devices(devices)
+            .registersPerDevice(registers)
+            .blocksPerDevice(plans.get(0).getBlocks().size())
+            .maxInFlight(maxInFlight)
+            .threadMode(threadMode)
+            .executorThreads("PLATFORM".equals(threadMode) ? platformThreads : "VIRTUAL".equals(threadMode) ? devices : 0)
+            .peakPlatformThreads(threadBean.getPeakThreadCount())
+            .cycles(cycles)
+            .polls(polls)
+            .failures(failures)
+            .samples(samples.sum())
+            .elapsedSeconds(elapsedSeconds)
+            .pollsPerSecond(successes / elapsedSeconds)
+            .registersPerSecond(successes * (double) registers / elapsedSeconds)
+            .avgCycleMillis(cycles > 0 ? elapsedSeconds * 1000 / cycles : 0.0)
+            .latencyP50Micros(latencies.percentile(50))
+            .latencyP95Micros(latencies.percentile(95))
+            .latencyP99Micros(latencies.percentile(99))
+            .latencyMaxMicros(latencies.percentile(100))
+            .simulator(simulator.getStatistics())
+            .build();
+        
+        log.info("Teste de carga Modbus concluído: {} leituras/s, p99 {} µs, {} falhas",
+            String.format("%.0f", result.getPollsPerSecond()), result.getLatencyP99Micros(), failures);
+        return result;
+    }
+    
+    private static ExecutorService createExecutor(String threadMode, int platformThreads) {
+        switch (threadMode) {
+            case "ASYNC":
+                return null;
+            case "VIRTUAL":
+                ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+                if (executor == null) {
+                    throw new IllegalArgumentException(
+                        "Modo VIRTUAL requer Java 21 (JVM atual: " + Runtime.version() + ")");
+                }
+                return executor;
+            case "PLATFORM":
+                AtomicInteger threadCount = new AtomicInteger();
+                return Executors.newFixedThreadPool(platformThreads, runnable -> {
+                    Thread thread = new Thread(runnable, "modbus-loadtest-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            default:
+                throw new IllegalArgumentException("Modo de execução inválido: " + threadMode);
+        }
+    }
+    
+    /**
+     * Leitura no estilo thread por dispositivo: a thread fica bloqueada até a resposta
+     */
+    private long pollBlocking(DevicePlan plan, SampleSink sink) {
+        try {
+            return modbusPollingService.pollDevice(plan, sink).get(timeoutMillis * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+    
+    private List<DevicePlan> buildPlans(ModbusSlaveSimulator simulator, int devices, int registers, int maxInFlight) {
+        List<PolledTag> tags = new ArrayList<>(registers);
+        List<DevicePlan> plans = new ArrayList<>(devices);
+        
+        for (int station = 0; station < devices; station++) {
+            String equipmentId = "loadtest-" + station;
+            tags.clear();
+            for (SimulatedRegister register : StationTemplates.standard(registers)) {
+                tags.add(new PolledTag(
+                    equipmentId + ":" + register.getAddress(),
+                    equipmentId,
+                    FIELDS[register.getAddress() % FIELDS.length],
+                    ModbusRegisterType.HOLDING,
+                    register.getAddress(),
+                    register.getDataType(),
+                    register.getScale(),
+                    0.0
+                ));
+            }
+            List<RegisterBlock> blocks = RegisterBlockPlanner.plan(tags, maxRegisterGap);
+            plans.add(new DevicePlan(
+                equipmentId,
+                equipmentId,
+                ScanGroup.NORMAL,
+                "127.0.0.1",
+                simulator.portOf(station),
+                ModbusSlaveSimulator.unitIdOf(station),
+                maxInFlight,
+                registers,
+                blocks
+            ));
+        }
+        return plans;
+    }
+    
+    private static <T> T valueOr(T value, T defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+    
+    /**
+     * Acumulador de latências em array primitivo
+     */
+    static final class LatencyRecorder {
+        private long[] values = new long[1024];
+        private int size;
+        
+        void record(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+        
+        long percentile(int percent) {
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percent / 100.0 * size) - 1;
+            return sorted[Math.max(0, Math.min(size - 1, index))];
+        }
+    }
+}
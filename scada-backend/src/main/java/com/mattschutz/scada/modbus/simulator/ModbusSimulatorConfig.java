@@ -0,0 +1,33 @@
+package com.mattschutz.scada.modbus.simulator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sobe o simulador de escravos junto com a aplicação (modbus.simulator.enabled=true),
+ * para testes de longa duração contra dispositivos cadastrados em /api/modbus/devices
+ */
+@Configuration
+@ConditionalOnProperty(name = "modbus.simulator.enabled", havingValue = "true")
+public class ModbusSimulatorConfig {
+    
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ModbusSlaveSimulator modbusSlaveSimulator(
+            @Value("${modbus.simulator.host:0.0.0.0}") String host,
+            @Value("${modbus.simulator.port:5020}") int port,
+            @Value("${modbus.simulator.stations:10}") int stations,
+            @Value("${modbus.simulator.registers:60}") int registers,
+            @Value("${modbus.simulator.latency-ms:0}") long latencyMillis,
+            @Value("${modbus.simulator.jitter-ms:0}") long jitterMillis,
+            @Value("${modbus.simulator.error-rate:0.0}") double errorRate,
+            @Value("${modbus.simulator.drop-rate:0.0}") double dropRate) {
+        
+        ModbusSlaveSimulator simulator = new ModbusSlaveSimulator(host, port);
+        StationTemplates.populate(simulator, stations, registers);
+        simulator.setLatency(latencyMillis, jitterMillis);
+        simulator.setErrorInjection(errorRate, dropRate);
+        return simulator;
+    }
+}
@@ -0,0 +1,254 @@
+package com.mattschutz.scada.modbus.simulator;
+
+import com.digitalpetri.modbus.ExceptionCode;
+import com.digitalpetri.modbus.requests.ModbusRequest;
+import com.digitalpetri.modbus.requests.ReadHoldingRegistersRequest;
+import com.digitalpetri.modbus.requests.ReadInputRegistersRequest;
+import com.digitalpetri.modbus.responses.ModbusResponse;
+import com.digitalpetri.modbus.responses.ReadHoldingRegistersResponse;
+import com.digitalpetri.modbus.responses.ReadInputRegistersResponse;
+import com.digitalpetri.modbus.slave.ModbusTcpSlave;
+import com.digitalpetri.modbus.slave.ModbusTcpSlaveConfig;
+import com.digitalpetri.modbus.slave.ServiceRequestHandler;
+import com.mattschutz.scada.entity.ModbusRegisterType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Simulador de escravos Modbus TCP para testes de carga e de longa duração.
+ *
+ * Cada estação simulada é endereçada por (porta, unit id). Como o unit id tem
+ * 8 bits, as estações são distribuídas em várias portas a partir de basePort,
+ * com até {@link #UNITS_PER_PORT} unit ids por porta, o que permite hospedar
+ * milhares de estações em um único processo.
+ *
+ * Latência de resposta (fixa + jitter), respostas de exceção e requisições
+ * sem resposta (timeout no mestre) podem ser injetadas e alteradas em tempo
+ * de execução.
+ */
+@Slf4j
+public class ModbusSlaveSimulator {
+
+    public static final int UNITS_PER_PORT = 247;
+
+    private final String bindAddress;
+    private final int basePort;
+
+    private final Map<Integer, SimulatedUnit[]> unitsByPort = new ConcurrentHashMap<>();
+    private final Map<Integer, ModbusTcpSlave> slaves = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService delayExecutor;
+    // start() espera o bind das portas; ReentrantLock evita fixar (pin) uma virtual thread
+    private final ReentrantLock lifecycleLock = new ReentrantLock();
+
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double errorRate;
+    private volatile double dropRate;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder responses = new LongAdder();
+    private final LongAdder exceptions = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public ModbusSlaveSimulator(String bindAddress, int basePort) {
+        this.bindAddress = bindAddress;
+        this.basePort = basePort;
+    }
+
+    /**
+     * Porta TCP da estação de índice informado (0-based)
+     */
+    public int portOf(int station) {
+        return basePort + station / UNITS_PER_PORT;
+    }
+
+    /**
+     * Unit id da estação de índice informado (1..247)
+     */
+    public static int unitIdOf(int station) {
+        return 1 + station % UNITS_PER_PORT;
+    }
+
+    /**
+     * Cria (ou substitui) a estação de índice informado com o tamanho de mapa informado
+     */
+    public SimulatedUnit addStation(int station, int registerCount) {
+        int port = portOf(station);
+        int unitId = unitIdOf(station);
+        SimulatedUnit unit = new SimulatedUnit(unitId, registerCount);
+        unitsByPort.computeIfAbsent(port, p -> new SimulatedUnit[256])[unitId] = unit;
+        return unit;
+    }
+
+    public void start() throws Exception {
+        lifecycleLock.lock();
+        try {
+            doStart();
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    private void doStart() throws Exception {
+        if (delayExecutor == null) {
+            delayExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "modbus-simulator-delay");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        for (Map.Entry<Integer, SimulatedUnit[]> entry : unitsByPort.entrySet()) {
+            int port = entry.getKey();
+            if (slaves.containsKey(port)) {
+                continue;
+            }
+            ModbusTcpSlave slave = new ModbusTcpSlave(new ModbusTcpSlaveConfig.Builder().build());
+            slave.setRequestHandler(new Handler(entry.getValue()));
+            slave.bind(bindAddress, port).get(10, TimeUnit.SECONDS);
+            slaves.put(port, slave);
+        }
+
+        log.info("Simulador Modbus iniciado em {}:{}-{} ({} portas)",
+            bindAddress, basePort, basePort + Math.max(0, slaves.size() - 1), slaves.size());
+    }
+
+    public void stop() {
+        lifecycleLock.lock();
+        try {
+            slaves.values().forEach(ModbusTcpSlave::shutdown);
+            slaves.clear();
+            if (delayExecutor != null) {
+                delayExecutor.shutdownNow();
+                delayExecutor = null;
+            }
+        } finally {
+            lifecycleLock.unlock();
+        }
+        log.info("Simulador Modbus parado");
+    }
+
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = Math.max(0, latencyMillis);
+        this.jitterMillis = Math.max(0, jitterMillis);
+    }
+
+    /**
+     * Define a fração de requisições respondidas com exceção (SlaveDeviceFailure)
+     * e a fração descartada sem resposta
+     */
+    public void setErrorInjection(double errorRate, double dropRate) {
+        this.errorRate = Math.max(0, Math.min(1, errorRate));
+        this.dropRate = Math.max(0, Math.min(1, dropRate));
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ports", slaves.size());
+        stats.put("requests", requests.sum());
+        stats.put("responses", responses.sum());
+        stats.put("exceptions", exceptions.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("latencyMillis", latencyMillis);
+        stats.put("jitterMillis", jitterMillis);
+        stats.put("errorRate", errorRate);
+        stats.put("dropRate", dropRate);
+        return stats;
+    }
+
+    private <Q extends ModbusRequest, S extends ModbusResponse> void handleRead(
+            ServiceRequestHandler.ServiceRequest<Q, S> service,
+            SimulatedUnit[] units,
+            ModbusRegisterType type,
+            int start,
+            int quantity,
+            Function<ByteBuf, S> responseFactory) {
+
+        requests.increment();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if (dropRate > 0 && random.nextDouble() < dropRate) {
+            dropped.increment();
+            return;
+        }
+
+        int unitId = service.getUnitId() & 0xFF;
+        SimulatedUnit unit = units[unitId];
+
+        Runnable reply;
+        if (unit == null) {
+            reply = () -> sendException(service, ExceptionCode.GatewayTargetDeviceFailedToRespond);
+        } else if (errorRate > 0 && random.nextDouble() < errorRate) {
+            reply = () -> sendException(service, ExceptionCode.SlaveDeviceFailure);
+        } else if (!unit.isValidRange(start, quantity)) {
+            reply = () -> sendException(service, ExceptionCode.IllegalDataAddress);
+        } else {
+            reply = () -> {
+                int[] registers = unit.read(type, start, quantity, System.currentTimeMillis());
+                ByteBuf buffer = Unpooled.buffer(quantity * 2);
+                for (int register : registers) {
+                    buffer.writeShort(register);
+                }
+                service.sendResponse(responseFactory.apply(buffer));
+                responses.increment();
+            };
+        }
+
+        long delay = latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+        ScheduledExecutorService executor = delayExecutor;
+        if (delay > 0 && executor != null) {
+            executor.schedule(reply, delay, TimeUnit.MILLISECONDS);
+        } else {
+            reply.run();
+        }
+    }
+
+    private void sendException(ServiceRequestHandler.ServiceRequest<?, ?> service, ExceptionCode code) {
+        service.sendException(code);
+        exceptions.increment();
+    }
+
+    private final class Handler implements ServiceRequestHandler {
+
+        private final SimulatedUnit[] units;
+
+        Handler(SimulatedUnit[] units) {
+            this.units = units;
+        }
+
+        @Override
+        public void onReadHoldingRegisters(
+                ServiceRequest<ReadHoldingRegistersRequest, ReadHoldingRegistersResponse> service) {
+            ReadHoldingRegistersRequest request = service.getRequest();
+            int start = request.getAddress();
+            int quantity = request.getQuantity();
+            ReferenceCountUtil.release(request);
+            handleRead(service, units, ModbusRegisterType.HOLDING, start, quantity,
+                ReadHoldingRegistersResponse::new);
+        }
+
+        @Override
+        public void onReadInputRegisters(
+                ServiceRequest<ReadInputRegistersRequest, ReadInputRegistersResponse> service) {
+            ReadInputRegistersRequest request = service.getRequest();
+            int start = request.getAddress();
+            int quantity = request.getQuantity();
+            ReferenceCountUtil.release(request);
+            handleRead(service, units, ModbusRegisterType.INPUT, start, quantity,
+                ReadInputRegistersResponse::new);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.mattschutz.scada.modbus.simulator;
+
+import com.mattschutz.scada.entity.ModbusDataType;
+import lombok.Value;
+
+/**
+ * Registrador (ou par de registradores) de um escravo simulado.
+ * bruto = valor / scale, codificado conforme o tipo de dado
+ */
+@Value
+public class SimulatedRegister {
+    int address;
+    ModbusDataType dataType;
+    double scale;
+    Waveform waveform;
+    
+    /**
+     * Codifica o valor do instante nas palavras de 16 bits do registrador
+     */
+    public void encode(long timeMillis, int[] words) {
+        double raw = waveform.valueAt(timeMillis) / (scale != 0 ? scale : 1.0);
+        
+        switch (dataType) {
+            case INT16:
+                words[0] = (int) clamp(Math.round(raw), Short.MIN_VALUE, Short.MAX_VALUE) & 0xFFFF;
+                break;
+            case UINT16:
+                words[0] = (int) clamp(Math.round(raw), 0, 0xFFFF);
+                break;
+            case INT32: {
+                int v = (int) clamp(Math.round(raw), Integer.MIN_VALUE, Integer.MAX_VALUE);
+                words[0] = (v >>> 16) & 0xFFFF;
+                words[1] = v & 0xFFFF;
+                break;
+            }
+            case UINT32: {
+                long v = clamp(Math.round(raw), 0, 0xFFFFFFFFL);
+                words[0] = (int) ((v >>> 16) & 0xFFFF);
+                words[1] = (int) (v & 0xFFFF);
+                break;
+            }
+            case FLOAT32: {
+                int bits = Float.floatToIntBits((float) raw);
+                words[0] = (bits >>> 16) & 0xFFFF;
+                words[1] = bits & 0xFFFF;
+                break;
+            }
+            default:
+                throw new IllegalStateException("Tipo de dado não suportado: " + dataType);
+        }
+    }
+    
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
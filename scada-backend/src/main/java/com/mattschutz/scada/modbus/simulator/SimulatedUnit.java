@@ -0,0 +1,87 @@
+package com.mattschutz.scada.modbus.simulator;
+
+import com.mattschutz.scada.entity.ModbusRegisterType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapa de registradores de um unit id simulado. Endereços sem registrador
+ * definido retornam 0; endereços acima do mapa retornam exceção
+ * IllegalDataAddress.
+ */
+public class SimulatedUnit {
+    
+    private final int unitId;
+    private final int size;
+    private final SimulatedRegister[] holding;
+    private final SimulatedRegister[] input;
+    
+    public SimulatedUnit(int unitId, int size) {
+        this.unitId = unitId;
+        this.size = size;
+        this.holding = new SimulatedRegister[size];
+        this.input = new SimulatedRegister[size];
+    }
+    
+    public int getUnitId() {
+        return unitId;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public void define(ModbusRegisterType type, SimulatedRegister register) {
+        SimulatedRegister[] table = type == ModbusRegisterType.HOLDING ? holding : input;
+        int words = register.getDataType().getRegisterCount();
+        if (register.getAddress() < 0 || register.getAddress() + words > size) {
+            throw new IllegalArgumentException("Endereço fora do mapa simulado: " + register.getAddress());
+        }
+        for (int i = 0; i < words; i++) {
+            table[register.getAddress() + i] = register;
+        }
+    }
+    
+    public boolean isValidRange(int start, int quantity) {
+        return start >= 0 && quantity > 0 && start + quantity <= size;
+    }
+    
+    /**
+     * Preenche os registradores [start, start + quantity) no instante informado.
+     * Registradores de 32 bits são calculados uma única vez por leitura.
+     */
+    public int[] read(ModbusRegisterType type, int start, int quantity, long timeMillis) {
+        SimulatedRegister[] table = type == ModbusRegisterType.HOLDING ? holding : input;
+        int[] result = new int[quantity];
+        int[] words = new int[2];
+        SimulatedRegister encoded = null;
+        
+        for (int i = 0; i < quantity; i++) {
+            int address = start + i;
+            SimulatedRegister register = table[address];
+            if (register == null) {
+                continue;
+            }
+            if (register != encoded) {
+                register.encode(timeMillis, words);
+                encoded = register;
+            }
+            result[i] = words[address - register.getAddress()];
+        }
+        return result;
+    }
+    
+    public List<SimulatedRegister> getRegisters(ModbusRegisterType type) {
+        SimulatedRegister[] table = type == ModbusRegisterType.HOLDING ? holding : input;
+        List<SimulatedRegister> result = new ArrayList<>();
+        SimulatedRegister last = null;
+        for (SimulatedRegister register : table) {
+            if (register != null && register != last) {
+                result.add(register);
+            }
+            last = register;
+        }
+        return result;
+    }
+}
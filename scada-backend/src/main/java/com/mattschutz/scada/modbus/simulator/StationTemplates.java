@@ -0,0 +1,55 @@
+package com.mattschutz.scada.modbus.simulator;
+
+import com.mattschutz.scada.entity.ModbusDataType;
+import com.mattschutz.scada.entity.ModbusRegisterType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapas de registradores padrão para estações simuladas
+ */
+public final class StationTemplates {
+    
+    public static final double STANDARD_SCALE = 0.1;
+    
+    private StationTemplates() {
+    }
+    
+    /**
+     * Holding registers 0..count-1 (UINT16, escala 0,1) alternando as formas de onda:
+     * tensão constante, corrente senoidal, temperatura em rampa, ruído,
+     * degrau e partida de motor
+     */
+    public static List<SimulatedRegister> standard(int count) {
+        List<SimulatedRegister> registers = new ArrayList<>(count);
+        for (int address = 0; address < count; address++) {
+            registers.add(new SimulatedRegister(address, ModbusDataType.UINT16, STANDARD_SCALE, waveformFor(address)));
+        }
+        return registers;
+    }
+    
+    /**
+     * Cria count estações com o mapa padrão
+     */
+    public static void populate(ModbusSlaveSimulator simulator, int stations, int registersPerStation) {
+        List<SimulatedRegister> registers = standard(registersPerStation);
+        for (int station = 0; station < stations; station++) {
+            SimulatedUnit unit = simulator.addStation(station, registersPerStation);
+            for (SimulatedRegister register : registers) {
+                unit.define(ModbusRegisterType.HOLDING, register);
+            }
+        }
+    }
+    
+    private static Waveform waveformFor(int address) {
+        switch (address % 6) {
+            case 0: return Waveform.constant(380.0);
+            case 1: return new Waveform(WaveformType.SINE, 45.0, 5.0, 10_000);
+            case 2: return new Waveform(WaveformType.RAMP, 20.0, 60.0, 60_000);
+            case 3: return new Waveform(WaveformType.NOISE, 60.0, 2.0, 1_000);
+            case 4: return new Waveform(WaveformType.STEP, 0.0, 100.0, 5_000);
+            default: return new Waveform(WaveformType.MOTOR_START, 45.0, 7.0, 30_000);
+        }
+    }
+}
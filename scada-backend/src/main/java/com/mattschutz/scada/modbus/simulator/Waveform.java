@@ -0,0 +1,49 @@
+package com.mattschutz.scada.modbus.simulator;
+
+import lombok.Value;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sinal simulado em unidade de engenharia em função do tempo.
+ *
+ * RAMP: base -> base + amplitude a cada período
+ * SINE: base ± amplitude
+ * NOISE: base ± amplitude (desvio padrão)
+ * STEP: alterna entre base e base + amplitude a cada período
+ * MOTOR_START: pico de base * amplitude no início de cada período, decaindo
+ * exponencialmente (τ = período / 10) até base (corrente nominal)
+ */
+@Value
+public class Waveform {
+    WaveformType type;
+    double base;
+    double amplitude;
+    long periodMillis;
+    
+    public static Waveform constant(double value) {
+        return new Waveform(WaveformType.CONSTANT, value, 0, 1);
+    }
+    
+    public double valueAt(long timeMillis) {
+        long period = Math.max(1, periodMillis);
+        long elapsed = Math.floorMod(timeMillis, period);
+        
+        switch (type) {
+            case RAMP:
+                return base + amplitude * elapsed / period;
+            case SINE:
+                return base + amplitude * Math.sin(2 * Math.PI * elapsed / period);
+            case NOISE:
+                return base + amplitude * ThreadLocalRandom.current().nextGaussian();
+            case STEP:
+                return Math.floorDiv(timeMillis, period) % 2 == 0 ? base : base + amplitude;
+            case MOTOR_START:
+                double tau = period / 10.0;
+                return base + base * (amplitude - 1) * Math.exp(-elapsed / tau);
+            case CONSTANT:
+            default:
+                return base;
+        }
+    }
+}
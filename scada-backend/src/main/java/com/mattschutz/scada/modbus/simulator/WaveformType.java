@@ -0,0 +1,20 @@
+package com.mattschutz.scada.modbus.simulator;
+
+public enum WaveformType {
+    CONSTANT("Constante"),
+    RAMP("Rampa (dente de serra)"),
+    SINE("Senoide"),
+    NOISE("Ruído gaussiano"),
+    STEP("Degrau alternado"),
+    MOTOR_START("Partida de motor (inrush)");
+    
+    private final String description;
+    
+    WaveformType(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
@@ -4,12 +4,15 @@ import com.mattschutz.scada.entity.AlarmEvent;
 import com.mattschutz.scada.entity.AlarmSeverity;
 import com.mattschutz.scada.entity.AlarmType;
 import com.mattschutz.scada.entity.Equipment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -55,4 +58,60 @@ public interface AlarmEventRepository extends JpaRepository<AlarmEvent, String>
     @Query("SELECT a FROM AlarmEvent a WHERE a.equipment.id = :equipmentId " +
            "AND a.resolvedAt IS NULL ORDER BY a.timestamp DESC")
     List<AlarmEvent> findActiveAlarmsByEquipmentId(@Param("equipmentId") String equipmentId);
+    
+    /**
+     * Chaves dos alarmes ativos: id, severidade, tipo, id do equipamento, reconhecido, horário
+     */
+    @Query("SELECT a.id, a.severity, a.type, e.id, a.acknowledged, a.timestamp FROM AlarmEvent a " +
+           "LEFT JOIN a.equipment e WHERE a.resolvedAt IS NULL")
+    List<Object[]> findActiveAlarmKeys();
+    
+    /**
+     * Alarmes desde since para os indicadores: horário, severidade, tipo, id, nome e localização do equipamento
+     */
+    @Query("SELECT a.timestamp, a.severity, a.type, e.id, e.name, e.location FROM AlarmEvent a " +
+           "LEFT JOIN a.equipment e WHERE a.timestamp >= :since ORDER BY a.timestamp")
+    List<Object[]> findKpiRows(@Param("since") LocalDateTime since);
+    
+    // Operações em massa: os ids afetados são consultados com o filtro e atualizados por lista (IN)
+    
+    @Query("SELECT a.id FROM AlarmEvent a WHERE a.id IN :ids AND a.acknowledged = false")
+    List<String> findUnacknowledgedIds(@Param("ids") Collection<String> ids);
+    
+    @Query("SELECT a.id FROM AlarmEvent a WHERE a.id IN :ids AND a.resolvedAt IS NULL")
+    List<String> findActiveIds(@Param("ids") Collection<String> ids);
+    
+    @Query("SELECT a.id FROM AlarmEvent a WHERE a.acknowledged = false AND a.resolvedAt IS NULL " +
+           "AND (:equipmentId IS NULL OR a.equipment.id = :equipmentId) " +
+           "AND (:severity IS NULL OR a.severity = :severity) " +
+           "AND (:type IS NULL OR a.type = :type) " +
+           "AND (:before IS NULL OR a.timestamp < :before)")
+    List<String> findUnacknowledgedActiveIds(@Param("equipmentId") String equipmentId,
+                                             @Param("severity") AlarmSeverity severity,
+                                             @Param("type") AlarmType type, @Param("before") LocalDateTime before);
+    
+    @Query("SELECT a.id FROM AlarmEvent a WHERE a.resolvedAt IS NULL " +
+           "AND (:equipmentId IS NULL OR a.equipment.id = :equipmentId) " +
+           "AND (:severity IS NULL OR a.severity = :severity) " +
+           "AND (:type IS NULL OR a.type = :type) " +
+           "AND (:before IS NULL OR a.timestamp < :before)")
+    List<String> findActiveIds(@Param("equipmentId") String equipmentId, @Param("severity") AlarmSeverity severity,
+                               @Param("type") AlarmType type, @Param("before") LocalDateTime before);
+    
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE AlarmEvent a SET a.acknowledged = true, a.acknowledgedBy = :username, a.acknowledgedAt = :now " +
+           "WHERE a.id IN :ids AND a.acknowledged = false")
+    int acknowledgeByIds(@Param("ids") Collection<String> ids, @Param("username") String username,
+                         @Param("now") LocalDateTime now);
+    
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE AlarmEvent a SET a.resolvedAt = :now WHERE a.id IN :ids AND a.resolvedAt IS NULL")
+    int resolveByIds(@Param("ids") Collection<String> ids, @Param("now") LocalDateTime now);
+    
+    /**
+     * Alarmes resolvidos antes do corte, mais antigos primeiro (lote do arquivo histórico)
+     */
+    @Query("SELECT a FROM AlarmEvent a LEFT JOIN FETCH a.equipment " +
+           "WHERE a.resolvedAt < :cutoff ORDER BY a.timestamp")
+    List<AlarmEvent> findArchivable(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
 }
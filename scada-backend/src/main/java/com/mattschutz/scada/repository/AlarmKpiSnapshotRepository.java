@@ -0,0 +1,26 @@
+package com.mattschutz.scada.repository;
+
+import com.mattschutz.scada.entity.AlarmKpiSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AlarmKpiSnapshotRepository extends JpaRepository<AlarmKpiSnapshot, String> {
+    
+    @Query("SELECT s FROM AlarmKpiSnapshot s WHERE s.periodEnd BETWEEN :startDate AND :endDate " +
+           "ORDER BY s.periodEnd")
+    List<AlarmKpiSnapshot> findByPeriodEndBetween(
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate
+    );
+    
+    @Modifying
+    @Query("DELETE FROM AlarmKpiSnapshot s WHERE s.periodEnd < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
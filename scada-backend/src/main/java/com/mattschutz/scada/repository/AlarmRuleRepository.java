@@ -0,0 +1,13 @@
+package com.mattschutz.scada.repository;
+
+import com.mattschutz.scada.entity.AlarmRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AlarmRuleRepository extends JpaRepository<AlarmRule, String> {
+    
+    List<AlarmRule> findByEnabledTrue();
+}
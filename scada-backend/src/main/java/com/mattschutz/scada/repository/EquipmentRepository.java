@@ -3,11 +3,16 @@ package com.mattschutz.scada.repository;
 import com.mattschutz.scada.entity.Equipment;
 import com.mattschutz.scada.entity.EquipmentStatus;
 import com.mattschutz.scada.entity.EquipmentType;
+import com.mattschutz.scada.entity.Inverter;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,6 +45,38 @@ public interface EquipmentRepository extends JpaRepository<Equipment, String> {
     @Query("SELECT e FROM Equipment e WHERE e.status IN :statuses")
     List<Equipment> findByStatusIn(@Param("statuses") List<EquipmentStatus> statuses);
     
+    @Query("SELECT e.id FROM Equipment e WHERE e.status IN :statuses")
+    List<String> findIdsByStatusIn(@Param("statuses") Collection<EquipmentStatus> statuses);
+    
+    /**
+     * Parada em massa: um único UPDATE, sem carregar as entidades
+     */
+    @Modifying
+    @Query("UPDATE Equipment e SET e.status = :stopped, e.current = 0, e.power = 0, e.version = e.version + 1 WHERE e.status IN :statuses")
+    int stopAllByStatusIn(@Param("statuses") Collection<EquipmentStatus> statuses,
+                          @Param("stopped") EquipmentStatus stopped);
+    
+    /**
+     * Somente leitura: alterações nas entidades retornadas não são gravadas
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.readOnly", value = "true"))
+    @Query("SELECT i FROM Inverter i WHERE i.id IN :ids")
+    List<Inverter> findInvertersByIdIn(@Param("ids") Collection<String> ids);
+    
+    /**
+     * Setpoint em massa; a versão é incrementada à parte com incrementVersion
+     */
+    @Modifying
+    @Query("UPDATE Inverter i SET i.frequencySetpoint = :frequency WHERE i.id IN :ids")
+    int updateFrequencySetpoint(@Param("ids") Collection<String> ids, @Param("frequency") Double frequency);
+    
+    /**
+     * Invalida cópias carregadas antes de uma atualização em massa (@Version)
+     */
+    @Modifying
+    @Query("UPDATE Equipment e SET e.version = e.version + 1 WHERE e.id IN :ids")
+    int incrementVersion(@Param("ids") Collection<String> ids);
+    
     @Query("SELECT e FROM Equipment e WHERE LOWER(e.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
            "OR LOWER(e.location) LIKE LOWER(CONCAT('%', :search, '%'))")
     List<Equipment> searchByNameOrLocation(@Param("search") String search);
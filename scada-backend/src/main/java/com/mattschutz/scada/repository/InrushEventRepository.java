@@ -0,0 +1,29 @@
+package com.mattschutz.scada.repository;
+
+import com.mattschutz.scada.entity.InrushEvent;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InrushEventRepository extends JpaRepository<InrushEvent, String> {
+    
+    @Query("SELECT e FROM InrushEvent e WHERE e.timestampMillis BETWEEN :startMillis AND :endMillis " +
+           "AND (:equipmentId IS NULL OR e.equipmentId = :equipmentId) " +
+           "AND (:minFactor IS NULL OR e.inrushFactor >= :minFactor)")
+    Page<InrushEvent> search(
+        @Param("startMillis") long startMillis,
+        @Param("endMillis") long endMillis,
+        @Param("equipmentId") String equipmentId,
+        @Param("minFactor") Double minFactor,
+        Pageable pageable
+    );
+    
+    @Modifying
+    @Query("DELETE FROM InrushEvent e WHERE e.timestampMillis < :cutoffMillis")
+    int deleteOlderThan(@Param("cutoffMillis") long cutoffMillis);
+}
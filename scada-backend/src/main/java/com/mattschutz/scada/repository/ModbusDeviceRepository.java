@@ -0,0 +1,13 @@
+package com.mattschutz.scada.repository;
+
+import com.mattschutz.scada.entity.ModbusDevice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ModbusDeviceRepository extends JpaRepository<ModbusDevice, String> {
+    
+    List<ModbusDevice> findByEnabledTrue();
+}
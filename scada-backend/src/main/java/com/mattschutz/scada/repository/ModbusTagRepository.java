@@ -0,0 +1,26 @@
+package com.mattschutz.scada.repository;
+
+import com.mattschutz.scada.entity.ModbusTag;
+import com.mattschutz.scada.entity.ScanGroup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ModbusTagRepository extends JpaRepository<ModbusTag, String> {
+    
+    @Query("SELECT t FROM ModbusTag t JOIN FETCH t.device d JOIN FETCH t.equipment " +
+           "WHERE t.enabled = true AND d.enabled = true")
+    List<ModbusTag> findAllEnabled();
+    
+    @Query("SELECT t FROM ModbusTag t WHERE t.device.id = :deviceId")
+    List<ModbusTag> findByDeviceId(@Param("deviceId") String deviceId);
+
+    @Modifying
+    @Query("UPDATE ModbusTag t SET t.scanGroup = :scanGroup WHERE t.equipment.id = :equipmentId")
+    int updateScanGroupByEquipment(@Param("equipmentId") String equipmentId, @Param("scanGroup") ScanGroup scanGroup);
+}
@@ -0,0 +1,29 @@
+package com.mattschutz.scada.repository;
+
+import com.mattschutz.scada.entity.SoeEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SoeEventRepository extends JpaRepository<SoeEvent, String> {
+    
+    @Query("SELECT e FROM SoeEvent e WHERE e.timestampMicros BETWEEN :startMicros AND :endMicros " +
+           "AND (:equipmentId IS NULL OR e.equipmentId = :equipmentId) " +
+           "ORDER BY e.timestampMicros, e.sequence")
+    List<SoeEvent> findWindow(
+        @Param("startMicros") long startMicros,
+        @Param("endMicros") long endMicros,
+        @Param("equipmentId") String equipmentId,
+        Pageable pageable
+    );
+    
+    @Modifying
+    @Query("DELETE FROM SoeEvent e WHERE e.timestampMicros < :cutoffMicros")
+    int deleteOlderThan(@Param("cutoffMicros") long cutoffMicros);
+}
@@ -0,0 +1,97 @@
+package com.mattschutz.scada.service;
+
+import com.mattschutz.scada.alarm.AlarmRuleEngine;
+import com.mattschutz.scada.entity.AlarmLimitMode;
+import com.mattschutz.scada.entity.AlarmRule;
+import com.mattschutz.scada.entity.AlarmStatistic;
+import com.mattschutz.scada.entity.EquipmentType;
+import com.mattschutz.scada.repository.AlarmRuleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Cadastro das regras de alarme. Cada alteração é gravada e em seguida
+ * recompilada no {@link AlarmRuleEngine}, sem reiniciar a aplicação
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlarmRuleService {
+    
+    private final AlarmRuleRepository alarmRuleRepository;
+    private final AlarmRuleEngine alarmRuleEngine;
+    
+    public List<AlarmRule> findAll() {
+        return alarmRuleRepository.findAll();
+    }
+    
+    public AlarmRule create(AlarmRule rule) {
+        rule.setId(null);
+        validate(rule);
+        AlarmRule saved = alarmRuleRepository.save(rule);
+        log.info("Regra de alarme criada: {}", saved.getName());
+        alarmRuleEngine.reload();
+        return saved;
+    }
+    
+    public AlarmRule update(String id, AlarmRule rule) {
+        if (!alarmRuleRepository.existsById(id)) {
+            throw new IllegalArgumentException("Regra de alarme não encontrada: " + id);
+        }
+        rule.setId(id);
+        validate(rule);
+        AlarmRule saved = alarmRuleRepository.save(rule);
+        log.info("Regra de alarme atualizada: {}", saved.getName());
+        alarmRuleEngine.reload();
+        return saved;
+    }
+    
+    public void delete(String id) {
+        if (!alarmRuleRepository.existsById(id)) {
+            throw new IllegalArgumentException("Regra de alarme não encontrada: " + id);
+        }
+        alarmRuleRepository.deleteById(id);
+        log.info("Regra de alarme removida: {}", id);
+        alarmRuleEngine.reload();
+    }
+    
+    private void validate(AlarmRule rule) {
+        if (rule.getName() == null || rule.getName().isBlank()) {
+            throw new IllegalArgumentException("Nome da regra é obrigatório");
+        }
+        if (rule.getField() == null || rule.getLimit() == null) {
+            throw new IllegalArgumentException("Grandeza e limite são obrigatórios");
+        }
+        if (rule.getSeverity() == null || rule.getType() == null) {
+            throw new IllegalArgumentException("Severidade e tipo de alarme são obrigatórios");
+        }
+        if (rule.getDeadband() != null && rule.getDeadband() < 0) {
+            throw new IllegalArgumentException("Banda morta não pode ser negativa");
+        }
+        if (rule.getLimitMode() == AlarmLimitMode.INSULATION_CLASS
+                && rule.getEquipmentType() != null && rule.getEquipmentType() != EquipmentType.MOTOR) {
+            throw new IllegalArgumentException("Limite por classe de isolamento só se aplica a motores");
+        }
+        if (rule.getComparator() == null) {
+            throw new IllegalArgumentException("Comparador é obrigatório");
+        }
+        if (rule.getLimitMode() == null) {
+            throw new IllegalArgumentException("Modo do limite é obrigatório");
+        }
+        if (rule.getStatistic() == null) {
+            rule.setStatistic(AlarmStatistic.VALUE);
+        }
+        if (rule.getStatistic() != AlarmStatistic.VALUE && rule.getLimitMode() == AlarmLimitMode.INSULATION_CLASS) {
+            throw new IllegalArgumentException("Limite por classe de isolamento só se aplica ao valor lido");
+        }
+        if (rule.getWindowSeconds() != null && rule.getWindowSeconds() <= 0) {
+            throw new IllegalArgumentException("Janela deve ser positiva");
+        }
+        if (rule.getEnabled() == null) {
+            rule.setEnabled(true);
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package com.mattschutz.scada.service;
 
+import com.mattschutz.scada.alarm.ActiveAlarmSummary;
+import com.mattschutz.scada.alarm.AlarmPipeline;
+import com.mattschutz.scada.alarm.AlarmSuppressionService;
+import com.mattschutz.scada.alarm.SuppressionReason;
 import com.mattschutz.scada.entity.*;
 import com.mattschutz.scada.repository.AlarmEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
@@ -17,7 +28,15 @@ import java.util.Optional;
 @Slf4j
 public class AlarmService {
     
+    // Ids por consulta / UPDATE nas operações em massa (tamanho da lista IN)
+    private static final int BULK_CHUNK_SIZE = 1000;
+    
     private final AlarmEventRepository alarmEventRepository;
+    private final AlarmSuppressionService alarmSuppressionService;
+    private final AlarmPipeline alarmPipeline;
+    private final ActiveAlarmSummary activeAlarmSummary;
+    
+    private final List<Consumer<Collection<String>>> resolvedHandlers = new CopyOnWriteArrayList<>();
     
     public List<AlarmEvent> findAll() {
         return alarmEventRepository.findAll();
@@ -43,16 +62,19 @@ public class AlarmService {
         return alarmEventRepository.findByTimestampBetween(startDate, endDate);
     }
     
+    /**
+     * Contagens servidas pelo resumo em memória (ActiveAlarmSummary), sem COUNT no banco
+     */
     public long countActiveAlarms() {
-        return alarmEventRepository.countActiveAlarms();
+        return activeAlarmSummary.countActive();
     }
     
     public long countActiveAlarmsBySeverity(AlarmSeverity severity) {
-        return alarmEventRepository.countActiveAlarmsBySeverity(severity);
+        return activeAlarmSummary.countActive(severity);
     }
     
     /**
-     * Cria um novo alarme
+     * Cria um novo alarme. Retorna null se o alarme foi suprimido
      */
     public AlarmEvent createAlarm(
             Equipment equipment,
@@ -63,7 +85,11 @@ public class AlarmService {
     }
     
     /**
-     * Cria um novo alarme com informações detalhadas
+     * Cria um novo alarme com informações detalhadas. Alarmes arquivados,
+     * suprimidos pelo estado do equipamento ou por avalanche na área são
+     * apenas contados (AlarmSuppressionService); nesse caso retorna null.
+     * A gravação é assíncrona (AlarmPipeline); o id já vem atribuído no
+     * objeto retornado
      */
     public AlarmEvent createAlarm(
             Equipment equipment,
@@ -74,7 +100,13 @@ public class AlarmService {
             Double value,
             Double threshold) {
         
+        SuppressionReason suppressed = alarmSuppressionService.check(equipment, severity, type);
+        if (suppressed != null) {
+            return null;
+        }
+        
         AlarmEvent alarm = new AlarmEvent();
+        alarm.setId(UUID.randomUUID().toString());
         alarm.setEquipment(equipment);
         alarm.setTimestamp(LocalDateTime.now());
         alarm.setSeverity(severity);
@@ -85,14 +117,26 @@ public class AlarmService {
         alarm.setThreshold(threshold);
         alarm.setAcknowledged(false);
         
-        alarm = alarmEventRepository.save(alarm);
-        
-        log.info("Alarme criado: {} - {} - {} ({})", 
-            severity, type, message, equipment != null ? equipment.getName() : "Sistema");
-        
+        alarmPipeline.submitRaise(alarm);
         return alarm;
     }
     
+    /**
+     * Registra um tratador chamado, após o commit, com os ids dos alarmes
+     * resolvidos pelo operador (individualmente ou em massa)
+     */
+    public void onOperatorResolved(Consumer<Collection<String>> handler) {
+        resolvedHandlers.add(handler);
+    }
+    
+    /**
+     * Normaliza um alarme criado por createAlarm, na ordem em que foi gerado.
+     * Alarmes já resolvidos pelo operador são ignorados
+     */
+    public void resolveAlarmAsync(AlarmEvent alarm) {
+        alarmPipeline.submitResolve(alarm);
+    }
+    
     /**
      * Reconhece um alarme
      */
@@ -106,6 +150,8 @@ public class AlarmService {
         
         alarm.acknowledge(username);
         alarm = alarmEventRepository.save(alarm);
+        String id = alarm.getId();
+        afterCommit(() -> activeAlarmSummary.acknowledged(id));
         
         log.info("Alarme reconhecido por {}: {} - {}", username, alarm.getType(), alarm.getMessage());
         
@@ -125,6 +171,8 @@ public class AlarmService {
         
         alarm.resolve();
         alarm = alarmEventRepository.save(alarm);
+        List<String> ids = List.of(alarm.getId());
+        afterCommit(() -> resolvedByOperator(ids));
         
         log.info("Alarme resolvido: {} - {} (duração: {} minutos)", 
             alarm.getType(), alarm.getMessage(), alarm.getDurationMinutes());
@@ -133,46 +181,101 @@ public class AlarmService {
     }
     
     /**
-     * Resolve alarmes automaticamente baseado em condições do equipamento
+     * Reconhece os alarmes informados. Retorna quantos foram reconhecidos
      */
-    public void autoResolveAlarms(Equipment equipment) {
-        List<AlarmEvent> activeAlarms = alarmEventRepository
-            .findActiveAlarmsByEquipmentId(equipment.getId());
-        
-        for (AlarmEvent alarm : activeAlarms) {
-            boolean shouldResolve = false;
-            
-            switch (alarm.getType()) {
-                case OVERCURRENT:
-                    if (equipment.getCurrent() <= equipment.getNominalCurrent() * 1.05) {
-                        shouldResolve = true;
-                    }
-                    break;
-                    
-                case OVERTEMPERATURE:
-                    if (equipment.getTemperature() <= 75.0) {
-                        shouldResolve = true;
-                    }
-                    break;
-                    
-                case OVERLOAD:
-                    double loadPercent = (equipment.getCurrent() / equipment.getNominalCurrent()) * 100;
-                    if (loadPercent <= 100.0) {
-                        shouldResolve = true;
-                    }
-                    break;
-                    
-                default:
-                    // Outros tipos de alarme não são auto-resolvidos
-                    break;
-            }
-            
-            if (shouldResolve) {
-                resolveAlarm(alarm.getId());
+    public int acknowledgeAlarms(Collection<String> alarmIds, String username) {
+        if (alarmIds == null || alarmIds.isEmpty()) {
+            return 0;
+        }
+        List<String> ids = new ArrayList<>(alarmIds.size());
+        forEachChunk(new ArrayList<>(alarmIds), chunk -> ids.addAll(alarmEventRepository.findUnacknowledgedIds(chunk)));
+        return acknowledge(ids, username);
+    }
+    
+    /**
+     * Reconhece os alarmes ativos que atendem ao filtro (critérios nulos são ignorados)
+     */
+    public int acknowledgeActiveAlarms(String equipmentId, AlarmSeverity severity, AlarmType type,
+                                       LocalDateTime before, String username) {
+        return acknowledge(alarmEventRepository.findUnacknowledgedActiveIds(equipmentId, severity, type, before),
+            username);
+    }
+    
+    /**
+     * Resolve os alarmes informados. Retorna quantos foram resolvidos
+     */
+    public int resolveAlarms(Collection<String> alarmIds, String username) {
+        if (alarmIds == null || alarmIds.isEmpty()) {
+            return 0;
+        }
+        List<String> ids = new ArrayList<>(alarmIds.size());
+        forEachChunk(new ArrayList<>(alarmIds), chunk -> ids.addAll(alarmEventRepository.findActiveIds(chunk)));
+        return resolve(ids, username);
+    }
+    
+    /**
+     * Resolve os alarmes ativos que atendem ao filtro (critérios nulos são ignorados)
+     */
+    public int resolveActiveAlarms(String equipmentId, AlarmSeverity severity, AlarmType type,
+                                   LocalDateTime before, String username) {
+        return resolve(alarmEventRepository.findActiveIds(equipmentId, severity, type, before), username);
+    }
+    
+    private int acknowledge(List<String> ids, String username) {
+        LocalDateTime now = LocalDateTime.now();
+        int[] acknowledged = new int[1];
+        forEachChunk(ids, chunk -> acknowledged[0] += alarmEventRepository.acknowledgeByIds(chunk, username, now));
+        if (acknowledged[0] > 0) {
+            log.info("Alarmes reconhecidos em massa por {}: {}", username, acknowledged[0]);
+            afterCommit(() -> ids.forEach(activeAlarmSummary::acknowledged));
+        }
+        return acknowledged[0];
+    }
+    
+    private int resolve(List<String> ids, String username) {
+        LocalDateTime now = LocalDateTime.now();
+        int[] resolved = new int[1];
+        forEachChunk(ids, chunk -> resolved[0] += alarmEventRepository.resolveByIds(chunk, now));
+        if (resolved[0] > 0) {
+            log.info("Alarmes resolvidos em massa por {}: {}", username, resolved[0]);
+            afterCommit(() -> resolvedByOperator(ids));
+        }
+        return resolved[0];
+    }
+    
+    private static void forEachChunk(List<String> ids, Consumer<List<String>> action) {
+        for (int from = 0; from < ids.size(); from += BULK_CHUNK_SIZE) {
+            action.accept(ids.subList(from, Math.min(from + BULK_CHUNK_SIZE, ids.size())));
+        }
+    }
+    
+    private void resolvedByOperator(Collection<String> ids) {
+        ids.forEach(activeAlarmSummary::resolved);
+        for (Consumer<Collection<String>> handler : resolvedHandlers) {
+            try {
+                handler.accept(ids);
+            } catch (Exception e) {
+                log.error("Erro ao notificar alarmes resolvidos: {}", e.getMessage());
             }
         }
     }
     
+    /**
+     * Executa após o commit da transação atual (ou já, se não houver transação)
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
     /**
      * Cria alarme de sistema (sem equipamento associado)
      */
@@ -1,13 +1,18 @@
 package com.mattschutz.scada.service;
 
+import com.mattschutz.scada.alarm.AlarmRuleEngine;
+import com.mattschutz.scada.alarm.AlarmStateEngine;
+import com.mattschutz.scada.command.InverterRampEngine;
 import com.mattschutz.scada.entity.*;
+import com.mattschutz.scada.inrush.InrushRecorder;
 import com.mattschutz.scada.repository.EquipmentRepository;
+import com.mattschutz.scada.soe.SoeRecorder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +25,13 @@ public class EquipmentService {
     private final EquipmentRepository equipmentRepository;
     private final AlarmService alarmService;
     private final InterlockService interlockService;
+    private final AlarmRuleEngine alarmRuleEngine;
+    private final SoeRecorder soeRecorder;
+    private final OptimisticRetry optimisticRetry;
+    private final InverterRampEngine rampEngine;
+    private final InrushRecorder inrushRecorder;
+    private final AlarmStateEngine alarmStateEngine;
+    private final LiveValueService liveValueService;
     
     public List<Equipment> findAll() {
         return equipmentRepository.findAll();
@@ -39,37 +51,57 @@ public class EquipmentService {
     
     public Equipment save(Equipment equipment) {
         log.info("Salvando equipamento: {}", equipment.getName());
-        return equipmentRepository.save(equipment);
+        Equipment saved = equipmentRepository.save(equipment);
+        alarmRuleEngine.onEquipmentChanged(saved);
+        return saved;
     }
     
     public void delete(String id) {
         log.info("Deletando equipamento com ID: {}", id);
+        rampEngine.cancel(id);
         equipmentRepository.deleteById(id);
+        // Estado em memória do equipamento: alarmes de condição e valores ao vivo
+        alarmStateEngine.clearEquipment(id);
+        liveValueService.remove(id);
     }
     
     /**
-     * Inicia um equipamento com verificações de segurança
+     * Primeira etapa da partida: verificações de segurança, inrush e status STARTING.
+     * As etapas de comando rodam em transações curtas, chamadas pelo CommandService
      */
-    public Equipment startEquipment(String id) throws Exception {
+    public Equipment beginStart(String id, long commandMicros, String source) {
         Equipment equipment = equipmentRepository.findById(id)
             .orElseThrow(() -> new IllegalArgumentException("Equipamento não encontrado: " + id));
         
         log.info("Iniciando equipamento: {} ({})", equipment.getName(), equipment.getId());
+        soeRecorder.record(commandMicros, SoeEventType.COMMAND_START, id, source, "Partida solicitada", Double.NaN);
         
         // Verificar se pode iniciar
         if (!equipment.canStart()) {
+            soeRecorder.record(SoeEventType.COMMAND_REJECTED, id, source, "Status " + equipment.getStatus());
             throw new IllegalStateException(
                 "Equipamento não pode ser iniciado. Status atual: " + equipment.getStatus()
             );
         }
         
-        // Verificar interlock
-        if (!interlockService.canStart(equipment)) {
-            throw new IllegalStateException(
-                "Interlock ativo: aguarde 5 segundos após o último start de motor"
-            );
+        // Verificar e reservar o interlock do grupo em uma única operação
+        InterlockService.Reservation reservation = interlockService.tryReserve(equipment);
+        if (!reservation.isGranted()) {
+            soeRecorder.record(SoeEventType.COMMAND_REJECTED, id, source,
+                "Interlock de partida ativo (grupo " + reservation.getGroup() + ")");
+            throw new IllegalStateException(String.format(
+                "Interlock ativo no grupo %s: aguarde %.1f s após o último start de motor",
+                reservation.getGroup(), reservation.getRemainingMillis() / 1000.0));
         }
-        
+        try {
+            return startWithReservation(equipment, id, source);
+        } catch (RuntimeException e) {
+            interlockService.release(reservation);
+            throw e;
+        }
+    }
+    
+    private Equipment startWithReservation(Equipment equipment, String id, String source) {
         // Calcular corrente de inrush
         double inrushCurrent = equipment.calculateInrushCurrent();
         double inrushFactor = inrushCurrent / equipment.getNominalCurrent();
@@ -77,19 +109,12 @@ public class EquipmentService {
             inrushCurrent, equipment.getNominalCurrent());
         
         // Registrar log de inrush
-        com.mattschutz.scada.dto.InrushLogDTO inrushLog = com.mattschutz.scada.dto.InrushLogDTO.builder()
-                .timestamp(System.currentTimeMillis())
-                .equipmentId(equipment.getId())
-                .equipmentName(equipment.getName())
-                .inrushCurrent(inrushCurrent)
-                .nominalCurrent(equipment.getNominalCurrent())
-                .inrushFactor(inrushFactor)
-                .alarm(inrushCurrent > equipment.getNominalCurrent() * 12)
-                .build();
-        com.mattschutz.scada.controller.LogsController.addInrushLog(inrushLog);
+        inrushRecorder.record(System.currentTimeMillis(), equipment.getId(), equipment.getName(), inrushCurrent,
+            equipment.getNominalCurrent(), inrushFactor, inrushCurrent > equipment.getNominalCurrent() * 12);
         
         // Verificar se corrente de inrush é muito alta
         if (inrushCurrent > equipment.getNominalCurrent() * 12) {
+            soeRecorder.record(SoeEventType.ALARM_RAISED, id, source, AlarmType.INRUSH_HIGH.name(), inrushCurrent);
             alarmService.createAlarm(
                 equipment,
                 AlarmSeverity.CRITICAL,
@@ -102,12 +127,19 @@ public class EquipmentService {
         // Atualizar status
         equipment.setStatus(EquipmentStatus.STARTING);
         equipment = equipmentRepository.save(equipment);
-        
-        // Registrar no interlock
-        interlockService.registerStart(equipment);
-        
-        // Simular partida
-        simulateStartup(equipment);
+        soeRecorder.record(SoeEventType.STATE_CHANGE, id, source, EquipmentStatus.STARTING.name());
+        return equipment;
+    }
+    
+    /**
+     * Etapa final da partida: status RUNNING
+     */
+    public Equipment completeStart(String id, String source) {
+        Equipment equipment = equipmentRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("Equipamento não encontrado: " + id));
+        if (equipment.getStatus() != EquipmentStatus.STARTING) {
+            throw new IllegalStateException("Partida interrompida. Status atual: " + equipment.getStatus());
+        }
         
         // Atualizar para RUNNING
         equipment.setStatus(EquipmentStatus.RUNNING);
@@ -116,6 +148,12 @@ public class EquipmentService {
         equipment.updatePowerFactor();
         
         equipment = equipmentRepository.save(equipment);
+        soeRecorder.record(SoeEventType.STATE_CHANGE, id, source, EquipmentStatus.RUNNING.name());
+        
+        // Inversor acelera de 0 até o setpoint pela rampa
+        if (equipment instanceof Inverter) {
+            rampEngine.start((Inverter) equipment);
+        }
         
         // Criar evento de sistema
         alarmService.createAlarm(
@@ -130,15 +168,17 @@ public class EquipmentService {
     }
     
     /**
-     * Para um equipamento
+     * Primeira etapa da parada: status STOPPING
      */
-    public Equipment stopEquipment(String id) throws Exception {
+    public Equipment beginStop(String id, long commandMicros, String source) {
         Equipment equipment = equipmentRepository.findById(id)
             .orElseThrow(() -> new IllegalArgumentException("Equipamento não encontrado: " + id));
         
         log.info("Parando equipamento: {} ({})", equipment.getName(), equipment.getId());
+        soeRecorder.record(commandMicros, SoeEventType.COMMAND_STOP, id, source, "Parada solicitada", Double.NaN);
         
         if (!equipment.canStop()) {
+            soeRecorder.record(SoeEventType.COMMAND_REJECTED, id, source, "Status " + equipment.getStatus());
             throw new IllegalStateException(
                 "Equipamento não pode ser parado. Status atual: " + equipment.getStatus()
             );
@@ -146,9 +186,19 @@ public class EquipmentService {
         
         equipment.setStatus(EquipmentStatus.STOPPING);
         equipment = equipmentRepository.save(equipment);
-        
-        // Simular parada
-        simulateShutdown(equipment);
+        soeRecorder.record(SoeEventType.STATE_CHANGE, id, source, EquipmentStatus.STOPPING.name());
+        return equipment;
+    }
+    
+    /**
+     * Etapa final da parada: status STOPPED e grandezas zeradas
+     */
+    public Equipment completeStop(String id, String source) {
+        Equipment equipment = equipmentRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("Equipamento não encontrado: " + id));
+        if (equipment.getStatus() != EquipmentStatus.STOPPING) {
+            throw new IllegalStateException("Parada interrompida. Status atual: " + equipment.getStatus());
+        }
         
         equipment.setStatus(EquipmentStatus.STOPPED);
         equipment.setCurrent(0.0);
@@ -162,10 +212,12 @@ public class EquipmentService {
         }
         
         if (equipment instanceof Inverter) {
+            rampEngine.cancel(id);
             ((Inverter) equipment).setOutputFrequency(0.0);
         }
         
         equipment = equipmentRepository.save(equipment);
+        soeRecorder.record(SoeEventType.STATE_CHANGE, id, source, EquipmentStatus.STOPPED.name());
         
         alarmService.createAlarm(
             equipment,
@@ -179,33 +231,15 @@ public class EquipmentService {
     }
     
     /**
-     * Parada de emergência
+     * Atualiza parâmetros de um inversor
      */
-    public void emergencyStopAll() {
-        log.warn("PARADA DE EMERGÊNCIA ACIONADA");
-        
-        List<Equipment> runningEquipment = findByStatus(EquipmentStatus.RUNNING);
-        
-        for (Equipment equipment : runningEquipment) {
-            equipment.setStatus(EquipmentStatus.STOPPED);
-            equipment.setCurrent(0.0);
-            equipment.setPower(0.0);
-            
-            alarmService.createAlarm(
-                equipment,
-                AlarmSeverity.CRITICAL,
-                AlarmType.EMERGENCY_STOP,
-                "Parada de emergência acionada"
-            );
-        }
-        
-        equipmentRepository.saveAll(runningEquipment);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Equipment updateInverterFrequency(String id, Double frequency) {
+        // Setpoint absoluto é idempotente: repete em caso de conflito de versão
+        return optimisticRetry.execute("setpoint de " + id, () -> applyFrequency(id, frequency));
     }
     
-    /**
-     * Atualiza parâmetros de um inversor
-     */
-    public Equipment updateInverterFrequency(String id, Double frequency) throws Exception {
+    private Equipment applyFrequency(String id, Double frequency) {
         Equipment equipment = equipmentRepository.findById(id)
             .orElseThrow(() -> new IllegalArgumentException("Equipamento não encontrado: " + id));
         
@@ -223,115 +257,18 @@ public class EquipmentService {
         }
         
         inverter.adjustFrequency(frequency);
+        inverter = equipmentRepository.saveAndFlush(inverter);
         
-        // Simular mudança de frequência
-        if (inverter.isRunning()) {
-            inverter.setOutputFrequency(frequency);
-            double motorSpeed = inverter.calculateMotorSpeed();
-            
-            // Se há motor conectado, atualizar RPM
-            if (equipment instanceof Motor) {
-                ((Motor) equipment).setRpm(motorSpeed);
-            }
-        }
-        
-        return equipmentRepository.save(inverter);
+        // Em operação, a saída vai ao novo setpoint pela rampa de aceleração/desaceleração
+        rampEngine.start(inverter);
+        return inverter;
     }
     
     /**
-     * Verifica e cria alarmes baseado em condições dos equipamentos
+     * Varredura completa das regras de alarme. A avaliação normal é por mudança
+     * de valor (AlarmRuleEngine); a varredura também roda periodicamente
      */
     public void checkEquipmentAlarms() {
-        List<Equipment> allEquipment = findAll();
-        
-        for (Equipment equipment : allEquipment) {
-            // Verificar sobrecarga
-            if (equipment.getCurrent() != null && equipment.getNominalCurrent() != null) {
-                double loadPercent = (equipment.getCurrent() / equipment.getNominalCurrent()) * 100;
-                
-                if (loadPercent > 110) {
-                    alarmService.createAlarm(
-                        equipment,
-                        AlarmSeverity.HIGH,
-                        AlarmType.OVERLOAD,
-                        String.format("Sobrecarga: %.1f%% da corrente nominal", loadPercent)
-                    );
-                }
-            }
-            
-            // Verificar temperatura
-            if (equipment.getTemperature() != null && equipment.getTemperature() > 80) {
-                alarmService.createAlarm(
-                    equipment,
-                    AlarmSeverity.HIGH,
-                    AlarmType.OVERTEMPERATURE,
-                    String.format("Temperatura alta: %.1f°C", equipment.getTemperature())
-                );
-            }
-            
-            // Verificações específicas para motores
-            if (equipment instanceof Motor) {
-                Motor motor = (Motor) equipment;
-                if (motor.isOverheating()) {
-                    alarmService.createAlarm(
-                        motor,
-                        AlarmSeverity.CRITICAL,
-                        AlarmType.OVERTEMPERATURE,
-                        String.format("Motor superaquecido: %.1f°C (limite classe %s excedido)",
-                            motor.getTemperature(), motor.getInsulationClass())
-                    );
-                }
-                
-                if (motor.hasExcessiveVibration()) {
-                    alarmService.createAlarm(
-                        motor,
-                        AlarmSeverity.MEDIUM,
-                        AlarmType.VIBRATION,
-                        String.format("Vibração excessiva: %.2f mm/s", motor.getVibrationLevel())
-                    );
-                }
-            }
-            
-            // Verificações específicas para transformadores
-            if (equipment instanceof Transformer) {
-                Transformer trafo = (Transformer) equipment;
-                
-                if (trafo.isOilLevelLow()) {
-                    alarmService.createAlarm(
-                        trafo,
-                        AlarmSeverity.HIGH,
-                        AlarmType.LOW_OIL_LEVEL,
-                        String.format("Nível de óleo baixo: %.1f%%", trafo.getOilLevel() * 100)
-                    );
-                }
-                
-                if (trafo.isOilTemperatureHigh()) {
-                    alarmService.createAlarm(
-                        trafo,
-                        AlarmSeverity.HIGH,
-                        AlarmType.HIGH_OIL_TEMPERATURE,
-                        String.format("Temperatura de óleo alta: %.1f°C", trafo.getOilTemperature())
-                    );
-                }
-            }
-        }
-    }
-    
-    private void simulateStartup(Equipment equipment) {
-        // Simular tempo de partida
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-    }
-    
-    private void simulateShutdown(Equipment equipment) {
-        // Simular tempo de parada
-        try {
-            Thread.sleep(50);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        alarmRuleEngine.evaluateAll();
     }
 }
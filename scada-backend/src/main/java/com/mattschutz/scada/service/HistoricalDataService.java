@@ -20,6 +20,7 @@ public class HistoricalDataService {
     
     private final HistoricalDataRepository historicalDataRepository;
     private final EquipmentService equipmentService;
+    private final LiveValueService liveValueService;
     
     public HistoricalData save(HistoricalData historicalData) {
         return historicalDataRepository.save(historicalData);
@@ -55,12 +56,16 @@ public class HistoricalDataService {
     /**
      * Coleta dados históricos de todos os equipamentos
      * Executado automaticamente a cada 3 segundos
+     * Equipamentos com aquisição Modbus são gravados pelo ModbusPollingService
      */
     @Scheduled(fixedRate = 3000) // 3 segundos
     public void collectHistoricalData() {
         List<Equipment> allEquipment = equipmentService.findAll();
         
         for (Equipment equipment : allEquipment) {
+            if (liveValueService.hasLiveValues(equipment.getId())) {
+                continue;
+            }
             try {
                 HistoricalData data = new HistoricalData(equipment);
                 data.setSource("automatic");
@@ -3,88 +3,195 @@ package com.mattschutz.scada.service;
 import com.mattschutz.scada.entity.Equipment;
 import com.mattschutz.scada.entity.EquipmentType;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.Duration;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Serviço de Interlock para prevenir partidas simultâneas de motores
- * Implementa tempo morto de 5 segundos entre partidas
+ * Serviço de Interlock para prevenir partidas simultâneas de motores.
+ *
+ * Cada grupo de interlock (barramento ou transformador de alimentação,
+ * Equipment.interlockGroup; motores sem grupo ficam no grupo padrão) tem um
+ * tempo morto entre partidas (scada.interlock.delay-seconds, 5 s). A
+ * verificação e o registro da partida são uma única reserva atômica: um
+ * compareAndSet no horário da última partida do grupo, sem lock, de modo
+ * que duas partidas concorrentes no mesmo grupo nunca passam juntas.
  */
 @Service
 @Slf4j
 public class InterlockService {
-    
-    private static final long INTERLOCK_DELAY_SECONDS = 5;
-    private final Map<String, LocalDateTime> lastStartTimes = new ConcurrentHashMap<>();
-    private LocalDateTime lastMotorStart = null;
-    
+
+    public static final String DEFAULT_GROUP = "padrão";
+    private static final long NEVER = Long.MIN_VALUE;
+
+    @Value("${scada.interlock.delay-seconds:5}")
+    private long delaySeconds;
+
+    // Grupo -> System.nanoTime() da última partida reservada
+    private final Map<String, AtomicLong> lastStarts = new ConcurrentHashMap<>();
+    private volatile long lastMotorStartMillis;
+
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
     /**
-     * Verifica se o equipamento pode ser iniciado
+     * Resultado de uma tentativa de reserva. Se negada, remainingMillis é o tempo até a liberação
      */
-    public boolean canStart(Equipment equipment) {
-        // Apenas motores são sujeitos ao interlock
-        if (equipment.getType() != EquipmentType.MOTOR) {
-            return true;
+    @lombok.Value
+    public static class Reservation {
+        String group;
+        long previous;
+        long reservedAt;
+        long remainingMillis;
+
+        public boolean isGranted() {
+            return remainingMillis == 0;
+        }
+    }
+
+    public static String groupOf(Equipment equipment) {
+        String group = equipment.getInterlockGroup();
+        return group == null || group.isBlank() ? DEFAULT_GROUP : group;
+    }
+
+    /**
+     * Apenas motores são sujeitos ao interlock
+     */
+    public static boolean appliesTo(Equipment equipment) {
+        return equipment.getType() == EquipmentType.MOTOR;
+    }
+
+    /**
+     * Verifica e registra a partida atomicamente
+     */
+    public Reservation tryReserve(Equipment equipment) {
+        if (!appliesTo(equipment)) {
+            return new Reservation(null, NEVER, NEVER, 0);
+        }
+        Reservation reservation = reserve(groupOf(equipment), delaySeconds * 1_000_000_000L);
+        if (reservation.isGranted()) {
+            granted.increment();
+            lastMotorStartMillis = System.currentTimeMillis();
+            log.info("Motor start registrado: {} (grupo {})", equipment.getName(), reservation.getGroup());
+        } else {
+            rejected.increment();
+            log.warn("Interlock ativo no grupo {}: aguarde {} ms", reservation.getGroup(), reservation.getRemainingMillis());
         }
-        
-        // Verificar se há start recente de qualquer motor
-        if (lastMotorStart != null) {
-            Duration timeSinceLastStart = Duration.between(lastMotorStart, LocalDateTime.now());
-            
-            if (timeSinceLastStart.getSeconds() < INTERLOCK_DELAY_SECONDS) {
-                long remainingSeconds = INTERLOCK_DELAY_SECONDS - timeSinceLastStart.getSeconds();
-                log.warn("Interlock ativo: aguarde {} segundos", remainingSeconds);
-                return false;
+        return reservation;
+    }
+
+    /**
+     * Reserva no grupo se o tempo morto desde a última partida já passou (CAS, sem lock)
+     */
+    Reservation reserve(String group, long delayNanos) {
+        AtomicLong last = lastStarts.get(group);
+        if (last == null) {
+            last = lastStarts.computeIfAbsent(group, g -> new AtomicLong(NEVER));
+        }
+        while (true) {
+            long now = System.nanoTime();
+            long previous = last.get();
+            if (previous != NEVER && now - previous < delayNanos) {
+                long remainingMillis = Math.max(1, (delayNanos - (now - previous) + 999_999) / 1_000_000);
+                return new Reservation(group, previous, NEVER, remainingMillis);
+            }
+            if (last.compareAndSet(previous, now)) {
+                return new Reservation(group, previous, now, 0);
             }
         }
-        
-        return true;
     }
-    
+
     /**
-     * Registra o início de um equipamento
+     * Desfaz uma reserva cuja partida não prosseguiu, se nenhuma outra foi feita depois
      */
-    public void registerStart(Equipment equipment) {
-        LocalDateTime now = LocalDateTime.now();
-        lastStartTimes.put(equipment.getId(), now);
-        
-        if (equipment.getType() == EquipmentType.MOTOR) {
-            lastMotorStart = now;
-            log.info("Motor start registrado: {} às {}", equipment.getName(), now);
+    public void release(Reservation reservation) {
+        if (reservation.getGroup() == null || !reservation.isGranted()) {
+            return;
+        }
+        AtomicLong last = lastStarts.get(reservation.getGroup());
+        if (last != null && last.compareAndSet(reservation.getReservedAt(), reservation.getPrevious())) {
+            log.info("Reserva de interlock desfeita no grupo {}", reservation.getGroup());
         }
     }
-    
+
     /**
-     * Retorna o tempo restante de interlock em segundos
+     * Verifica se o equipamento pode ser iniciado agora, sem reservar
      */
-    public long getRemainingInterlockTime() {
-        if (lastMotorStart == null) {
+    public boolean canStart(Equipment equipment) {
+        return getRemainingMillis(equipment) == 0;
+    }
+
+    /**
+     * Tempo até o interlock do grupo do equipamento liberar (ms), sem reservar
+     */
+    public long getRemainingMillis(Equipment equipment) {
+        return appliesTo(equipment) ? remainingMillis(groupOf(equipment)) : 0;
+    }
+
+    private long remainingMillis(String group) {
+        AtomicLong last = lastStarts.get(group);
+        long previous = last != null ? last.get() : NEVER;
+        if (previous == NEVER) {
             return 0;
         }
-        
-        Duration timeSinceLastStart = Duration.between(lastMotorStart, LocalDateTime.now());
-        long remainingSeconds = INTERLOCK_DELAY_SECONDS - timeSinceLastStart.getSeconds();
-        
-        return Math.max(0, remainingSeconds);
+        long remainingNanos = delaySeconds * 1_000_000_000L - (System.nanoTime() - previous);
+        return remainingNanos > 0 ? Math.max(1, (remainingNanos + 999_999) / 1_000_000) : 0;
     }
-    
+
+    public long getDelayMillis() {
+        return delaySeconds * 1000;
+    }
+
+    /**
+     * Retorna o maior tempo restante de interlock entre os grupos, em segundos
+     */
+    public long getRemainingInterlockTime() {
+        long remaining = 0;
+        for (String group : lastStarts.keySet()) {
+            remaining = Math.max(remaining, remainingMillis(group));
+        }
+        return (remaining + 999) / 1000;
+    }
+
     /**
      * Retorna quando foi o último start de motor
      */
     public LocalDateTime getLastMotorStartTime() {
-        return lastMotorStart;
+        long millis = lastMotorStartMillis;
+        return millis > 0 ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()) : null;
     }
-    
+
+    /**
+     * Tempo restante por grupo (ms) e contadores de reservas
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Long> groups = new LinkedHashMap<>();
+        for (String group : lastStarts.keySet()) {
+            groups.put(group, remainingMillis(group));
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("delayMillis", getDelayMillis());
+        status.put("groups", groups);
+        status.put("granted", granted.sum());
+        status.put("rejected", rejected.sum());
+        status.put("lastMotorStart", getLastMotorStartTime());
+        return status;
+    }
+
     /**
      * Limpa o histórico de interlock (para testes)
      */
     public void clearInterlockHistory() {
-        lastStartTimes.clear();
-        lastMotorStart = null;
+        lastStarts.clear();
+        lastMotorStartMillis = 0;
         log.info("Histórico de interlock limpo");
     }
 }
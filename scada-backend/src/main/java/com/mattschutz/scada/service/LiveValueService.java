@@ -0,0 +1,128 @@
+package com.mattschutz.scada.service;
+
+import com.mattschutz.scada.entity.EquipmentField;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tabela em memória com o último valor lido em campo de cada grandeza,
+ * por equipamento. Leituras e escritas não bloqueiam.
+ * Ouvintes registrados são notificados, na thread de aquisição, a cada
+ * valor que muda.
+ */
+@Service
+public class LiveValueService {
+
+    private static final EquipmentField[] FIELDS = EquipmentField.values();
+
+    private final Map<String, LiveValues> table = new ConcurrentHashMap<>();
+    private final List<ValueChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Chamado quando o valor de uma grandeza muda. Deve ser rápido e não bloquear
+     */
+    public interface ValueChangeListener {
+        void onValueChanged(String equipmentId, EquipmentField field, double value, long timestampMillis);
+    }
+
+    public void addListener(ValueChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ValueChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Registra um novo valor. Retorna true se o valor mudou
+     */
+    public boolean update(String equipmentId, EquipmentField field, double value, long timestampMillis) {
+        LiveValues values = table.computeIfAbsent(equipmentId, id -> new LiveValues());
+        boolean changed = values.set(field.ordinal(), value, timestampMillis);
+        if (changed) {
+            for (ValueChangeListener listener : listeners) {
+                listener.onValueChanged(equipmentId, field, value, timestampMillis);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Retorna o último valor (NaN se nunca lido)
+     */
+    public double get(String equipmentId, EquipmentField field) {
+        LiveValues values = table.get(equipmentId);
+        return values != null ? values.value(field.ordinal()) : Double.NaN;
+    }
+
+    public long getTimestamp(String equipmentId, EquipmentField field) {
+        LiveValues values = table.get(equipmentId);
+        return values != null ? values.timestamp(field.ordinal()) : 0L;
+    }
+
+    /**
+     * Retorna os valores lidos do equipamento
+     */
+    public Map<EquipmentField, Double> snapshot(String equipmentId) {
+        Map<EquipmentField, Double> result = new EnumMap<>(EquipmentField.class);
+        LiveValues values = table.get(equipmentId);
+        if (values == null) {
+            return result;
+        }
+        for (EquipmentField field : FIELDS) {
+            double v = values.value(field.ordinal());
+            if (!Double.isNaN(v)) {
+                result.put(field, v);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indica se o equipamento é alimentado por aquisição de campo
+     */
+    public boolean hasLiveValues(String equipmentId) {
+        return table.containsKey(equipmentId);
+    }
+
+    public void remove(String equipmentId) {
+        table.remove(equipmentId);
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    private static final class LiveValues {
+        private final AtomicLongArray values = new AtomicLongArray(FIELDS.length);
+        private final AtomicLongArray timestamps = new AtomicLongArray(FIELDS.length);
+
+        LiveValues() {
+            long nan = Double.doubleToRawLongBits(Double.NaN);
+            for (int i = 0; i < FIELDS.length; i++) {
+                values.set(i, nan);
+            }
+        }
+
+        boolean set(int index, double value, long timestampMillis) {
+            long bits = Double.doubleToRawLongBits(value);
+            long previous = values.getAndSet(index, bits);
+            timestamps.set(index, timestampMillis);
+            return previous != bits;
+        }
+
+        double value(int index) {
+            return Double.longBitsToDouble(values.get(index));
+        }
+
+        long timestamp(int index) {
+            return timestamps.get(index);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.mattschutz.scada.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Repetição limitada de operações idempotentes que falham por conflito de
+ * versão (@Version). Cada tentativa roda em uma transação nova e relê o
+ * estado; não deve ser chamada dentro de uma transação já aberta.
+ * Operações não idempotentes não usam este componente: o conflito chega
+ * ao chamador.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OptimisticRetry {
+
+    public static final String CONFLICT_MESSAGE =
+        "Equipamento alterado por outra operação; recarregue e tente novamente";
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${scada.optimistic.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${scada.optimistic.backoff-millis:10}")
+    private long backoffMillis;
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public <T> T execute(String operation, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    log.warn("Conflito de versão em {} após {} tentativas", operation, attempt);
+                    throw e;
+                }
+                retries.increment();
+                log.debug("Conflito de versão em {}, tentativa {}", operation, attempt);
+                pause(attempt);
+            }
+        }
+    }
+
+    public void run(String operation, Runnable work) {
+        execute(operation, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Espera crescente com variação aleatória, para as tentativas concorrentes não colidirem de novo
+     */
+    private void pause(int attempt) {
+        long millis = backoffMillis * attempt + ThreadLocalRandom.current().nextLong(backoffMillis + 1);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxAttempts", maxAttempts);
+        stats.put("retries", retries.sum());
+        stats.put("exhausted", exhausted.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,120 @@
+package com.mattschutz.scada.soe;
+
+import com.mattschutz.scada.entity.SoeEvent;
+import com.mattschutz.scada.entity.SoeEventType;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffer circular sem lock para os eventos do SOE: vários produtores (threads
+ * de aquisição, avaliação de alarmes, requisições) e um único consumidor (a
+ * descarga para o banco). Cada célula tem um número de sequência que indica
+ * se está livre para o produtor da posição ou pronta para o consumidor; o
+ * produtor só disputa a posição com um CAS e nunca espera. Células são
+ * pré-alocadas e reaproveitadas.
+ *
+ * Buffer cheio: o evento novo é recusado (os primeiros eventos de uma
+ * ocorrência são os que importam para a análise).
+ */
+final class SoeBuffer {
+
+    private static final class Cell {
+        volatile long sequence;
+        long timestampMicros;
+        SoeEventType type;
+        String equipmentId;
+        String source;
+        String detail;
+        double value;
+    }
+
+    private final Cell[] cells;
+    private final int mask;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    // Escrita só pelo consumidor
+    private volatile long dequeuePosition;
+
+    SoeBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        cells = new Cell[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            cells[i] = new Cell();
+            cells[i].sequence = i;
+        }
+    }
+
+    int capacity() {
+        return cells.length;
+    }
+
+    /**
+     * Registra um evento. Retorna a posição (sequência de registro) ou -1 se o buffer está cheio
+     */
+    long offer(long timestampMicros, SoeEventType type, String equipmentId, String source, String detail,
+               double value) {
+        long position = enqueuePosition.get();
+        while (true) {
+            Cell cell = cells[(int) (position & mask)];
+            long difference = cell.sequence - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    cell.timestampMicros = timestampMicros;
+                    cell.type = type;
+                    cell.equipmentId = equipmentId;
+                    cell.source = source;
+                    cell.detail = detail;
+                    cell.value = value;
+                    // Publica a célula para o consumidor
+                    cell.sequence = position + 1;
+                    return position;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                return -1;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Move até max eventos publicados para target, na ordem de registro. Só o consumidor chama
+     */
+    int drain(List<SoeEvent> target, int max) {
+        int drained = 0;
+        long position = dequeuePosition;
+        while (drained < max) {
+            Cell cell = cells[(int) (position & mask)];
+            if (cell.sequence != position + 1) {
+                // Vazio, ou produtor ainda preenchendo a célula
+                break;
+            }
+            SoeEvent event = new SoeEvent();
+            event.setSequence(position);
+            event.setTimestampMicros(cell.timestampMicros);
+            event.setType(cell.type);
+            event.setEquipmentId(cell.equipmentId);
+            event.setSource(cell.source);
+            event.setDetail(cell.detail);
+            event.setValue(Double.isNaN(cell.value) ? null : cell.value);
+            target.add(event);
+
+            cell.type = null;
+            cell.equipmentId = null;
+            cell.source = null;
+            cell.detail = null;
+            // Libera a célula para a próxima volta do buffer
+            cell.sequence = position + cells.length;
+            position++;
+            drained++;
+        }
+        dequeuePosition = position;
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, enqueuePosition.get() - dequeuePosition);
+    }
+}
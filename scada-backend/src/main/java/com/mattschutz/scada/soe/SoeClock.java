@@ -0,0 +1,64 @@
+package com.mattschutz.scada.soe;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Relógio da sequência de eventos: epoch em microssegundos ancorado em
+ * System.nanoTime na carga da classe. Tem resolução de microssegundo e é
+ * monotônico (ajustes do relógio do sistema não reordenam eventos); o desvio
+ * em relação ao relógio do sistema aparece nas estatísticas do SOE.
+ */
+public final class SoeClock {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
+
+    private static final long ANCHOR_EPOCH_MICROS;
+    private static final long ANCHOR_NANOS;
+
+    static {
+        Instant now = Instant.now();
+        ANCHOR_NANOS = System.nanoTime();
+        ANCHOR_EPOCH_MICROS = toMicros(now);
+    }
+
+    private SoeClock() {
+    }
+
+    /**
+     * Instante atual em microssegundos desde a época
+     */
+    public static long nowMicros() {
+        return ANCHOR_EPOCH_MICROS + (System.nanoTime() - ANCHOR_NANOS) / 1_000;
+    }
+
+    /**
+     * Relógio do sistema menos o relógio do SOE, em microssegundos
+     */
+    public static long driftMicros() {
+        return toMicros(Instant.now()) - nowMicros();
+    }
+
+    public static long toMicros(LocalDateTime dateTime) {
+        return toMicros(dateTime.atZone(ZONE).toInstant());
+    }
+
+    private static long toMicros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1_000;
+    }
+
+    public static LocalDateTime toDateTime(long micros) {
+        Instant instant = Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000), Math.floorMod(micros, 1_000_000) * 1_000);
+        return LocalDateTime.ofInstant(instant, ZONE);
+    }
+
+    /**
+     * ISO-8601 local com seis casas decimais
+     */
+    public static String format(long micros) {
+        return FORMAT.format(toDateTime(micros));
+    }
+}
@@ -0,0 +1,314 @@
+package com.mattschutz.scada.soe;
+
+import com.mattschutz.scada.dto.SoeEventDTO;
+import com.mattschutz.scada.dto.SoeReportDTO;
+import com.mattschutz.scada.entity.Equipment;
+import com.mattschutz.scada.entity.SoeEvent;
+import com.mattschutz.scada.entity.SoeEventType;
+import com.mattschutz.scada.repository.EquipmentRepository;
+import com.mattschutz.scada.repository.SoeEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registrador de sequência de eventos (SOE).
+ *
+ * Detecções de alarme e comandos registram o evento com o horário capturado
+ * no próprio ponto de detecção/comando ({@link SoeClock}, microssegundos) em
+ * um buffer em memória sem lock ({@link SoeBuffer}); o registro não faz I/O.
+ * A descarga para a tabela soe_event roda periodicamente (soe.flush-interval)
+ * ou quando o buffer passa da metade, e o relatório de uma janela de
+ * ocorrência lista os eventos em ordem de horário com os intervalos entre eles.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SoeRecorder {
+
+    private static final int MAX_REPORT_EVENTS = 10_000;
+    private static final String SYSTEM_SOURCE = "sistema";
+
+    private final SoeEventRepository soeEventRepository;
+    private final EquipmentRepository equipmentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService blockingExecutor;
+
+    @Value("${soe.buffer.capacity:65536}")
+    private int capacity;
+
+    @Value("${soe.flush.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${soe.retention-days:90}")
+    private int retentionDays;
+
+    private SoeBuffer buffer;
+
+    // Único consumidor do buffer; mantido durante a gravação, nunca pelos produtores
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // Lote que falhou ao gravar; tentado de novo na próxima descarga (sob flushLock)
+    private List<SoeEvent> unsaved = List.of();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private volatile LocalDateTime lastFlushAt;
+    private volatile int lastFlushEvents;
+    private volatile long maxFlushMicros;
+    private volatile int highWatermark;
+
+    @PostConstruct
+    public void init() {
+        buffer = new SoeBuffer(capacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    public long record(SoeEventType type, String equipmentId, String source, String detail) {
+        return record(SoeClock.nowMicros(), type, equipmentId, source, detail, Double.NaN);
+    }
+
+    public long record(SoeEventType type, String equipmentId, String source, String detail, double value) {
+        return record(SoeClock.nowMicros(), type, equipmentId, source, detail, value);
+    }
+
+    /**
+     * Registra um evento com horário já capturado (SoeClock.nowMicros()).
+     * Não bloqueia; retorna a sequência de registro ou -1 se o buffer está cheio
+     */
+    public long record(long timestampMicros, SoeEventType type, String equipmentId, String source,
+                       String detail, double value) {
+        long sequence = buffer.offer(timestampMicros, type, equipmentId, source, detail, value);
+        if (sequence < 0) {
+            dropped.increment();
+            requestFlush();
+            return -1;
+        }
+        recorded.increment();
+        int size = buffer.size();
+        if (size > highWatermark) {
+            highWatermark = size;
+        }
+        if (size >= buffer.capacity() / 2) {
+            requestFlush();
+        }
+        return sequence;
+    }
+
+    /**
+     * Usuário da requisição atual, para a origem de comandos
+     */
+    public static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : SYSTEM_SOURCE;
+    }
+
+    private void requestFlush() {
+        if (!flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            blockingExecutor.execute(() -> {
+                try {
+                    flush();
+                } catch (Exception e) {
+                    log.error("Erro na descarga do SOE: {}", e.getMessage());
+                } finally {
+                    flushRequested.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            flushRequested.set(false);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${soe.flush-interval:1000}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Erro na descarga do SOE: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Grava no banco os eventos do buffer. Retorna quantos foram gravados
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            long start = System.nanoTime();
+            int total = 0;
+            if (!unsaved.isEmpty()) {
+                if (!persist(unsaved)) {
+                    return 0;
+                }
+                total += unsaved.size();
+                unsaved = List.of();
+            }
+            List<SoeEvent> batch = new ArrayList<>(batchSize);
+            while (buffer.drain(batch, batchSize) > 0) {
+                if (!persist(batch)) {
+                    unsaved = batch;
+                    break;
+                }
+                total += batch.size();
+                batch = new ArrayList<>(batchSize);
+            }
+            if (total > 0) {
+                long elapsedMicros = (System.nanoTime() - start) / 1_000;
+                lastFlushAt = LocalDateTime.now();
+                lastFlushEvents = total;
+                maxFlushMicros = Math.max(maxFlushMicros, elapsedMicros);
+                flushed.add(total);
+            }
+            return total;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean persist(List<SoeEvent> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> soeEventRepository.saveAll(batch));
+            return true;
+        } catch (Exception e) {
+            flushFailures.increment();
+            // Ids atribuídos na transação desfeita não foram gravados
+            batch.forEach(event -> event.setId(null));
+            log.error("Erro ao gravar {} eventos do SOE: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Relatório de sequência de eventos da janela, em ordem de horário.
+     * Descarrega o buffer antes, para incluir os eventos mais recentes
+     */
+    public SoeReportDTO report(LocalDateTime start, LocalDateTime end, String equipmentId) {
+        if (start == null || end == null || end.isBefore(start)) {
+            throw new IllegalArgumentException("Janela inválida");
+        }
+        flush();
+
+        long startMicros = SoeClock.toMicros(start);
+        long endMicros = SoeClock.toMicros(end);
+        List<SoeEvent> events = soeEventRepository.findWindow(startMicros, endMicros, equipmentId,
+            PageRequest.of(0, MAX_REPORT_EVENTS + 1));
+        boolean truncated = events.size() > MAX_REPORT_EVENTS;
+        if (truncated) {
+            events = events.subList(0, MAX_REPORT_EVENTS);
+        }
+
+        Set<String> equipmentIds = new HashSet<>();
+        for (SoeEvent event : events) {
+            if (event.getEquipmentId() != null) {
+                equipmentIds.add(event.getEquipmentId());
+            }
+        }
+        Map<String, String> names = new HashMap<>();
+        for (Equipment equipment : equipmentRepository.findAllById(equipmentIds)) {
+            names.put(equipment.getId(), equipment.getName());
+        }
+
+        List<SoeEventDTO> rows = new ArrayList<>(events.size());
+        long previous = startMicros;
+        for (SoeEvent event : events) {
+            long timestamp = event.getTimestampMicros();
+            rows.add(SoeEventDTO.builder()
+                .sequence(event.getSequence())
+                .timestampMicros(timestamp)
+                .time(SoeClock.format(timestamp))
+                .offsetMicros(timestamp - startMicros)
+                .deltaMicros(timestamp - previous)
+                .type(event.getType())
+                .equipmentId(event.getEquipmentId())
+                .equipmentName(names.get(event.getEquipmentId()))
+                .source(event.getSource())
+                .detail(event.getDetail())
+                .value(event.getValue())
+                .build());
+            previous = timestamp;
+        }
+
+        return SoeReportDTO.builder()
+            .windowStart(SoeClock.format(startMicros))
+            .windowEnd(SoeClock.format(endMicros))
+            .equipmentId(equipmentId)
+            .eventCount(rows.size())
+            .truncated(truncated)
+            .droppedEvents(dropped.sum())
+            .events(rows)
+            .build();
+    }
+
+    /**
+     * Relatório da janela em torno de uma ocorrência
+     */
+    public SoeReportDTO incident(LocalDateTime at, long beforeMillis, long afterMillis, String equipmentId) {
+        if (beforeMillis < 0 || afterMillis < 0) {
+            throw new IllegalArgumentException("Janela inválida");
+        }
+        return report(at.minusNanos(beforeMillis * 1_000_000), at.plusNanos(afterMillis * 1_000_000), equipmentId);
+    }
+
+    /**
+     * Remove eventos mais antigos que soe.retention-days
+     */
+    @Scheduled(cron = "${soe.retention-cron:0 45 0 * * *}")
+    public void purge() {
+        long cutoff = SoeClock.toMicros(LocalDateTime.now().minusDays(retentionDays));
+        try {
+            Integer removed = transactionTemplate.execute(status -> soeEventRepository.deleteOlderThan(cutoff));
+            if (removed != null && removed > 0) {
+                log.info("Eventos do SOE removidos por retenção: {}", removed);
+            }
+        } catch (Exception e) {
+            log.error("Erro na limpeza do SOE: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", buffer.capacity());
+        stats.put("buffered", buffer.size());
+        stats.put("highWatermark", highWatermark);
+        stats.put("recorded", recorded.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("flushed", flushed.sum());
+        stats.put("flushFailures", flushFailures.sum());
+        stats.put("lastFlushAt", lastFlushAt);
+        stats.put("lastFlushEvents", lastFlushEvents);
+        stats.put("maxFlushMillis", maxFlushMicros / 1_000.0);
+        stats.put("clockDriftMicros", SoeClock.driftMicros());
+        return stats;
+    }
+}
@@ -0,0 +1,127 @@
+package com.mattschutz.scada.alarm;
+
+import com.mattschutz.scada.entity.AlarmComparator;
+import com.mattschutz.scada.entity.AlarmLimitMode;
+import com.mattschutz.scada.entity.AlarmRule;
+import com.mattschutz.scada.entity.AlarmSeverity;
+import com.mattschutz.scada.entity.AlarmType;
+import com.mattschutz.scada.entity.EquipmentField;
+import com.mattschutz.scada.entity.EquipmentType;
+import com.mattschutz.scada.entity.Motor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Laço de avaliação das regras compiladas com motores sintéticos (somente memória)
+ */
+@Slf4j
+class CompiledRuleSetTest {
+
+    private static final int TAGS = 100_000;
+    private static final int PASSES = 100;
+
+    private static final List<AlarmRule> RULES = List.of(
+        rule(EquipmentField.CURRENT, AlarmComparator.ABOVE, 110.0, AlarmLimitMode.PERCENT_OF_NOMINAL,
+            AlarmType.OVERCURRENT),
+        rule(EquipmentField.VIBRATION, AlarmComparator.ABOVE, 7.1, AlarmLimitMode.ABSOLUTE, AlarmType.VIBRATION),
+        rule(EquipmentField.TEMPERATURE, AlarmComparator.ABOVE, 80.0, AlarmLimitMode.ABSOLUTE,
+            AlarmType.OVERTEMPERATURE));
+
+    @Test
+    void evaluatesAllTagsPerPass() {
+        int assets = TAGS / RULES.size();
+        List<Motor> motors = new ArrayList<>(assets);
+        for (int i = 0; i < assets; i++) {
+            motors.add(syntheticMotor(i));
+        }
+
+        long compileStart = System.nanoTime();
+        CompiledRuleSet set = CompiledRuleSet.compile(RULES, motors, 2.0, 0, 0);
+        double compileMillis = (System.nanoTime() - compileStart) / 1e6;
+        assertThat(set.slotCount).isEqualTo(assets * RULES.size());
+
+        // Valores entre 80% e 120% do limite: parte dos slots entra em alarme
+        SplittableRandom random = new SplittableRandom(42);
+        for (int s = 0; s < set.slotCount; s++) {
+            set.values[set.slotValue[s]] = set.slotLimit[s] * (0.8 + 0.4 * random.nextDouble());
+        }
+        long[] transitions = new long[1];
+        CompiledRuleSet.TransitionListener counter = slot -> transitions[0]++;
+        for (int i = 0; i < 5; i++) {
+            set.evaluate(System.currentTimeMillis(), counter);
+        }
+        assertThat(transitions[0]).isPositive();
+
+        // Cada passada leva um valor para abaixo de zero: só os slots ativos normalizam
+        long expected = 0;
+        for (int s = 0; s < PASSES; s++) {
+            if (set.active[s]) {
+                expected++;
+            }
+        }
+        transitions[0] = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < PASSES; i++) {
+            // Alterna um valor por passada para haver transições no laço medido
+            int slot = i % set.slotCount;
+            set.values[set.slotValue[slot]] = -set.values[set.slotValue[slot]];
+            set.evaluate(System.currentTimeMillis(), counter);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        log.info("Regras compiladas: {} tags em {} ms; {} ns/tag, {} transições em {} passadas",
+            set.slotCount, String.format("%.1f", compileMillis),
+            String.format("%.1f", (double) elapsed / ((long) set.slotCount * PASSES)), transitions[0], PASSES);
+        assertThat(transitions[0]).isEqualTo(expected);
+    }
+
+    @Test
+    void appliesHysteresisBeforeClearing() {
+        CompiledRuleSet set = CompiledRuleSet.compile(RULES, List.of(syntheticMotor(0)), 2.0, 0, 0);
+        int temperature = CompiledRuleSet.valueIndex(0, EquipmentField.TEMPERATURE);
+        long[] transitions = new long[1];
+        CompiledRuleSet.TransitionListener counter = slot -> transitions[0]++;
+
+        set.values[temperature] = 81.0;
+        set.evaluateValue(temperature, 1_000, counter);
+        assertThat(transitions[0]).isEqualTo(1);
+
+        // Dentro da banda morta (2% de 80 = 1,6): continua ativo
+        set.values[temperature] = 79.0;
+        set.evaluateValue(temperature, 2_000, counter);
+        assertThat(transitions[0]).isEqualTo(1);
+
+        set.values[temperature] = 78.0;
+        set.evaluateValue(temperature, 3_000, counter);
+        assertThat(transitions[0]).isEqualTo(2);
+    }
+
+    private static AlarmRule rule(EquipmentField field, AlarmComparator comparator, double limit,
+                                  AlarmLimitMode limitMode, AlarmType type) {
+        AlarmRule rule = new AlarmRule();
+        rule.setName(type.name());
+        rule.setField(field);
+        rule.setComparator(comparator);
+        rule.setLimit(limit);
+        rule.setLimitMode(limitMode);
+        rule.setSeverity(AlarmSeverity.HIGH);
+        rule.setType(type);
+        rule.setEquipmentType(EquipmentType.MOTOR);
+        return rule;
+    }
+
+    private static Motor syntheticMotor(int index) {
+        Motor motor = new Motor();
+        motor.setId("teste-" + index);
+        motor.setName("Teste " + index);
+        motor.setType(EquipmentType.MOTOR);
+        motor.setNominalCurrent(100.0);
+        return motor;
+    }
+}
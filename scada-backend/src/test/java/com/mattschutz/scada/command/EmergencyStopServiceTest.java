@@ -0,0 +1,65 @@
+package com.mattschutz.scada.command;
+
+import com.mattschutz.scada.dto.EmergencyStopResultDTO;
+import com.mattschutz.scada.entity.Equipment;
+import com.mattschutz.scada.entity.EquipmentStatus;
+import com.mattschutz.scada.entity.EquipmentType;
+import com.mattschutz.scada.entity.Motor;
+import com.mattschutz.scada.repository.EquipmentRepository;
+import com.mattschutz.scada.soe.SoeClock;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tempo até todos parados com equipamentos sintéticos em operação (H2)
+ */
+@SpringBootTest
+@Slf4j
+class EmergencyStopServiceTest {
+
+    private static final int ASSETS = 10_000;
+
+    @Autowired
+    private EmergencyStopService emergencyStopService;
+
+    @Autowired
+    private EquipmentRepository equipmentRepository;
+
+    @Test
+    void stopsAllActiveEquipment() {
+        List<Equipment> synthetic = new ArrayList<>(ASSETS);
+        for (int i = 0; i < ASSETS; i++) {
+            synthetic.add(syntheticMotor(i));
+        }
+        equipmentRepository.saveAll(synthetic);
+        long requestedMicros = SoeClock.nowMicros();
+
+        EmergencyStopResultDTO result = emergencyStopService.emergencyStop("teste");
+
+        log.info("Parada de emergência: {} equipamentos parados em {} ms (SLA {} ms)",
+            result.getStopped(), String.format("%.1f", result.getTimeToStoppedMillis()), result.getSlaMillis());
+        assertThat(result.getStopped()).isGreaterThanOrEqualTo(ASSETS);
+        assertThat(equipmentRepository.findIdsByStatusIn(EnumSet.of(EquipmentStatus.STARTING,
+            EquipmentStatus.RUNNING, EquipmentStatus.WARNING, EquipmentStatus.STOPPING))).isEmpty();
+        // Partidas solicitadas antes do acionamento são canceladas
+        assertThat(emergencyStopService.isPrecededBy(requestedMicros)).isTrue();
+    }
+
+    private static Motor syntheticMotor(int index) {
+        Motor motor = new Motor();
+        motor.setName("Teste emergência " + index);
+        motor.setType(EquipmentType.MOTOR);
+        motor.setStatus(EquipmentStatus.RUNNING);
+        motor.setNominalCurrent(100.0);
+        motor.setCurrent(80.0);
+        return motor;
+    }
+}
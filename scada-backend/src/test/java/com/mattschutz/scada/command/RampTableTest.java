@@ -0,0 +1,80 @@
+package com.mattschutz.scada.command;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Passada de avanço das rampas sobre a tabela de vetores primitivos (somente memória)
+ */
+@Slf4j
+class RampTableTest {
+
+    private static final int RAMPS = 10_000;
+    private static final double DT = 0.1;
+
+    @Test
+    void advancesEveryRampToItsTarget() {
+        RampTable table = new RampTable(RAMPS);
+        for (int i = 0; i < RAMPS; i++) {
+            // Alvos e tempos variados para que as rampas terminem em ticks diferentes
+            table.put("rampa-" + i, 0.0, 10.0 + i % 51, 5.0 + i % 20, 5.0, 4, 100.0, 60.0);
+        }
+
+        Set<String> finished = new HashSet<>();
+        long steps = 0;
+        int ticks = 0;
+        long start = System.nanoTime();
+        while (table.size() > 0 && ticks < 1_000) {
+            table.advance(DT);
+            steps += table.outCount;
+            for (int o = 0; o < table.outCount; o++) {
+                if (table.outFinished[o]) {
+                    int index = Integer.parseInt(table.outIds[o].substring("rampa-".length()));
+                    assertThat(table.outFrequency[o]).isEqualTo(10.0 + index % 51);
+                    assertThat(finished.add(table.outIds[o])).isTrue();
+                }
+            }
+            ticks++;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        log.info("Rampas: {} em {} ticks, {} µs/tick, {} ns/passo", RAMPS, ticks,
+            String.format("%.1f", elapsed / 1e3 / ticks), String.format("%.1f", (double) elapsed / steps));
+        assertThat(finished).hasSize(RAMPS);
+        // Rampa mais longa: 24 s de 0 à nominal (60 Hz) para alvo até 60 Hz
+        assertThat(ticks).isLessThanOrEqualTo((int) Math.ceil(24.0 / DT) + 1);
+    }
+
+    @Test
+    void followsAccelerationAndDecelerationRates() {
+        RampTable table = new RampTable(1);
+        table.put("inversor", 0.0, 60.0, 10.0, 5.0, 4, 100.0, 60.0);
+        for (int i = 0; i < 10; i++) {
+            table.advance(DT);
+        }
+        // 6 Hz/s durante 1 s; corrente a vazio mais carga quadrática
+        assertThat(table.output("inversor")).isCloseTo(6.0, within(1e-9));
+        assertThat(table.currentAt(0)).isCloseTo(100.0 * (0.3 + 0.5 * 0.01), within(1e-9));
+        assertThat(table.speedAt(0)).isCloseTo(180.0, within(1e-9));
+
+        // Novo alvo mantém a frequência atual e desacelera a 12 Hz/s
+        table.put("inversor", 0.0, 0.0, 10.0, 5.0, 4, 100.0, 60.0);
+        table.advance(DT);
+        assertThat(table.output("inversor")).isCloseTo(4.8, within(1e-9));
+        int ticks = 1;
+        while (table.contains("inversor") && ticks < 10) {
+            table.advance(DT);
+            ticks++;
+        }
+        assertThat(ticks).isBetween(5, 6);
+        assertThat(table.contains("inversor")).isFalse();
+        assertThat(table.outFinished[0]).isTrue();
+        assertThat(table.outFrequency[0]).isEqualTo(0.0);
+    }
+}
@@ -0,0 +1,319 @@
+package com.mattschutz.scada.service;
+
+import com.mattschutz.scada.alarm.AlarmPipeline;
+import com.mattschutz.scada.command.CommandService;
+import com.mattschutz.scada.command.CommandType;
+import com.mattschutz.scada.command.EquipmentCommand;
+import com.mattschutz.scada.entity.Equipment;
+import com.mattschutz.scada.entity.EquipmentField;
+import com.mattschutz.scada.entity.EquipmentType;
+import com.mattschutz.scada.entity.Inverter;
+import com.mattschutz.scada.entity.Motor;
+import com.mattschutz.scada.modbus.ModbusPollingService;
+import com.mattschutz.scada.repository.EquipmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concorrência da versão otimista dos equipamentos (H2).
+ *
+ * Threads disputam os mesmos equipamentos sintéticos pelos caminhos da
+ * operação: comandos de partida/parada dos motores pelo CommandService,
+ * setpoint dos inversores, PUT com a versão carregada e, em paralelo, a
+ * gravação dos valores ao vivo como na varredura Modbus (uma gravação por
+ * vez, como o coletor). Cada escrita confirmada altera o equipamento
+ * (valores distintos a cada operação), então deve incrementar a versão
+ * exatamente uma vez: por equipamento, incrementos da versão = escritas
+ * confirmadas. Os inversores ficam parados, para que a rampa de frequência
+ * não grave fora da contagem.
+ */
+@SpringBootTest
+@Slf4j
+class EquipmentConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 50;
+    private static final int MOTORS = 2;
+    private static final int INVERTERS = 2;
+    private static final String SOURCE = "teste de concorrência";
+    private static final long COMMAND_TIMEOUT_MILLIS = 30_000;
+    private static final long CLEANUP_TIMEOUT_MILLIS = 10_000;
+
+    @Autowired
+    private EquipmentRepository equipmentRepository;
+
+    @Autowired
+    private EquipmentService equipmentService;
+
+    @Autowired
+    private CommandService commandService;
+
+    @Autowired
+    private ModbusPollingService modbusPollingService;
+
+    @Autowired
+    private LiveValueService liveValueService;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private AlarmPipeline alarmPipeline;
+
+    private final List<Equipment> synthetic = new ArrayList<>();
+    private final ConcurrentLinkedQueue<EquipmentCommand> submitted = new ConcurrentLinkedQueue<>();
+
+    private enum Operation {
+        START, STOP, SETPOINT, PUT, MODBUS
+    }
+
+    /**
+     * Contagem do teste: operações, sucessos e exceções por tipo, escritas confirmadas por equipamento
+     */
+    private static final class Tally {
+        final Map<Operation, LongAdder> attempted = new ConcurrentHashMap<>();
+        final Map<Operation, LongAdder> succeeded = new ConcurrentHashMap<>();
+        final Map<String, LongAdder> exceptions = new ConcurrentHashMap<>();
+        final Map<String, LongAdder> writes = new ConcurrentHashMap<>();
+
+        void attempt(Operation operation) {
+            attempted.computeIfAbsent(operation, key -> new LongAdder()).increment();
+        }
+
+        void success(Operation operation) {
+            succeeded.computeIfAbsent(operation, key -> new LongAdder()).increment();
+        }
+
+        void write(String equipmentId, long count) {
+            if (count > 0) {
+                writes.computeIfAbsent(equipmentId, key -> new LongAdder()).add(count);
+            }
+        }
+
+        void failure(Throwable error) {
+            if ((error instanceof CompletionException || error instanceof ExecutionException)
+                    && error.getCause() != null) {
+                error = error.getCause();
+            }
+            String key = error.getClass().getSimpleName();
+            if (OptimisticRetry.CONFLICT_MESSAGE.equals(error.getMessage())) {
+                key += " (conflito de versão)";
+            }
+            exceptions.computeIfAbsent(key, k -> new LongAdder()).increment();
+        }
+
+        long writes(String equipmentId) {
+            LongAdder count = writes.get(equipmentId);
+            return count != null ? count.sum() : 0;
+        }
+    }
+
+    @Test
+    void versionIncrementsMatchConfirmedWrites() {
+        for (int i = 0; i < MOTORS; i++) {
+            synthetic.add(equipmentRepository.saveAndFlush(syntheticMotor(i)));
+        }
+        for (int i = 0; i < INVERTERS; i++) {
+            synthetic.add(equipmentRepository.saveAndFlush(
+                new Inverter("Teste de concorrência - inversor " + i, null, null, null)));
+        }
+        Map<String, Long> initialVersions = new HashMap<>();
+        for (Equipment equipment : synthetic) {
+            initialVersions.put(equipment.getId(), equipment.getVersion());
+        }
+        Tally tally = new Tally();
+        long retriesBefore = optimisticRetry.getRetries();
+
+        // Valores distintos a cada operação: toda escrita confirmada muda a linha
+        AtomicLong sequence = new AtomicLong();
+        AtomicBoolean workersDone = new AtomicBoolean();
+        Set<String> ids = new LinkedHashSet<>(initialVersions.keySet());
+        Thread collector = new Thread(() -> {
+            while (!workersDone.get()) {
+                collect(ids, sequence.incrementAndGet(), tally);
+            }
+        }, "equipment-concurrency-modbus");
+
+        List<Thread> workers = new ArrayList<>(THREADS);
+        long start = System.nanoTime();
+        collector.start();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    Equipment target = synthetic.get(random.nextInt(synthetic.size()));
+                    if (random.nextBoolean()) {
+                        put(target.getId(), sequence.incrementAndGet(), tally);
+                    } else if (target.getType() == EquipmentType.MOTOR) {
+                        command(target.getId(), random.nextBoolean() ? CommandType.START : CommandType.STOP, tally);
+                    } else {
+                        setpoint(target.getId(), sequence.incrementAndGet(), tally);
+                    }
+                }
+            }, "equipment-concurrency-" + t);
+            workers.add(thread);
+            thread.start();
+        }
+        join(workers);
+        workersDone.set(true);
+        join(List.of(collector));
+        // Etapas de comandos que excederam o prazo ainda contam na versão
+        for (EquipmentCommand command : submitted) {
+            awaitQuietly(command);
+            tally.write(command.getEquipmentId(), command.getCompletedStages());
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Map<String, Long> confirmedWrites = new TreeMap<>();
+        Map<String, Long> versionIncrements = new TreeMap<>();
+        for (Equipment equipment : synthetic) {
+            String id = equipment.getId();
+            confirmedWrites.put(id, tally.writes(id));
+            versionIncrements.put(id, equipmentRepository.findById(id)
+                .map(current -> current.getVersion() - initialVersions.get(id))
+                .orElse(-1L));
+        }
+        log.info("Teste de concorrência em {} ms: tentativas {}, sucessos {}, exceções {}, novas tentativas {}",
+            String.format("%.1f", elapsed / 1e6), toMap(tally.attempted), toMap(tally.succeeded),
+            toMap(tally.exceptions), optimisticRetry.getRetries() - retriesBefore);
+
+        assertThat(toMap(tally.succeeded)).containsKeys(Operation.PUT.name(), Operation.MODBUS.name());
+        assertThat(versionIncrements).isEqualTo(confirmedWrites);
+    }
+
+    @AfterEach
+    void removeSyntheticEquipment() {
+        for (EquipmentCommand command : submitted) {
+            awaitQuietly(command);
+        }
+        // Alarmes de partida/parada ainda na fila referenciam os equipamentos
+        if (!alarmPipeline.awaitWritten(CLEANUP_TIMEOUT_MILLIS)) {
+            log.warn("Teste de concorrência: alarmes ainda na fila ao remover os equipamentos sintéticos");
+        }
+        for (Equipment equipment : synthetic) {
+            equipmentService.delete(equipment.getId());
+            modbusPollingService.forgetEquipment(equipment.getId());
+        }
+    }
+
+    private void put(String id, long seq, Tally tally) {
+        tally.attempt(Operation.PUT);
+        try {
+            // Como o PUT: corpo com a versão carregada pelo cliente
+            Equipment loaded = equipmentService.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Equipamento não encontrado: " + id));
+            loaded.setLocation("Teste " + seq);
+            equipmentService.save(loaded);
+            tally.success(Operation.PUT);
+            tally.write(id, 1);
+        } catch (RuntimeException e) {
+            tally.failure(e);
+        }
+    }
+
+    private void setpoint(String id, long seq, Tally tally) {
+        tally.attempt(Operation.SETPOINT);
+        try {
+            // Passo de 0,01 mHz na faixa 10–60 Hz
+            equipmentService.updateInverterFrequency(id, 10.0 + (seq % 5_000_000) * 1e-5);
+            tally.success(Operation.SETPOINT);
+            tally.write(id, 1);
+        } catch (RuntimeException e) {
+            tally.failure(e);
+        }
+    }
+
+    private void command(String id, CommandType type, Tally tally) {
+        Operation operation = type == CommandType.START ? Operation.START : Operation.STOP;
+        tally.attempt(operation);
+        try {
+            EquipmentCommand command = commandService.submit(type, id, null, SOURCE);
+            submitted.add(command);
+            command.getResult().get(COMMAND_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            tally.success(operation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            tally.failure(e);
+        } catch (Exception e) {
+            tally.failure(e);
+        }
+    }
+
+    /**
+     * Ciclo do coletor: valores ao vivo novos para todos os equipamentos e gravação como na varredura
+     */
+    private void collect(Set<String> ids, long seq, Tally tally) {
+        tally.attempt(Operation.MODBUS);
+        long now = System.currentTimeMillis();
+        for (String id : ids) {
+            liveValueService.update(id, EquipmentField.TEMPERATURE, 25.0 + (seq % 1_000_000) * 1e-6, now);
+        }
+        try {
+            modbusPollingService.persistLiveValues(ids);
+            tally.success(Operation.MODBUS);
+            for (String id : ids) {
+                tally.write(id, 1);
+            }
+        } catch (RuntimeException e) {
+            tally.failure(e);
+        }
+    }
+
+    private static void awaitQuietly(EquipmentCommand command) {
+        try {
+            command.getResult().get(COMMAND_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RuntimeException e) {
+            // Falhas já contadas pela thread do teste
+        }
+    }
+
+    private static void join(List<Thread> threads) {
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <K> Map<String, Long> toMap(Map<K, LongAdder> counters) {
+        Map<String, Long> map = new TreeMap<>();
+        counters.forEach((key, count) -> map.put(String.valueOf(key), count.sum()));
+        return map;
+    }
+
+    private static Motor syntheticMotor(int index) {
+        Motor motor = new Motor("Teste de concorrência - motor " + index, null, null, null);
+        motor.setNominalCurrent(100.0);
+        motor.setVoltage(380.0);
+        // Grupo de interlock próprio: não bloqueia nem é bloqueado pelos outros motores do teste
+        motor.setInterlockGroup("teste-concorrencia-" + index);
+        return motor;
+    }
+}
@@ -0,0 +1,94 @@
+package com.mattschutz.scada.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reservas concorrentes do interlock: threads disputam os mesmos grupos e
+ * cada concessão é conferida contra a anterior do mesmo grupo
+ */
+class InterlockServiceTest {
+
+    private static final int THREADS = 16;
+    private static final int GROUPS = 4;
+    private static final long DURATION_MILLIS = 1_000;
+    private static final long DELAY_NANOS = 1_000_000L;
+
+    @Test
+    void concurrentReservationsNeverStartTwiceWithinDelay() throws InterruptedException {
+        InterlockService interlockService = new InterlockService();
+        List<List<Long>> grants = new ArrayList<>(THREADS * GROUPS);
+        for (int i = 0; i < THREADS * GROUPS; i++) {
+            grants.add(new ArrayList<>());
+        }
+        CountDownLatch ready = new CountDownLatch(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            int worker = t;
+            Thread thread = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long end = System.nanoTime() + DURATION_MILLIS * 1_000_000L;
+                int group = worker % GROUPS;
+                while (System.nanoTime() < end) {
+                    InterlockService.Reservation reservation =
+                        interlockService.reserve("grupo-" + group, DELAY_NANOS);
+                    if (reservation.isGranted()) {
+                        grants.get(worker * GROUPS + group).add(reservation.getReservedAt());
+                    }
+                    group = (group + 1) % GROUPS;
+                }
+            }, "interlock-stress-" + t);
+            workers.add(thread);
+            thread.start();
+        }
+        ready.await();
+        go.countDown();
+        for (Thread thread : workers) {
+            thread.join();
+        }
+
+        // Concessões de todas as threads por grupo, em ordem: nenhum intervalo menor que o tempo morto
+        long totalGranted = 0;
+        for (int g = 0; g < GROUPS; g++) {
+            List<Long> times = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                times.addAll(grants.get(t * GROUPS + g));
+            }
+            long[] sorted = times.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            totalGranted += sorted.length;
+            for (int i = 1; i < sorted.length; i++) {
+                assertThat(sorted[i] - sorted[i - 1]).isGreaterThanOrEqualTo(DELAY_NANOS);
+            }
+        }
+        assertThat(totalGranted).isPositive()
+            .isLessThanOrEqualTo(GROUPS * (DURATION_MILLIS * 1_000_000L / DELAY_NANOS + 1));
+    }
+
+    @Test
+    void releaseRestoresPreviousReservation() {
+        InterlockService interlockService = new InterlockService();
+        InterlockService.Reservation first = interlockService.reserve("grupo", DELAY_NANOS * 1_000);
+        InterlockService.Reservation second = interlockService.reserve("grupo", DELAY_NANOS * 1_000);
+        assertThat(first.isGranted()).isTrue();
+        assertThat(second.isGranted()).isFalse();
+
+        interlockService.release(first);
+
+        assertThat(interlockService.reserve("grupo", DELAY_NANOS * 1_000).isGranted()).isTrue();
+    }
+}